@@ -1,9 +1,32 @@
 package com.estapar.parking.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Clock;
+import java.time.Duration;
+
 @Configuration
 @EnableCaching
 public class CacheConfig {
-} 
\ No newline at end of file
+    public static final String REVENUE_CACHE = "revenue";
+
+    // Estatísticas ligadas para o actuator publicar cache.gets (hit/miss), cache.puts e cache.evictions
+    @Bean
+    public CacheManager cacheManager(Clock clock,
+                                     @Value("${parking.revenue.cache.current-day-ttl-seconds:30}") long currentDayTtlSeconds,
+                                     @Value("${parking.revenue.cache.maximum-size:10000}") long maximumSize) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(REVENUE_CACHE, Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(new RevenueCacheExpiry(clock, Duration.ofSeconds(currentDayTtlSeconds)))
+            .recordStats()
+            .build());
+        return cacheManager;
+    }
+}
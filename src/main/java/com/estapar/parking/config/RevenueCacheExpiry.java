@@ -0,0 +1,38 @@
+package com.estapar.parking.config;
+
+import com.estapar.parking.service.RevenueCacheKey;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+
+// Dias encerrados não mudam mais (um EXIT atrasado invalida a entrada), então ficam em cache sem expirar.
+// O dia corrente (ou futuro) expira depois de um TTL curto.
+class RevenueCacheExpiry implements Expiry<Object, Object> {
+    private final Clock clock;
+    private final long currentDayTtlNanos;
+
+    RevenueCacheExpiry(Clock clock, Duration currentDayTtl) {
+        this.clock = clock;
+        this.currentDayTtlNanos = currentDayTtl.toNanos();
+    }
+
+    @Override
+    public long expireAfterCreate(Object key, Object value, long currentTime) {
+        if (key instanceof RevenueCacheKey revenueKey && revenueKey.date().isBefore(LocalDate.now(clock))) {
+            return Long.MAX_VALUE;
+        }
+        return currentDayTtlNanos;
+    }
+
+    @Override
+    public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+        return expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+}
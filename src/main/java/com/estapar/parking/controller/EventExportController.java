@@ -0,0 +1,34 @@
+package com.estapar.parking.controller;
+
+import com.estapar.parking.service.EventExportQuery;
+import com.estapar.parking.service.EventExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Events", description = "APIs para exportação do histórico de eventos")
+public class EventExportController {
+    private final EventExportService eventExportService;
+
+    @GetMapping("/events/export")
+    @Operation(summary = "Exporta eventos de um período em CSV ou NDJSON, com filtros opcionais de setor e tipo")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam String start,
+                                                        @RequestParam String end,
+                                                        @RequestParam(required = false) String sector,
+                                                        @RequestParam(required = false) String type,
+                                                        @RequestParam(required = false) String format) {
+        EventExportQuery query = eventExportService.exportQuery(start, end, sector, type, format);
+        StreamingResponseBody body = output -> eventExportService.export(query, output);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(query.format().contentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"parking-events." + query.format().extension() + "\"")
+            .body(body);
+    }
+}
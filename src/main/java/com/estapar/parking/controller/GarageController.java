@@ -1,23 +1,95 @@
 package com.estapar.parking.controller;
 
 import com.estapar.parking.dto.GarageConfigDTO;
+import com.estapar.parking.dto.GarageImportResponse;
+import com.estapar.parking.dto.GarageVersionDTO;
+import com.estapar.parking.dto.SectorAvailabilityDTO;
+import com.estapar.parking.service.GarageConfigCache;
+import com.estapar.parking.service.GarageConfigExportService;
+import com.estapar.parking.service.GarageConfigQuery;
+import com.estapar.parking.service.GarageImportService;
 import com.estapar.parking.service.GarageService;
+import com.estapar.parking.service.GarageTopologyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
 @Tag(name = "Garage", description = "APIs para configuração da garagem")
 public class GarageController {
     private final GarageService garageService;
+    private final GarageConfigExportService garageConfigExportService;
+    private final GarageConfigCache garageConfigCache;
+    private final GarageImportService garageImportService;
+    private final GarageTopologyService garageTopologyService;
 
+    // Sem limit, a garagem inteira sai do cache da versão atual, comprimida quando o cliente aceita gzip
     @GetMapping("/garage")
-    @Operation(summary = "Obtém configuração atual da garagem")
-    public ResponseEntity<GarageConfigDTO> getCurrentConfig() {
-        return ResponseEntity.ok(garageService.getCurrentConfig());
+    @Operation(summary = "Obtém configuração atual da garagem; com limit, uma página de vagas seguintes a after")
+    public ResponseEntity<StreamingResponseBody> getCurrentConfig(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        GarageConfigQuery query = garageConfigExportService.query(after, limit);
+        if (query.paginated()) {
+            StreamingResponseBody body = output -> garageConfigExportService.write(query, output);
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+        }
+
+        GarageConfigCache.CachedConfig config = garageConfigCache.get();
+        if (config.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(config.etag()).build();
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        byte[] bytes = gzip ? config.gzip() : config.json();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .eTag(config.etag())
+            .varyBy(HttpHeaders.ACCEPT_ENCODING)
+            .contentType(MediaType.APPLICATION_JSON)
+            .contentLength(bytes.length);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(output -> output.write(bytes));
+    }
+
+    // O corpo é lido direto do request, sem desserializar o documento inteiro antes de importar
+    @PostMapping(value = "/garage", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Importa a configuração da garagem (setores, tarifas e vagas), substituindo a atual")
+    public ResponseEntity<GarageImportResponse> importGarage(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(garageImportService.importGarage(request.getInputStream()));
+    }
+
+    @PutMapping("/garage")
+    @Operation(summary = "Aplica uma nova versão da configuração da garagem, gravando só o que mudou")
+    public ResponseEntity<GarageVersionDTO> applyGarage(@RequestBody GarageConfigDTO config) {
+        return ResponseEntity.ok(garageTopologyService.apply(config));
+    }
+
+    @GetMapping("/garage/version")
+    @Operation(summary = "Obtém a versão atual da configuração da garagem")
+    public ResponseEntity<GarageVersionDTO> getVersion() {
+        return ResponseEntity.ok(garageTopologyService.getCurrentVersion());
+    }
+
+    @GetMapping("/garage/availability")
+    @Operation(summary = "Obtém a quantidade de vagas livres por setor")
+    public ResponseEntity<List<SectorAvailabilityDTO>> getAvailability() {
+        return ResponseEntity.ok(garageService.getAvailability());
     }
 
 } 
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.estapar.parking.controller;
+
+import com.estapar.parking.service.OccupancySnapshotPublisher;
+import com.estapar.parking.service.OccupancyStreamService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Occupancy", description = "APIs para consulta da ocupação da garagem")
+public class OccupancyController {
+    private final OccupancySnapshotPublisher occupancySnapshots;
+    private final OccupancyStreamService occupancyStream;
+
+    // O corpo já foi serializado ao publicar o snapshot; com a ETag da versão atual, 304
+    @GetMapping("/occupancy")
+    @Operation(summary = "Obtém a ocupação de todos os setores a partir do último snapshot publicado")
+    public ResponseEntity<byte[]> getOccupancy(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        OccupancySnapshotPublisher.OccupancySnapshot snapshot = occupancySnapshots.getSnapshot();
+        if (snapshot.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.etag()).build();
+        }
+        return ResponseEntity.ok()
+            .eTag(snapshot.etag())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(snapshot.json());
+    }
+
+    // Começa pelo estado atual de cada setor e segue com as mudanças; sector pode se repetir. Com envios presos demais
+    // no stream, 503 até algum terminar
+    @GetMapping(value = "/occupancy/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Acompanha vagas ocupadas/liberadas e a lotação dos setores por Server-Sent Events")
+    public ResponseEntity<SseEmitter> streamOccupancy(@RequestParam(required = false) Set<String> sector) {
+        if (!occupancyStream.isAcceptingSubscribers()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(occupancyStream.subscribe(sector != null ? sector : Set.of(), occupancySnapshots::currentSectors));
+    }
+}
@@ -1,13 +1,19 @@
 package com.estapar.parking.controller;
 
+import com.estapar.parking.dto.RevenueRebuildRequest;
+import com.estapar.parking.dto.RevenueRebuildResponse;
 import com.estapar.parking.dto.RevenueRequest;
 import com.estapar.parking.dto.RevenueResponse;
+import com.estapar.parking.dto.RevenueSeriesRequest;
+import com.estapar.parking.service.RevenueSeriesQuery;
 import com.estapar.parking.service.RevenueService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequiredArgsConstructor
@@ -20,4 +26,19 @@ public class RevenueController {
     public ResponseEntity<RevenueResponse> getRevenue(@RequestBody RevenueRequest request) {
         return ResponseEntity.ok(revenueService.getRevenue(request.getDate(), request.getSector()));
     }
-} 
\ No newline at end of file
+
+    @PostMapping("/revenue/series")
+    @Operation(summary = "Série de faturamento por setor em um intervalo de datas, por hora, dia ou mês")
+    public ResponseEntity<StreamingResponseBody> getRevenueSeries(@RequestBody RevenueSeriesRequest request) {
+        RevenueSeriesQuery query = revenueService.seriesQuery(request);
+        StreamingResponseBody body = output -> revenueService.writeSeries(query, output);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @PostMapping("/revenue/rebuild")
+    @Operation(summary = "Recalcula os acumulados de faturamento a partir dos eventos (todo o histórico se não houver datas)")
+    public ResponseEntity<RevenueRebuildResponse> rebuild(@RequestBody(required = false) RevenueRebuildRequest request) {
+        RevenueRebuildRequest range = request != null ? request : new RevenueRebuildRequest();
+        return ResponseEntity.ok(revenueService.rebuild(range.getStartDate(), range.getEndDate()));
+    }
+}
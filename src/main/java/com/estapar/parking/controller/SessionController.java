@@ -0,0 +1,22 @@
+package com.estapar.parking.controller;
+
+import com.estapar.parking.dto.SessionAlertsResponse;
+import com.estapar.parking.service.SessionDeadlineMonitor;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Sessions", description = "APIs para acompanhamento das sessões ativas")
+public class SessionController {
+    private final SessionDeadlineMonitor sessionDeadlineMonitor;
+
+    @GetMapping("/sessions/alerts")
+    @Operation(summary = "Lista veículos além do limite de permanência e entradas encerradas sem PARKED")
+    public ResponseEntity<SessionAlertsResponse> getAlerts() {
+        return ResponseEntity.ok(sessionDeadlineMonitor.getAlerts());
+    }
+}
@@ -1,17 +1,23 @@
 package com.estapar.parking.controller;
 
 import com.estapar.parking.dto.VehicleEventDTO;
+import com.estapar.parking.dto.WebhookBatchResponse;
 import com.estapar.parking.dto.WebhookResponse;
 import com.estapar.parking.service.ParkingService;
+import com.estapar.parking.service.WebhookDispatcher;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/webhook")
 @RequiredArgsConstructor
 public class WebhookController {
     private final ParkingService parkingService;
+    private final WebhookDispatcher webhookDispatcher;
 
     @PostMapping
     public ResponseEntity<WebhookResponse> handleWebhook(@RequestBody VehicleEventDTO event) {
@@ -19,6 +25,10 @@ public class WebhookController {
             return ResponseEntity.badRequest().body(new WebhookResponse(false, "Event cannot be null"));
         }
 
+        if (webhookDispatcher.isEnabled()) {
+            return acceptAsync(event);
+        }
+
         try {
             parkingService.handleWebhookEvent(event);
             return ResponseEntity.ok(new WebhookResponse(true, "Event processed successfully"));
@@ -26,4 +36,26 @@ public class WebhookController {
             return ResponseEntity.internalServerError().body(new WebhookResponse(false, "Error processing event: " + e.getMessage()));
         }
     }
+
+    private ResponseEntity<WebhookResponse> acceptAsync(VehicleEventDTO event) {
+        try {
+            parkingService.validateWebhookEvent(event);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new WebhookResponse(false, "Invalid event: " + e.getMessage()));
+        }
+
+        if (!webhookDispatcher.submit(event)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new WebhookResponse(false, "Event queue is full"));
+        }
+        return ResponseEntity.accepted().body(new WebhookResponse(true, "Event accepted for processing"));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<WebhookBatchResponse> handleWebhookBatch(@RequestBody List<VehicleEventDTO> events) {
+        if (events == null || events.isEmpty()) {
+            return ResponseEntity.badRequest().body(new WebhookBatchResponse(List.of()));
+        }
+
+        return ResponseEntity.ok(new WebhookBatchResponse(parkingService.handleWebhookBatch(events)));
+    }
 } 
\ No newline at end of file
@@ -2,14 +2,20 @@ package com.estapar.parking.dto;
 
 import com.estapar.parking.model.GarageSector;
 import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.model.SectorTariff;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.Data;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Data
 public class GarageConfigDTO {
@@ -30,6 +36,21 @@ public class GarageConfigDTO {
         private String closeHour;
         @JsonProperty("duration_limit_minutes")
         private int durationLimitMinutes;
+        @JsonInclude(JsonInclude.Include.NON_EMPTY)
+        private List<TariffConfig> tariffs;
+    }
+
+    // Faixa de preço base: days (MONDAY..SUNDAY; vazio: todos), start/end em HH:mm (end <= start: termina no dia
+    // seguinte; sem horários: dia inteiro) e effective_from (yyyy-MM-ddTHH:mm:ss; vazio: desde sempre)
+    @Data
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class TariffConfig {
+        @JsonProperty("effective_from")
+        private String effectiveFrom;
+        private List<String> days;
+        private String start;
+        private String end;
+        private BigDecimal price;
     }
 
     @Data
@@ -40,6 +61,13 @@ public class GarageConfigDTO {
     }
 
     public GarageConfigDTO(List<GarageSector> sectors, List<ParkingSpot> spots) {
+        this(sectors, spots, List.of());
+    }
+
+    public GarageConfigDTO(List<GarageSector> sectors, List<ParkingSpot> spots, List<SectorTariff> tariffs) {
+        Map<String, List<TariffConfig>> tariffsBySector = tariffs.stream()
+            .collect(Collectors.groupingBy(SectorTariff::getSectorId,
+                Collectors.mapping(GarageConfigDTO::toTariffConfig, Collectors.toList())));
         this.garage = sectors.stream()
             .map(sector -> {
                 GarageSectorConfig config = new GarageSectorConfig();
@@ -49,6 +77,7 @@ public class GarageConfigDTO {
                 config.setOpenHour(sector.getOpenHour().format(TIME_FORMATTER));
                 config.setCloseHour(sector.getCloseHour().format(TIME_FORMATTER));
                 config.setDurationLimitMinutes(sector.getDurationLimitMinutes());
+                config.setTariffs(tariffsBySector.get(sector.getId()));
                 return config;
             })
             .toList();
@@ -66,4 +95,22 @@ public class GarageConfigDTO {
 
     public GarageConfigDTO() {
     }
+
+    private static TariffConfig toTariffConfig(SectorTariff tariff) {
+        TariffConfig config = new TariffConfig();
+        if (tariff.getEffectiveFrom() != null) {
+            config.setEffectiveFrom(tariff.getEffectiveFrom().toString());
+        }
+        if (tariff.getDaysMask() != SectorTariff.ALL_DAYS) {
+            config.setDays(Arrays.stream(DayOfWeek.values()).filter(tariff::appliesOn).map(DayOfWeek::name).toList());
+        }
+        if (tariff.getStartTime() != null) {
+            config.setStart(tariff.getStartTime().format(TIME_FORMATTER));
+        }
+        if (tariff.getEndTime() != null) {
+            config.setEnd(tariff.getEndTime().format(TIME_FORMATTER));
+        }
+        config.setPrice(tariff.getPrice());
+        return config;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.estapar.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GarageImportResponse {
+    private int sectors;
+    private int spots;
+    private int tariffs;
+}
@@ -0,0 +1,36 @@
+package com.estapar.parking.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GarageVersionDTO {
+    private long version;
+
+    @JsonProperty("applied_at")
+    private LocalDateTime appliedAt;
+
+    @JsonProperty("sectors_added")
+    private int sectorsAdded;
+
+    @JsonProperty("sectors_changed")
+    private int sectorsChanged;
+
+    @JsonProperty("sectors_removed")
+    private int sectorsRemoved;
+
+    @JsonProperty("spots_added")
+    private int spotsAdded;
+
+    @JsonProperty("spots_changed")
+    private int spotsChanged;
+
+    @JsonProperty("spots_removed")
+    private int spotsRemoved;
+}
@@ -0,0 +1,21 @@
+package com.estapar.parking.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+
+// Nova lotação do setor, enviada no stream de ocupação (evento "occupancy")
+@Value
+public class OccupancyEventDTO {
+    String sector;
+
+    int occupancy;
+
+    @JsonProperty("free_spots")
+    int freeSpots;
+
+    @JsonProperty("total_spots")
+    int totalSpots;
+
+    @JsonProperty("price_tier")
+    int priceTier;
+}
@@ -0,0 +1,17 @@
+package com.estapar.parking.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Value
+public class OccupancySnapshotDTO {
+    long version;
+
+    @JsonProperty("generated_at")
+    LocalDateTime generatedAt;
+
+    List<SectorOccupancyDTO> sectors;
+}
@@ -0,0 +1,18 @@
+package com.estapar.parking.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class RevenueRebuildRequest {
+    @JsonProperty("start_date")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate startDate;
+
+    @JsonProperty("end_date")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate endDate;
+}
@@ -0,0 +1,13 @@
+package com.estapar.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueRebuildResponse {
+    private int days;
+    private int rollups;
+}
@@ -0,0 +1,25 @@
+package com.estapar.parking.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class RevenueSeriesRequest {
+    @JsonProperty("start_date")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate startDate;
+
+    @JsonProperty("end_date")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate endDate;
+
+    // Sem setores, a série cobre todos
+    private List<String> sectors;
+
+    // hour, day ou month (padrão: day)
+    private String granularity;
+}
@@ -0,0 +1,22 @@
+package com.estapar.parking.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SectorAvailabilityDTO {
+    private String sector;
+
+    @JsonProperty("total_spots")
+    private int totalSpots;
+
+    @JsonProperty("free_spots")
+    private int freeSpots;
+
+    // Dentro do horário de funcionamento do setor
+    private boolean open;
+}
@@ -0,0 +1,36 @@
+package com.estapar.parking.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Um setor no snapshot de ocupação; imutável, compartilhado entre todas as leituras da mesma versão
+@Value
+public class SectorOccupancyDTO {
+    String sector;
+
+    @JsonProperty("max_capacity")
+    int maxCapacity;
+
+    @JsonProperty("total_spots")
+    int totalSpots;
+
+    @JsonProperty("free_spots")
+    int freeSpots;
+
+    int occupancy;
+
+    // Faixa de lotação da tarifa: 0 abaixo de 25%, 1 até 50%, 2 até 75%, 3 a partir de 75%
+    @JsonProperty("price_tier")
+    int priceTier;
+
+    @JsonProperty("hourly_price")
+    BigDecimal hourlyPrice;
+
+    boolean open;
+
+    @JsonProperty("occupied_spots")
+    List<Long> occupiedSpots;
+}
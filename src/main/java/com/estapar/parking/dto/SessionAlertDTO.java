@@ -0,0 +1,29 @@
+package com.estapar.parking.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionAlertDTO {
+    @JsonProperty("license_plate")
+    private String licensePlate;
+
+    private String sector;
+
+    @JsonProperty("spot_id")
+    private Long spotId;
+
+    @JsonProperty("entry_time")
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+    private LocalDateTime entryTime;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+    private LocalDateTime deadline;
+}
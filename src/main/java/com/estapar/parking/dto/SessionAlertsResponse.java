@@ -0,0 +1,20 @@
+package com.estapar.parking.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionAlertsResponse {
+    // Veículos estacionados além do limite de permanência do setor
+    private List<SessionAlertDTO> overstays;
+
+    // Últimas entradas sem PARKED encerradas por tempo
+    @JsonProperty("abandoned_entries")
+    private List<SessionAlertDTO> abandonedEntries;
+}
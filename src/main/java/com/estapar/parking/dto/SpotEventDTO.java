@@ -0,0 +1,15 @@
+package com.estapar.parking.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+
+// Vaga ocupada ou liberada, enviada no stream de ocupação (evento "spot")
+@Value
+public class SpotEventDTO {
+    String sector;
+
+    @JsonProperty("spot_id")
+    Long spotId;
+
+    boolean occupied;
+}
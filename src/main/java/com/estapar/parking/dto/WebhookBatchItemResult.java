@@ -0,0 +1,20 @@
+package com.estapar.parking.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class WebhookBatchItemResult {
+    private int index;
+
+    @JsonProperty("license_plate")
+    private String licensePlate;
+
+    @JsonProperty("event_type")
+    private String eventType;
+
+    private boolean success;
+    private String message;
+}
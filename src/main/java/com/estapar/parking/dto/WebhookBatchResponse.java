@@ -0,0 +1,20 @@
+package com.estapar.parking.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class WebhookBatchResponse {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<WebhookBatchItemResult> results;
+
+    public WebhookBatchResponse(List<WebhookBatchItemResult> results) {
+        this.results = results;
+        this.total = results.size();
+        this.succeeded = (int) results.stream().filter(WebhookBatchItemResult::isSuccess).count();
+        this.failed = total - succeeded;
+    }
+}
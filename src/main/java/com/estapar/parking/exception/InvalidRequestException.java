@@ -0,0 +1,7 @@
+package com.estapar.parking.exception;
+
+public class InvalidRequestException extends ParkingBusinessException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.estapar.parking.exception;
+
+public class SectorClosedException extends ParkingBusinessException {
+    public SectorClosedException(String sectorId) {
+        super(String.format("Sector %s is closed", sectorId));
+    }
+}
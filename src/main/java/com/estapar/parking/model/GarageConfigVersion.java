@@ -0,0 +1,35 @@
+package com.estapar.parking.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Versão aplicada da configuração da garagem; os contadores resumem a diferença em relação à versão anterior
+@Data
+@Entity
+@Table(name = "garage_config_versions")
+public class GarageConfigVersion {
+    @Id
+    private Long version;
+
+    @Column(name = "applied_at", nullable = false)
+    private LocalDateTime appliedAt;
+
+    @Column(name = "sectors_added", nullable = false)
+    private int sectorsAdded;
+
+    @Column(name = "sectors_changed", nullable = false)
+    private int sectorsChanged;
+
+    @Column(name = "sectors_removed", nullable = false)
+    private int sectorsRemoved;
+
+    @Column(name = "spots_added", nullable = false)
+    private int spotsAdded;
+
+    @Column(name = "spots_changed", nullable = false)
+    private int spotsChanged;
+
+    @Column(name = "spots_removed", nullable = false)
+    private int spotsRemoved;
+}
@@ -29,38 +29,4 @@ public class GarageSector {
     
     @Column(nullable = false)
     private int currentOccupancy;
-
-    public boolean canAcceptNewVehicle() {
-        return currentOccupancy < maxCapacity;
-    }
-
-    public void incrementOccupancy() {
-        if (currentOccupancy >= maxCapacity) {
-            throw new IllegalStateException("Sector is at maximum capacity");
-        }
-        currentOccupancy++;
-    }
-
-    public void decrementOccupancy() {
-        if (currentOccupancy <= 0) {
-            throw new IllegalStateException("Sector is already empty");
-        }
-        currentOccupancy--;
-    }
-
-    public BigDecimal calculateDynamicPrice() {
-        double occupancyRate = (double) currentOccupancy / maxCapacity;
-        
-        if (occupancyRate >= 1.0) {
-            return basePrice.multiply(BigDecimal.valueOf(1.25)); // 25% increase at 100%
-        } else if (occupancyRate >= 0.75) {
-            return basePrice.multiply(BigDecimal.valueOf(1.25)); // 25% increase at 75-100%
-        } else if (occupancyRate >= 0.50) {
-            return basePrice.multiply(BigDecimal.valueOf(1.10)); // 10% increase at 50-75%
-        } else if (occupancyRate >= 0.25) {
-            return basePrice; // Base price at 25-50%
-        } else {
-            return basePrice.multiply(BigDecimal.valueOf(0.90)); // 10% discount below 25%
-        }
-    }
-} 
\ No newline at end of file
+}
@@ -7,7 +7,13 @@ import java.math.BigDecimal;
 
 @Data
 @Entity
-@Table(name = "parking_events")
+@Table(name = "parking_events",
+       indexes = {
+           @Index(name = "idx_parking_events_plate_type_timestamp", columnList = "license_plate, type, timestamp"),
+           @Index(name = "idx_parking_events_sector_timestamp", columnList = "sector_id, timestamp, price"),
+           @Index(name = "idx_parking_events_type_timestamp", columnList = "type, timestamp, sector_id, price"),
+           @Index(name = "idx_parking_events_timestamp", columnList = "timestamp, id")
+       })
 public class ParkingEvent {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
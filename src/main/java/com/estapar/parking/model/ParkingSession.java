@@ -0,0 +1,43 @@
+package com.estapar.parking.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Uma estadia completa (ENTRY -> PARKED -> EXIT). A sessão ativa de uma placa é a que tem exit_time nulo.
+@Data
+@Entity
+@Table(name = "parking_sessions",
+       indexes = {
+           @Index(name = "idx_parking_sessions_plate_exit", columnList = "license_plate, exit_time"),
+           @Index(name = "idx_parking_sessions_spot_exit", columnList = "spot_id, exit_time"),
+           @Index(name = "idx_parking_sessions_exit", columnList = "exit_time")
+       })
+public class ParkingSession {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "license_plate", nullable = false)
+    private String licensePlate;
+
+    @Column(name = "entry_time", nullable = false)
+    private LocalDateTime entryTime;
+
+    @Column(name = "spot_id")
+    private Long spotId;
+
+    @Column(name = "sector_id")
+    private String sectorId;
+
+    @Column(name = "locked_price", precision = 12, scale = 4)
+    private BigDecimal lockedPrice;
+
+    @Column(name = "exit_time")
+    private LocalDateTime exitTime;
+
+    public boolean isActive() {
+        return exitTime == null;
+    }
+}
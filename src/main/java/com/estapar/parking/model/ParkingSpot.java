@@ -10,6 +10,12 @@ import java.time.LocalDateTime;
        uniqueConstraints = {
            @UniqueConstraint(columnNames = {"license_plate", "entry_time"}),
            @UniqueConstraint(columnNames = {"latitude", "longitude", "entry_time"})
+       },
+       indexes = {
+           @Index(name = "idx_parking_spots_plate_occupied", columnList = "license_plate, occupied"),
+           @Index(name = "idx_parking_spots_lat_lng", columnList = "latitude, longitude"),
+           @Index(name = "idx_parking_spots_sector_occupied", columnList = "sector_id, occupied, entry_time"),
+           @Index(name = "idx_parking_spots_occupied", columnList = "occupied")
        })
 public class ParkingSpot {
     @Id
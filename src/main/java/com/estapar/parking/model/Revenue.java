@@ -4,18 +4,26 @@ import jakarta.persistence.*;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
+// Faturamento acumulado de um setor em um intervalo (hora ou dia); timestamp é o início do intervalo
 @Data
 @Entity
-@Table(name = "revenues")
+@Table(name = "revenues",
+       uniqueConstraints = @UniqueConstraint(name = "uk_revenues_sector_granularity_timestamp",
+                                             columnNames = {"sector_id", "granularity", "timestamp"}),
+       indexes = @Index(name = "idx_revenues_timestamp", columnList = "timestamp"))
 public class Revenue {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
-    @JoinColumn(name = "sector_id", nullable = false)
-    private GarageSector sector;
+    @Column(name = "sector_id", nullable = false)
+    private String sectorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 5)
+    private Granularity granularity;
 
     @Column(nullable = false)
     private BigDecimal amount;
@@ -25,4 +33,19 @@ public class Revenue {
 
     @Column(name = "timestamp", nullable = false)
     private LocalDateTime timestamp;
-} 
\ No newline at end of file
+
+    public enum Granularity {
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public LocalDateTime bucketOf(LocalDateTime timestamp) {
+            return timestamp.truncatedTo(unit);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.estapar.parking.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+
+// Preço base de um setor em uma faixa de horário dos dias marcados, a partir de effectiveFrom (nulo: desde sempre).
+// Sem startTime/endTime vale o dia inteiro; endTime menor ou igual a startTime termina no dia seguinte.
+@Data
+@Entity
+@Table(name = "sector_tariffs",
+       indexes = @Index(name = "idx_sector_tariffs_sector", columnList = "sector_id"))
+public class SectorTariff {
+    public static final int ALL_DAYS = (1 << 7) - 1;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sector_id", nullable = false)
+    private String sectorId;
+
+    @Column(name = "effective_from")
+    private LocalDateTime effectiveFrom;
+
+    // Bit 0 = segunda-feira ... bit 6 = domingo
+    @Column(name = "days_mask", nullable = false)
+    private int daysMask = ALL_DAYS;
+
+    @Column(name = "start_time")
+    private LocalTime startTime;
+
+    @Column(name = "end_time")
+    private LocalTime endTime;
+
+    @Column(nullable = false)
+    private BigDecimal price;
+
+    public boolean appliesOn(DayOfWeek day) {
+        return (daysMask & (1 << (day.getValue() - 1))) != 0;
+    }
+
+    public static int maskOf(Collection<DayOfWeek> days) {
+        int mask = 0;
+        for (DayOfWeek day : days) {
+            mask |= 1 << (day.getValue() - 1);
+        }
+        return mask;
+    }
+}
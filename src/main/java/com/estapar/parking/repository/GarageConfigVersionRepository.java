@@ -0,0 +1,12 @@
+package com.estapar.parking.repository;
+
+import com.estapar.parking.model.GarageConfigVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface GarageConfigVersionRepository extends JpaRepository<GarageConfigVersion, Long> {
+    Optional<GarageConfigVersion> findTopByOrderByVersionDesc();
+}
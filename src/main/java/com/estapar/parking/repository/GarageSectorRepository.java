@@ -1,9 +1,26 @@
 package com.estapar.parking.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import com.estapar.parking.model.GarageSector;
 
 @Repository
 public interface GarageSectorRepository extends JpaRepository<GarageSector, String> {
+    @Transactional
+    @Modifying
+    @Query("UPDATE GarageSector s SET s.currentOccupancy = :occupancy WHERE s.id = :id")
+    int updateCurrentOccupancy(@Param("id") String id, @Param("occupancy") int occupancy);
+
+    // Admissão e liberação em um único UPDATE condicional; retorna 0 quando o setor está cheio/vazio
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE GarageSector s SET s.currentOccupancy = s.currentOccupancy + 1 WHERE s.id = :id AND s.currentOccupancy < s.maxCapacity")
+    int tryIncrementOccupancy(@Param("id") String id);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE GarageSector s SET s.currentOccupancy = s.currentOccupancy - 1 WHERE s.id = :id AND s.currentOccupancy > 0")
+    int tryDecrementOccupancy(@Param("id") String id);
 } 
\ No newline at end of file
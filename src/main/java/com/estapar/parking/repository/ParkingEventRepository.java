@@ -1,15 +1,20 @@
 package com.estapar.parking.repository;
 
 import com.estapar.parking.model.ParkingEvent;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
-
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface ParkingEventRepository extends JpaRepository<ParkingEvent, Long> {
@@ -17,7 +22,45 @@ public interface ParkingEventRepository extends JpaRepository<ParkingEvent, Long
     List<ParkingEvent> findByLicensePlateOrderByTimestampDesc(String licensePlate);
     List<ParkingEvent> findBySectorIdOrderByTimestampDesc(String sectorId); 
 
-    @Transactional(readOnly = true)
-    @Query("SELECT COALESCE(SUM(e.price), 0) FROM ParkingEvent e WHERE e.timestamp BETWEEN :start AND :end AND e.sectorId = :sector")
-    BigDecimal calculateRevenueByDateAndSector(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end, @Param("sector") String sector);
-} 
\ No newline at end of file
+    Optional<ParkingEvent> findFirstByTypeOrderByTimestampAsc(String type);
+    Optional<ParkingEvent> findFirstByTypeOrderByTimestampDesc(String type);
+
+    // Faturamento das saídas no período [start, end), por setor e hora do dia
+    @Query("SELECT e.sectorId AS sectorId, EXTRACT(HOUR FROM e.timestamp) AS hour, SUM(e.price) AS amount FROM ParkingEvent e "
+        + "WHERE e.type = 'EXIT' AND e.timestamp >= :start AND e.timestamp < :end AND e.sectorId IS NOT NULL AND e.price IS NOT NULL "
+        + "GROUP BY e.sectorId, EXTRACT(HOUR FROM e.timestamp)")
+    List<HourlyRevenue> sumExitRevenueByHour(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Exportação por cursor (exige transação aberta); setor e tipo nulos não filtram
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT e FROM ParkingEvent e WHERE e.timestamp >= :start AND e.timestamp < :end "
+        + "AND (:sectorId IS NULL OR e.sectorId = :sectorId) AND (:type IS NULL OR e.type = :type) ORDER BY e.timestamp, e.id")
+    Stream<ParkingEvent> streamForExport(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+                                         @Param("sectorId") String sectorId, @Param("type") String type);
+
+    // Ocupação líquida de cada setor antes do instante (PARKED ocupa, EXIT libera)
+    @Query("SELECT e.sectorId AS sectorId, SUM(CASE WHEN e.type = 'PARKED' THEN 1 ELSE -1 END) AS occupancy FROM ParkingEvent e "
+        + "WHERE e.type IN ('PARKED', 'EXIT') AND e.timestamp < :before AND e.sectorId IS NOT NULL GROUP BY e.sectorId")
+    List<SectorOccupancy> sumOccupancyBefore(@Param("before") LocalDateTime before);
+
+    @Query("SELECT e.sectorId AS sectorId, e.type AS type, e.timestamp AS timestamp FROM ParkingEvent e "
+        + "WHERE e.type IN ('PARKED', 'EXIT') AND e.timestamp >= :since AND e.sectorId IS NOT NULL ORDER BY e.timestamp, e.id")
+    List<OccupancyChange> findOccupancyChangesSince(@Param("since") LocalDateTime since);
+
+    interface SectorOccupancy {
+        String getSectorId();
+        Long getOccupancy();
+    }
+
+    interface OccupancyChange {
+        String getSectorId();
+        String getType();
+        LocalDateTime getTimestamp();
+    }
+
+    interface HourlyRevenue {
+        String getSectorId();
+        Integer getHour();
+        BigDecimal getAmount();
+    }
+}
@@ -0,0 +1,24 @@
+package com.estapar.parking.repository;
+
+import com.estapar.parking.model.ParkingSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ParkingSessionRepository extends JpaRepository<ParkingSession, Long> {
+    Optional<ParkingSession> findByLicensePlateAndExitTimeIsNull(String licensePlate);
+    Optional<ParkingSession> findBySpotIdAndExitTimeIsNull(Long spotId);
+    List<ParkingSession> findByExitTimeIsNull();
+
+    // Encerra a sessão somente se ainda não houve PARKED (sem tarifa travada) nem EXIT
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ParkingSession s SET s.exitTime = :exitTime WHERE s.id = :id AND s.exitTime IS NULL AND s.lockedPrice IS NULL")
+    int closeAbandonedEntry(@Param("id") Long id, @Param("exitTime") LocalDateTime exitTime);
+}
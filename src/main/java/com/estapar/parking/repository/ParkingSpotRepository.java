@@ -1,14 +1,22 @@
 package com.estapar.parking.repository;
 
 import com.estapar.parking.model.ParkingSpot;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface ParkingSpotRepository extends JpaRepository<ParkingSpot, Long> {
@@ -17,13 +25,49 @@ public interface ParkingSpotRepository extends JpaRepository<ParkingSpot, Long>
     
     List<ParkingSpot> findByLicensePlate(String licensePlate);
     Optional<ParkingSpot> findByLatitudeAndLongitude(double latitude, double longitude);
-    List<ParkingSpot> findBySectorIdAndOccupiedFalse(String sectorId);
     List<ParkingSpot> findBySectorIdAndOccupiedTrue(String sectorId);
-    Optional<ParkingSpot> findFirstBySectorIdAndOccupiedFalse(String sectorId);
+    List<ParkingSpot> findByOccupiedTrue();
+    long countBySectorIdAndOccupiedTrue(String sectorId);
+
+    // Vagas ocupadas por setor: a fonte da ocupação dos setores no restart e na reconfiguração
+    @Query("SELECT p.sectorId AS sectorId, COUNT(p) AS occupied FROM ParkingSpot p WHERE p.occupied = true GROUP BY p.sectorId")
+    List<SectorOccupied> countOccupiedBySector();
 
     @Query("SELECT p FROM ParkingSpot p WHERE p.sectorId = :sectorId AND p.entryTime = :entryTime")
     Optional<ParkingSpot> findBySectorIdAndEntryTime(@Param("sectorId") String sectorId, @Param("entryTime") LocalDateTime entryTime);
 
     @Query("SELECT CASE WHEN COUNT(p) > 0 THEN true ELSE false END FROM ParkingSpot p WHERE p.sectorId = :sectorId AND p.entryTime = :entryTime")
     boolean existsBySectorIdAndEntryTime(@Param("sectorId") String sectorId, @Param("entryTime") LocalDateTime entryTime);
-} 
\ No newline at end of file
+
+    // Ocupa a vaga somente se estiver livre; retorna 0 quando outro veículo chegou antes
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ParkingSpot p SET p.occupied = true, p.licensePlate = :licensePlate, p.entryTime = :entryTime WHERE p.id = :id AND p.occupied = false")
+    int claimSpot(@Param("id") Long id, @Param("licensePlate") String licensePlate, @Param("entryTime") LocalDateTime entryTime);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ParkingSpot p SET p.occupied = false, p.licensePlate = null, p.entryTime = null WHERE p.id = :id AND p.licensePlate = :licensePlate AND p.occupied = true")
+    int releaseSpot(@Param("id") Long id, @Param("licensePlate") String licensePlate);
+
+    // Configuração das vagas por cursor (exige transação aberta), sem carregar entidades
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT p.id AS id, p.sectorId AS sectorId, p.latitude AS latitude, p.longitude AS longitude "
+        + "FROM ParkingSpot p ORDER BY p.id")
+    Stream<SpotConfig> streamConfig();
+
+    // Página por keyset: as vagas seguintes a afterId, na ordem do id
+    @Query("SELECT p.id AS id, p.sectorId AS sectorId, p.latitude AS latitude, p.longitude AS longitude "
+        + "FROM ParkingSpot p WHERE p.id > :afterId ORDER BY p.id")
+    List<SpotConfig> findConfigPage(@Param("afterId") long afterId, Pageable page);
+
+    interface SectorOccupied {
+        String getSectorId();
+        Long getOccupied();
+    }
+
+    interface SpotConfig {
+        Long getId();
+        String getSectorId();
+        Double getLatitude();
+        Double getLongitude();
+    }
+}
@@ -0,0 +1,11 @@
+package com.estapar.parking.repository;
+
+import com.estapar.parking.model.Revenue;
+
+import java.time.LocalDateTime;
+
+// Criação do acumulado zerado de um intervalo dentro da transação do evento
+public interface RevenueBucketRepository {
+    // Não faz nada se outra transação já criou a linha: a chave única não é violada, então a transação segue válida
+    void createBucketIfAbsent(String sectorId, Revenue.Granularity granularity, LocalDateTime timestamp);
+}
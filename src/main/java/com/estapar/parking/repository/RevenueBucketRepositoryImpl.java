@@ -0,0 +1,46 @@
+package com.estapar.parking.repository;
+
+import com.estapar.parking.model.Revenue;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import java.sql.DatabaseMetaData;
+import java.time.LocalDateTime;
+
+// O upsert depende do banco, como as migrações de db/vendor/{vendor}: ON CONFLICT no PostgreSQL, MERGE nos demais (H2)
+class RevenueBucketRepositoryImpl implements RevenueBucketRepository {
+    private static final String INSERT_ON_CONFLICT = "INSERT INTO revenues (sector_id, granularity, timestamp, amount, currency) "
+        + "VALUES (?, ?, ?, 0, 'BRL') ON CONFLICT (sector_id, granularity, timestamp) DO NOTHING";
+    private static final String MERGE = "MERGE INTO revenues r "
+        + "USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(5)), CAST(? AS TIMESTAMP))) AS b (sector_id, granularity, bucket) "
+        + "ON r.sector_id = b.sector_id AND r.granularity = b.granularity AND r.timestamp = b.bucket "
+        + "WHEN NOT MATCHED THEN INSERT (sector_id, granularity, timestamp, amount, currency) "
+        + "VALUES (b.sector_id, b.granularity, b.bucket, 0, 'BRL')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String upsert;
+
+    RevenueBucketRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void createBucketIfAbsent(String sectorId, Revenue.Granularity granularity, LocalDateTime timestamp) {
+        jdbcTemplate.update(upsert(), sectorId, granularity.name(), timestamp);
+    }
+
+    private String upsert() {
+        if (upsert == null) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                    DatabaseMetaData::getDatabaseProductName);
+                upsert = DatabaseDriver.fromProductName(product) == DatabaseDriver.POSTGRESQL ? INSERT_ON_CONFLICT : MERGE;
+            } catch (MetaDataAccessException e) {
+                throw new IllegalStateException("Banco de dados não identificado", e);
+            }
+        }
+        return upsert;
+    }
+}
@@ -1,12 +1,82 @@
 package com.estapar.parking.repository;
 
 import com.estapar.parking.model.Revenue;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface RevenueRepository extends JpaRepository<Revenue, String> {
+public interface RevenueRepository extends JpaRepository<Revenue, Long>, RevenueBucketRepository {
     List<Revenue> findBySectorIdAndTimestampBetween(String sectorId, LocalDateTime start, LocalDateTime end);
-} 
\ No newline at end of file
+    Optional<Revenue> findBySectorIdAndGranularityAndTimestamp(String sectorId, Revenue.Granularity granularity, LocalDateTime timestamp);
+
+    // Soma no acumulado existente; retorna 0 quando a linha do intervalo ainda não foi criada
+    @Modifying
+    @Query("UPDATE Revenue r SET r.amount = r.amount + :amount WHERE r.sectorId = :sectorId AND r.granularity = :granularity AND r.timestamp = :timestamp")
+    int addAmount(@Param("sectorId") String sectorId, @Param("granularity") Revenue.Granularity granularity,
+                  @Param("timestamp") LocalDateTime timestamp, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("DELETE FROM Revenue r WHERE r.timestamp >= :start AND r.timestamp < :end")
+    int deleteByTimestampRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Séries de faturamento: lidas em stream (exigem transação aberta) e ordenadas por setor e intervalo
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r.sectorId AS sectorId, r.timestamp AS timestamp, r.amount AS amount FROM Revenue r "
+        + "WHERE r.granularity = :granularity AND r.timestamp >= :start AND r.timestamp < :end ORDER BY r.sectorId, r.timestamp")
+    Stream<RevenueBucket> streamBuckets(@Param("granularity") Revenue.Granularity granularity,
+                                        @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r.sectorId AS sectorId, r.timestamp AS timestamp, r.amount AS amount FROM Revenue r "
+        + "WHERE r.granularity = :granularity AND r.sectorId IN :sectors AND r.timestamp >= :start AND r.timestamp < :end "
+        + "ORDER BY r.sectorId, r.timestamp")
+    Stream<RevenueBucket> streamBuckets(@Param("granularity") Revenue.Granularity granularity, @Param("sectors") Collection<String> sectors,
+                                        @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Meses agregados a partir dos acumulados diários em um único GROUP BY
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r.sectorId AS sectorId, EXTRACT(YEAR FROM r.timestamp) AS year, EXTRACT(MONTH FROM r.timestamp) AS month, SUM(r.amount) AS amount "
+        + "FROM Revenue r WHERE r.granularity = :granularity AND r.timestamp >= :start AND r.timestamp < :end "
+        + "GROUP BY r.sectorId, EXTRACT(YEAR FROM r.timestamp), EXTRACT(MONTH FROM r.timestamp) "
+        + "ORDER BY r.sectorId, EXTRACT(YEAR FROM r.timestamp), EXTRACT(MONTH FROM r.timestamp)")
+    Stream<MonthlyRevenue> streamMonthlyBuckets(@Param("granularity") Revenue.Granularity granularity,
+                                                @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r.sectorId AS sectorId, EXTRACT(YEAR FROM r.timestamp) AS year, EXTRACT(MONTH FROM r.timestamp) AS month, SUM(r.amount) AS amount "
+        + "FROM Revenue r WHERE r.granularity = :granularity AND r.sectorId IN :sectors AND r.timestamp >= :start AND r.timestamp < :end "
+        + "GROUP BY r.sectorId, EXTRACT(YEAR FROM r.timestamp), EXTRACT(MONTH FROM r.timestamp) "
+        + "ORDER BY r.sectorId, EXTRACT(YEAR FROM r.timestamp), EXTRACT(MONTH FROM r.timestamp)")
+    Stream<MonthlyRevenue> streamMonthlyBuckets(@Param("granularity") Revenue.Granularity granularity, @Param("sectors") Collection<String> sectors,
+                                                @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    interface RevenueBucket {
+        String getSectorId();
+        LocalDateTime getTimestamp();
+        BigDecimal getAmount();
+    }
+
+    interface MonthlyRevenue extends RevenueBucket {
+        Integer getYear();
+        Integer getMonth();
+
+        @Override
+        default LocalDateTime getTimestamp() {
+            return LocalDateTime.of(getYear(), getMonth(), 1, 0, 0);
+        }
+    }
+}
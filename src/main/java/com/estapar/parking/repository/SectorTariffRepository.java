@@ -0,0 +1,21 @@
+package com.estapar.parking.repository;
+
+import com.estapar.parking.model.SectorTariff;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SectorTariffRepository extends JpaRepository<SectorTariff, Long> {
+    // Na ordem de cadastro: em faixas sobrepostas da mesma vigência, a última prevalece
+    List<SectorTariff> findAllByOrderByIdAsc();
+
+    @Modifying
+    @Query("DELETE FROM SectorTariff t WHERE t.sectorId IN :sectorIds")
+    int deleteBySectorIds(@Param("sectorIds") Collection<String> sectorIds);
+}
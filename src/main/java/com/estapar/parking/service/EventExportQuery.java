@@ -0,0 +1,33 @@
+package com.estapar.parking.service;
+
+import java.time.LocalDateTime;
+
+// Exportação de eventos já validada: período [start, end), setor e tipo opcionais
+public record EventExportQuery(
+    LocalDateTime start,
+    LocalDateTime end,
+    String sectorId,
+    String type,
+    Format format
+) {
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.exception.InvalidRequestException;
+import com.estapar.parking.model.ParkingEvent;
+import com.estapar.parking.repository.ParkingEventRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Exporta o histórico de eventos por cursor: cada linha é escrita na saída e o evento é desanexado da sessão em seguida,
+// então a memória não cresce com o número de linhas
+@Service
+public class EventExportService {
+    private static final Set<String> EVENT_TYPES = Set.of("ENTRY", "PARKED", "EXIT");
+    private static final String CSV_HEADER = "id,license_plate,type,timestamp,sector_id,latitude,longitude,price";
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final ParkingEventRepository eventRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public EventExportService(ParkingEventRepository eventRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.eventRepository = eventRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    // Valida os filtros antes de a resposta começar a ser enviada
+    public EventExportQuery exportQuery(String start, String end, String sectorId, String type, String format) {
+        LocalDateTime startTime = parseTime("start", start);
+        LocalDateTime endTime = parseTime("end", end);
+        if (!endTime.isAfter(startTime)) {
+            throw new InvalidRequestException("end deve ser posterior a start");
+        }
+        String normalizedType = type == null || type.isBlank() ? null : type.trim().toUpperCase(Locale.ROOT);
+        if (normalizedType != null && !EVENT_TYPES.contains(normalizedType)) {
+            throw new InvalidRequestException("type deve ser ENTRY, PARKED ou EXIT");
+        }
+        EventExportQuery.Format exportFormat;
+        try {
+            exportFormat = format == null || format.isBlank()
+                ? EventExportQuery.Format.CSV
+                : EventExportQuery.Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("format deve ser csv ou ndjson");
+        }
+        String normalizedSector = sectorId == null || sectorId.isBlank() ? null : sectorId.trim();
+        return new EventExportQuery(startTime, endTime, normalizedSector, normalizedType, exportFormat);
+    }
+
+    // Retorna o número de linhas exportadas
+    @Transactional(readOnly = true)
+    public long export(EventExportQuery query, OutputStream output) throws IOException {
+        try (Stream<ParkingEvent> events = eventRepository.streamForExport(query.start(), query.end(), query.sectorId(), query.type())) {
+            return query.format() == EventExportQuery.Format.CSV
+                ? writeCsv(events.iterator(), output)
+                : writeNdjson(events.iterator(), output);
+        }
+    }
+
+    private long writeCsv(Iterator<ParkingEvent> events, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        long rows = 0;
+        while (events.hasNext()) {
+            ParkingEvent event = events.next();
+            writer.write(String.valueOf(event.getId()));
+            writer.write(',');
+            writer.write(csv(event.getLicensePlate()));
+            writer.write(',');
+            writer.write(csv(event.getType()));
+            writer.write(',');
+            writer.write(event.getTimestamp().format(formatter));
+            writer.write(',');
+            writer.write(csv(event.getSectorId()));
+            writer.write(',');
+            writer.write(event.getLatitude() != null ? event.getLatitude().toString() : "");
+            writer.write(',');
+            writer.write(event.getLongitude() != null ? event.getLongitude().toString() : "");
+            writer.write(',');
+            writer.write(event.getPrice() != null ? event.getPrice().toPlainString() : "");
+            writer.write('\n');
+            entityManager.detach(event);
+            rows++;
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private long writeNdjson(Iterator<ParkingEvent> events, OutputStream output) throws IOException {
+        long rows = 0;
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(output)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (events.hasNext()) {
+                ParkingEvent event = events.next();
+                json.writeStartObject();
+                json.writeNumberField("id", event.getId());
+                json.writeStringField("license_plate", event.getLicensePlate());
+                json.writeStringField("type", event.getType());
+                json.writeStringField("timestamp", event.getTimestamp().format(formatter));
+                json.writeStringField("sector_id", event.getSectorId());
+                if (event.getLatitude() != null) {
+                    json.writeNumberField("lat", event.getLatitude());
+                }
+                if (event.getLongitude() != null) {
+                    json.writeNumberField("lng", event.getLongitude());
+                }
+                if (event.getPrice() != null) {
+                    json.writeNumberField("price", event.getPrice());
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+                entityManager.detach(event);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static LocalDateTime parseTime(String name, String value) {
+        if (value == null || value.isBlank()) {
+            throw new InvalidRequestException(name + " é obrigatório");
+        }
+        try {
+            return LocalDateTime.parse(value.trim(), DateTimeFormatter.ISO_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException(name + " deve estar no formato ISO (2025-01-01T00:00:00)");
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
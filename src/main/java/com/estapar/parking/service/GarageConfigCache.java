@@ -0,0 +1,81 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.GarageVersionDTO;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.ZoneOffset;
+import java.util.zip.GZIPOutputStream;
+
+// Resposta completa do GET /garage serializada uma vez por versão da configuração, em JSON e já em gzip. A versão
+// vem do GarageTopologyService (PUT e POST /garage), mantida em memória: uma leitura repetida não consulta o banco
+// nem serializa nada, e a ETag da versão permite responder If-None-Match com 304.
+@Service
+public class GarageConfigCache {
+    private final GarageTopologyService topologyService;
+    private final GarageConfigExportService exportService;
+    private volatile CachedConfig cached;
+
+    public GarageConfigCache(GarageTopologyService topologyService, GarageConfigExportService exportService) {
+        this.topologyService = topologyService;
+        this.exportService = exportService;
+    }
+
+    public CachedConfig get() {
+        GarageVersionDTO version = topologyService.getCurrentVersion();
+        CachedConfig config = cached;
+        if (config != null && config.version().equals(version)) {
+            return config;
+        }
+        // Só uma requisição serializa a nova versão; as demais esperam e reaproveitam
+        synchronized (this) {
+            config = cached;
+            if (config == null || !config.version().equals(version)) {
+                config = serialize(version);
+                cached = config;
+            }
+            return config;
+        }
+    }
+
+    private CachedConfig serialize(GarageVersionDTO version) {
+        try {
+            ByteArrayOutputStream json = new ByteArrayOutputStream();
+            exportService.write(new GarageConfigQuery(0, null), json);
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+            try (GZIPOutputStream output = new GZIPOutputStream(gzip)) {
+                json.writeTo(output);
+            }
+            return new CachedConfig(version, etagOf(version), json.toByteArray(), gzip.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Fraca, por valer para as duas codificações; o instante de aplicação distingue versões de um histórico recriado
+    private static String etagOf(GarageVersionDTO version) {
+        String applied = version.getAppliedAt() != null
+            ? "-" + Long.toHexString(version.getAppliedAt().toInstant(ZoneOffset.UTC).toEpochMilli())
+            : "";
+        return "W/\"" + version.getVersion() + applied + "\"";
+    }
+
+    public record CachedConfig(GarageVersionDTO version, String etag, byte[] json, byte[] gzip) {
+        // If-None-Match pode trazer uma lista de ETags, fortes ou fracas, ou *
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            String tag = etag.substring(2);
+            for (String candidate : ifNoneMatch.split(",")) {
+                candidate = candidate.trim();
+                if (candidate.equals("*") || candidate.equals(etag) || candidate.equals(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.GarageConfigDTO;
+import com.estapar.parking.exception.InvalidRequestException;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import com.estapar.parking.repository.SectorTariffRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Configuração da garagem (GET /garage) escrita direto no gerador JSON, sem montar o GarageConfigDTO: setores e tarifas
+// são poucos e vêm das entidades, as vagas vêm de um cursor com projeção. A memória não cresce com o número de vagas.
+// Paginada, a resposta traz as vagas seguintes a after (keyset pelo id) e next_after enquanto houver mais.
+@Service
+public class GarageConfigExportService {
+    public static final int MAX_PAGE_SIZE = 10_000;
+
+    private final GarageSectorRepository sectorRepository;
+    private final SectorTariffRepository tariffRepository;
+    private final ParkingSpotRepository spotRepository;
+    private final ObjectMapper objectMapper;
+
+    public GarageConfigExportService(GarageSectorRepository sectorRepository,
+                                     SectorTariffRepository tariffRepository,
+                                     ParkingSpotRepository spotRepository,
+                                     ObjectMapper objectMapper) {
+        this.sectorRepository = sectorRepository;
+        this.tariffRepository = tariffRepository;
+        this.spotRepository = spotRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // Valida a página antes de a resposta começar a ser enviada
+    public GarageConfigQuery query(Long after, Integer limit) {
+        if (after != null && after < 0) {
+            throw new InvalidRequestException("after deve ser positivo");
+        }
+        if (limit == null) {
+            if (after != null) {
+                throw new InvalidRequestException("after exige limit");
+            }
+            return new GarageConfigQuery(0, null);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidRequestException("limit deve estar entre 1 e " + MAX_PAGE_SIZE);
+        }
+        return new GarageConfigQuery(after != null ? after : 0, limit);
+    }
+
+    // Retorna o número de vagas escritas
+    @Transactional(readOnly = true)
+    public long write(GarageConfigQuery query, OutputStream output) throws IOException {
+        try (JsonGenerator json = objectMapper.createGenerator(output)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeFieldName("garage");
+            json.writeObject(new GarageConfigDTO(sectorRepository.findAll(Sort.by("id")), List.of(),
+                tariffRepository.findAllByOrderByIdAsc()).getGarage());
+            json.writeArrayFieldStart("spots");
+            long written = 0;
+            Long nextAfter = null;
+            if (query.paginated()) {
+                // Uma vaga a mais só para saber se há outra página
+                List<ParkingSpotRepository.SpotConfig> page =
+                    spotRepository.findConfigPage(query.afterSpotId(), PageRequest.of(0, query.limit() + 1));
+                for (ParkingSpotRepository.SpotConfig spot : page.subList(0, Math.min(page.size(), query.limit()))) {
+                    writeSpot(json, spot);
+                    written++;
+                }
+                if (page.size() > query.limit()) {
+                    nextAfter = page.get(query.limit() - 1).getId();
+                }
+            } else {
+                try (Stream<ParkingSpotRepository.SpotConfig> spots = spotRepository.streamConfig()) {
+                    Iterator<ParkingSpotRepository.SpotConfig> iterator = spots.iterator();
+                    while (iterator.hasNext()) {
+                        writeSpot(json, iterator.next());
+                        written++;
+                    }
+                }
+            }
+            json.writeEndArray();
+            if (nextAfter != null) {
+                json.writeNumberField("next_after", nextAfter);
+            }
+            json.writeEndObject();
+            return written;
+        }
+    }
+
+    private static void writeSpot(JsonGenerator json, ParkingSpotRepository.SpotConfig spot) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("sector", spot.getSectorId());
+        json.writeNumberField("lat", spot.getLatitude());
+        json.writeNumberField("lng", spot.getLongitude());
+        json.writeEndObject();
+    }
+}
@@ -0,0 +1,11 @@
+package com.estapar.parking.service;
+
+// Consulta da configuração já validada: sem limit, a garagem inteira; com limit, as vagas seguintes a afterSpotId
+public record GarageConfigQuery(
+    long afterSpotId,
+    Integer limit
+) {
+    public boolean paginated() {
+        return limit != null;
+    }
+}
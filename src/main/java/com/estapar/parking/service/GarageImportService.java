@@ -0,0 +1,228 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.GarageConfigDTO;
+import com.estapar.parking.dto.GarageImportResponse;
+import com.estapar.parking.exception.InvalidRequestException;
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.SectorTariff;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+// Importação da garagem inteira (POST /garage): o JSON é lido em streaming, as vagas vão para o banco em lotes de
+// batch-size sem passar pelo contexto de persistência e a topologia antiga sai com DELETEs em conjunto. Tudo numa
+// transação; as estruturas em memória são recarregadas após o commit. Só é aceita com a garagem vazia, já que as
+// vagas ganham novos ids.
+@Service
+public class GarageImportService {
+    private static final TypeReference<List<GarageConfigDTO.GarageSectorConfig>> SECTORS = new TypeReference<>() {
+    };
+    private static final String OCCUPIED_YARD = "A garagem só pode ser importada sem veículos no pátio";
+    static final String INSERT_SPOT =
+        "INSERT INTO parking_spots (sector_id, latitude, longitude, occupied) VALUES (?, ?, ?, FALSE)";
+    static final String INSERT_SECTOR = "INSERT INTO garage_sectors (base_price, max_capacity, open_hour, "
+        + "close_hour, duration_limit_minutes, current_occupancy, id) VALUES (?, ?, ?, ?, ?, 0, ?)";
+    static final String UPDATE_SECTOR = "UPDATE garage_sectors SET base_price = ?, max_capacity = ?, "
+        + "open_hour = ?, close_hour = ?, duration_limit_minutes = ?, current_occupancy = 0 WHERE id = ?";
+    static final String INSERT_TARIFF = "INSERT INTO sector_tariffs (sector_id, effective_from, days_mask, "
+        + "start_time, end_time, price) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final Logger logger = Logger.getLogger(GarageImportService.class.getName());
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final GarageService garageService;
+    private final GarageTopologyService topologyService;
+    private final int batchSize;
+
+    public GarageImportService(JdbcTemplate jdbcTemplate,
+                               ObjectMapper objectMapper,
+                               GarageService garageService,
+                               GarageTopologyService topologyService,
+                               @Value("${parking.garage.import.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.garageService = garageService;
+        this.topologyService = topologyService;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // O documento é o mesmo do GET /garage; "garage" deve vir antes de "spots" para que as vagas não fiquem em memória
+    @Transactional
+    public GarageImportResponse importGarage(InputStream input) {
+        long start = System.nanoTime();
+        try (JsonParser parser = objectMapper.createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidRequestException("Configuração da garagem deve ser um objeto JSON");
+            }
+            ReplacedSectors replaced = null;
+            Set<String> sectorIds = null;
+            int tariffs = 0;
+            int spots = 0;
+            // Vagas que chegam antes de "garage" esperam os setores; depois, o lote é gravado a cada batch-size
+            List<Object[]> batch = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("garage".equals(field) && value == JsonToken.START_ARRAY) {
+                    if (sectorIds != null) {
+                        throw new InvalidRequestException("Campo garage repetido");
+                    }
+                    List<GarageConfigDTO.GarageSectorConfig> sectors = objectMapper.readValue(parser, SECTORS);
+                    replaced = replaceSectors(sectors);
+                    sectorIds = replaced.sectorIds();
+                    tariffs = insertTariffs(sectors);
+                    spots += insertSpots(batch, sectorIds);
+                } else if ("spots".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        GarageConfigDTO.ParkingSpotConfig spot =
+                            objectMapper.readValue(parser, GarageConfigDTO.ParkingSpotConfig.class);
+                        batch.add(new Object[]{spot.getSector(), spot.getLat(), spot.getLng()});
+                        if (sectorIds != null && batch.size() >= batchSize) {
+                            spots += insertSpots(batch, sectorIds);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (sectorIds == null) {
+                throw new InvalidRequestException("Configuração da garagem sem o campo garage");
+            }
+            spots += insertSpots(batch, sectorIds);
+            int removedSectors = removeSectorsNotIn(sectorIds);
+            garageService.reloadAfterCommit();
+            topologyService.recordVersion(new GarageTopologyService.Changes(replaced.added(), replaced.changed(),
+                removedSectors, spots, 0, replaced.removedSpots()));
+            logger.info("Garagem importada: " + sectorIds.size() + " setores, " + spots + " vagas, " + tariffs
+                + " tarifas em " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return new GarageImportResponse(sectorIds.size(), spots, tariffs);
+        } catch (IOException e) {
+            throw new InvalidRequestException("Configuração da garagem inválida: " + e.getMessage());
+        }
+    }
+
+    // Substitui a topologia: tarifas e vagas saem inteiras, setores são atualizados ou inseridos
+    private ReplacedSectors replaceSectors(List<GarageConfigDTO.GarageSectorConfig> configs) {
+        Integer active = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM parking_sessions WHERE exit_time IS NULL", Integer.class);
+        Integer occupied = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM parking_spots WHERE occupied = TRUE", Integer.class);
+        if (active != null && active > 0 || occupied != null && occupied > 0) {
+            throw new InvalidRequestException(OCCUPIED_YARD);
+        }
+        Map<String, GarageSector> sectors = new LinkedHashMap<>();
+        for (GarageConfigDTO.GarageSectorConfig config : configs) {
+            GarageSector sector = GarageService.parseSector(config);
+            if (sectors.put(sector.getId(), sector) != null) {
+                throw new InvalidRequestException("Setor " + sector.getId() + " repetido");
+            }
+        }
+
+        jdbcTemplate.update("DELETE FROM sector_tariffs");
+        // O histórico de sessões perde a referência às vagas antigas; o setor continua registrado
+        jdbcTemplate.update("UPDATE parking_sessions SET spot_id = NULL WHERE spot_id IS NOT NULL AND exit_time IS NOT NULL");
+        // As contagens acima não travam nada: um PARKED ou ENTRY concorrente pode ter ocupado ou reservado uma vaga
+        // depois delas. O DELETE só leva vagas livres e sem sessão ativa (chave estrangeira), e o que sobrar desfaz a
+        // importação; um evento que chegar depois espera o DELETE e não encontra mais a vaga
+        int removedSpots;
+        try {
+            removedSpots = jdbcTemplate.update("DELETE FROM parking_spots WHERE occupied = FALSE");
+        } catch (DataIntegrityViolationException e) {
+            throw new InvalidRequestException(OCCUPIED_YARD);
+        }
+        Integer remaining = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM parking_spots", Integer.class);
+        if (remaining != null && remaining > 0) {
+            throw new InvalidRequestException(OCCUPIED_YARD);
+        }
+
+        Set<String> existing = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM garage_sectors", String.class));
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        for (GarageSector sector : sectors.values()) {
+            (existing.contains(sector.getId()) ? updates : inserts).add(sectorRow(sector));
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SECTOR, updates);
+        jdbcTemplate.batchUpdate(INSERT_SECTOR, inserts);
+        return new ReplacedSectors(sectors.keySet(), inserts.size(), updates.size(), removedSpots);
+    }
+
+    private int insertTariffs(List<GarageConfigDTO.GarageSectorConfig> configs) {
+        List<Object[]> rows = new ArrayList<>();
+        for (GarageConfigDTO.GarageSectorConfig config : configs) {
+            if (config.getTariffs() == null) {
+                continue;
+            }
+            for (GarageConfigDTO.TariffConfig tariffConfig : config.getTariffs()) {
+                rows.add(tariffRow(GarageService.createTariff(config.getSector(), tariffConfig)));
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_TARIFF, rows);
+        return rows.size();
+    }
+
+    private int insertSpots(List<Object[]> rows, Set<String> sectorIds) {
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<Object[]> batch = rows.subList(from, Math.min(rows.size(), from + batchSize));
+            for (Object[] row : batch) {
+                if (!sectorIds.contains((String) row[0])) {
+                    throw new InvalidRequestException("Vaga em setor não configurado: " + row[0]);
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_SPOT, batch);
+            inserted += batch.size();
+        }
+        rows.clear();
+        return inserted;
+    }
+
+    // Setores fora da configuração só podem sair se não houver histórico apontando para eles
+    private int removeSectorsNotIn(Set<String> sectorIds) {
+        List<Object[]> removed = jdbcTemplate.queryForList("SELECT id FROM garage_sectors", String.class).stream()
+            .filter(id -> !sectorIds.contains(id))
+            .map(id -> new Object[]{id})
+            .toList();
+        try {
+            jdbcTemplate.batchUpdate("DELETE FROM garage_sectors WHERE id = ?", removed);
+            return removed.size();
+        } catch (DataIntegrityViolationException e) {
+            throw new InvalidRequestException("Setores com histórico não podem ser removidos da garagem");
+        }
+    }
+
+    // Parâmetros na ordem de INSERT_SECTOR e UPDATE_SECTOR
+    static Object[] sectorRow(GarageSector sector) {
+        return new Object[]{sector.getBasePrice(), sector.getMaxCapacity(), Time.valueOf(sector.getOpenHour()),
+            Time.valueOf(sector.getCloseHour()), sector.getDurationLimitMinutes(), sector.getId()};
+    }
+
+    static Object[] tariffRow(SectorTariff tariff) {
+        return new Object[]{tariff.getSectorId(),
+            tariff.getEffectiveFrom() != null ? Timestamp.valueOf(tariff.getEffectiveFrom()) : null,
+            tariff.getDaysMask(),
+            tariff.getStartTime() != null ? Time.valueOf(tariff.getStartTime()) : null,
+            tariff.getEndTime() != null ? Time.valueOf(tariff.getEndTime()) : null,
+            tariff.getPrice()};
+    }
+
+    private record ReplacedSectors(Set<String> sectorIds, int added, int changed, int removedSpots) {
+    }
+}
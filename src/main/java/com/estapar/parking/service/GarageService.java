@@ -1,41 +1,71 @@
 package com.estapar.parking.service;
 
 import com.estapar.parking.dto.GarageConfigDTO;
+import com.estapar.parking.dto.SectorAvailabilityDTO;
+import com.estapar.parking.exception.InvalidRequestException;
 import com.estapar.parking.model.GarageSector;
 import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.model.SectorTariff;
 import com.estapar.parking.repository.GarageSectorRepository;
 import com.estapar.parking.repository.ParkingSpotRepository;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Locale;
 
 @Service
 @RequiredArgsConstructor
 public class GarageService {
     private final GarageSectorRepository garageSectorRepository;
     private final ParkingSpotRepository parkingSpotRepository;
+    private final SectorOccupancyEngine occupancyEngine;
+    private final SpotLocationIndex spotLocationIndex;
+    private final SpotAllocator spotAllocator;
+    private final TariffCalendar tariffCalendar;
+    private final SectorOccupancyTimeline occupancyTimeline;
+    private final SessionDeadlineMonitor sessionDeadlines;
+    private final SectorSchedule sectorSchedule;
+    private final OccupancySnapshotPublisher occupancySnapshots;
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
 
-    @Transactional
-    public void configureGarage(GarageConfigDTO config) {
-        // Configure sectors
-        List<GarageSector> sectors = config.getGarage().stream()
-            .map(this::createSector)
-            .toList();
-        garageSectorRepository.saveAll(sectors);
+    // Estruturas em memória derivadas da topologia, recarregadas quando a transação da configuração confirma
+    void reloadAfterCommit() {
+        TransactionCallbacks.afterCommit(occupancyEngine::rebuild);
+        TransactionCallbacks.afterCommit(spotLocationIndex::rebuild);
+        TransactionCallbacks.afterCommit(spotAllocator::rebuild);
+        TransactionCallbacks.afterCommit(tariffCalendar::rebuild);
+        TransactionCallbacks.afterCommit(occupancyTimeline::rebuild);
+        TransactionCallbacks.afterCommit(sessionDeadlines::rebuild);
+        TransactionCallbacks.afterCommit(sectorSchedule::rebuild);
+        TransactionCallbacks.afterCommit(occupancySnapshots::rebuild);
+    }
 
-        // Configure spots
-        List<ParkingSpot> spots = config.getSpots().stream()
-            .map(this::createSpot)
-            .toList();
-        parkingSpotRepository.saveAll(spots);
+    // Valida o setor enviado na configuração antes de convertê-lo
+    static GarageSector parseSector(GarageConfigDTO.GarageSectorConfig config) {
+        if (config.getSector() == null || config.getSector().isBlank()) {
+            throw new InvalidRequestException("Setor sem identificador");
+        }
+        if (config.getBasePrice() == null || config.getBasePrice().signum() < 0) {
+            throw new InvalidRequestException("Setor " + config.getSector() + " sem preço base válido");
+        }
+        if (config.getOpenHour() == null || config.getCloseHour() == null) {
+            throw new InvalidRequestException("Setor " + config.getSector() + " sem horário de funcionamento");
+        }
+        try {
+            return createSector(config);
+        } catch (DateTimeException e) {
+            throw new InvalidRequestException("Horário inválido no setor " + config.getSector() + ": " + e.getMessage());
+        }
     }
 
-    private GarageSector createSector(GarageConfigDTO.GarageSectorConfig config) {
+    static GarageSector createSector(GarageConfigDTO.GarageSectorConfig config) {
         GarageSector sector = new GarageSector();
         sector.setId(config.getSector());
         sector.setBasePrice(config.getBasePrice());
@@ -47,13 +77,32 @@ public class GarageService {
         return sector;
     }
 
-    private ParkingSpot createSpot(GarageConfigDTO.ParkingSpotConfig config) {
-        ParkingSpot spot = new ParkingSpot();
-        spot.setSectorId(config.getSector());
-        spot.setLatitude(config.getLat());
-        spot.setLongitude(config.getLng());
-        spot.setOccupied(false);
-        return spot;
+    static SectorTariff createTariff(String sectorId, GarageConfigDTO.TariffConfig config) {
+        if (config.getPrice() == null || config.getPrice().signum() < 0) {
+            throw new InvalidRequestException("Tarifa sem preço válido no setor " + sectorId);
+        }
+        try {
+            SectorTariff tariff = new SectorTariff();
+            tariff.setSectorId(sectorId);
+            tariff.setPrice(config.getPrice());
+            if (config.getEffectiveFrom() != null) {
+                tariff.setEffectiveFrom(LocalDateTime.parse(config.getEffectiveFrom()));
+            }
+            if (config.getDays() != null && !config.getDays().isEmpty()) {
+                tariff.setDaysMask(SectorTariff.maskOf(config.getDays().stream()
+                    .map(day -> DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ROOT)))
+                    .toList()));
+            }
+            if (config.getStart() != null) {
+                tariff.setStartTime(LocalTime.parse(config.getStart(), TIME_FORMATTER));
+            }
+            if (config.getEnd() != null) {
+                tariff.setEndTime(LocalTime.parse(config.getEnd(), TIME_FORMATTER));
+            }
+            return tariff;
+        } catch (DateTimeException | IllegalArgumentException e) {
+            throw new InvalidRequestException("Tarifa inválida no setor " + sectorId + ": " + e.getMessage());
+        }
     }
 
     @Transactional(readOnly = true)
@@ -63,38 +112,19 @@ public class GarageService {
 
     @Transactional(readOnly = true)
     public List<ParkingSpot> getSpotsBySector(String sectorId) {
-        return parkingSpotRepository.findBySectorIdAndOccupiedFalse(sectorId);
+        return parkingSpotRepository.findAllById(spotAllocator.getFreeSpotIds(sectorId));
     }
 
-    @Transactional(readOnly = true)
-    public List<ParkingSpot> getAllSpots() {
-        return parkingSpotRepository.findAll();
+    // Contagens servidas pelo bitmap em memória, sem consultar o banco
+    public List<SectorAvailabilityDTO> getAvailability() {
+        return spotAllocator.getSectorIds().stream()
+            .map(sectorId -> new SectorAvailabilityDTO(sectorId, spotAllocator.getTotalCount(sectorId),
+                spotAllocator.getFreeCount(sectorId), sectorSchedule.isOpen(sectorId)))
+            .toList();
     }
 
     @Transactional(readOnly = true)
-    public GarageConfigDTO getCurrentConfig() {
-        return new GarageConfigDTO(
-            garageSectorRepository.findAll(),
-            parkingSpotRepository.findAll()
-        );
-    }
-
-    @Transactional
-    public void importGarageConfig(GarageConfigDTO config) {
-        garageSectorRepository.deleteAll();
-        parkingSpotRepository.deleteAll();
-        
-        if (config.getGarage() != null) {
-            List<GarageSector> sectors = config.getGarage().stream()
-                .map(this::createSector)
-                .toList();
-            garageSectorRepository.saveAll(sectors);
-        }
-        if (config.getSpots() != null) {
-            List<ParkingSpot> spots = config.getSpots().stream()
-                .map(this::createSpot)
-                .toList();
-            parkingSpotRepository.saveAll(spots);
-        }
+    public List<ParkingSpot> getAllSpots() {
+        return parkingSpotRepository.findAll();
     }
-} 
\ No newline at end of file
+}
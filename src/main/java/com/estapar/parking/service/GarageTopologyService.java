@@ -0,0 +1,347 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.GarageConfigDTO;
+import com.estapar.parking.dto.GarageVersionDTO;
+import com.estapar.parking.exception.InvalidRequestException;
+import com.estapar.parking.model.GarageConfigVersion;
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.SectorTariff;
+import com.estapar.parking.repository.GarageConfigVersionRepository;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.SectorTariffRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+// Configuração versionada da garagem (PUT /garage): a nova versão é comparada com a atual e só as linhas de setores,
+// tarifas e vagas que mudaram são gravadas. A vaga é identificada pelas coordenadas; coordenadas novas são inclusões
+// e uma vaga que troca de setor é alterada no lugar, mantendo o id. Vagas removidas ou movidas precisam estar livres.
+// Após o commit, o alocador e o índice de coordenadas recebem só a diferença e trocam suas estruturas imutáveis, sem
+// parar o webhook nem perder a ocupação dos setores.
+@Service
+public class GarageTopologyService {
+    private static final String FREE_SPOT = " AND occupied = FALSE AND NOT EXISTS (SELECT 1 FROM parking_sessions s "
+        + "WHERE s.spot_id = parking_spots.id AND s.exit_time IS NULL)";
+    private static final String UPDATE_SECTOR = "UPDATE garage_sectors SET base_price = ?, max_capacity = ?, "
+        + "open_hour = ?, close_hour = ?, duration_limit_minutes = ? WHERE id = ?";
+    private static final RowMapper<SpotLocation> SPOT_LOCATION = (rs, row) -> new SpotLocation(rs.getLong("id"),
+        rs.getString("sector_id"), rs.getDouble("latitude"), rs.getDouble("longitude"));
+
+    private final Logger logger = Logger.getLogger(GarageTopologyService.class.getName());
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final GarageSectorRepository sectorRepository;
+    private final SectorTariffRepository tariffRepository;
+    private final GarageConfigVersionRepository versionRepository;
+    private final SpotAllocator spotAllocator;
+    private final SpotLocationIndex spotLocationIndex;
+    private final TariffCalendar tariffCalendar;
+    private final SectorSchedule sectorSchedule;
+    private final SessionDeadlineMonitor sessionDeadlines;
+    private final SectorOccupancyTimeline occupancyTimeline;
+    private final OccupancySnapshotPublisher occupancySnapshots;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    // Uma versão por vez nesta instância; entre instâncias, a chave primária da versão rejeita a segunda
+    private final ReentrantLock applying = new ReentrantLock();
+    private volatile GarageConfigVersion current;
+
+    public GarageTopologyService(JdbcTemplate jdbcTemplate,
+                                 EntityManager entityManager,
+                                 GarageSectorRepository sectorRepository,
+                                 SectorTariffRepository tariffRepository,
+                                 GarageConfigVersionRepository versionRepository,
+                                 SpotAllocator spotAllocator,
+                                 SpotLocationIndex spotLocationIndex,
+                                 TariffCalendar tariffCalendar,
+                                 SectorSchedule sectorSchedule,
+                                 SessionDeadlineMonitor sessionDeadlines,
+                                 SectorOccupancyTimeline occupancyTimeline,
+                                 OccupancySnapshotPublisher occupancySnapshots,
+                                 PlatformTransactionManager transactionManager,
+                                 Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.sectorRepository = sectorRepository;
+        this.tariffRepository = tariffRepository;
+        this.versionRepository = versionRepository;
+        this.spotAllocator = spotAllocator;
+        this.spotLocationIndex = spotLocationIndex;
+        this.tariffCalendar = tariffCalendar;
+        this.sectorSchedule = sectorSchedule;
+        this.sessionDeadlines = sessionDeadlines;
+        this.occupancyTimeline = occupancyTimeline;
+        this.occupancySnapshots = occupancySnapshots;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        current = versionRepository.findTopByOrderByVersionDesc().orElse(null);
+    }
+
+    public GarageVersionDTO getCurrentVersion() {
+        return toDTO(current);
+    }
+
+    // Aplica a configuração completa desejada; sem diferenças, retorna a versão atual sem criar outra
+    public GarageVersionDTO apply(GarageConfigDTO config) {
+        if (config.getGarage() == null || config.getSpots() == null) {
+            throw new InvalidRequestException("A configuração deve trazer garage e spots");
+        }
+        long start = System.nanoTime();
+        applying.lock();
+        try {
+            GarageConfigVersion applied = transactionTemplate.execute(status -> applyDiff(config));
+            logger.info("Configuração da garagem na versão " + (applied != null ? applied.getVersion() : 0) + " em "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return toDTO(applied);
+        } finally {
+            applying.unlock();
+        }
+    }
+
+    // Grava a versão na transação corrente; a versão atual em memória só muda após o commit
+    GarageConfigVersion recordVersion(Changes changes) {
+        Long last = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(version), 0) FROM garage_config_versions", Long.class);
+        GarageConfigVersion version = new GarageConfigVersion();
+        version.setVersion(last + 1);
+        version.setAppliedAt(LocalDateTime.now(clock));
+        version.setSectorsAdded(changes.sectorsAdded());
+        version.setSectorsChanged(changes.sectorsChanged());
+        version.setSectorsRemoved(changes.sectorsRemoved());
+        version.setSpotsAdded(changes.spotsAdded());
+        version.setSpotsChanged(changes.spotsChanged());
+        version.setSpotsRemoved(changes.spotsRemoved());
+        try {
+            jdbcTemplate.update("INSERT INTO garage_config_versions (version, applied_at, sectors_added, sectors_changed, "
+                    + "sectors_removed, spots_added, spots_changed, spots_removed) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                version.getVersion(), Timestamp.valueOf(version.getAppliedAt()), version.getSectorsAdded(),
+                version.getSectorsChanged(), version.getSectorsRemoved(), version.getSpotsAdded(),
+                version.getSpotsChanged(), version.getSpotsRemoved());
+        } catch (DuplicateKeyException e) {
+            throw new InvalidRequestException("A configuração da garagem foi alterada ao mesmo tempo; tente novamente");
+        }
+        TransactionCallbacks.afterCommit(() -> current = version);
+        return version;
+    }
+
+    private GarageConfigVersion applyDiff(GarageConfigDTO config) {
+        Map<String, GarageSector> sectors = new LinkedHashMap<>();
+        Map<String, List<SectorTariff>> tariffs = new HashMap<>();
+        for (GarageConfigDTO.GarageSectorConfig sectorConfig : config.getGarage()) {
+            GarageSector sector = GarageService.parseSector(sectorConfig);
+            if (sectors.put(sector.getId(), sector) != null) {
+                throw new InvalidRequestException("Setor " + sector.getId() + " repetido");
+            }
+            List<SectorTariff> sectorTariffs = new ArrayList<>();
+            if (sectorConfig.getTariffs() != null) {
+                for (GarageConfigDTO.TariffConfig tariffConfig : sectorConfig.getTariffs()) {
+                    sectorTariffs.add(GarageService.createTariff(sector.getId(), tariffConfig));
+                }
+            }
+            tariffs.put(sector.getId(), sectorTariffs);
+        }
+
+        // Setores: incluídos, alterados (campos ou tarifas) e removidos
+        Map<String, GarageSector> currentSectors = new HashMap<>();
+        sectorRepository.findAll().forEach(sector -> currentSectors.put(sector.getId(), sector));
+        Map<String, List<SectorTariff>> currentTariffs = new HashMap<>();
+        tariffRepository.findAllByOrderByIdAsc()
+            .forEach(tariff -> currentTariffs.computeIfAbsent(tariff.getSectorId(), id -> new ArrayList<>()).add(tariff));
+        // Só para comparação: a gravação é por JDBC e as recargas após o commit ainda usam este contexto de
+        // persistência, então as entidades não podem ficar nele com os valores anteriores
+        entityManager.clear();
+        List<GarageSector> addedSectors = new ArrayList<>();
+        List<GarageSector> changedSectors = new ArrayList<>();
+        Set<String> retariffed = new LinkedHashSet<>();
+        for (GarageSector sector : sectors.values()) {
+            GarageSector existing = currentSectors.get(sector.getId());
+            if (existing == null) {
+                addedSectors.add(sector);
+            } else if (!sameSector(existing, sector)) {
+                changedSectors.add(sector);
+            }
+            if (!sameTariffs(currentTariffs.getOrDefault(sector.getId(), List.of()), tariffs.get(sector.getId()))) {
+                retariffed.add(sector.getId());
+            }
+        }
+        List<String> removedSectors = currentSectors.keySet().stream().filter(id -> !sectors.containsKey(id)).toList();
+        List<GarageSector> relimitedSectors = changedSectors.stream()
+            .filter(sector -> currentSectors.get(sector.getId()).getDurationLimitMinutes() != sector.getDurationLimitMinutes())
+            .toList();
+        Set<String> touchedSectors = new HashSet<>(retariffed);
+        changedSectors.forEach(sector -> touchedSectors.add(sector.getId()));
+        addedSectors.forEach(sector -> touchedSectors.remove(sector.getId()));
+
+        // Vagas: coordenadas novas são incluídas, as que somem são removidas e as que trocam de setor são movidas
+        Map<SpotKey, SpotLocation> currentSpots = new HashMap<>();
+        List<Long> removedSpots = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, sector_id, latitude, longitude FROM parking_spots ORDER BY id", rs -> {
+            SpotLocation spot = SPOT_LOCATION.mapRow(rs, 0);
+            if (currentSpots.putIfAbsent(SpotKey.of(spot.latitude(), spot.longitude()), spot) != null) {
+                removedSpots.add(spot.spotId());
+            }
+        });
+        Set<SpotKey> seen = new HashSet<>();
+        List<Object[]> insertedSpots = new ArrayList<>();
+        List<SpotLocation> movedSpots = new ArrayList<>();
+        for (GarageConfigDTO.ParkingSpotConfig spot : config.getSpots()) {
+            if (!sectors.containsKey(spot.getSector())) {
+                throw new InvalidRequestException("Vaga em setor não configurado: " + spot.getSector());
+            }
+            SpotKey key = SpotKey.of(spot.getLat(), spot.getLng());
+            if (!seen.add(key)) {
+                throw new InvalidRequestException("Vaga repetida nas coordenadas " + spot.getLat() + ", " + spot.getLng());
+            }
+            SpotLocation existing = currentSpots.remove(key);
+            if (existing == null) {
+                insertedSpots.add(new Object[]{spot.getSector(), spot.getLat(), spot.getLng()});
+            } else if (!existing.sectorId().equals(spot.getSector())) {
+                movedSpots.add(new SpotLocation(existing.spotId(), spot.getSector(), existing.latitude(), existing.longitude()));
+            }
+        }
+        currentSpots.values().forEach(spot -> removedSpots.add(spot.spotId()));
+
+        Changes changes = new Changes(addedSectors.size(), touchedSectors.size(), removedSectors.size(),
+            insertedSpots.size(), movedSpots.size(), removedSpots.size());
+        if (changes.isEmpty()) {
+            return current;
+        }
+
+        jdbcTemplate.batchUpdate(GarageImportService.INSERT_SECTOR,
+            addedSectors.stream().map(GarageImportService::sectorRow).toList());
+        // A ocupação corrente do setor fica como está
+        jdbcTemplate.batchUpdate(UPDATE_SECTOR, changedSectors.stream().map(GarageImportService::sectorRow).toList());
+        List<Object[]> clearedTariffs = new ArrayList<>();
+        retariffed.forEach(id -> clearedTariffs.add(new Object[]{id}));
+        removedSectors.forEach(id -> clearedTariffs.add(new Object[]{id}));
+        jdbcTemplate.batchUpdate("DELETE FROM sector_tariffs WHERE sector_id = ?", clearedTariffs);
+        jdbcTemplate.batchUpdate(GarageImportService.INSERT_TARIFF, retariffed.stream()
+            .flatMap(id -> tariffs.get(id).stream())
+            .map(GarageImportService::tariffRow)
+            .toList());
+
+        List<Object[]> removedRows = removedSpots.stream().map(id -> new Object[]{id}).toList();
+        requireFree(jdbcTemplate.batchUpdate("UPDATE parking_spots SET sector_id = ? WHERE id = ?" + FREE_SPOT,
+            movedSpots.stream().map(spot -> new Object[]{spot.sectorId(), spot.spotId()}).toList()),
+            movedSpots.stream().map(SpotLocation::spotId).toList());
+        // O histórico de sessões perde a referência às vagas removidas
+        jdbcTemplate.batchUpdate("UPDATE parking_sessions SET spot_id = NULL WHERE spot_id = ? AND exit_time IS NOT NULL",
+            removedRows);
+        requireFree(jdbcTemplate.batchUpdate("DELETE FROM parking_spots WHERE id = ?" + FREE_SPOT, removedRows),
+            removedSpots);
+
+        List<SpotLocation> addedSpots = List.of();
+        if (!insertedSpots.isEmpty()) {
+            // Só esta transação inclui vagas, então as novas são as de id maior que o último existente
+            Long lastSpotId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM parking_spots", Long.class);
+            jdbcTemplate.batchUpdate(GarageImportService.INSERT_SPOT, insertedSpots);
+            addedSpots = jdbcTemplate.query("SELECT id, sector_id, latitude, longitude FROM parking_spots WHERE id > ?",
+                SPOT_LOCATION, lastSpotId);
+        }
+
+        try {
+            jdbcTemplate.batchUpdate("DELETE FROM garage_sectors WHERE id = ?",
+                removedSectors.stream().map(id -> new Object[]{id}).toList());
+        } catch (DataIntegrityViolationException e) {
+            throw new InvalidRequestException("Setores com histórico não podem ser removidos da garagem");
+        }
+
+        List<SpotLocation> upserts = new ArrayList<>(addedSpots);
+        upserts.addAll(movedSpots);
+        List<GarageSector> upsertedSectors = new ArrayList<>(addedSectors);
+        upsertedSectors.addAll(changedSectors);
+        boolean sectorsChanged = !upsertedSectors.isEmpty() || !removedSectors.isEmpty();
+        TransactionCallbacks.afterCommit(() -> {
+            // O alocador conhece as vagas novas antes de o índice passar a resolvê-las
+            spotAllocator.applyTopology(upserts, removedSpots, removedSectors);
+            spotLocationIndex.apply(upserts, removedSpots);
+            if (sectorsChanged) {
+                sectorSchedule.rebuild();
+                // As faixas do histórico de lotação dependem da capacidade do setor
+                occupancyTimeline.rebuild();
+            }
+            // Prazos e snapshot recebem só a diferença: refazê-los perderia prazos e vagas avisados neste meio tempo
+            sessionDeadlines.durationLimitsChanged(relimitedSectors);
+            if (!retariffed.isEmpty()) {
+                tariffCalendar.rebuild();
+            }
+            occupancySnapshots.applyTopology(upsertedSectors, removedSectors);
+        });
+        return recordVersion(changes);
+    }
+
+    private static void requireFree(int[] updated, List<Long> spotIds) {
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new InvalidRequestException("Vaga " + spotIds.get(i) + " está ocupada ou reservada");
+            }
+        }
+    }
+
+    private static boolean sameSector(GarageSector a, GarageSector b) {
+        return a.getBasePrice().compareTo(b.getBasePrice()) == 0
+            && a.getMaxCapacity() == b.getMaxCapacity()
+            && a.getOpenHour().equals(b.getOpenHour())
+            && a.getCloseHour().equals(b.getCloseHour())
+            && a.getDurationLimitMinutes() == b.getDurationLimitMinutes();
+    }
+
+    private static boolean sameTariffs(List<SectorTariff> a, List<SectorTariff> b) {
+        return a.stream().map(TariffKey::of).toList().equals(b.stream().map(TariffKey::of).toList());
+    }
+
+    private static GarageVersionDTO toDTO(GarageConfigVersion version) {
+        if (version == null) {
+            return new GarageVersionDTO(0, null, 0, 0, 0, 0, 0, 0);
+        }
+        return new GarageVersionDTO(version.getVersion(), version.getAppliedAt(), version.getSectorsAdded(),
+            version.getSectorsChanged(), version.getSectorsRemoved(), version.getSpotsAdded(),
+            version.getSpotsChanged(), version.getSpotsRemoved());
+    }
+
+    record Changes(int sectorsAdded, int sectorsChanged, int sectorsRemoved,
+                   int spotsAdded, int spotsChanged, int spotsRemoved) {
+        boolean isEmpty() {
+            return sectorsAdded + sectorsChanged + sectorsRemoved + spotsAdded + spotsChanged + spotsRemoved == 0;
+        }
+    }
+
+    // Coordenadas na precisão das colunas (8 casas decimais)
+    private record SpotKey(long latitude, long longitude) {
+        static SpotKey of(double latitude, double longitude) {
+            return new SpotKey(Math.round(latitude * 1e8), Math.round(longitude * 1e8));
+        }
+    }
+
+    private record TariffKey(LocalDateTime effectiveFrom, int daysMask, LocalTime start, LocalTime end, BigDecimal price) {
+        static TariffKey of(SectorTariff tariff) {
+            return new TariffKey(tariff.getEffectiveFrom(), tariff.getDaysMask(), tariff.getStartTime(),
+                tariff.getEndTime(), tariff.getPrice().stripTrailingZeros());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.OccupancyEventDTO;
+import com.estapar.parking.dto.OccupancySnapshotDTO;
+import com.estapar.parking.dto.SectorOccupancyDTO;
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+// Ocupação da garagem inteira (GET /occupancy) como um snapshot imutável e versionado: lotação, faixa de preço, vagas
+// livres e vagas ocupadas de cada setor. O ParkingService avisa cada vaga ocupada ou liberada após o commit e um novo
+// snapshot é montado por cópia no máximo a cada interval-ms; a leitura só pega a referência atual, já serializada,
+// sem lock nem banco. Sem eventos, o snapshot é refeito a cada max-age-ms, já que preço e horário mudam com o tempo.
+@Service
+public class OccupancySnapshotPublisher {
+    private final Logger logger = Logger.getLogger(OccupancySnapshotPublisher.class.getName());
+    private final GarageSectorRepository sectorRepository;
+    private final ParkingSpotRepository spotRepository;
+    private final SpotAllocator spotAllocator;
+    private final PricingEngine pricingEngine;
+    private final SectorSchedule sectorSchedule;
+    private final OccupancyStreamService occupancyStream;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final long maxAgeMillis;
+    // Distingue as versões desta execução das de antes de um restart na ETag
+    private final String epoch;
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private volatile Map<String, GarageSector> sectors = Map.of();
+    private volatile Map<String, Set<Long>> occupiedBySector = new ConcurrentHashMap<>();
+    private volatile OccupancySnapshot snapshot;
+    private long version;
+    private volatile long publishedAt;
+
+    public OccupancySnapshotPublisher(GarageSectorRepository sectorRepository,
+                                      ParkingSpotRepository spotRepository,
+                                      SpotAllocator spotAllocator,
+                                      PricingEngine pricingEngine,
+                                      SectorSchedule sectorSchedule,
+                                      OccupancyStreamService occupancyStream,
+                                      ObjectMapper objectMapper,
+                                      Clock clock,
+                                      @Value("${parking.occupancy.snapshot.max-age-ms:60000}") long maxAgeMillis) {
+        this.sectorRepository = sectorRepository;
+        this.spotRepository = spotRepository;
+        this.spotAllocator = spotAllocator;
+        this.pricingEngine = pricingEngine;
+        this.sectorSchedule = sectorSchedule;
+        this.occupancyStream = occupancyStream;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.maxAgeMillis = maxAgeMillis;
+        this.epoch = Long.toHexString(clock.millis());
+    }
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        Map<String, GarageSector> loaded = new TreeMap<>();
+        Map<String, Set<Long>> occupied = new ConcurrentHashMap<>();
+        for (GarageSector sector : sectorRepository.findAll()) {
+            loaded.put(sector.getId(), sector);
+        }
+        for (ParkingSpot spot : spotRepository.findByOccupiedTrue()) {
+            occupied.computeIfAbsent(spot.getSectorId(), id -> ConcurrentHashMap.newKeySet()).add(spot.getId());
+        }
+        sectors = Collections.unmodifiableMap(loaded);
+        occupiedBySector = occupied;
+        publish();
+        logger.info("Snapshot de ocupação carregado com " + loaded.size() + " setores");
+    }
+
+    // Setores incluídos ou alterados e removidos por uma nova configuração da garagem. As vagas ocupadas continuam as
+    // que já foram avisadas (setor removido não tem vaga ocupada), então nenhuma mudança em andamento se perde
+    public synchronized void applyTopology(Collection<GarageSector> upserts, Collection<String> removedSectorIds) {
+        Map<String, GarageSector> next = new TreeMap<>(sectors);
+        upserts.forEach(sector -> next.put(sector.getId(), sector));
+        removedSectorIds.forEach(next::remove);
+        sectors = Collections.unmodifiableMap(next);
+        removedSectorIds.forEach(occupiedBySector::remove);
+        publish();
+    }
+
+    public OccupancySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Estado de cada setor agora, pelas vagas já avisadas, sem esperar o próximo snapshot (estado inicial do stream)
+    public List<SectorOccupancyDTO> currentSectors() {
+        return sectorViews(LocalDateTime.now(clock));
+    }
+
+    // Chamados pelo ParkingService dentro da transação do evento; o snapshot só muda após o commit
+    public void parked(String sectorId, Long spotId) {
+        TransactionCallbacks.afterCommit(() -> spotChanged(sectorId, spotId, true));
+    }
+
+    public void released(String sectorId, Long spotId) {
+        TransactionCallbacks.afterCommit(() -> spotChanged(sectorId, spotId, false));
+    }
+
+    // Reserva ou devolução de vaga na entrada: só as vagas livres mudam
+    public void reservationsChanged() {
+        TransactionCallbacks.afterCommit(() -> changed.set(true));
+    }
+
+    // Vários eventos entre duas execuções viram um único snapshot
+    @Scheduled(fixedDelayString = "${parking.occupancy.snapshot.interval-ms:250}")
+    public void publishIfChanged() {
+        if (changed.getAndSet(false) || clock.millis() - publishedAt >= maxAgeMillis) {
+            publish();
+        }
+    }
+
+    // A mudança também segue na hora para os assinantes do stream, sem esperar o próximo snapshot
+    private void spotChanged(String sectorId, Long spotId, boolean occupied) {
+        Set<Long> spotIds = occupiedBySector.computeIfAbsent(sectorId, id -> ConcurrentHashMap.newKeySet());
+        if (occupied) {
+            spotIds.add(spotId);
+        } else {
+            spotIds.remove(spotId);
+        }
+        changed.set(true);
+        if (occupancyStream.hasSubscribers()) {
+            GarageSector sector = sectors.get(sectorId);
+            int occupancy = spotIds.size();
+            occupancyStream.spotChanged(sectorId, spotId, occupied);
+            occupancyStream.occupancyChanged(new OccupancyEventDTO(sectorId, occupancy,
+                spotAllocator.getFreeCount(sectorId), spotAllocator.getTotalCount(sectorId),
+                PricingEngine.tierOf(occupancy, sector != null ? sector.getMaxCapacity() : 0)));
+        }
+    }
+
+    synchronized void publish() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        OccupancySnapshotDTO view = new OccupancySnapshotDTO(++version, now, sectorViews(now));
+        try {
+            snapshot = new OccupancySnapshot(view, "\"" + epoch + "-" + view.getVersion() + "\"",
+                objectMapper.writeValueAsBytes(view));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar o snapshot de ocupação", e);
+        }
+        publishedAt = clock.millis();
+    }
+
+    private List<SectorOccupancyDTO> sectorViews(LocalDateTime now) {
+        List<SectorOccupancyDTO> views = new ArrayList<>(sectors.size());
+        for (GarageSector sector : sectors.values()) {
+            String sectorId = sector.getId();
+            Set<Long> occupied = occupiedBySector.getOrDefault(sectorId, Set.of());
+            List<Long> spotIds = occupied.stream().sorted().toList();
+            int occupancy = spotIds.size();
+            views.add(new SectorOccupancyDTO(sectorId, sector.getMaxCapacity(), spotAllocator.getTotalCount(sectorId),
+                spotAllocator.getFreeCount(sectorId), occupancy, PricingEngine.tierOf(occupancy, sector.getMaxCapacity()),
+                pricingEngine.rate(sector, occupancy, now).setScale(2, RoundingMode.HALF_UP),
+                sectorSchedule.isOpen(sectorId), spotIds));
+        }
+        return List.copyOf(views);
+    }
+
+    public record OccupancySnapshot(OccupancySnapshotDTO view, String etag, byte[] json) {
+    }
+}
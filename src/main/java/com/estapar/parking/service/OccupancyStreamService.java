@@ -0,0 +1,340 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.OccupancyEventDTO;
+import com.estapar.parking.dto.SectorOccupancyDTO;
+import com.estapar.parking.dto.SpotEventDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// Mudanças de ocupação em Server-Sent Events (GET /occupancy/stream): vaga ocupada ou liberada ("spot") e nova
+// lotação do setor ("occupancy"), avisadas pelo OccupancySnapshotPublisher após o commit. A thread do webhook só
+// enfileira a mudança; a distribuição aos assinantes roda em uma thread e o envio em um pool próprios. Cada assinante
+// guarda só a última mudança ainda não enviada de cada vaga e de cada setor, então um cliente lento recebe o estado
+// mais recente em vez de acumular atraso. O envio ao cliente bloqueia; um envio preso há mais de send-timeout-ms
+// derruba o assinante (o EventSource reconecta e recebe o estado atual) e o pool ganha uma thread no lugar da presa
+// até o envio terminar, então clientes lentos não seguram os demais. As threads extras param em max-stalled-senders;
+// com esse número de envios presos, novos assinantes são recusados até algum terminar.
+@Service
+public class OccupancyStreamService {
+    private final Logger logger = Logger.getLogger(OccupancyStreamService.class.getName());
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final int senderThreads;
+    private final int maxStalledSenders;
+    private final ExecutorService dispatcher;
+    private final ThreadPoolExecutor senders;
+    private final Queue<OccupancyChange> changes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter coalescedCounter;
+    private final Counter droppedCounter;
+    // Envios presos ainda em andamento, de assinantes já derrubados
+    private int stalledSenders;
+
+    public OccupancyStreamService(MeterRegistry meterRegistry,
+                                  @Value("${parking.occupancy.stream.timeout-ms:1800000}") long timeoutMillis,
+                                  @Value("${parking.occupancy.stream.sender-threads:4}") int senderThreads,
+                                  @Value("${parking.occupancy.stream.send-timeout-ms:5000}") long sendTimeoutMillis,
+                                  @Value("${parking.occupancy.stream.max-stalled-senders:4}") int maxStalledSenders) {
+        this.timeoutMillis = timeoutMillis;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "occupancy-stream-dispatcher"));
+        AtomicInteger senderIds = new AtomicInteger();
+        this.senderThreads = Math.max(1, senderThreads);
+        this.maxStalledSenders = Math.max(0, maxStalledSenders);
+        this.senders = new ThreadPoolExecutor(this.senderThreads, this.senderThreads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            runnable -> daemon(runnable, "occupancy-stream-sender-" + senderIds.getAndIncrement()));
+
+        Gauge.builder("parking.occupancy.stream.subscribers", subscribers, Set::size)
+            .description("Clientes conectados ao stream de ocupação")
+            .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("parking.occupancy.stream.coalesced")
+            .description("Mudanças substituídas por outra mais recente antes do envio")
+            .register(meterRegistry);
+        this.droppedCounter = Counter.builder("parking.occupancy.stream.dropped")
+            .description("Assinantes desconectados por um envio preso além do limite")
+            .register(meterRegistry);
+    }
+
+    // Sem setores, o assinante recebe todos. O assinante é registrado antes de ler o estado inicial, então uma mudança
+    // concorrente nunca se perde: ela sai depois do estado inicial de cada setor, que vem antes de qualquer mudança
+    public SseEmitter subscribe(Set<String> sectorIds, Supplier<List<SectorOccupancyDTO>> initial) {
+        return subscribe(new SseEmitter(timeoutMillis), sectorIds, initial);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Set<String> sectorIds, Supplier<List<SectorOccupancyDTO>> initial) {
+        Subscriber subscriber = new Subscriber(emitter, Set.copyOf(sectorIds));
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        subscribers.add(subscriber);
+        List<OccupancyChange> snapshot = new ArrayList<>();
+        try {
+            for (SectorOccupancyDTO sector : initial.get()) {
+                if (subscriber.accepts(sector.getSector())) {
+                    snapshot.add(new OccupancyChange(sector.getSector(), "snapshot:" + sector.getSector(), "snapshot", sector));
+                }
+            }
+        } catch (RuntimeException e) {
+            subscriber.close();
+            throw e;
+        }
+        subscriber.start(snapshot);
+        return emitter;
+    }
+
+    // Falso com max-stalled-senders envios presos: o pool já não repõe threads e um novo cliente lento prenderia mais
+    public synchronized boolean isAcceptingSubscribers() {
+        return stalledSenders < maxStalledSenders;
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // Chamados após o commit do evento; só enfileiram, nunca bloqueiam
+    public void spotChanged(String sectorId, Long spotId, boolean occupied) {
+        publish(new OccupancyChange(sectorId, "spot:" + spotId, "spot", new SpotEventDTO(sectorId, spotId, occupied)));
+    }
+
+    public void occupancyChanged(OccupancyEventDTO occupancy) {
+        publish(new OccupancyChange(occupancy.getSector(), "occupancy:" + occupancy.getSector(), "occupancy", occupancy));
+    }
+
+    private void publish(OccupancyChange change) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        changes.offer(change);
+        if (dispatching.compareAndSet(false, true)) {
+            execute(dispatcher, this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        do {
+            OccupancyChange change;
+            while ((change = changes.poll()) != null) {
+                for (Subscriber subscriber : subscribers) {
+                    if (subscriber.accepts(change.sectorId())) {
+                        subscriber.offer(change);
+                    }
+                }
+            }
+            dispatching.set(false);
+            // Uma mudança enfileirada entre o último poll e a liberação da flag não pode ficar para trás
+        } while (!changes.isEmpty() && dispatching.compareAndSet(false, true));
+    }
+
+    // Derruba os assinantes com um envio preso além de send-timeout-ms e repõe a thread presa no pool
+    @Scheduled(fixedDelayString = "${parking.occupancy.stream.stall-check-ms:1000}")
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.stall(now)) {
+                stalledSendersChanged(1);
+                droppedCounter.increment();
+                logger.warning("Assinante do stream de ocupação desconectado: envio preso há mais de "
+                    + TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos) + " ms");
+            }
+        }
+    }
+
+    // Uma thread extra por envio preso, até max-stalled-senders
+    private synchronized void stalledSendersChanged(int delta) {
+        stalledSenders += delta;
+        int threads = senderThreads + Math.min(stalledSenders, maxStalledSenders);
+        // O máximo nunca pode ficar abaixo do núcleo, então a ordem depende do sentido
+        if (threads > senders.getCorePoolSize()) {
+            senders.setMaximumPoolSize(threads);
+            senders.setCorePoolSize(threads);
+        } else {
+            senders.setCorePoolSize(threads);
+            senders.setMaximumPoolSize(threads);
+        }
+    }
+
+    int getSenderThreads() {
+        return senders.getCorePoolSize();
+    }
+
+    private void execute(ExecutorService executor, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.fine("Stream de ocupação encerrado, mudança descartada");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        for (Subscriber subscriber : List.copyOf(subscribers)) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private record OccupancyChange(String sectorId, String key, String name, Object data) {
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> sectorIds;
+        // Mudanças ainda não enviadas, uma por vaga ou setor, na ordem em que chegaram
+        private final Map<String, OccupancyChange> pending = new LinkedHashMap<>();
+        // Até o estado inicial entrar, as mudanças só se acumulam (nenhum envio começa)
+        private boolean sending = true;
+        private boolean closed;
+        private boolean stalled;
+        // Início do envio em andamento (System.nanoTime), 0 fora de um envio
+        private volatile long sendStartedAt;
+
+        private Subscriber(SseEmitter emitter, Set<String> sectorIds) {
+            this.emitter = emitter;
+            this.sectorIds = sectorIds;
+        }
+
+        boolean accepts(String sectorId) {
+            return sectorIds.isEmpty() || sectorIds.contains(sectorId);
+        }
+
+        // O estado inicial vai na frente das mudanças que chegaram desde o registro
+        void start(List<OccupancyChange> snapshot) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                Map<String, OccupancyChange> arrived = new LinkedHashMap<>(pending);
+                pending.clear();
+                snapshot.forEach(change -> pending.put(change.key(), change));
+                pending.putAll(arrived);
+            }
+            execute(senders, this::drain);
+        }
+
+        void offer(OccupancyChange change) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                // A mudança anterior da mesma chave é descartada e a nova vai para o fim
+                if (pending.remove(change.key()) != null) {
+                    coalescedCounter.increment();
+                }
+                pending.put(change.key(), change);
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            execute(senders, this::drain);
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    Collection<OccupancyChange> batch;
+                    synchronized (this) {
+                        if (closed || pending.isEmpty()) {
+                            sending = false;
+                            return;
+                        }
+                        batch = new ArrayList<>(pending.values());
+                        pending.clear();
+                    }
+                    try {
+                        for (OccupancyChange change : batch) {
+                            sendStartedAt = System.nanoTime();
+                            emitter.send(SseEmitter.event().name(change.name()).data(change.data(), MediaType.APPLICATION_JSON));
+                            sendStartedAt = 0;
+                        }
+                    } catch (IOException | IllegalStateException e) {
+                        // Cliente desconectado ou emitter já encerrado
+                        close();
+                        return;
+                    }
+                }
+            } finally {
+                sendStartedAt = 0;
+                finishStalled();
+            }
+        }
+
+        // Envio em andamento há mais de send-timeout-ms: o assinante sai e não recebe mais nada
+        boolean stall(long now) {
+            long startedAt = sendStartedAt;
+            synchronized (this) {
+                if (closed || startedAt == 0 || now - startedAt < sendTimeoutNanos) {
+                    return false;
+                }
+                stalled = true;
+            }
+            close();
+            return true;
+        }
+
+        // O envio preso terminou: encerra a conexão (o emitter só aceita complete fora do envio) e devolve a thread extra
+        private void finishStalled() {
+            synchronized (this) {
+                if (!stalled) {
+                    return;
+                }
+                stalled = false;
+            }
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                logger.fine("Emitter do assinante derrubado já estava encerrado");
+            }
+            stalledSendersChanged(-1);
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+            }
+            subscribers.remove(this);
+        }
+    }
+}
@@ -1,26 +1,36 @@
 package com.estapar.parking.service;
 
 import com.estapar.parking.dto.VehicleEventDTO;
+import com.estapar.parking.dto.WebhookBatchItemResult;
+import com.estapar.parking.exception.ParkingBusinessException;
 import com.estapar.parking.exception.ResourceNotFoundException;
+import com.estapar.parking.exception.SectorClosedException;
 import com.estapar.parking.exception.SectorFullException;
 import com.estapar.parking.exception.SpotOccupiedException;
 import com.estapar.parking.exception.VehicleAlreadyParkedException;
 import com.estapar.parking.model.GarageSector;
 import com.estapar.parking.model.ParkingEvent;
+import com.estapar.parking.model.ParkingSession;
 import com.estapar.parking.model.ParkingSpot;
 import com.estapar.parking.repository.GarageSectorRepository;
 import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
 import com.estapar.parking.repository.ParkingSpotRepository;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.logging.Logger;
 
 @Service
@@ -29,18 +39,61 @@ public class ParkingService {
     private final GarageSectorRepository sectorRepository;
     private final ParkingSpotRepository spotRepository;
     private final ParkingEventRepository eventRepository;
+    private final ParkingSessionRepository sessionRepository;
+    private final VehiclePresenceRegistry presenceRegistry;
+    private final SectorOccupancyEngine occupancyEngine;
+    private final PricingEngine pricingEngine;
+    private final SectorOccupancyTimeline occupancyTimeline;
+    private final SpotLocationIndex spotLocationIndex;
+    private final SpotAllocator spotAllocator;
+    private final RevenueService revenueService;
+    private final SessionDeadlineMonitor sessionDeadlines;
+    private final SectorSchedule sectorSchedule;
+    private final OccupancySnapshotPublisher occupancySnapshots;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchChunkSize;
+    private final boolean autoAssignOnEntry;
     private static final DateTimeFormatter formatter = DateTimeFormatter.ISO_DATE_TIME;
 
     public ParkingService(GarageSectorRepository sectorRepository, 
                          ParkingSpotRepository spotRepository,
-                         ParkingEventRepository eventRepository) {
+                         ParkingEventRepository eventRepository,
+                         ParkingSessionRepository sessionRepository,
+                         VehiclePresenceRegistry presenceRegistry,
+                         SectorOccupancyEngine occupancyEngine,
+                         PricingEngine pricingEngine,
+                         SectorOccupancyTimeline occupancyTimeline,
+                         SpotLocationIndex spotLocationIndex,
+                         SpotAllocator spotAllocator,
+                         RevenueService revenueService,
+                         SessionDeadlineMonitor sessionDeadlines,
+                         SectorSchedule sectorSchedule,
+                         OccupancySnapshotPublisher occupancySnapshots,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${parking.webhook.batch.chunk-size:200}") int batchChunkSize,
+                         @Value("${parking.spots.auto-assign-on-entry:false}") boolean autoAssignOnEntry) {
         this.sectorRepository = sectorRepository;
         this.spotRepository = spotRepository;
         this.eventRepository = eventRepository;
+        this.sessionRepository = sessionRepository;
+        this.presenceRegistry = presenceRegistry;
+        this.occupancyEngine = occupancyEngine;
+        this.pricingEngine = pricingEngine;
+        this.occupancyTimeline = occupancyTimeline;
+        this.spotLocationIndex = spotLocationIndex;
+        this.spotAllocator = spotAllocator;
+        this.revenueService = revenueService;
+        this.sessionDeadlines = sessionDeadlines;
+        this.sectorSchedule = sectorSchedule;
+        this.occupancySnapshots = occupancySnapshots;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchChunkSize = Math.max(1, batchChunkSize);
+        this.autoAssignOnEntry = autoAssignOnEntry;
     }
 
     @Transactional
     public void handleWebhookEvent(VehicleEventDTO event) {
+            validateWebhookEvent(event);
 
             switch (event.getEventType()) {
                 case "ENTRY":
@@ -56,52 +109,177 @@ public class ParkingService {
                     throw new IllegalArgumentException("Evento inválido");
             }
     }
+
+    // Validação dos campos obrigatórios de cada tipo de evento, sem acesso ao banco. As datas são interpretadas aqui
+    // para que uma data malformada seja rejeitada antes de qualquer alteração
+    public void validateWebhookEvent(VehicleEventDTO event) {
+        switch (event.getEventType()) {
+            case "ENTRY":
+                if (event.getLicensePlate() == null || event.getEntryTime() == null) {
+                    throw new IllegalArgumentException("Placa e data de entrada inválida");
+                }
+                parseTime(event.getEntryTime(), "Data de entrada inválida");
+                break;
+            case "PARKED":
+                if (event.getLicensePlate() == null || event.getLatitude() == null || event.getLongitude() == null) {
+                    throw new IllegalArgumentException("Placa, latitude e longitude inválidos");
+                }
+                break;
+            case "EXIT":
+                if (event.getExitTime() == null || event.getLicensePlate() == null || event.getLicensePlate().isEmpty()) {
+                    throw new IllegalArgumentException("Data de saída ou placa inválida");
+                }
+                parseTime(event.getExitTime(), "Data de saída inválida");
+                break;
+            default:
+                throw new IllegalArgumentException("Evento inválido");
+        }
+    }
+
+    private static LocalDateTime parseTime(String value, String message) {
+        try {
+            return LocalDateTime.parse(value, formatter);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(message + ": " + value);
+        }
+    }
+
+    // Processa os eventos na ordem recebida, um commit por bloco de batchChunkSize eventos.
+    // Eventos da mesma placa nunca mudam de ordem, mesmo quando um bloco precisa ser reprocessado.
+    public List<WebhookBatchItemResult> handleWebhookBatch(List<VehicleEventDTO> events) {
+        WebhookBatchItemResult[] results = new WebhookBatchItemResult[events.size()];
+        for (int start = 0; start < events.size(); start += batchChunkSize) {
+            processBatchChunk(events, start, Math.min(start + batchChunkSize, events.size()), results);
+        }
+        return Arrays.asList(results);
+    }
+
+    private void processBatchChunk(List<VehicleEventDTO> events, int start, int end, WebhookBatchItemResult[] results) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = start; i < end; i++) {
+                    VehicleEventDTO event = events.get(i);
+                    try {
+                        handleBatchItem(event);
+                        results[i] = batchItemResult(i, event, null);
+                    } catch (RuntimeException e) {
+                        if (!isRejection(e)) {
+                            // Falha inesperada pode deixar o contexto de persistência inconsistente
+                            throw e;
+                        }
+                        results[i] = batchItemResult(i, event, e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warning("Falha ao processar bloco de eventos [" + start + ", " + end + "), reprocessando individualmente: " + e.getMessage());
+            for (int i = start; i < end; i++) {
+                VehicleEventDTO event = events.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> handleBatchItem(event));
+                    results[i] = batchItemResult(i, event, null);
+                } catch (RuntimeException itemError) {
+                    results[i] = batchItemResult(i, event, itemError);
+                }
+            }
+        }
+    }
+
+    private void handleBatchItem(VehicleEventDTO event) {
+        if (event == null || event.getEventType() == null) {
+            throw new IllegalArgumentException("Event cannot be null");
+        }
+        handleWebhookEvent(event);
+    }
+
+    // Rejeições de negócio são lançadas antes de qualquer alteração nas entidades e nas estruturas em memória (datas
+    // são validadas em validateWebhookEvent); qualquer outra falha desfaz o bloco inteiro
+    private boolean isRejection(RuntimeException e) {
+        return e instanceof ParkingBusinessException
+            || e instanceof SpotOccupiedException
+            || e instanceof VehicleAlreadyParkedException
+            || e instanceof IllegalArgumentException;
+    }
+
+    private WebhookBatchItemResult batchItemResult(int index, VehicleEventDTO event, RuntimeException error) {
+        String licensePlate = event != null ? event.getLicensePlate() : null;
+        String eventType = event != null ? event.getEventType() : null;
+        if (error == null) {
+            return new WebhookBatchItemResult(index, licensePlate, eventType, true, "Event processed successfully");
+        }
+        return new WebhookBatchItemResult(index, licensePlate, eventType, false, "Error processing event: " + error.getMessage());
+    }
     
     private void handleEntryEvent(VehicleEventDTO event) {
-        if (event.getLicensePlate() == null || event.getEntryTime() == null) {
-            throw new IllegalArgumentException("Placa e data de entrada inválida");
+        // A data vem antes de qualquer reserva: uma entrada rejeitada não pode deixar vaga presa
+        LocalDateTime entryTime = parseTime(event.getEntryTime(), "Data de entrada inválida");
+
+        // Setor fora do horário de funcionamento é rejeitado antes de qualquer leitura do banco
+        if (!sectorSchedule.isOpen(event.getSectorId())) {
+            throw new SectorClosedException(event.getSectorId());
         }
-        
+
+        Optional<VehiclePresence> presence = presenceRegistry.find(event.getLicensePlate());
+
         // Verifica se o veículo já está no estacionamento
-        if (spotRepository.findByLicensePlateAndOccupiedTrue(event.getLicensePlate()).isPresent()) {
+        if (presence.filter(VehiclePresence::isParked).isPresent()) {
             throw new VehicleAlreadyParkedException("O veículo já está no estacionamento");
         }
         
         // Verifica se já existe um evento de entrada não finalizado
-        List<ParkingEvent> entryEvents = eventRepository.findByLicensePlateAndTypeOrderByTimestampDesc(event.getLicensePlate(), "ENTRY");
-        List<ParkingEvent> exitEvents = eventRepository.findByLicensePlateAndTypeOrderByTimestampDesc(event.getLicensePlate(), "EXIT");
-        
-        if (!entryEvents.isEmpty() && (exitEvents.isEmpty() || 
-            entryEvents.get(0).getTimestamp().isAfter(exitEvents.get(0).getTimestamp()))) {
+        if (presence.isPresent()) {
             throw new VehicleAlreadyParkedException("O veículo já possui uma entrada registrada");
         }
 
-        
+        // Reserva uma vaga livre (no setor do evento, se informado) antes de registrar a entrada
+        Optional<Long> assignedSpotId = Optional.empty();
+        if (autoAssignOnEntry) {
+            assignedSpotId = spotAllocator.allocate(event.getSectorId(), event.getLicensePlate(), sectorSchedule::isOpen);
+            if (assignedSpotId.isEmpty()) {
+                throw new SectorFullException("Não há vagas livres para a entrada do veículo");
+            }
+        }
+
         // Registra o evento de entrada
         ParkingEvent parkingEvent = new ParkingEvent();
         parkingEvent.setLicensePlate(event.getLicensePlate());
         parkingEvent.setType(event.getEventType());
-        parkingEvent.setTimestamp(LocalDateTime.parse(event.getEntryTime(), formatter));
+        parkingEvent.setTimestamp(entryTime);
         if (event.getLatitude() != null && event.getLongitude() != null) {
             parkingEvent.setLatitude(event.getLatitude());
             parkingEvent.setLongitude(event.getLongitude());
         }
         
         eventRepository.save(parkingEvent);
+
+        // Abre a sessão da estadia
+        ParkingSession session = new ParkingSession();
+        session.setLicensePlate(event.getLicensePlate());
+        session.setEntryTime(parkingEvent.getTimestamp());
+        assignedSpotId.ifPresent(spotId -> {
+            session.setSpotId(spotId);
+            session.setSectorId(spotAllocator.getSectorId(spotId));
+            logger.info("Vaga " + spotId + " reservada para a placa " + event.getLicensePlate());
+            occupancySnapshots.reservationsChanged();
+        });
+        sessionRepository.save(session);
+        presenceRegistry.markEntered(event.getLicensePlate(), parkingEvent.getTimestamp());
+        sessionDeadlines.entered(event.getLicensePlate(), parkingEvent.getTimestamp());
     }
     
 
     
     private void handleParkedEvent(VehicleEventDTO event) {
-        if (event.getLicensePlate() == null || event.getLatitude() == null || event.getLongitude() == null) {
-            throw new IllegalArgumentException("Placa, latitude e longitude inválidos");
-        }
-        
         logger.info("handleParkedEvent - Placa: " + event.getLicensePlate() + 
                    ", Latitude: " + event.getLatitude() + 
                    ", Longitude: " + event.getLongitude());
        
-        ParkingSpot spot = spotRepository.findByLatitudeAndLongitude(event.getLatitude(), event.getLongitude())
+        SpotLocation location = spotLocationIndex.find(event.getLatitude(), event.getLongitude())
+            .orElseThrow(() -> new ResourceNotFoundException("ParkingSpot", "Não foi encontrado setor para as coordenadas informadas"));
+        if (!sectorSchedule.isOpen(location.sectorId())) {
+            throw new SectorClosedException(location.sectorId());
+        }
+        ParkingSpot spot = spotRepository.findById(location.spotId())
             .orElseThrow(() -> new ResourceNotFoundException("ParkingSpot", "Não foi encontrado setor para as coordenadas informadas"));
                 
         if (spot.isOccupied()) {
@@ -111,21 +289,24 @@ public class ParkingService {
         GarageSector sector = sectorRepository.findById(spot.getSectorId())
             .orElseThrow(() -> new ResourceNotFoundException("GarageSector", "Setor não encontrado"));
                 
-        if (!sector.canAcceptNewVehicle()) {
+        // Reserva a posição no setor (fechado ao atingir 100% de lotação)
+        if (!occupancyEngine.tryAdmit(sector)) {
             throw new SectorFullException("O setor está com capacidade máxima e está fechado para novas entradas");
         }
         
-        // Verifica se o setor está fechado (100% de lotação)
-        if (sector.getCurrentOccupancy() >= sector.getMaxCapacity()) {
-            throw new SectorFullException("O setor está fechado por atingir 100% de lotação");
-        }
-        
         logger.info("Estacionando veículo - Placa: " + event.getLicensePlate() + 
                    ", Setor: " + sector.getId() + 
                    ", Vaga ID: " + spot.getId());
         
-        spot.parkVehicle(event.getLicensePlate(), LocalDateTime.now());
-        sector.incrementOccupancy();
+        // Ocupa a vaga com um UPDATE condicional; outro veículo pode ter chegado depois da leitura acima. A entidade
+        // lida fica como está: alterá-la faria o flush gravar a vaga de novo
+        LocalDateTime parkedAt = LocalDateTime.now();
+        if (spotRepository.claimSpot(spot.getId(), event.getLicensePlate(), parkedAt) == 0) {
+            occupancyEngine.release(sector);
+            throw new SpotOccupiedException("A vaga já está ocupada");
+        }
+        spotAllocator.markOccupied(spot.getId());
+        occupancySnapshots.parked(sector.getId(), spot.getId());
         
         ParkingEvent parkingEvent = new ParkingEvent();
         parkingEvent.setLicensePlate(event.getLicensePlate().toUpperCase());
@@ -136,68 +317,82 @@ public class ParkingService {
         parkingEvent.setSectorId(sector.getId());
         
         // Calcula o preço dinâmico baseado na lotação
-        BigDecimal dynamicPrice = sector.calculateDynamicPrice();
+        BigDecimal dynamicPrice = pricingEngine.rate(sector, occupancyEngine.getOccupancy(sector), parkedAt);
         parkingEvent.setPrice(dynamicPrice);
+        // Tarifa travada da sessão para o valor até agora de /plate-status e /spot-status, na escala do PricingEngine
+        // como em parking_sessions.locked_price, para valer igual após um restart
+        BigDecimal lockedRate = dynamicPrice;
         
-        spotRepository.save(spot);
-        sectorRepository.save(sector);
         eventRepository.save(parkingEvent);
+        TransactionCallbacks.afterCommit(() -> occupancyTimeline.record(sector, parkingEvent.getTimestamp(), 1));
+
+        // Vincula a vaga e o preço à sessão aberta na entrada, se houver
+        sessionRepository.findByLicensePlateAndExitTimeIsNull(event.getLicensePlate()).ifPresent(session -> {
+            if (session.getSpotId() != null && !session.getSpotId().equals(spot.getId())) {
+                spotAllocator.releaseReservation(session.getSpotId(), event.getLicensePlate());
+            }
+            session.setSpotId(spot.getId());
+            session.setSectorId(sector.getId());
+            session.setLockedPrice(lockedRate);
+            sessionRepository.save(session);
+        });
+        presenceRegistry.markParked(event.getLicensePlate(), spot, parkedAt, lockedRate);
+        presenceRegistry.find(event.getLicensePlate()).ifPresent(presence -> sessionDeadlines.parked(presence, sector));
     }
     
     private void handleExitEvent(VehicleEventDTO event) {
         logger.info("handleExitEvent: " + event.getLicensePlate());
-        if (event.getExitTime() == null || event.getLicensePlate() == null || event.getLicensePlate().isEmpty()) {
-            throw new IllegalArgumentException("Data de saída ou placa inválida");
-        }
-        
-        // Log para debug
-        logger.info("Buscando vaga para placa: " + event.getLicensePlate());
-        List<ParkingSpot> allSpots = spotRepository.findByLicensePlate(event.getLicensePlate());
-        logger.info("Total de vagas encontradas: " + allSpots.size());
-        for (ParkingSpot spot : allSpots) {
-            logger.info("Vaga encontrada - ID: " + spot.getId() + 
-                       ", Placa: " + spot.getLicensePlate() + 
-                       ", Ocupada: " + spot.isOccupied() + 
-                       ", Setor: " + spot.getSectorId());
-        }
-        
-        ParkingSpot spot = spotRepository.findByLicensePlateAndOccupiedTrue(event.getLicensePlate())
+
+        VehiclePresence presence = presenceRegistry.find(event.getLicensePlate())
+            .filter(VehiclePresence::isParked)
             .orElseThrow(() -> new ResourceNotFoundException("ParkingSpot", "Não foi encontrado veiculo no estacionamento ou veiculo ja saiu"));
-        
-        GarageSector sector = sectorRepository.findById(spot.getSectorId().toUpperCase())
+
+        GarageSector sector = sectorRepository.findById(presence.sectorId().toUpperCase())
             .orElseThrow(() -> new ResourceNotFoundException("GarageSector", "Setor não encontrado"));
             
-        // Busca o evento de entrada
-        ParkingEvent entryEvent = eventRepository.findByLicensePlateAndTypeOrderByTimestampDesc(event.getLicensePlate(), "ENTRY")
-            .stream()
-            .findFirst()
-            .orElseThrow(() -> new ResourceNotFoundException("ParkingEvent", "Evento de entrada não encontrado"));
+        // Verifica o evento de entrada
+        if (presence.entryTime() == null) {
+            throw new ResourceNotFoundException("ParkingEvent", "Evento de entrada não encontrado");
+        }
             
-        logger.info("Evento de entrada encontrado - Timestamp: " + entryEvent.getTimestamp());
+        logger.info("Evento de entrada encontrado - Timestamp: " + presence.entryTime());
         
-        spot.releaseVehicle();
-        sector.decrementOccupancy();
+        // Libera a vaga com um UPDATE condicional
+        if (spotRepository.releaseSpot(presence.spotId(), event.getLicensePlate()) == 0) {
+            throw new ResourceNotFoundException("ParkingSpot", "Não foi encontrado veiculo no estacionamento ou veiculo ja saiu");
+        }
+        occupancyEngine.release(sector);
+        spotAllocator.markFree(presence.spotId());
+        occupancySnapshots.released(sector.getId(), presence.spotId());
         
         ParkingEvent parkingEvent = new ParkingEvent();
         parkingEvent.setLicensePlate(event.getLicensePlate());
         parkingEvent.setType(event.getEventType());
-        parkingEvent.setTimestamp(LocalDateTime.parse(event.getExitTime(), formatter));
-        parkingEvent.setLatitude(spot.getLatitude());
-        parkingEvent.setLongitude(spot.getLongitude());
+        parkingEvent.setTimestamp(parseTime(event.getExitTime(), "Data de saída inválida"));
+        parkingEvent.setLatitude(presence.latitude());
+        parkingEvent.setLongitude(presence.longitude());
         parkingEvent.setSectorId(sector.getId());
         
-        // Calculate and set the price
-        BigDecimal price = sector.calculateDynamicPrice();
+        // Tarifa ponderada pela lotação do setor durante a permanência
+        BigDecimal price = pricingEngine.stayRate(sector, occupancyEngine.getOccupancy(sector), presence.entryTime(), parkingEvent.getTimestamp());
         parkingEvent.setPrice(price);
         
-        spotRepository.save(spot);
-        sectorRepository.save(sector);
         eventRepository.save(parkingEvent);
+        TransactionCallbacks.afterCommit(() -> occupancyTimeline.record(sector, parkingEvent.getTimestamp(), -1));
+        revenueService.record(sector.getId(), parkingEvent.getTimestamp(), price);
+
+        // Encerra a sessão ativa
+        sessionRepository.findByLicensePlateAndExitTimeIsNull(event.getLicensePlate()).ifPresent(session -> {
+            session.setExitTime(parkingEvent.getTimestamp());
+            sessionRepository.save(session);
+        });
+        presenceRegistry.remove(event.getLicensePlate());
+        sessionDeadlines.exited(event.getLicensePlate());
     }
 
     @Transactional(readOnly = true)
     public List<ParkingSpot> getAvailableSpots(String sectorId) {
-        return spotRepository.findBySectorIdAndOccupiedFalse(sectorId);
+        return spotRepository.findAllById(spotAllocator.getFreeSpotIds(sectorId));
     }
 
     @Transactional(readOnly = true)
@@ -212,13 +407,21 @@ public class ParkingService {
 
     @Transactional(readOnly = true)
     public ParkingSpot getSpotByCoordinates(double latitude, double longitude) {
-        return spotRepository.findByLatitudeAndLongitude(latitude, longitude)
+        return findSpotAt(latitude, longitude)
             .orElseThrow(() -> new ResourceNotFoundException("ParkingSpot", "Não foi encontrado setor para as coordenadas informadas"));
     }
 
+    // Resolve as coordenadas pelo índice em memória (tolerante a ruído do GPS) e carrega a vaga pela chave primária
+    private Optional<ParkingSpot> findSpotAt(double latitude, double longitude) {
+        return spotLocationIndex.find(latitude, longitude)
+            .flatMap(location -> spotRepository.findById(location.spotId()));
+    }
+
     @Transactional(readOnly = true)
     public ParkingSpot getSpotByLicensePlate(String licensePlate) {
-        return spotRepository.findByLicensePlateAndOccupiedTrue(licensePlate)
+        return presenceRegistry.find(licensePlate)
+            .filter(VehiclePresence::isParked)
+            .flatMap(presence -> spotRepository.findById(presence.spotId()))
             .orElseThrow(() -> new ResourceNotFoundException("ParkingSpot", "license plate"));
     }
 
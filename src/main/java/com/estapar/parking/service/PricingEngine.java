@@ -0,0 +1,194 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.GarageSector;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tabela de preço de cada setor pré-calculada por faixa de lotação: limites de faixa em número de vagas e tarifas em
+// inteiros (1/10000 de real), então uma cotação é só comparação e aritmética de long, sem alocação. BigDecimal só
+// na saída, com o mesmo valor, escala e arredondamento do antigo cálculo em BigDecimal (preço base x fator da faixa)
+// e do cálculo por hora/minuto que o StatusService fazia. O preço base vem do TariffCalendar; há uma tabela por preço base do setor.
+// A tarifa de uma permanência é a média das faixas ponderada pelo tempo (SectorOccupancyTimeline).
+@Service
+public class PricingEngine {
+    static final int UNIT_SCALE = 4;
+    private static final long UNITS_PER_CENT = 100;
+    private static final int MAX_TABLES_PER_SECTOR = 32;
+
+    private final TariffCalendar tariffCalendar;
+    private final SectorOccupancyTimeline occupancyTimeline;
+    private final Map<String, TierTable[]> tables = new ConcurrentHashMap<>();
+
+    public PricingEngine(TariffCalendar tariffCalendar, SectorOccupancyTimeline occupancyTimeline) {
+        this.tariffCalendar = tariffCalendar;
+        this.occupancyTimeline = occupancyTimeline;
+    }
+
+    // Tarifa por hora do setor no instante, com a lotação informada (a mesma instância para a mesma faixa)
+    public BigDecimal rate(GarageSector sector, int occupancy, LocalDateTime at) {
+        return tableFor(sector, at).rate(occupancy);
+    }
+
+    // Tarifa da permanência [from, to): média das tarifas das faixas de lotação pelas quais o setor passou, ponderada
+    // pelo tempo em cada uma, no preço base de to. Sem histórico no intervalo, vale a tarifa da lotação atual
+    public BigDecimal stayRate(GarageSector sector, int occupancy, LocalDateTime from, LocalDateTime to) {
+        TierTable table = tableFor(sector, to);
+        long units = occupancyTimeline.averageUnits(sector.getId(), from, to, table.units);
+        return units < 0 ? table.rate(occupancy) : BigDecimal.valueOf(divideHalfUp(units, UNITS_PER_CENT), 2);
+    }
+
+    public long stayRateUnits(GarageSector sector, int occupancy, LocalDateTime from, LocalDateTime to) {
+        TierTable table = tableFor(sector, to);
+        long units = occupancyTimeline.averageUnits(sector.getId(), from, to, table.units);
+        return units < 0 ? table.rateUnits(occupancy) : units;
+    }
+
+    // Valor até agora de uma permanência iniciada em from, pela tarifa ponderada da permanência
+    public BigDecimal stayPrice(GarageSector sector, int occupancy, LocalDateTime from, LocalDateTime to) {
+        long elapsedMinutes = Duration.between(from, to).toMinutes();
+        return BigDecimal.valueOf(priceCents(stayRateUnits(sector, occupancy, from, to), elapsedMinutes), 2);
+    }
+
+    // Valor de [from, to) por uma tarifa já cotada (a travada no PARKED): só aritmética, sem setor nem lotação
+    public static BigDecimal price(long rateUnits, LocalDateTime from, LocalDateTime to) {
+        return BigDecimal.valueOf(priceCents(rateUnits, Duration.between(from, to).toMinutes()), 2);
+    }
+
+    static long toUnits(BigDecimal rate) {
+        return rate.setScale(UNIT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // Horas cheias pela tarifa e minutos restantes pela tarifa/60 arredondada a centavos
+    static long priceCents(long rateUnits, long elapsedMinutes) {
+        long hours = elapsedMinutes / 60;
+        long minutes = elapsedMinutes % 60;
+        long total = rateUnits * hours;
+        if (minutes > 0) {
+            long minuteCents = divideHalfUp(rateUnits, 60 * UNITS_PER_CENT);
+            total += minuteCents * UNITS_PER_CENT * minutes;
+        }
+        return divideHalfUp(total, UNITS_PER_CENT);
+    }
+
+    // Mesmo resultado de RoundingMode.HALF_UP
+    private static long divideHalfUp(long value, long divisor) {
+        long half = divisor / 2;
+        return value >= 0 ? (value + half) / divisor : -((-value + half) / divisor);
+    }
+
+    // Descarta as tabelas; são recalculadas no próximo acesso
+    public void rebuild() {
+        tables.clear();
+    }
+
+    // Uma tabela vale enquanto o preço base e a capacidade do setor não mudarem
+    private TierTable tableFor(GarageSector sector, LocalDateTime at) {
+        BigDecimal basePrice = tariffCalendar.basePrice(sector, at);
+        int maxCapacity = sector.getMaxCapacity();
+        TierTable[] cached = tables.get(sector.getId());
+        if (cached != null) {
+            for (TierTable table : cached) {
+                if (table.matches(basePrice, maxCapacity)) {
+                    return table;
+                }
+            }
+        }
+        TierTable table = new TierTable(basePrice, maxCapacity);
+        tables.compute(sector.getId(), (id, current) -> withTable(current, table));
+        return table;
+    }
+
+    private static TierTable[] withTable(TierTable[] current, TierTable table) {
+        List<TierTable> updated = new ArrayList<>();
+        if (current != null && current.length < MAX_TABLES_PER_SECTOR) {
+            for (TierTable existing : current) {
+                if (existing.maxCapacity == table.maxCapacity) {
+                    updated.add(existing);
+                }
+            }
+        }
+        updated.add(table);
+        return updated.toArray(TierTable[]::new);
+    }
+
+    static final class TierTable {
+        private final BigDecimal basePrice;
+        private final int maxCapacity;
+        // Menor lotação de cada faixa: 25%, 50% e 75% da capacidade, arredondados para cima
+        private final int quarter;
+        private final int half;
+        private final int threeQuarters;
+        // Faixas: abaixo de 25%, 25-50%, 50-75%, 75% ou mais
+        private final BigDecimal[] rates;
+        private final long[] units;
+
+        TierTable(BigDecimal basePrice, int maxCapacity) {
+            this.basePrice = basePrice;
+            this.maxCapacity = maxCapacity;
+            this.quarter = ceilFraction(maxCapacity, 1);
+            this.half = ceilFraction(maxCapacity, 2);
+            this.threeQuarters = ceilFraction(maxCapacity, 3);
+            this.rates = new BigDecimal[]{
+                basePrice.multiply(BigDecimal.valueOf(0.90)),
+                basePrice,
+                basePrice.multiply(BigDecimal.valueOf(1.10)),
+                basePrice.multiply(BigDecimal.valueOf(1.25))
+            };
+            this.units = new long[rates.length];
+            for (int i = 0; i < rates.length; i++) {
+                // O preço base tem no máximo duas casas (DECIMAL(10,2)), então a conversão é exata
+                units[i] = toUnits(rates[i]);
+            }
+        }
+
+        boolean matches(BigDecimal basePrice, int maxCapacity) {
+            return this.maxCapacity == maxCapacity && this.basePrice.equals(basePrice);
+        }
+
+        BigDecimal rate(int occupancy) {
+            return rates[tier(occupancy)];
+        }
+
+        long rateUnits(int occupancy) {
+            return units[tier(occupancy)];
+        }
+
+        int tier(int occupancy) {
+            return PricingEngine.tier(occupancy, maxCapacity, quarter, half, threeQuarters);
+        }
+
+    }
+
+    // Faixa de lotação sem tabela pré-calculada (0: abaixo de 25% ... 3: 75% ou mais)
+    static int tierOf(int occupancy, int maxCapacity) {
+        return tier(occupancy, maxCapacity, ceilFraction(maxCapacity, 1), ceilFraction(maxCapacity, 2),
+            ceilFraction(maxCapacity, 3));
+    }
+
+    // occupancy / maxCapacity >= k/4  <=>  occupancy >= ceil(k * maxCapacity / 4)
+    private static int tier(int occupancy, int maxCapacity, int quarter, int half, int threeQuarters) {
+        if (maxCapacity <= 0) {
+            // Como a divisão em double: com capacidade zero, ocupação positiva é infinito e zero é NaN
+            return maxCapacity == 0 && occupancy > 0 ? 3 : 0;
+        }
+        if (occupancy >= threeQuarters) {
+            return 3;
+        }
+        if (occupancy >= half) {
+            return 2;
+        }
+        return occupancy >= quarter ? 1 : 0;
+    }
+
+    private static int ceilFraction(int capacity, int quarters) {
+        return (int) (((long) capacity * quarters + 3) / 4);
+    }
+}
@@ -0,0 +1,10 @@
+package com.estapar.parking.service;
+
+import java.time.LocalDate;
+
+// Chave do faturamento diário em cache: um setor em uma data
+public record RevenueCacheKey(
+    LocalDate date,
+    String sector
+) {
+}
@@ -0,0 +1,18 @@
+package com.estapar.parking.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Série de faturamento já validada: datas inclusivas e setores vazios significando todos
+public record RevenueSeriesQuery(
+    LocalDate startDate,
+    LocalDate endDate,
+    List<String> sectors,
+    Bucket bucket
+) {
+    public enum Bucket {
+        HOUR,
+        DAY,
+        MONTH
+    }
+}
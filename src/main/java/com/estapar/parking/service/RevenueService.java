@@ -1,37 +1,230 @@
 package com.estapar.parking.service;
 
+import com.estapar.parking.config.CacheConfig;
+import com.estapar.parking.dto.RevenueRebuildResponse;
 import com.estapar.parking.dto.RevenueResponse;
+import com.estapar.parking.dto.RevenueSeriesRequest;
+import com.estapar.parking.exception.InvalidRequestException;
+import com.estapar.parking.model.Revenue;
 import com.estapar.parking.repository.ParkingEventRepository;
-import lombok.RequiredArgsConstructor;
+import com.estapar.parking.repository.RevenueRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
 
+// O faturamento é lido dos acumulados por setor/hora e setor/dia em revenues, atualizados na transação de cada EXIT
 @Service
-@RequiredArgsConstructor
 public class RevenueService {
+    private final Logger logger = Logger.getLogger(RevenueService.class.getName());
+    private final RevenueRepository revenueRepository;
     private final ParkingEventRepository eventRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache dailyRevenueCache;
+    private final TransactionTemplate newTransaction;
+    private final int rebuildParallelism;
     private static final DateTimeFormatter formatter = DateTimeFormatter.ISO_DATE;
 
-    @Transactional(readOnly = true)
+    public RevenueService(RevenueRepository revenueRepository,
+                          ParkingEventRepository eventRepository,
+                          ObjectMapper objectMapper,
+                          CacheManager cacheManager,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${parking.revenue.rebuild-parallelism:4}") int rebuildParallelism) {
+        this.revenueRepository = revenueRepository;
+        this.eventRepository = eventRepository;
+        this.objectMapper = objectMapper;
+        this.dailyRevenueCache = cacheManager.getCache(CacheConfig.REVENUE_CACHE);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rebuildParallelism = Math.max(1, rebuildParallelism);
+    }
+
+    // O valor do dia fica em cache (ver CacheConfig); um EXIT no setor invalida o dia dele após o commit
     public RevenueResponse getRevenue(String dateStr, String sector) {
         LocalDate date = LocalDate.parse(dateStr, formatter);
-        LocalDateTime start = date.atStartOfDay();
-        LocalDateTime end = date.atTime(LocalTime.MAX);
-        
-        BigDecimal amount = eventRepository.calculateRevenueByDateAndSector(start, end, sector);
-        
+
+        BigDecimal amount = dailyRevenueCache.get(new RevenueCacheKey(date, sector), () -> revenueRepository
+            .findBySectorIdAndGranularityAndTimestamp(sector, Revenue.Granularity.DAY, date.atStartOfDay())
+            .map(Revenue::getAmount)
+            .orElse(BigDecimal.ZERO));
+
         RevenueResponse response = new RevenueResponse();
         response.setAmount(amount);
         response.setCurrency("BRL");
         response.setTimestamp(Instant.now());
-        
+
         return response;
     }
-} 
\ No newline at end of file
+
+    // Valida o pedido antes de a resposta começar a ser enviada
+    public RevenueSeriesQuery seriesQuery(RevenueSeriesRequest request) {
+        if (request == null || request.getStartDate() == null || request.getEndDate() == null) {
+            throw new InvalidRequestException("start_date e end_date são obrigatórios");
+        }
+        if (request.getEndDate().isBefore(request.getStartDate())) {
+            throw new InvalidRequestException("end_date anterior a start_date");
+        }
+        RevenueSeriesQuery.Bucket bucket;
+        try {
+            bucket = request.getGranularity() == null
+                ? RevenueSeriesQuery.Bucket.DAY
+                : RevenueSeriesQuery.Bucket.valueOf(request.getGranularity().trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("granularity deve ser hour, day ou month");
+        }
+        List<String> sectors = request.getSectors() == null ? List.of() : List.copyOf(request.getSectors());
+        return new RevenueSeriesQuery(request.getStartDate(), request.getEndDate(), sectors, bucket);
+    }
+
+    // Escreve a série direto na saída, um intervalo por vez, sem montar a lista em memória. Só intervalos com faturamento
+    // aparecem
+    @Transactional(readOnly = true)
+    public void writeSeries(RevenueSeriesQuery query, OutputStream output) throws IOException {
+        try (Stream<? extends RevenueRepository.RevenueBucket> buckets = seriesBuckets(query);
+             JsonGenerator json = objectMapper.getFactory().createGenerator(output)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeStringField("start_date", query.startDate().toString());
+            json.writeStringField("end_date", query.endDate().toString());
+            json.writeStringField("granularity", query.bucket().name().toLowerCase(Locale.ROOT));
+            json.writeStringField("currency", "BRL");
+            json.writeArrayFieldStart("series");
+            Iterator<? extends RevenueRepository.RevenueBucket> iterator = buckets.iterator();
+            while (iterator.hasNext()) {
+                RevenueRepository.RevenueBucket bucket = iterator.next();
+                json.writeStartObject();
+                json.writeStringField("sector", bucket.getSectorId());
+                json.writeStringField("timestamp", bucket.getTimestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                json.writeNumberField("amount", bucket.getAmount());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    // Hora e dia vêm direto dos acumulados; mês é agrupado a partir dos acumulados diários
+    private Stream<? extends RevenueRepository.RevenueBucket> seriesBuckets(RevenueSeriesQuery query) {
+        LocalDateTime start = query.startDate().atStartOfDay();
+        LocalDateTime end = query.endDate().plusDays(1).atStartOfDay();
+        boolean allSectors = query.sectors().isEmpty();
+        return switch (query.bucket()) {
+            case HOUR, DAY -> {
+                Revenue.Granularity granularity = query.bucket() == RevenueSeriesQuery.Bucket.HOUR
+                    ? Revenue.Granularity.HOUR : Revenue.Granularity.DAY;
+                yield allSectors
+                    ? revenueRepository.streamBuckets(granularity, start, end)
+                    : revenueRepository.streamBuckets(granularity, query.sectors(), start, end);
+            }
+            case MONTH -> allSectors
+                ? revenueRepository.streamMonthlyBuckets(Revenue.Granularity.DAY, start, end)
+                : revenueRepository.streamMonthlyBuckets(Revenue.Granularity.DAY, query.sectors(), start, end);
+        };
+    }
+
+    // Chamado dentro da transação do EXIT: se ela sofrer rollback, os acumulados voltam junto
+    public void record(String sectorId, LocalDateTime timestamp, BigDecimal amount) {
+        if (sectorId == null || amount == null || amount.signum() == 0) {
+            return;
+        }
+        for (Revenue.Granularity granularity : Revenue.Granularity.values()) {
+            LocalDateTime bucket = granularity.bucketOf(timestamp);
+            if (revenueRepository.addAmount(sectorId, granularity, bucket, amount) == 0) {
+                // A linha do intervalo é criada zerada na mesma transação; se outra transação a criou antes, nada muda
+                revenueRepository.createBucketIfAbsent(sectorId, granularity, bucket);
+                if (revenueRepository.addAmount(sectorId, granularity, bucket, amount) == 0) {
+                    throw new IllegalStateException("Acumulado de faturamento não encontrado: " + sectorId + " " + granularity + " " + bucket);
+                }
+            }
+        }
+        RevenueCacheKey key = new RevenueCacheKey(timestamp.toLocalDate(), sectorId);
+        TransactionCallbacks.afterCommit(() -> dailyRevenueCache.evict(key));
+    }
+
+    // Recalcula os acumulados a partir de parking_events, um dia por tarefa. Sem datas, cobre todo o histórico de saídas
+    public RevenueRebuildResponse rebuild(LocalDate startDate, LocalDate endDate) {
+        LocalDate start = startDate != null ? startDate : eventRepository.findFirstByTypeOrderByTimestampAsc("EXIT")
+            .map(event -> event.getTimestamp().toLocalDate()).orElse(null);
+        LocalDate end = endDate != null ? endDate : eventRepository.findFirstByTypeOrderByTimestampDesc("EXIT")
+            .map(event -> event.getTimestamp().toLocalDate()).orElse(null);
+        if (start == null || end == null || end.isBefore(start)) {
+            return new RevenueRebuildResponse(0, 0);
+        }
+
+        List<LocalDate> days = start.datesUntil(end.plusDays(1)).toList();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(rebuildParallelism, days.size()));
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (LocalDate day : days) {
+                results.add(executor.submit(() -> newTransaction.execute(status -> rebuildDay(day))));
+            }
+            int rollups = 0;
+            for (Future<Integer> result : results) {
+                rollups += result.get();
+            }
+            logger.info("Faturamento recalculado de " + start + " a " + end + ": " + rollups + " acumulados");
+            return new RevenueRebuildResponse(days.size(), rollups);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Recálculo do faturamento interrompido", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            // Mesmo com falha, os dias já recalculados podem ter mudado
+            dailyRevenueCache.clear();
+        }
+    }
+
+    private int rebuildDay(LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = start.plusDays(1);
+        revenueRepository.deleteByTimestampRange(start, end);
+
+        List<Revenue> rollups = new ArrayList<>();
+        Map<String, BigDecimal> daily = new TreeMap<>();
+        for (ParkingEventRepository.HourlyRevenue hourly : eventRepository.sumExitRevenueByHour(start, end)) {
+            rollups.add(rollup(hourly.getSectorId(), Revenue.Granularity.HOUR, start.plusHours(hourly.getHour()), hourly.getAmount()));
+            daily.merge(hourly.getSectorId(), hourly.getAmount(), BigDecimal::add);
+        }
+        daily.forEach((sectorId, amount) -> rollups.add(rollup(sectorId, Revenue.Granularity.DAY, start, amount)));
+        revenueRepository.saveAll(rollups);
+        return rollups.size();
+    }
+
+    private static Revenue rollup(String sectorId, Revenue.Granularity granularity, LocalDateTime timestamp, BigDecimal amount) {
+        Revenue revenue = new Revenue();
+        revenue.setSectorId(sectorId);
+        revenue.setGranularity(granularity);
+        revenue.setTimestamp(timestamp);
+        revenue.setAmount(amount);
+        return revenue;
+    }
+}
@@ -0,0 +1,186 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+// Ocupação de cada setor em memória. A admissão é um compare-and-set contra maxCapacity, sem lock
+// na linha de garage_sectors; o valor é gravado no banco periodicamente, apenas para setores alterados.
+// Com parking.occupancy.mode=database, cada admissão/liberação é um UPDATE condicional no próprio banco.
+// A ocupação parte das vagas ocupadas (parking_spots), não de garage_sectors.current_occupancy, que pode estar
+// atrasada; no restart e na reconfiguração a coluna é conciliada com essa contagem.
+@Service
+public class SectorOccupancyEngine {
+    private final Logger logger = Logger.getLogger(SectorOccupancyEngine.class.getName());
+    private final GarageSectorRepository sectorRepository;
+    private final ParkingSpotRepository spotRepository;
+    private final EntityManager entityManager;
+    private final Mode mode;
+    private final Map<String, SectorCounter> counters = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public enum Mode {
+        MEMORY,
+        DATABASE
+    }
+
+    public SectorOccupancyEngine(GarageSectorRepository sectorRepository,
+                                 ParkingSpotRepository spotRepository,
+                                 EntityManager entityManager,
+                                 @Value("${parking.occupancy.mode:memory}") Mode mode) {
+        this.sectorRepository = sectorRepository;
+        this.spotRepository = spotRepository;
+        this.entityManager = entityManager;
+        this.mode = mode;
+    }
+
+    // Ocupa uma posição se houver capacidade. Desfeito automaticamente se a transação sofrer rollback.
+    public boolean tryAdmit(GarageSector sector) {
+        if (mode == Mode.DATABASE) {
+            if (sectorRepository.tryIncrementOccupancy(sector.getId()) == 0) {
+                return false;
+            }
+            detach(sector);
+            sector.setCurrentOccupancy(sector.getCurrentOccupancy() + 1);
+            return true;
+        }
+        SectorCounter counter = counterFor(sector);
+        while (true) {
+            int current = counter.occupancy.get();
+            if (current >= counter.maxCapacity) {
+                return false;
+            }
+            if (counter.occupancy.compareAndSet(current, current + 1)) {
+                track(sector.getId(), counter, -1);
+                return true;
+            }
+        }
+    }
+
+    public void release(GarageSector sector) {
+        if (mode == Mode.DATABASE) {
+            if (sectorRepository.tryDecrementOccupancy(sector.getId()) == 0) {
+                throw new IllegalStateException("Sector is already empty");
+            }
+            detach(sector);
+            sector.setCurrentOccupancy(sector.getCurrentOccupancy() - 1);
+            return;
+        }
+        SectorCounter counter = counterFor(sector);
+        while (true) {
+            int current = counter.occupancy.get();
+            if (current <= 0) {
+                throw new IllegalStateException("Sector is already empty");
+            }
+            if (counter.occupancy.compareAndSet(current, current - 1)) {
+                track(sector.getId(), counter, 1);
+                return;
+            }
+        }
+    }
+
+    // O UPDATE condicional não limpa o contexto de persistência: só este setor sai dele, para que a ocupação ajustada
+    // em memória não seja gravada no flush por cima de outras transações, e a próxima leitura venha do banco
+    private void detach(GarageSector sector) {
+        if (entityManager.contains(sector)) {
+            entityManager.detach(sector);
+        }
+    }
+
+    public int getOccupancy(GarageSector sector) {
+        if (mode == Mode.DATABASE) {
+            return sector.getCurrentOccupancy();
+        }
+        return counterFor(sector).occupancy.get();
+    }
+
+    // Recarrega os contadores pela contagem de vagas ocupadas e concilia garage_sectors.current_occupancy.
+    // O que ainda não foi gravado é gravado antes de descartar os contadores.
+    @PostConstruct
+    public void rebuild() {
+        flush();
+        counters.clear();
+        dirty.clear();
+        Map<String, Integer> occupied = new HashMap<>();
+        for (ParkingSpotRepository.SectorOccupied row : spotRepository.countOccupiedBySector()) {
+            occupied.put(row.getSectorId(), row.getOccupied().intValue());
+        }
+        for (GarageSector sector : sectorRepository.findAll()) {
+            int count = occupied.getOrDefault(sector.getId(), 0);
+            if (mode == Mode.MEMORY) {
+                counters.put(sector.getId(), new SectorCounter(count, sector.getMaxCapacity()));
+            }
+            if (sector.getCurrentOccupancy() != count) {
+                logger.warning("Ocupação do setor " + sector.getId() + " conciliada com as vagas ocupadas: "
+                    + sector.getCurrentOccupancy() + " -> " + count);
+                sectorRepository.updateCurrentOccupancy(sector.getId(), count);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${parking.occupancy.flush-interval-ms:1000}")
+    public void flush() {
+        Iterator<String> pending = dirty.iterator();
+        while (pending.hasNext()) {
+            String sectorId = pending.next();
+            pending.remove();
+            SectorCounter counter = counters.get(sectorId);
+            if (counter != null) {
+                sectorRepository.updateCurrentOccupancy(sectorId, counter.occupancy.get());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warning("Falha ao gravar ocupação dos setores no encerramento: " + e.getMessage());
+        }
+    }
+
+    private SectorCounter counterFor(GarageSector sector) {
+        SectorCounter counter = counters.get(sector.getId());
+        if (counter == null) {
+            // Setor criado depois do último rebuild: também parte da contagem de vagas ocupadas
+            int occupied = (int) spotRepository.countBySectorIdAndOccupiedTrue(sector.getId());
+            SectorCounter seeded = new SectorCounter(occupied, sector.getMaxCapacity());
+            counter = counters.putIfAbsent(sector.getId(), seeded);
+            if (counter == null) {
+                counter = seeded;
+            }
+        }
+        counter.maxCapacity = sector.getMaxCapacity();
+        return counter;
+    }
+
+    private void track(String sectorId, SectorCounter counter, int compensation) {
+        TransactionCallbacks.onRollback(() -> counter.occupancy.addAndGet(compensation));
+        TransactionCallbacks.afterCommit(() -> dirty.add(sectorId));
+    }
+
+    private static final class SectorCounter {
+        private final AtomicInteger occupancy;
+        private volatile int maxCapacity;
+
+        private SectorCounter(int occupancy, int maxCapacity) {
+            this.occupancy = new AtomicInteger(occupancy);
+            this.maxCapacity = maxCapacity;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingEventRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+// Histórico de lotação de cada setor em memória: os pontos de mudança (PARKED ocupa, EXIT libera) em ordem de tempo,
+// cada um com a faixa de preço em vigor a partir dele e as somas acumuladas de segundos em cada faixa até ele. O
+// tempo em cada faixa dentro de uma permanência sai de duas buscas binárias e da diferença das somas, em O(log n).
+// Mudanças chegam quase sempre no fim (O(1)); um evento atrasado é inserido no meio e refaz as somas seguintes.
+// Pontos mais antigos que a retenção são descartados; no restart, o histórico é refeito a partir de parking_events.
+@Service
+public class SectorOccupancyTimeline {
+    static final int TIERS = 4;
+
+    private final Logger logger = Logger.getLogger(SectorOccupancyTimeline.class.getName());
+    private final ParkingEventRepository eventRepository;
+    private final GarageSectorRepository sectorRepository;
+    private final Clock clock;
+    private final long retentionSeconds;
+    private final Map<String, Timeline> timelines = new ConcurrentHashMap<>();
+
+    public SectorOccupancyTimeline(ParkingEventRepository eventRepository,
+                                   GarageSectorRepository sectorRepository,
+                                   Clock clock,
+                                   @Value("${parking.pricing.timeline.retention-hours:72}") long retentionHours) {
+        this.eventRepository = eventRepository;
+        this.sectorRepository = sectorRepository;
+        this.clock = clock;
+        this.retentionSeconds = Math.max(1, retentionHours) * 3600;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        LocalDateTime since = LocalDateTime.now(clock).minusSeconds(retentionSeconds);
+        Map<String, Integer> capacities = new HashMap<>();
+        for (GarageSector sector : sectorRepository.findAll()) {
+            capacities.put(sector.getId(), sector.getMaxCapacity());
+        }
+        Map<String, Timeline> rebuilt = new HashMap<>();
+        for (ParkingEventRepository.SectorOccupancy initial : eventRepository.sumOccupancyBefore(since)) {
+            Integer capacity = capacities.get(initial.getSectorId());
+            if (capacity != null) {
+                rebuilt.put(initial.getSectorId(), new Timeline(epochSecond(since), initial.getOccupancy().intValue(), capacity));
+            }
+        }
+        List<ParkingEventRepository.OccupancyChange> changes = eventRepository.findOccupancyChangesSince(since);
+        for (ParkingEventRepository.OccupancyChange change : changes) {
+            Integer capacity = capacities.get(change.getSectorId());
+            if (capacity == null) {
+                continue;
+            }
+            long time = epochSecond(change.getTimestamp());
+            int delta = "PARKED".equals(change.getType()) ? 1 : -1;
+            rebuilt.computeIfAbsent(change.getSectorId(), id -> new Timeline(epochSecond(since), 0, capacity))
+                .record(time, delta, capacity, retentionSeconds);
+        }
+        timelines.clear();
+        timelines.putAll(rebuilt);
+        logger.info("Histórico de lotação carregado com " + changes.size() + " eventos de " + rebuilt.size() + " setores");
+    }
+
+    // Chamado após o commit do evento que ocupou (+1) ou liberou (-1) uma posição do setor
+    public void record(GarageSector sector, LocalDateTime at, int delta) {
+        long time = epochSecond(at);
+        timelines.computeIfAbsent(sector.getId(), id -> new Timeline(time, 0, sector.getMaxCapacity()))
+            .record(time, delta, sector.getMaxCapacity(), retentionSeconds);
+    }
+
+    // Média de unitsByTier ponderada pelo tempo em cada faixa em [from, to), arredondada HALF_UP; -1 sem histórico no
+    // intervalo. O trecho anterior ao histórico retido fica de fora da média
+    public long averageUnits(String sectorId, LocalDateTime from, LocalDateTime to, long[] unitsByTier) {
+        Timeline timeline = timelines.get(sectorId);
+        if (timeline == null) {
+            return -1;
+        }
+        return timeline.averageUnits(epochSecond(from), epochSecond(to), unitsByTier);
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static final class Timeline {
+        private long[] times;
+        private int[] occupancy;
+        private byte[] tiers;
+        // Segundos em cada faixa entre o primeiro ponto e o ponto i: tierSeconds[i * TIERS + faixa]
+        private long[] tierSeconds;
+        private int size;
+
+        Timeline(long start, int initialOccupancy, int maxCapacity) {
+            times = new long[16];
+            occupancy = new int[16];
+            tiers = new byte[16];
+            tierSeconds = new long[16 * TIERS];
+            times[0] = start;
+            occupancy[0] = initialOccupancy;
+            tiers[0] = (byte) PricingEngine.tierOf(initialOccupancy, maxCapacity);
+            size = 1;
+        }
+
+        synchronized void record(long time, int delta, int maxCapacity, long retentionSeconds) {
+            // Antes do início do histórico, a mudança vale a partir do primeiro ponto
+            long at = Math.max(time, times[0]);
+            if (size == times.length) {
+                compact(Math.min(at, times[size - 1]) - retentionSeconds);
+            }
+            if (size == times.length) {
+                grow();
+            }
+            int index = upperBound(at);
+            int shift = size - index;
+            System.arraycopy(times, index, times, index + 1, shift);
+            System.arraycopy(occupancy, index, occupancy, index + 1, shift);
+            System.arraycopy(tiers, index, tiers, index + 1, shift);
+            System.arraycopy(tierSeconds, index * TIERS, tierSeconds, (index + 1) * TIERS, shift * TIERS);
+            size++;
+
+            times[index] = at;
+            occupancy[index] = occupancy[index - 1] + delta;
+            // Um evento atrasado muda a lotação de todos os pontos seguintes
+            for (int i = index; i < size; i++) {
+                if (i > index) {
+                    occupancy[i] += delta;
+                }
+                tiers[i] = (byte) PricingEngine.tierOf(occupancy[i], maxCapacity);
+                accumulate(i);
+            }
+        }
+
+        synchronized long averageUnits(long from, long to, long[] unitsByTier) {
+            long start = Math.max(from, times[0]);
+            if (to <= start) {
+                return -1;
+            }
+            long weighted = weightedUntil(to, unitsByTier) - weightedUntil(start, unitsByTier);
+            long duration = to - start;
+            return (weighted + duration / 2) / duration;
+        }
+
+        // Soma de unitsByTier x segundos entre o primeiro ponto e o instante
+        private long weightedUntil(long time, long[] unitsByTier) {
+            int i = upperBound(time) - 1;
+            long weighted = unitsByTier[tiers[i]] * (time - times[i]);
+            for (int tier = 0; tier < TIERS; tier++) {
+                weighted += unitsByTier[tier] * tierSeconds[i * TIERS + tier];
+            }
+            return weighted;
+        }
+
+        private void accumulate(int i) {
+            if (i == 0) {
+                Arrays.fill(tierSeconds, 0, TIERS, 0);
+                return;
+            }
+            System.arraycopy(tierSeconds, (i - 1) * TIERS, tierSeconds, i * TIERS, TIERS);
+            tierSeconds[i * TIERS + tiers[i - 1]] += times[i] - times[i - 1];
+        }
+
+        // Primeiro ponto depois do instante (pontos no mesmo instante ficam na ordem de chegada)
+        private int upperBound(long time) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (times[mid] <= time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Descarta os pontos anteriores ao último ponto antes de cutoff, que passa a ser o início do histórico
+        private void compact(long cutoff) {
+            int first = upperBound(cutoff) - 1;
+            if (first <= 0) {
+                return;
+            }
+            int kept = size - first;
+            System.arraycopy(times, first, times, 0, kept);
+            System.arraycopy(occupancy, first, occupancy, 0, kept);
+            System.arraycopy(tiers, first, tiers, 0, kept);
+            long[] base = Arrays.copyOfRange(tierSeconds, first * TIERS, (first + 1) * TIERS);
+            System.arraycopy(tierSeconds, first * TIERS, tierSeconds, 0, kept * TIERS);
+            for (int i = 0; i < kept; i++) {
+                for (int tier = 0; tier < TIERS; tier++) {
+                    tierSeconds[i * TIERS + tier] -= base[tier];
+                }
+            }
+            size = kept;
+        }
+
+        private void grow() {
+            int capacity = times.length * 2;
+            times = Arrays.copyOf(times, capacity);
+            occupancy = Arrays.copyOf(occupancy, capacity);
+            tiers = Arrays.copyOf(tiers, capacity);
+            tierSeconds = Arrays.copyOf(tierSeconds, capacity * TIERS);
+        }
+    }
+}
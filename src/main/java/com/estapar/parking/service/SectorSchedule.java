@@ -0,0 +1,177 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.repository.GarageSectorRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// Horário de funcionamento de cada setor (open_hour até close_hour; close_hour anterior a open_hour atravessa a
+// meia-noite, iguais = 24 h) como uma flag em memória, virada por uma tarefa agendada para a próxima fronteira. A
+// consulta no ENTRY/PARKED é uma leitura de mapa e de um volatile. Com parking.sectors.schedule.enabled=false todos
+// os setores ficam sempre abertos.
+@Service
+public class SectorSchedule {
+    private final Logger logger = Logger.getLogger(SectorSchedule.class.getName());
+    private final GarageSectorRepository sectorRepository;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final boolean enabled;
+    private final ScheduledExecutorService scheduler;
+    private final Set<String> gauges = ConcurrentHashMap.newKeySet();
+    private volatile Map<String, SectorHours> sectors = Map.of();
+
+    public SectorSchedule(GarageSectorRepository sectorRepository,
+                          MeterRegistry meterRegistry,
+                          Clock clock,
+                          @Value("${parking.sectors.schedule.enabled:true}") boolean enabled) {
+        this.sectorRepository = sectorRepository;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.scheduler = enabled ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sector-schedule");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        LocalTime now = LocalTime.now(clock);
+        Map<String, SectorHours> loaded = new HashMap<>();
+        for (GarageSector sector : sectorRepository.findAll()) {
+            SectorHours hours = new SectorHours(sector.getId(), sector.getOpenHour(), sector.getCloseHour());
+            hours.open = hours.isOpenAt(now);
+            loaded.put(sector.getId(), hours);
+        }
+        Map<String, SectorHours> previous = sectors;
+        sectors = Map.copyOf(loaded);
+        previous.values().forEach(SectorHours::cancel);
+        for (SectorHours hours : loaded.values()) {
+            scheduleNextFlip(hours);
+            if (gauges.add(hours.sectorId)) {
+                Gauge.builder("parking.sectors.open", this, schedule -> schedule.isOpen(hours.sectorId) ? 1 : 0)
+                    .description("1 enquanto o setor está dentro do horário de funcionamento")
+                    .tag("sector", hours.sectorId)
+                    .register(meterRegistry);
+            }
+        }
+        logger.info("Horários de funcionamento carregados para " + loaded.size() + " setores");
+    }
+
+    // Setores desconhecidos contam como abertos; quem valida a existência é o chamador
+    public boolean isOpen(String sectorId) {
+        if (!enabled || sectorId == null) {
+            return true;
+        }
+        SectorHours hours = sectors.get(sectorId);
+        return hours == null || hours.open;
+    }
+
+    // Recalcula a flag pelo relógio e agenda a próxima virada
+    void flip(String sectorId) {
+        SectorHours hours = sectors.get(sectorId);
+        if (hours == null) {
+            return;
+        }
+        boolean open = hours.isOpenAt(LocalTime.now(clock));
+        if (open != hours.open) {
+            hours.open = open;
+            logger.info("Setor " + sectorId + (open ? " aberto" : " fechado"));
+        }
+        scheduleNextFlip(hours);
+    }
+
+    private void scheduleNextFlip(SectorHours hours) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime next = hours.nextBoundary(now);
+        if (next == null) {
+            return;
+        }
+        long delay = Duration.between(clock.instant(), next.atZone(clock.getZone()).toInstant()).toMillis();
+        hours.future = scheduler.schedule(() -> {
+            // Rebuild posterior substitui o setor e cancela esta tarefa
+            if (sectors.get(hours.sectorId) == hours) {
+                flip(hours.sectorId);
+            }
+        }, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    static final class SectorHours {
+        private final String sectorId;
+        private final LocalTime openHour;
+        private final LocalTime closeHour;
+        private volatile boolean open;
+        private volatile ScheduledFuture<?> future;
+
+        SectorHours(String sectorId, LocalTime openHour, LocalTime closeHour) {
+            this.sectorId = sectorId;
+            this.openHour = openHour;
+            this.closeHour = closeHour;
+        }
+
+        boolean isOpenAt(LocalTime time) {
+            if (openHour.equals(closeHour)) {
+                return true;
+            }
+            if (openHour.isBefore(closeHour)) {
+                return !time.isBefore(openHour) && time.isBefore(closeHour);
+            }
+            return !time.isBefore(openHour) || time.isBefore(closeHour);
+        }
+
+        // Próxima abertura ou fechamento depois de now; null se o setor nunca fecha
+        LocalDateTime nextBoundary(LocalDateTime now) {
+            if (openHour.equals(closeHour)) {
+                return null;
+            }
+            LocalDate today = now.toLocalDate();
+            LocalDateTime next = null;
+            for (LocalDate day : new LocalDate[]{today, today.plusDays(1)}) {
+                for (LocalTime time : new LocalTime[]{openHour, closeHour}) {
+                    LocalDateTime boundary = day.atTime(time);
+                    if (boundary.isAfter(now) && (next == null || boundary.isBefore(next))) {
+                        next = boundary;
+                    }
+                }
+            }
+            return next;
+        }
+
+        private void cancel() {
+            ScheduledFuture<?> current = future;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.SessionAlertDTO;
+import com.estapar.parking.dto.SessionAlertsResponse;
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.ParkingSession;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+// Prazo de cada sessão ativa em um timing wheel: entradas sem PARKED vencem entry-timeout após o ENTRY e são
+// encerradas (liberando a vaga reservada), veículos estacionados vencem no limite de permanência do setor
+// (durationLimitMinutes, contado da entrada) e passam a constar como overstay até o EXIT. Os prazos são agendados
+// após o commit de cada evento; no restart, são refeitos das sessões ativas.
+@Service
+public class SessionDeadlineMonitor {
+    private static final int RECENT_ABANDONED_ENTRIES = 100;
+
+    private final Logger logger = Logger.getLogger(SessionDeadlineMonitor.class.getName());
+    private final ParkingSessionRepository sessionRepository;
+    private final GarageSectorRepository sectorRepository;
+    private final VehiclePresenceRegistry presenceRegistry;
+    private final SpotAllocator spotAllocator;
+    private final OccupancySnapshotPublisher occupancySnapshots;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final long tickMillis;
+    private final Duration entryTimeout;
+    private final Map<String, SessionDeadline> overstays = new ConcurrentHashMap<>();
+    private final Deque<SessionDeadline> abandonedEntries = new ArrayDeque<>();
+    private final Counter overstayCounter;
+    private final Counter abandonedCounter;
+    private volatile TimingWheel<SessionDeadline> wheel;
+
+    public SessionDeadlineMonitor(ParkingSessionRepository sessionRepository,
+                                  GarageSectorRepository sectorRepository,
+                                  VehiclePresenceRegistry presenceRegistry,
+                                  SpotAllocator spotAllocator,
+                                  OccupancySnapshotPublisher occupancySnapshots,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  Clock clock,
+                                  @Value("${parking.sessions.tick-ms:1000}") long tickMillis,
+                                  @Value("${parking.sessions.entry-timeout-minutes:120}") long entryTimeoutMinutes) {
+        this.sessionRepository = sessionRepository;
+        this.sectorRepository = sectorRepository;
+        this.presenceRegistry = presenceRegistry;
+        this.spotAllocator = spotAllocator;
+        this.occupancySnapshots = occupancySnapshots;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.tickMillis = Math.max(1, tickMillis);
+        this.entryTimeout = Duration.ofMinutes(entryTimeoutMinutes);
+        this.wheel = new TimingWheel<>(tickOf(LocalDateTime.now(clock)));
+
+        Gauge.builder("parking.sessions.deadlines.tracked", this, monitor -> monitor.wheel.size())
+            .description("Sessões ativas com prazo agendado")
+            .register(meterRegistry);
+        Gauge.builder("parking.sessions.overstays.active", overstays, Map::size)
+            .description("Veículos estacionados além do limite de permanência")
+            .register(meterRegistry);
+        this.overstayCounter = Counter.builder("parking.sessions.overstays").register(meterRegistry);
+        this.abandonedCounter = Counter.builder("parking.sessions.abandoned-entries").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Map<String, GarageSector> sectors = new HashMap<>();
+        for (GarageSector sector : sectorRepository.findAll()) {
+            sectors.put(sector.getId(), sector);
+        }
+        TimingWheel<SessionDeadline> rebuilt = new TimingWheel<>(tickOf(now));
+        for (ParkingSession session : sessionRepository.findByExitTimeIsNull()) {
+            Optional<VehiclePresence> presence = presenceRegistry.find(session.getLicensePlate());
+            if (presence.isEmpty()) {
+                continue;
+            }
+            // O recebimento do ENTRY não é persistido: a entrada ganha um prazo inteiro a partir do restart
+            SessionDeadline deadline = presence.get().isParked()
+                ? overstayDeadline(presence.get(), sectors.get(presence.get().sectorId()))
+                : entryDeadline(presence.get(), now);
+            if (deadline != null) {
+                rebuilt.schedule(deadline.licensePlate(), tickOf(deadline.deadline()), deadline);
+            }
+        }
+        wheel = rebuilt;
+        overstays.clear();
+        logger.info("Prazos carregados para " + rebuilt.size() + " sessões ativas");
+    }
+
+    // Chamados pelo ParkingService dentro da transação do evento; o prazo só muda após o commit
+    public void entered(String licensePlate, LocalDateTime entryTime) {
+        VehiclePresence presence = VehiclePresence.entered(licensePlate, entryTime);
+        TransactionCallbacks.afterCommit(() -> {
+            SessionDeadline deadline = entryDeadline(presence, LocalDateTime.now(clock));
+            wheel.schedule(licensePlate, tickOf(deadline.deadline()), deadline);
+        });
+    }
+
+    public void parked(VehiclePresence presence, GarageSector sector) {
+        SessionDeadline deadline = overstayDeadline(presence, sector);
+        TransactionCallbacks.afterCommit(() -> {
+            if (deadline != null) {
+                wheel.schedule(presence.licensePlate(), tickOf(deadline.deadline()), deadline);
+            } else {
+                wheel.cancel(presence.licensePlate());
+            }
+        });
+    }
+
+    public void exited(String licensePlate) {
+        TransactionCallbacks.afterCommit(() -> {
+            wheel.cancel(licensePlate);
+            overstays.remove(licensePlate);
+        });
+    }
+
+    // Nova configuração da garagem: só os veículos estacionados nos setores cujo limite de permanência mudou ganham
+    // prazo novo; os demais prazos e os overstays já notificados ficam como estão
+    public void durationLimitsChanged(Collection<GarageSector> sectors) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (GarageSector sector : sectors) {
+            for (VehiclePresence presence : presenceRegistry.parkedIn(sector.getId())) {
+                String licensePlate = presence.licensePlate();
+                SessionDeadline deadline = overstayDeadline(presence, sector);
+                if (deadline == null) {
+                    wheel.cancel(licensePlate);
+                    overstays.remove(licensePlate);
+                } else if (overstays.containsKey(licensePlate) && !deadline.deadline().isAfter(now)) {
+                    // Continua além do limite: só o prazo exibido muda, sem contar outro overstay
+                    overstays.put(licensePlate, deadline);
+                } else {
+                    overstays.remove(licensePlate);
+                    wheel.schedule(licensePlate, tickOf(deadline.deadline()), deadline);
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${parking.sessions.tick-ms:1000}")
+    public void tick() {
+        for (SessionDeadline deadline : wheel.advance(tickOf(LocalDateTime.now(clock)))) {
+            try {
+                if (deadline.type() == DeadlineType.OVERSTAY) {
+                    notifyOverstay(deadline);
+                } else {
+                    reapEntry(deadline);
+                }
+            } catch (RuntimeException e) {
+                logger.warning("Falha ao tratar o prazo da placa " + deadline.licensePlate() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public SessionAlertsResponse getAlerts() {
+        List<SessionAlertDTO> overstayed = overstays.values().stream()
+            .sorted(Comparator.comparing(SessionDeadline::deadline))
+            .map(SessionDeadline::toAlert)
+            .toList();
+        List<SessionAlertDTO> abandoned;
+        synchronized (abandonedEntries) {
+            abandoned = abandonedEntries.stream().map(SessionDeadline::toAlert).toList();
+        }
+        return new SessionAlertsResponse(overstayed, abandoned);
+    }
+
+    private void notifyOverstay(SessionDeadline deadline) {
+        // O EXIT pode ter chegado entre o vencimento e agora
+        boolean stillParked = presenceRegistry.find(deadline.licensePlate())
+            .filter(p -> p.isParked() && p.spotId().equals(deadline.spotId()))
+            .isPresent();
+        if (stillParked) {
+            overstays.put(deadline.licensePlate(), deadline);
+            overstayCounter.increment();
+            logger.warning("Placa " + deadline.licensePlate() + " excedeu o limite de permanência do setor "
+                + deadline.sectorId() + " (prazo " + deadline.deadline() + ")");
+        }
+    }
+
+    private void reapEntry(SessionDeadline deadline) {
+        String licensePlate = deadline.licensePlate();
+        Boolean reaped = transactionTemplate.execute(status -> {
+            Optional<VehiclePresence> presence = presenceRegistry.find(licensePlate);
+            if (presence.isEmpty() || presence.get().isParked()) {
+                return false;
+            }
+            Optional<ParkingSession> session = sessionRepository.findByLicensePlateAndExitTimeIsNull(licensePlate);
+            if (session.isEmpty() || sessionRepository.closeAbandonedEntry(session.get().getId(), LocalDateTime.now(clock)) == 0) {
+                return false;
+            }
+            if (session.get().getSpotId() != null) {
+                spotAllocator.releaseReservation(session.get().getSpotId(), licensePlate);
+                occupancySnapshots.reservationsChanged();
+            }
+            presenceRegistry.remove(licensePlate);
+            return true;
+        });
+        if (Boolean.TRUE.equals(reaped)) {
+            synchronized (abandonedEntries) {
+                if (abandonedEntries.size() == RECENT_ABANDONED_ENTRIES) {
+                    abandonedEntries.removeLast();
+                }
+                abandonedEntries.addFirst(deadline);
+            }
+            abandonedCounter.increment();
+            logger.info("Entrada da placa " + licensePlate + " encerrada sem PARKED após " + entryTimeout.toMinutes() + " minutos");
+        }
+    }
+
+    private SessionDeadline entryDeadline(VehiclePresence presence, LocalDateTime now) {
+        return new SessionDeadline(presence.licensePlate(), DeadlineType.ENTRY_TIMEOUT, null, null,
+            presence.entryTime(), now.plus(entryTimeout));
+    }
+
+    // Sem limite no setor (0) não há prazo; sem ENTRY, a permanência conta do PARKED
+    private static SessionDeadline overstayDeadline(VehiclePresence presence, GarageSector sector) {
+        if (sector == null || sector.getDurationLimitMinutes() <= 0) {
+            return null;
+        }
+        LocalDateTime start = presence.entryTime() != null ? presence.entryTime() : presence.parkedAt();
+        if (start == null) {
+            return null;
+        }
+        return new SessionDeadline(presence.licensePlate(), DeadlineType.OVERSTAY, sector.getId(), presence.spotId(),
+            presence.entryTime(), start.plusMinutes(sector.getDurationLimitMinutes()));
+    }
+
+    private long tickOf(LocalDateTime time) {
+        return Math.floorDiv(time.atZone(clock.getZone()).toInstant().toEpochMilli(), tickMillis);
+    }
+
+    private enum DeadlineType {
+        OVERSTAY,
+        ENTRY_TIMEOUT
+    }
+
+    private record SessionDeadline(String licensePlate, DeadlineType type, String sectorId, Long spotId,
+                                   LocalDateTime entryTime, LocalDateTime deadline) {
+        SessionAlertDTO toAlert() {
+            return new SessionAlertDTO(licensePlate, sectorId, spotId, entryTime, deadline);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.ParkingSession;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+// Vagas livres de cada setor em um bitmap de dois níveis (bit ligado = vaga livre), indexado pela posição da vaga
+// no setor. O primeiro nível marca quais palavras ainda têm algum bit livre, então achar a próxima vaga livre e
+// contar as livres não depende do tamanho do setor. Uma nova versão da configuração altera só os setores tocados:
+// vagas incluídas entram livres no fim do bitmap e vagas removidas deixam uma posição vazia, sem perder o estado das
+// demais.
+@Service
+@RequiredArgsConstructor
+public class SpotAllocator {
+    private final Logger logger = Logger.getLogger(SpotAllocator.class.getName());
+    private final ParkingSpotRepository spotRepository;
+    private final ParkingSessionRepository sessionRepository;
+    private volatile Map<String, SectorBitmap> sectors = Map.of();
+    private volatile Map<Long, SectorBitmap> sectorBySpot = Map.of();
+    private volatile Map<Long, String> reservations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        // Vagas reservadas na entrada (sessão ativa com vaga, mas ainda não estacionada) também não estão livres
+        Set<Long> reserved = new HashSet<>();
+        Map<String, Long> reservedSpotByPlate = new HashMap<>();
+        for (ParkingSession session : sessionRepository.findByExitTimeIsNull()) {
+            if (session.getSpotId() != null) {
+                reserved.add(session.getSpotId());
+                reservedSpotByPlate.put(session.getLicensePlate(), session.getSpotId());
+            }
+        }
+
+        Map<String, List<ParkingSpot>> spotsBySector = new TreeMap<>();
+        for (ParkingSpot spot : spotRepository.findAll()) {
+            spotsBySector.computeIfAbsent(spot.getSectorId(), id -> new ArrayList<>()).add(spot);
+        }
+
+        Map<String, SectorBitmap> loaded = new HashMap<>();
+        Map<Long, SectorBitmap> bySpot = new HashMap<>();
+        Set<Long> occupied = new HashSet<>();
+        spotsBySector.forEach((sectorId, spots) -> {
+            spots.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+            SectorBitmap bitmap = new SectorBitmap(sectorId, spots.stream().map(ParkingSpot::getId).toList());
+            for (ParkingSpot spot : spots) {
+                if (spot.isOccupied()) {
+                    occupied.add(spot.getId());
+                }
+                if (spot.isOccupied() || reserved.contains(spot.getId())) {
+                    bitmap.take(spot.getId());
+                }
+                bySpot.put(spot.getId(), bitmap);
+            }
+            loaded.put(sectorId, bitmap);
+        });
+        Map<Long, String> loadedReservations = new ConcurrentHashMap<>();
+        reservedSpotByPlate.forEach((plate, spotId) -> {
+            if (!occupied.contains(spotId) && bySpot.containsKey(spotId)) {
+                loadedReservations.put(spotId, plate);
+            }
+        });
+        sectors = Collections.unmodifiableMap(loaded);
+        sectorBySpot = Collections.unmodifiableMap(bySpot);
+        reservations = loadedReservations;
+        logger.info("Alocador de vagas carregado com " + bySpot.size() + " vagas em " + loaded.size() + " setores");
+    }
+
+    // Vagas incluídas ou que mudaram de setor (upserts), vagas e setores removidos; as vagas que saem ou mudam de
+    // setor já foram conferidas como livres no banco
+    public synchronized void applyTopology(Collection<SpotLocation> upserts, Collection<Long> removedSpotIds,
+                                           Collection<String> removedSectorIds) {
+        Map<String, SectorBitmap> nextSectors = new HashMap<>(sectors);
+        Map<Long, SectorBitmap> nextBySpot = new HashMap<>(sectorBySpot);
+        List<Long> stale = new ArrayList<>(removedSpotIds);
+        upserts.forEach(location -> stale.add(location.spotId()));
+        for (Long spotId : stale) {
+            SectorBitmap bitmap = nextBySpot.remove(spotId);
+            if (bitmap != null) {
+                bitmap.remove(spotId);
+            }
+            reservations.remove(spotId);
+        }
+        Map<String, List<Long>> added = new TreeMap<>();
+        for (SpotLocation location : upserts) {
+            added.computeIfAbsent(location.sectorId(), id -> new ArrayList<>()).add(location.spotId());
+        }
+        added.forEach((sectorId, spotIds) -> {
+            SectorBitmap bitmap = nextSectors.computeIfAbsent(sectorId, id -> new SectorBitmap(id, List.of()));
+            bitmap.add(spotIds);
+            spotIds.forEach(spotId -> nextBySpot.put(spotId, bitmap));
+        });
+        removedSectorIds.forEach(nextSectors::remove);
+        sectors = Collections.unmodifiableMap(nextSectors);
+        sectorBySpot = Collections.unmodifiableMap(nextBySpot);
+    }
+
+    public int getFreeCount(String sectorId) {
+        SectorBitmap bitmap = sectors.get(sectorId);
+        return bitmap != null ? bitmap.freeCount() : 0;
+    }
+
+    public int getTotalCount(String sectorId) {
+        SectorBitmap bitmap = sectors.get(sectorId);
+        return bitmap != null ? bitmap.totalCount() : 0;
+    }
+
+    public List<String> getSectorIds() {
+        return sectors.keySet().stream().sorted().toList();
+    }
+
+    public String getSectorId(Long spotId) {
+        SectorBitmap bitmap = sectorBySpot.get(spotId);
+        return bitmap != null ? bitmap.sectorId : null;
+    }
+
+    public List<Long> getFreeSpotIds(String sectorId) {
+        SectorBitmap bitmap = sectors.get(sectorId);
+        return bitmap != null ? bitmap.freeSpotIds() : List.of();
+    }
+
+    // Reserva a próxima vaga livre do setor (ou do primeiro setor com vaga, se sectorId for nulo) para a placa
+    public Optional<Long> allocate(String sectorId, String licensePlate) {
+        return allocate(sectorId, licensePlate, id -> true);
+    }
+
+    // Sem setor informado, só considera os setores aceitos por eligible (por exemplo, os abertos)
+    public Optional<Long> allocate(String sectorId, String licensePlate, Predicate<String> eligible) {
+        List<SectorBitmap> candidates = sectorId != null
+            ? Optional.ofNullable(sectors.get(sectorId)).map(List::of).orElse(List.of())
+            : sectors.values().stream().sorted((a, b) -> a.sectorId.compareTo(b.sectorId)).toList();
+        for (SectorBitmap bitmap : candidates) {
+            if (sectorId == null && !eligible.test(bitmap.sectorId)) {
+                continue;
+            }
+            long spotId = bitmap.takeNextFree();
+            if (spotId >= 0) {
+                Map<Long, String> target = reservations;
+                target.put(spotId, licensePlate);
+                TransactionCallbacks.onRollback(() -> {
+                    target.remove(spotId, licensePlate);
+                    bitmap.release(spotId);
+                });
+                return Optional.of(spotId);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // A vaga passa a ser de quem estacionou nela, mesmo que estivesse reservada para outra placa
+    public void markOccupied(Long spotId) {
+        SectorBitmap bitmap = sectorBySpot.get(spotId);
+        if (bitmap == null) {
+            return;
+        }
+        Map<Long, String> target = reservations;
+        String reservedFor = target.remove(spotId);
+        boolean taken = bitmap.take(spotId);
+        TransactionCallbacks.onRollback(() -> {
+            if (reservedFor != null) {
+                target.put(spotId, reservedFor);
+            } else if (taken) {
+                bitmap.release(spotId);
+            }
+        });
+    }
+
+    // Devolve a vaga reservada na entrada quando o veículo estacionou em outra
+    public void releaseReservation(Long spotId, String licensePlate) {
+        SectorBitmap bitmap = sectorBySpot.get(spotId);
+        Map<Long, String> target = reservations;
+        if (bitmap != null && target.remove(spotId, licensePlate)) {
+            bitmap.release(spotId);
+            TransactionCallbacks.onRollback(() -> {
+                bitmap.take(spotId);
+                target.put(spotId, licensePlate);
+            });
+        }
+    }
+
+    public void markFree(Long spotId) {
+        SectorBitmap bitmap = sectorBySpot.get(spotId);
+        if (bitmap != null && bitmap.release(spotId)) {
+            TransactionCallbacks.onRollback(() -> bitmap.take(spotId));
+        }
+    }
+
+    private static final class SectorBitmap {
+        private final String sectorId;
+        private final Map<Long, Integer> ordinals;
+        private long[] spotIds;
+        private long[] words;
+        private long[] summary;
+        // Posições usadas (incluindo as de vagas removidas), vagas no setor e vagas livres
+        private int size;
+        private int total;
+        private int free;
+
+        private SectorBitmap(String sectorId, List<Long> spotIds) {
+            this.sectorId = sectorId;
+            this.ordinals = new HashMap<>(spotIds.size() * 2);
+            this.spotIds = new long[spotIds.size()];
+            this.words = new long[(spotIds.size() + 63) >>> 6];
+            this.summary = new long[(words.length + 63) >>> 6];
+            add(spotIds);
+        }
+
+        // As vagas entram livres depois da última posição usada
+        private synchronized void add(List<Long> ids) {
+            int needed = size + ids.size();
+            if (needed > spotIds.length) {
+                int capacity = Math.max(needed, spotIds.length + (spotIds.length >>> 1));
+                spotIds = Arrays.copyOf(spotIds, capacity);
+                words = Arrays.copyOf(words, (capacity + 63) >>> 6);
+                summary = Arrays.copyOf(summary, (words.length + 63) >>> 6);
+            }
+            for (Long spotId : ids) {
+                int ordinal = size++;
+                spotIds[ordinal] = spotId;
+                ordinals.put(spotId, ordinal);
+                words[ordinal >>> 6] |= 1L << ordinal;
+                summary[ordinal >>> 12] |= 1L << (ordinal >>> 6);
+            }
+            total += ids.size();
+            free += ids.size();
+        }
+
+        // A posição da vaga removida fica vazia para sempre
+        private synchronized boolean remove(long spotId) {
+            Integer ordinal = ordinals.remove(spotId);
+            if (ordinal == null) {
+                return false;
+            }
+            if ((words[ordinal >>> 6] & (1L << ordinal)) != 0) {
+                clear(ordinal);
+            }
+            total--;
+            return true;
+        }
+
+        private synchronized int totalCount() {
+            return total;
+        }
+
+        private synchronized int freeCount() {
+            return free;
+        }
+
+        private synchronized long takeNextFree() {
+            for (int s = 0; s < summary.length; s++) {
+                if (summary[s] != 0) {
+                    int word = (s << 6) + Long.numberOfTrailingZeros(summary[s]);
+                    int ordinal = (word << 6) + Long.numberOfTrailingZeros(words[word]);
+                    clear(ordinal);
+                    return spotIds[ordinal];
+                }
+            }
+            return -1;
+        }
+
+        // Retorna false se a vaga já estava ocupada ou não está no setor
+        private synchronized boolean take(long spotId) {
+            Integer ordinal = ordinals.get(spotId);
+            if (ordinal == null) {
+                return false;
+            }
+            if ((words[ordinal >>> 6] & (1L << ordinal)) == 0) {
+                return false;
+            }
+            clear(ordinal);
+            return true;
+        }
+
+        // Retorna false se a vaga já estava livre ou não está no setor
+        private synchronized boolean release(long spotId) {
+            Integer ordinal = ordinals.get(spotId);
+            if (ordinal == null) {
+                return false;
+            }
+            int word = ordinal >>> 6;
+            if ((words[word] & (1L << ordinal)) != 0) {
+                return false;
+            }
+            words[word] |= 1L << ordinal;
+            summary[word >>> 6] |= 1L << word;
+            free++;
+            return true;
+        }
+
+        private synchronized List<Long> freeSpotIds() {
+            List<Long> result = new ArrayList<>(free);
+            for (int word = 0; word < words.length; word++) {
+                long bits = words[word];
+                while (bits != 0) {
+                    result.add(spotIds[(word << 6) + Long.numberOfTrailingZeros(bits)]);
+                    bits &= bits - 1;
+                }
+            }
+            return result;
+        }
+
+        private void clear(int ordinal) {
+            int word = ordinal >>> 6;
+            words[word] &= ~(1L << ordinal);
+            if (words[word] == 0) {
+                summary[word >>> 6] &= ~(1L << word);
+            }
+            free--;
+        }
+    }
+}
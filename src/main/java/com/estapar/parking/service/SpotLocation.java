@@ -0,0 +1,14 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.ParkingSpot;
+
+public record SpotLocation(
+    Long spotId,
+    String sectorId,
+    double latitude,
+    double longitude
+) {
+    public static SpotLocation of(ParkingSpot spot) {
+        return new SpotLocation(spot.getId(), spot.getSectorId(), spot.getLatitude(), spot.getLongitude());
+    }
+}
@@ -0,0 +1,263 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+// Índice em grade das coordenadas das vagas. Cada célula tem o tamanho do raio de tolerância, então a vaga mais
+// próxima dentro do raio está sempre na célula da coordenada ou nas vizinhas. A grade é imutável: o rebuild a
+// substitui inteira e uma nova versão da configuração gera uma cópia que só refaz as células das vagas alteradas.
+@Service
+public class SpotLocationIndex {
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private final Logger logger = Logger.getLogger(SpotLocationIndex.class.getName());
+    private final ParkingSpotRepository spotRepository;
+    private final double matchRadiusMeters;
+    private volatile Grid grid;
+
+    public SpotLocationIndex(ParkingSpotRepository spotRepository,
+                             @Value("${parking.spots.match-radius-meters:1.0}") double matchRadiusMeters) {
+        if (matchRadiusMeters <= 0) {
+            throw new IllegalArgumentException("parking.spots.match-radius-meters must be positive");
+        }
+        this.spotRepository = spotRepository;
+        this.matchRadiusMeters = matchRadiusMeters;
+        this.grid = new Grid(List.of(), matchRadiusMeters);
+    }
+
+    @PostConstruct
+    public synchronized void rebuild() {
+        List<SpotLocation> locations = new ArrayList<>();
+        for (ParkingSpot spot : spotRepository.findAll()) {
+            locations.add(SpotLocation.of(spot));
+        }
+        grid = new Grid(locations, matchRadiusMeters);
+        logger.info("Índice de coordenadas carregado com " + locations.size() + " vagas");
+    }
+
+    // Vagas incluídas ou com setor alterado (upserts) e vagas removidas; leitores veem a grade anterior ou a nova
+    public synchronized void apply(Collection<SpotLocation> upserts, Collection<Long> removedSpotIds) {
+        grid = grid.with(upserts, removedSpotIds);
+    }
+
+    // Vaga nas coordenadas exatas ou, se não houver, a mais próxima dentro do raio de tolerância
+    public Optional<SpotLocation> find(double latitude, double longitude) {
+        return Optional.ofNullable(grid.nearest(latitude, longitude));
+    }
+
+    // Só a vaga nas coordenadas exatas (verificações dos testes)
+    Optional<SpotLocation> findExact(double latitude, double longitude) {
+        SpotLocation nearest = grid.nearest(latitude, longitude);
+        if (nearest != null && nearest.latitude() == latitude && nearest.longitude() == longitude) {
+            return Optional.of(nearest);
+        }
+        return Optional.empty();
+    }
+
+    public int size() {
+        return grid.byId.size();
+    }
+
+    private static final class Grid {
+        private final Map<Long, SpotLocation> byId;
+        private final CellTable cells;
+        private final double radiusMeters;
+        private final double cellDegrees;
+
+        private Grid(List<SpotLocation> locations, double radiusMeters) {
+            this(new HashMap<>(), new CellTable(locations.size()), radiusMeters);
+            Map<Long, List<SpotLocation>> grouped = new HashMap<>();
+            for (SpotLocation location : locations) {
+                byId.put(location.spotId(), location);
+                grouped.computeIfAbsent(key(location), k -> new ArrayList<>()).add(location);
+            }
+            grouped.forEach((key, members) -> cells.put(key, members.toArray(new SpotLocation[0])));
+        }
+
+        private Grid(Map<Long, SpotLocation> byId, CellTable cells, double radiusMeters) {
+            this.byId = byId;
+            this.cells = cells;
+            this.radiusMeters = radiusMeters;
+            this.cellDegrees = radiusMeters / METERS_PER_DEGREE;
+        }
+
+        // Cópia com as alterações: as tabelas são copiadas e só as células tocadas ganham arrays novos
+        private Grid with(Collection<SpotLocation> upserts, Collection<Long> removedSpotIds) {
+            Map<Long, SpotLocation> nextById = new HashMap<>(byId);
+            CellTable nextCells = cells.copy();
+            List<Long> stale = new ArrayList<>(removedSpotIds);
+            upserts.forEach(location -> stale.add(location.spotId()));
+            for (Long spotId : stale) {
+                SpotLocation previous = nextById.remove(spotId);
+                if (previous == null) {
+                    continue;
+                }
+                long key = key(previous);
+                SpotLocation[] kept = Arrays.stream(nextCells.get(key))
+                    .filter(member -> !member.spotId().equals(spotId))
+                    .toArray(SpotLocation[]::new);
+                if (kept.length == 0) {
+                    nextCells.remove(key);
+                } else {
+                    nextCells.put(key, kept);
+                }
+            }
+            for (SpotLocation location : upserts) {
+                nextById.put(location.spotId(), location);
+                long key = key(location);
+                SpotLocation[] members = nextCells.get(key);
+                SpotLocation[] grown = members == null ? new SpotLocation[1] : Arrays.copyOf(members, members.length + 1);
+                grown[grown.length - 1] = location;
+                nextCells.put(key, grown);
+            }
+            return new Grid(nextById, nextCells, radiusMeters);
+        }
+
+        private SpotLocation nearest(double latitude, double longitude) {
+            if (byId.isEmpty()) {
+                return null;
+            }
+            // Um grau de longitude encolhe com a latitude, então o raio cobre mais células no eixo da longitude
+            double metersPerLngDegree = METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+            int lngReach = (int) Math.ceil(radiusMeters / Math.max(metersPerLngDegree, 1.0) / cellDegrees);
+            long centerLat = cell(latitude);
+            long centerLng = cell(longitude);
+
+            SpotLocation best = null;
+            double bestDistance = radiusMeters * radiusMeters;
+            for (long cellLat = centerLat - 1; cellLat <= centerLat + 1; cellLat++) {
+                for (long cellLng = centerLng - lngReach; cellLng <= centerLng + lngReach; cellLng++) {
+                    SpotLocation[] members = cells.get(key(cellLat, cellLng));
+                    if (members == null) {
+                        continue;
+                    }
+                    for (SpotLocation candidate : members) {
+                        double dLat = (candidate.latitude() - latitude) * METERS_PER_DEGREE;
+                        double dLng = (candidate.longitude() - longitude) * metersPerLngDegree;
+                        double distance = dLat * dLat + dLng * dLng;
+                        if (distance <= bestDistance) {
+                            best = candidate;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        private long key(SpotLocation location) {
+            return key(cell(location.latitude()), cell(location.longitude()));
+        }
+
+        private long cell(double degrees) {
+            return (long) Math.floor(degrees / cellDegrees);
+        }
+
+        private static long key(long cellLat, long cellLng) {
+            return (cellLat << 32) ^ (cellLng & 0xFFFFFFFFL);
+        }
+    }
+
+    // Células por chave long primitiva, em endereçamento aberto com sondagem linear: a busca de cada célula vizinha
+    // não cria Long. Slot vazio é o que tem valor null.
+    private static final class CellTable {
+        private long[] keys;
+        private SpotLocation[][] values;
+        private int size;
+
+        private CellTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new SpotLocation[capacity][];
+        }
+
+        private CellTable(CellTable source) {
+            this.keys = source.keys.clone();
+            this.values = source.values.clone();
+            this.size = source.size;
+        }
+
+        private CellTable copy() {
+            return new CellTable(this);
+        }
+
+        private SpotLocation[] get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        private void put(long key, SpotLocation[] members) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = members;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = members;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        // Remoção sem marcador: as entradas seguintes da sequência voltam para o buraco quando o slot ideal delas
+        // não fica entre o buraco e a posição atual
+        private void remove(long key) {
+            int mask = keys.length - 1;
+            int gap = slot(key, mask);
+            while (values[gap] != null && keys[gap] != key) {
+                gap = (gap + 1) & mask;
+            }
+            if (values[gap] == null) {
+                return;
+            }
+            for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+                if (((i - slot(keys[i], mask)) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    gap = i;
+                }
+            }
+            values[gap] = null;
+            size--;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            SpotLocation[][] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new SpotLocation[oldKeys.length * 2][];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
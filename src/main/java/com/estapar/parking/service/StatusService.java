@@ -4,14 +4,9 @@ import com.estapar.parking.dto.PlateStatusDTO;
 import com.estapar.parking.dto.SpotStatusDTO;
 import com.estapar.parking.exception.ResourceNotFoundException;
 import com.estapar.parking.model.GarageSector;
-import com.estapar.parking.model.ParkingEvent;
-import com.estapar.parking.model.ParkingSpot;
-import com.estapar.parking.repository.ParkingEventRepository;
-import com.estapar.parking.repository.ParkingSpotRepository;
 import com.estapar.parking.repository.GarageSectorRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -20,116 +15,91 @@ import java.util.Optional;
 @Service
 @RequiredArgsConstructor
 public class StatusService {
-    private final ParkingSpotRepository spotRepository;
-    private final ParkingEventRepository eventRepository;
     private final GarageSectorRepository sectorRepository;
+    private final VehiclePresenceRegistry presenceRegistry;
+    private final SectorOccupancyEngine occupancyEngine;
+    private final SpotLocationIndex spotLocationIndex;
+    private final PricingEngine pricingEngine;
 
-    @Transactional(readOnly = true)
+    // Respondido pelo estado em memória, sem transação nem consulta ao banco
     public PlateStatusDTO getPlateStatus(String licensePlate) {
         if (licensePlate == null || licensePlate.isEmpty()) {
             return new PlateStatusDTO(licensePlate, BigDecimal.ZERO, null, LocalDateTime.now(), null, null);
         }
 
-        Optional<ParkingSpot> spotOpt = spotRepository.findByLicensePlateAndOccupiedTrue(licensePlate);
+        Optional<VehiclePresence> presenceOpt = presenceRegistry.find(licensePlate).filter(VehiclePresence::isParked);
         LocalDateTime now = LocalDateTime.now();
 
-        if (spotOpt.isEmpty()) {
+        if (presenceOpt.isEmpty()) {
             return new PlateStatusDTO(licensePlate, BigDecimal.ZERO, null, now, null, null);
         }
 
-        ParkingSpot spot = spotOpt.get();
-        Optional<ParkingEvent> entryEvent = eventRepository.findByLicensePlateAndTypeOrderByTimestampDesc(licensePlate, "ENTRY")
-            .stream()
-            .findFirst();
+        VehiclePresence presence = presenceOpt.get();
 
-        if (entryEvent.isEmpty()) {
+        if (presence.entryTime() == null) {
             return new PlateStatusDTO(
                 licensePlate,
                 BigDecimal.ZERO,
                 null,
                 now,
-                spot.getLatitude(),
-                spot.getLongitude()
+                presence.latitude(),
+                presence.longitude()
             );
         }
 
-        LocalDateTime entryTime = entryEvent.get().getTimestamp();
-        BigDecimal priceUntilNow = calculatePrice(licensePlate, now);
+        BigDecimal priceUntilNow = calculatePrice(presence, now);
 
         return new PlateStatusDTO(
             licensePlate,
             priceUntilNow,
-            entryTime,
+            presence.entryTime(),
             now,
-            spot.getLatitude(),
-            spot.getLongitude()
+            presence.latitude(),
+            presence.longitude()
         );
     }
 
-    @Transactional(readOnly = true)
     public SpotStatusDTO getSpotStatus(double latitude, double longitude) {
-        Optional<ParkingSpot> spotOpt = spotRepository.findByLatitudeAndLongitude(latitude, longitude);
+        Optional<VehiclePresence> presenceOpt = spotLocationIndex.find(latitude, longitude)
+            .flatMap(location -> presenceRegistry.findBySpot(location.spotId()));
         LocalDateTime now = LocalDateTime.now();
-        
-        if (spotOpt.isEmpty()) {
-            return new SpotStatusDTO(false, "", BigDecimal.ZERO, null, now);
-        }
 
-        ParkingSpot spot = spotOpt.get();
-        
-        if (!spot.isOccupied()) {
+        if (presenceOpt.isEmpty()) {
             return new SpotStatusDTO(false, "", BigDecimal.ZERO, null, now);
         }
 
-        Optional<ParkingEvent> entryEvent = eventRepository.findByLicensePlateAndTypeOrderByTimestampDesc(spot.getLicensePlate(), "ENTRY")
-            .stream()
-            .findFirst();
+        VehiclePresence presence = presenceOpt.get();
 
-        if (entryEvent.isEmpty()) {
-            return new SpotStatusDTO(true, spot.getLicensePlate(), BigDecimal.ZERO, null, now);
+        if (presence.entryTime() == null) {
+            return new SpotStatusDTO(true, presence.licensePlate(), BigDecimal.ZERO, null, now);
         }
 
-        LocalDateTime entryTime = entryEvent.get().getTimestamp();
-        BigDecimal priceUntilNow = calculatePrice(spot.getLicensePlate(), now);
+        BigDecimal priceUntilNow = calculatePrice(presence, now);
 
         return new SpotStatusDTO(
             true,
-            spot.getLicensePlate(),
+            presence.licensePlate(),
             priceUntilNow,
-            entryTime,
+            presence.entryTime(),
             now
         );
     }
 
-    private BigDecimal calculatePrice(String licensePlate, LocalDateTime exitTime) {
-        Optional<ParkingEvent> entryEvent = eventRepository.findByLicensePlateAndTypeOrderByTimestampDesc(licensePlate, "ENTRY")
-            .stream()
-            .findFirst();
-
-        if (entryEvent.isEmpty()) {
-            return BigDecimal.ZERO;
+    private BigDecimal calculatePrice(VehiclePresence presence, LocalDateTime exitTime) {
+        // Tarifa travada no PARKED: o valor até agora é só tempo x tarifa
+        if (presence.lockedRateUnits() != null) {
+            return PricingEngine.price(presence.lockedRateUnits(), presence.entryTime(), exitTime);
         }
 
-        LocalDateTime entryTime = entryEvent.get().getTimestamp();
-        long hours = java.time.Duration.between(entryTime, exitTime).toHours();
-        long minutes = java.time.Duration.between(entryTime, exitTime).toMinutes() % 60;
-
-        // Busca o setor para obter o preço base e calcular o preço dinâmico
-        ParkingSpot spot = spotRepository.findByLicensePlateAndOccupiedTrue(licensePlate)
-            .orElseThrow(() -> new ResourceNotFoundException("ParkingSpot", "Vaga não encontrada"));
+        // Sessão sem cotação travada (locked_price vazio): busca o setor e cota pela lotação
+        if (presence.sectorId() == null) {
+            throw new ResourceNotFoundException("ParkingSpot", "Vaga não encontrada");
+        }
         
-        GarageSector sector = sectorRepository.findById(spot.getSectorId())
+        GarageSector sector = sectorRepository.findById(presence.sectorId())
             .orElseThrow(() -> new ResourceNotFoundException("GarageSector", "Setor não encontrado"));
 
-        // Usa o preço dinâmico do setor
-        BigDecimal dynamicPrice = sector.calculateDynamicPrice();
-        BigDecimal totalPrice = dynamicPrice.multiply(BigDecimal.valueOf(hours));
-
-        if (minutes > 0) {
-            BigDecimal minutePrice = dynamicPrice.divide(BigDecimal.valueOf(60), 2, java.math.RoundingMode.HALF_UP);
-            totalPrice = totalPrice.add(minutePrice.multiply(BigDecimal.valueOf(minutes)));
-        }
-
-        return totalPrice.setScale(2, java.math.RoundingMode.HALF_UP);
+        // Tarifa ponderada pela lotação do setor desde a entrada (ENTRY), cotada em centavos pelo PricingEngine
+        return pricingEngine.stayPrice(sector, occupancyEngine.getOccupancy(sector), presence.entryTime(), exitTime);
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
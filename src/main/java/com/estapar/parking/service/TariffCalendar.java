@@ -0,0 +1,147 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.SectorTariff;
+import com.estapar.parking.repository.SectorTariffRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+// Calendário de tarifas dos setores. Cada vigência é pré-calculada em um vetor indexado pelo minuto da semana que
+// aponta para o preço base da faixa; as vigências de um setor ficam em um NavigableMap pela data de início, e a
+// vigência atual fica em cache. A consulta não faz parsing nem aloca. Uma vigência substitui a anterior inteira;
+// minutos fora das faixas usam o basePrice do setor. É substituído inteiro a cada rebuild.
+@Service
+public class TariffCalendar {
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private final Logger logger = Logger.getLogger(TariffCalendar.class.getName());
+    private final SectorTariffRepository tariffRepository;
+    private volatile Map<String, SectorCalendar> calendars = Map.of();
+
+    public TariffCalendar(SectorTariffRepository tariffRepository) {
+        this.tariffRepository = tariffRepository;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        List<SectorTariff> tariffs = tariffRepository.findAllByOrderByIdAsc();
+        load(tariffs);
+        logger.info("Calendário de tarifas carregado com " + tariffs.size() + " faixas de " + calendars.size() + " setores");
+    }
+
+    void load(List<SectorTariff> tariffs) {
+        Map<String, List<SectorTariff>> bySector = new LinkedHashMap<>();
+        for (SectorTariff tariff : tariffs) {
+            bySector.computeIfAbsent(tariff.getSectorId(), id -> new ArrayList<>()).add(tariff);
+        }
+        Map<String, SectorCalendar> built = new HashMap<>();
+        bySector.forEach((sectorId, sectorTariffs) -> built.put(sectorId, new SectorCalendar(sectorTariffs)));
+        calendars = built;
+    }
+
+    // Preço base do setor no instante: o da faixa da vigência em curso ou, fora dela, o basePrice do setor
+    public BigDecimal basePrice(GarageSector sector, LocalDateTime at) {
+        SectorCalendar calendar = calendars.get(sector.getId());
+        if (calendar == null) {
+            return sector.getBasePrice();
+        }
+        TariffVersion version = calendar.versionAt(at);
+        BigDecimal price = version == null ? null : version.priceAt(minuteOfWeek(at));
+        return price != null ? price : sector.getBasePrice();
+    }
+
+    static int minuteOfWeek(LocalDateTime at) {
+        return (at.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY + at.getHour() * 60 + at.getMinute();
+    }
+
+    private static final class SectorCalendar {
+        private final NavigableMap<LocalDateTime, TariffVersion> versions = new TreeMap<>();
+        private volatile Validity current;
+
+        SectorCalendar(List<SectorTariff> tariffs) {
+            Map<LocalDateTime, List<SectorTariff>> byStart = new TreeMap<>();
+            for (SectorTariff tariff : tariffs) {
+                LocalDateTime from = tariff.getEffectiveFrom() != null ? tariff.getEffectiveFrom() : LocalDateTime.MIN;
+                byStart.computeIfAbsent(from, key -> new ArrayList<>()).add(tariff);
+            }
+            byStart.forEach((from, versionTariffs) -> versions.put(from, new TariffVersion(versionTariffs)));
+        }
+
+        // A vigência muda raramente: a consulta ao mapa só acontece quando o instante sai da vigência em cache
+        TariffVersion versionAt(LocalDateTime at) {
+            Validity validity = current;
+            if (validity == null || !validity.contains(at)) {
+                LocalDateTime from = versions.floorKey(at);
+                validity = from == null
+                    ? new Validity(LocalDateTime.MIN, versions.firstKey(), null)
+                    : new Validity(from, versions.higherKey(from), versions.get(from));
+                current = validity;
+            }
+            return validity.version();
+        }
+    }
+
+    private record Validity(LocalDateTime from, LocalDateTime until, TariffVersion version) {
+        boolean contains(LocalDateTime at) {
+            return !at.isBefore(from) && (until == null || at.isBefore(until));
+        }
+    }
+
+    private static final class TariffVersion {
+        // Índice + 1 em prices para cada minuto da semana; 0 fica com o basePrice do setor
+        private final short[] slots = new short[MINUTES_PER_WEEK];
+        private final List<BigDecimal> prices = new ArrayList<>();
+
+        // Em faixas sobrepostas, a cadastrada por último prevalece
+        TariffVersion(List<SectorTariff> tariffs) {
+            for (SectorTariff tariff : tariffs) {
+                short slot = slotOf(tariff.getPrice());
+                int start = minuteOfDay(tariff.getStartTime());
+                int end = minuteOfDay(tariff.getEndTime());
+                int length = end > start ? end - start : end + MINUTES_PER_DAY - start;
+                for (DayOfWeek day : DayOfWeek.values()) {
+                    if (!tariff.appliesOn(day)) {
+                        continue;
+                    }
+                    int dayStart = (day.getValue() - 1) * MINUTES_PER_DAY + start;
+                    for (int minute = 0; minute < length; minute++) {
+                        slots[(dayStart + minute) % MINUTES_PER_WEEK] = slot;
+                    }
+                }
+            }
+        }
+
+        BigDecimal priceAt(int minuteOfWeek) {
+            int slot = slots[minuteOfWeek];
+            return slot == 0 ? null : prices.get(slot - 1);
+        }
+
+        // Preços iguais compartilham a mesma instância
+        private short slotOf(BigDecimal price) {
+            int index = prices.indexOf(price);
+            if (index < 0) {
+                prices.add(price);
+                index = prices.size() - 1;
+            }
+            return (short) (index + 1);
+        }
+
+        private static int minuteOfDay(LocalTime time) {
+            return time == null ? 0 : time.getHour() * 60 + time.getMinute();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.estapar.parking.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Timing wheel hierárquico: LEVELS rodas de 64 posições, cada posição uma lista duplamente ligada de timers. Um timer
+// fica no nível do bloco de 6 bits mais alto em que o prazo difere do tick atual; quando o tick atual chega ao início
+// daquela posição, os timers descem para rodas mais finas. Agendar e cancelar são O(1), cada tick é O(1) mais os
+// timers que vencem ou descem (no máximo LEVELS vezes cada). Um timer por chave: agendar de novo substitui o anterior.
+final class TimingWheel<T> {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int LEVELS = 5;
+
+    private final Node<T>[][] slots;
+    private final Map<String, Node<T>> timers = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long startTick) {
+        this.slots = new Node[LEVELS][WHEEL_SIZE];
+        this.currentTick = startTick;
+    }
+
+    synchronized void schedule(String key, long deadlineTick, T payload) {
+        Node<T> previous = timers.remove(key);
+        if (previous != null) {
+            unlink(previous);
+        }
+        Node<T> node = new Node<>(key, deadlineTick, payload);
+        timers.put(key, node);
+        place(node, currentTick + 1);
+    }
+
+    synchronized boolean cancel(String key) {
+        Node<T> node = timers.remove(key);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    synchronized int size() {
+        return timers.size();
+    }
+
+    synchronized long currentTick() {
+        return currentTick;
+    }
+
+    // Avança até targetTick e retorna os timers vencidos, em ordem de tick
+    synchronized List<T> advance(long targetTick) {
+        List<T> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    cascade(level, slotOf(currentTick, level));
+                }
+            }
+            Node<T> node = detach(0, slotOf(currentTick, 0));
+            while (node != null) {
+                Node<T> next = node.next;
+                node.next = null;
+                timers.remove(node.key);
+                expired.add(node.payload);
+                node = next;
+            }
+        }
+        return expired;
+    }
+
+    private void cascade(int level, int slot) {
+        Node<T> node = detach(level, slot);
+        while (node != null) {
+            Node<T> next = node.next;
+            node.next = null;
+            place(node, currentTick);
+            node = next;
+        }
+    }
+
+    // Ao agendar, a posição do tick atual já foi processada e um prazo vencido fica para o próximo tick; ao descer de
+    // roda, ela ainda vai ser processada neste tick
+    private void place(Node<T> node, long earliestTick) {
+        long tick = Math.max(node.deadlineTick, earliestTick);
+        int level = (63 - Long.numberOfLeadingZeros(tick ^ currentTick)) / WHEEL_BITS;
+        int slot = slotOf(tick, level);
+        if (level >= LEVELS) {
+            // Além da última roda: espera na posição 0 dela, que só desce na virada de todas as rodas
+            level = LEVELS - 1;
+            slot = 0;
+        }
+        node.level = level;
+        node.slot = slot;
+        node.prev = null;
+        node.next = slots[level][slot];
+        if (node.next != null) {
+            node.next.prev = node;
+        }
+        slots[level][slot] = node;
+    }
+
+    private void unlink(Node<T> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else if (slots[node.level][node.slot] == node) {
+            slots[node.level][node.slot] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    private Node<T> detach(int level, int slot) {
+        Node<T> head = slots[level][slot];
+        slots[level][slot] = null;
+        for (Node<T> node = head; node != null; node = node.next) {
+            node.prev = null;
+        }
+        return head;
+    }
+
+    private static int slotOf(long tick, int level) {
+        return (int) (tick >>> (WHEEL_BITS * level)) & (WHEEL_SIZE - 1);
+    }
+
+    private static final class Node<T> {
+        private final String key;
+        private final long deadlineTick;
+        private final T payload;
+        private Node<T> prev;
+        private Node<T> next;
+        private int level;
+        private int slot;
+
+        private Node(String key, long deadlineTick, T payload) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.estapar.parking.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+// Estruturas em memória são alteradas dentro da transação e desfeitas se ela sofrer rollback
+final class TransactionCallbacks {
+    private static final Object UNDO_LOG = new Object();
+
+    private TransactionCallbacks() {
+    }
+
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // As compensações de uma transação formam uma pilha e são desfeitas da última para a primeira: alterações
+    // encadeadas na mesma estrutura (ENTRY e PARKED da mesma placa, por exemplo) voltam ao estado de antes da transação
+    static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        UndoLog undo = (UndoLog) TransactionSynchronizationManager.getResource(UNDO_LOG);
+        if (undo == null) {
+            undo = new UndoLog();
+            TransactionSynchronizationManager.bindResource(UNDO_LOG, undo);
+            TransactionSynchronizationManager.registerSynchronization(undo);
+        }
+        undo.actions.push(action);
+    }
+
+    // Uma pilha por transação; uma transação interna (REQUIRES_NEW) suspende a externa e começa a própria
+    private static final class UndoLog implements TransactionSynchronization {
+        private final Deque<Runnable> actions = new ArrayDeque<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(UNDO_LOG);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(UNDO_LOG, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(UNDO_LOG);
+            if (status == STATUS_ROLLED_BACK) {
+                while (!actions.isEmpty()) {
+                    actions.pop().run();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.ParkingSpot;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record VehiclePresence(
+    String licensePlate,
+    State state,
+    LocalDateTime entryTime,
+    Long spotId,
+    String sectorId,
+    Double latitude,
+    Double longitude,
+    LocalDateTime parkedAt,
+    // Tarifa por hora cotada no PARKED, em unidades do PricingEngine; null se não houve cotação
+    Long lockedRateUnits
+) {
+    public enum State {
+        ENTERED,
+        PARKED
+    }
+
+    public static VehiclePresence entered(String licensePlate, LocalDateTime entryTime) {
+        return new VehiclePresence(licensePlate, State.ENTERED, entryTime, null, null, null, null, null, null);
+    }
+
+    public VehiclePresence parkedAt(ParkingSpot spot, LocalDateTime parkedAt, BigDecimal lockedRate) {
+        return new VehiclePresence(licensePlate, State.PARKED, entryTime, spot.getId(), spot.getSectorId(),
+            spot.getLatitude(), spot.getLongitude(), parkedAt, lockedRate != null ? PricingEngine.toUnits(lockedRate) : null);
+    }
+
+    public boolean isParked() {
+        return state == State.PARKED;
+    }
+}
@@ -0,0 +1,121 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.ParkingSession;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+// Estado atual de cada placa dentro da garagem (ENTERED ou PARKED). Placas ausentes não estão na garagem.
+// É carregado das sessões ativas na inicialização e mantido pelo ParkingService dentro das transações de evento.
+// Um índice vaga -> placa responde o status por coordenada sem reler a vaga.
+@Service
+@RequiredArgsConstructor
+public class VehiclePresenceRegistry {
+    private final Logger logger = Logger.getLogger(VehiclePresenceRegistry.class.getName());
+    private final ParkingSpotRepository spotRepository;
+    private final ParkingSessionRepository sessionRepository;
+    private volatile Map<String, VehiclePresence> presences = new ConcurrentHashMap<>();
+    private volatile Map<Long, String> platesBySpot = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Long, ParkingSpot> occupiedSpots = new HashMap<>();
+        for (ParkingSpot spot : spotRepository.findByOccupiedTrue()) {
+            occupiedSpots.put(spot.getId(), spot);
+        }
+        Map<String, VehiclePresence> loaded = new ConcurrentHashMap<>();
+        for (ParkingSession session : sessionRepository.findByExitTimeIsNull()) {
+            VehiclePresence presence = VehiclePresence.entered(session.getLicensePlate(), session.getEntryTime());
+            // A vaga da sessão pode ser apenas uma reserva da entrada, ou ter sido ocupada por outro veículo
+            ParkingSpot spot = session.getSpotId() != null ? occupiedSpots.get(session.getSpotId()) : null;
+            if (spot != null && !session.getLicensePlate().equals(spot.getLicensePlate())) {
+                spot = null;
+            }
+            loaded.put(session.getLicensePlate(),
+                spot != null ? presence.parkedAt(spot, spot.getEntryTime(), session.getLockedPrice()) : presence);
+        }
+        // Vagas ocupadas por PARKED sem ENTRY não têm sessão
+        for (ParkingSpot spot : occupiedSpots.values()) {
+            if (!loaded.containsKey(spot.getLicensePlate())) {
+                loaded.put(spot.getLicensePlate(), VehiclePresence.entered(spot.getLicensePlate(), null).parkedAt(spot, spot.getEntryTime(), null));
+            }
+        }
+        Map<Long, String> spots = new ConcurrentHashMap<>();
+        for (VehiclePresence presence : loaded.values()) {
+            if (presence.isParked()) {
+                spots.put(presence.spotId(), presence.licensePlate());
+            }
+        }
+        presences = loaded;
+        platesBySpot = spots;
+        logger.info("Registro de presença carregado com " + loaded.size() + " veículos");
+    }
+
+    public Optional<VehiclePresence> find(String licensePlate) {
+        return Optional.ofNullable(presences.get(licensePlate));
+    }
+
+    public Optional<VehiclePresence> findBySpot(Long spotId) {
+        String licensePlate = platesBySpot.get(spotId);
+        return licensePlate == null ? Optional.empty() : find(licensePlate).filter(p -> spotId.equals(p.spotId()));
+    }
+
+    public List<VehiclePresence> parkedIn(String sectorId) {
+        return presences.values().stream()
+            .filter(presence -> presence.isParked() && sectorId.equals(presence.sectorId()))
+            .toList();
+    }
+
+    public void markEntered(String licensePlate, LocalDateTime entryTime) {
+        apply(licensePlate, VehiclePresence.entered(licensePlate, entryTime));
+    }
+
+    // lockedRate: tarifa cotada no PARKED, que vale para o valor até agora da permanência
+    public void markParked(String licensePlate, ParkingSpot spot, LocalDateTime parkedAt, BigDecimal lockedRate) {
+        VehiclePresence current = presences.getOrDefault(licensePlate, VehiclePresence.entered(licensePlate, null));
+        apply(licensePlate, current.parkedAt(spot, parkedAt, lockedRate));
+    }
+
+    public void remove(String licensePlate) {
+        apply(licensePlate, null);
+    }
+
+    public int size() {
+        return presences.size();
+    }
+
+    private void apply(String licensePlate, VehiclePresence next) {
+        Map<String, VehiclePresence> target = presences;
+        Map<Long, String> spots = platesBySpot;
+        VehiclePresence previous = next == null ? target.remove(licensePlate) : target.put(licensePlate, next);
+        index(spots, previous, next);
+        TransactionCallbacks.onRollback(() -> target.compute(licensePlate, (plate, current) -> {
+            if (current != next) {
+                return current;
+            }
+            index(spots, next, previous);
+            return previous;
+        }));
+    }
+
+    private static void index(Map<Long, String> spots, VehiclePresence from, VehiclePresence to) {
+        if (from != null && from.isParked()) {
+            spots.remove(from.spotId(), from.licensePlate());
+        }
+        if (to != null && to.isParked()) {
+            spots.put(to.spotId(), to.licensePlate());
+        }
+    }
+}
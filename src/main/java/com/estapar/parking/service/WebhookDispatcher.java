@@ -0,0 +1,143 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.VehicleEventDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// Modo assíncrono do webhook: cada placa é sempre atendida pelo mesmo shard (uma thread),
+// o que mantém ENTRY -> PARKED -> EXIT em ordem enquanto placas diferentes rodam em paralelo.
+@Service
+public class WebhookDispatcher {
+    private final Logger logger = Logger.getLogger(WebhookDispatcher.class.getName());
+    private final ParkingService parkingService;
+    private final boolean enabled;
+    private final long drainTimeoutSeconds;
+    private final ThreadPoolExecutor[] shards;
+    private final Timer lagTimer;
+    private final Counter processedCounter;
+    private final Counter failedCounter;
+
+    public WebhookDispatcher(ParkingService parkingService,
+                             MeterRegistry meterRegistry,
+                             @Value("${parking.webhook.async.enabled:false}") boolean enabled,
+                             @Value("${parking.webhook.async.shards:0}") int shardCount,
+                             @Value("${parking.webhook.async.queue-capacity:10000}") int queueCapacity,
+                             @Value("${parking.webhook.async.drain-timeout-seconds:30}") long drainTimeoutSeconds) {
+        this.parkingService = parkingService;
+        this.enabled = enabled;
+        this.drainTimeoutSeconds = drainTimeoutSeconds;
+
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        int capacityPerShard = Math.max(1, queueCapacity / count);
+        this.shards = new ThreadPoolExecutor[enabled ? count : 0];
+        for (int i = 0; i < shards.length; i++) {
+            String threadName = "webhook-shard-" + i;
+            shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacityPerShard),
+                runnable -> new Thread(runnable, threadName),
+                new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        Gauge.builder("parking.webhook.async.queue.depth", this, WebhookDispatcher::getQueueDepth)
+            .description("Eventos aceitos aguardando processamento")
+            .register(meterRegistry);
+        Gauge.builder("parking.webhook.async.queue.oldest.seconds", this, WebhookDispatcher::getOldestPendingSeconds)
+            .description("Idade do evento mais antigo ainda na fila")
+            .register(meterRegistry);
+        this.lagTimer = Timer.builder("parking.webhook.async.lag")
+            .description("Tempo entre o aceite do evento e o início do processamento")
+            .register(meterRegistry);
+        this.processedCounter = Counter.builder("parking.webhook.async.processed").register(meterRegistry);
+        this.failedCounter = Counter.builder("parking.webhook.async.failed").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Retorna false quando a fila do shard está cheia
+    public boolean submit(VehicleEventDTO event) {
+        if (!enabled) {
+            throw new IllegalStateException("Async webhook mode is disabled");
+        }
+        long acceptedAt = System.nanoTime();
+        try {
+            shardFor(event.getLicensePlate()).execute(new PendingEvent(event, acceptedAt));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor shard : shards) {
+            depth += shard.getQueue().size();
+        }
+        return depth;
+    }
+
+    public double getOldestPendingSeconds() {
+        long now = System.nanoTime();
+        long oldest = 0;
+        for (ThreadPoolExecutor shard : shards) {
+            Runnable head = shard.getQueue().peek();
+            if (head instanceof PendingEvent pending) {
+                oldest = Math.max(oldest, now - pending.acceptedAt);
+            }
+        }
+        return oldest / 1_000_000_000.0;
+    }
+
+    private ThreadPoolExecutor shardFor(String licensePlate) {
+        return shards[Math.floorMod(licensePlate.hashCode(), shards.length)];
+    }
+
+    private final class PendingEvent implements Runnable {
+        private final VehicleEventDTO event;
+        private final long acceptedAt;
+
+        private PendingEvent(VehicleEventDTO event, long acceptedAt) {
+            this.event = event;
+            this.acceptedAt = acceptedAt;
+        }
+
+        @Override
+        public void run() {
+            lagTimer.record(System.nanoTime() - acceptedAt, TimeUnit.NANOSECONDS);
+            try {
+                parkingService.handleWebhookEvent(event);
+                processedCounter.increment();
+            } catch (Exception e) {
+                failedCounter.increment();
+                logger.warning("Falha ao processar evento " + event.getEventType() + " da placa " + event.getLicensePlate() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        for (ThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+        for (ThreadPoolExecutor shard : shards) {
+            long remaining = deadline - System.nanoTime();
+            if (!shard.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                logger.warning("Tempo de drenagem esgotado, " + shard.getQueue().size() + " eventos descartados");
+                shard.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+-- Versões aplicadas da configuração da garagem, com o resumo do que cada uma alterou
+CREATE TABLE IF NOT EXISTS garage_config_versions (
+    version BIGINT PRIMARY KEY,
+    applied_at TIMESTAMP NOT NULL,
+    sectors_added INTEGER NOT NULL,
+    sectors_changed INTEGER NOT NULL,
+    sectors_removed INTEGER NOT NULL,
+    spots_added INTEGER NOT NULL,
+    spots_changed INTEGER NOT NULL,
+    spots_removed INTEGER NOT NULL
+);
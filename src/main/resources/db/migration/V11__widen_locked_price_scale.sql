@@ -0,0 +1,2 @@
+-- Tarifa travada com a escala do PricingEngine (preço base x fator tem até 4 casas), sem arredondar para centavos
+ALTER TABLE parking_sessions ALTER COLUMN locked_price SET DATA TYPE DECIMAL(12,4);
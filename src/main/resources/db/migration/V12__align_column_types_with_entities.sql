@@ -0,0 +1,10 @@
+-- Os ids SERIAL e as coordenadas DECIMAL do V1 não batem com os tipos das entidades (Long e Double), e o
+-- ddl-auto=validate recusa o schema. No PostgreSQL, a troca de tipo reescreve a tabela inteira sob ACCESS EXCLUSIVE
+-- (parking_events é a maior): aplicar em janela de manutenção
+ALTER TABLE parking_events ALTER COLUMN id SET DATA TYPE BIGINT;
+ALTER TABLE parking_events ALTER COLUMN latitude SET DATA TYPE DOUBLE PRECISION;
+ALTER TABLE parking_events ALTER COLUMN longitude SET DATA TYPE DOUBLE PRECISION;
+
+ALTER TABLE parking_spots ALTER COLUMN id SET DATA TYPE BIGINT;
+ALTER TABLE parking_spots ALTER COLUMN latitude SET DATA TYPE DOUBLE PRECISION;
+ALTER TABLE parking_spots ALTER COLUMN longitude SET DATA TYPE DOUBLE PRECISION;
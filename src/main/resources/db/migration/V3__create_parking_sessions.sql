@@ -0,0 +1,31 @@
+-- Create parking_sessions table (uma linha por estadia)
+CREATE TABLE IF NOT EXISTS parking_sessions (
+    id BIGSERIAL PRIMARY KEY,
+    license_plate VARCHAR(10) NOT NULL,
+    entry_time TIMESTAMP NOT NULL,
+    spot_id BIGINT,
+    sector_id VARCHAR(10),
+    locked_price DECIMAL(10,2),
+    exit_time TIMESTAMP,
+    FOREIGN KEY (spot_id) REFERENCES parking_spots(id),
+    FOREIGN KEY (sector_id) REFERENCES garage_sectors(id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_parking_sessions_plate_exit ON parking_sessions (license_plate, exit_time);
+CREATE INDEX IF NOT EXISTS idx_parking_sessions_spot_exit ON parking_sessions (spot_id, exit_time);
+
+-- Sessões ativas a partir do histórico: última ENTRY de cada placa sem EXIT posterior
+INSERT INTO parking_sessions (license_plate, entry_time)
+SELECT e.license_plate, e.timestamp
+FROM parking_events e
+WHERE e.type = 'ENTRY'
+  AND NOT EXISTS (
+      SELECT 1 FROM parking_events x
+      WHERE x.license_plate = e.license_plate
+        AND ((x.type = 'ENTRY' AND x.timestamp > e.timestamp) OR (x.type = 'EXIT' AND x.timestamp >= e.timestamp))
+  );
+
+UPDATE parking_sessions s
+SET spot_id = (SELECT MIN(p.id) FROM parking_spots p WHERE p.occupied = TRUE AND p.license_plate = s.license_plate),
+    sector_id = (SELECT MIN(p.sector_id) FROM parking_spots p WHERE p.occupied = TRUE AND p.license_plate = s.license_plate)
+WHERE s.exit_time IS NULL;
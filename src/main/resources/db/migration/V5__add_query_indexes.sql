@@ -0,0 +1,17 @@
+-- A entidade ParkingSpot já mapeia entry_time, mas a coluna não existia no V1
+ALTER TABLE parking_spots ADD COLUMN IF NOT EXISTS entry_time TIMESTAMP;
+
+-- Histórico por placa (findByLicensePlate[AndType]OrderByTimestampDesc): a ordenação sai do próprio índice
+CREATE INDEX IF NOT EXISTS idx_parking_events_plate_type_timestamp ON parking_events (license_plate, type, timestamp);
+
+-- Eventos e faturamento por setor; price no índice deixa a soma do faturamento sem acesso à tabela
+CREATE INDEX IF NOT EXISTS idx_parking_events_sector_timestamp ON parking_events (sector_id, timestamp, price);
+
+-- Vagas por placa, por coordenada e por setor
+CREATE INDEX IF NOT EXISTS idx_parking_spots_plate_occupied ON parking_spots (license_plate, occupied);
+CREATE INDEX IF NOT EXISTS idx_parking_spots_lat_lng ON parking_spots (latitude, longitude);
+CREATE INDEX IF NOT EXISTS idx_parking_spots_sector_occupied ON parking_spots (sector_id, occupied, entry_time);
+CREATE INDEX IF NOT EXISTS idx_parking_spots_occupied ON parking_spots (occupied);
+
+-- Sessões ativas carregadas na inicialização (findByExitTimeIsNull)
+CREATE INDEX IF NOT EXISTS idx_parking_sessions_exit ON parking_sessions (exit_time);
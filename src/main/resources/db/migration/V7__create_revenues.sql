@@ -0,0 +1,28 @@
+-- Create revenues table (faturamento acumulado por setor, por hora e por dia)
+CREATE TABLE IF NOT EXISTS revenues (
+    id BIGSERIAL PRIMARY KEY,
+    sector_id VARCHAR(10) NOT NULL,
+    granularity VARCHAR(5) NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    amount DECIMAL(12,2) NOT NULL,
+    currency VARCHAR(3) NOT NULL DEFAULT 'BRL',
+    CONSTRAINT uk_revenues_sector_granularity_timestamp UNIQUE (sector_id, granularity, timestamp)
+);
+
+CREATE INDEX IF NOT EXISTS idx_revenues_timestamp ON revenues (timestamp);
+
+-- Agregação das saídas por período (reconstrução dos acumulados)
+CREATE INDEX IF NOT EXISTS idx_parking_events_type_timestamp ON parking_events (type, timestamp, sector_id, price);
+
+-- Acumulados do histórico existente
+INSERT INTO revenues (sector_id, granularity, timestamp, amount, currency)
+SELECT sector_id, 'HOUR', DATE_TRUNC('hour', timestamp), SUM(price), 'BRL'
+FROM parking_events
+WHERE type = 'EXIT' AND price IS NOT NULL AND sector_id IS NOT NULL
+GROUP BY sector_id, DATE_TRUNC('hour', timestamp);
+
+INSERT INTO revenues (sector_id, granularity, timestamp, amount, currency)
+SELECT sector_id, 'DAY', DATE_TRUNC('day', timestamp), SUM(price), 'BRL'
+FROM parking_events
+WHERE type = 'EXIT' AND price IS NOT NULL AND sector_id IS NOT NULL
+GROUP BY sector_id, DATE_TRUNC('day', timestamp);
@@ -0,0 +1,2 @@
+-- Exportação de eventos por período, na ordem do índice (sem ordenar o histórico inteiro)
+CREATE INDEX IF NOT EXISTS idx_parking_events_timestamp ON parking_events (timestamp, id);
@@ -0,0 +1,13 @@
+-- Create sector_tariffs table (preço base por faixa de horário/dia da semana, com vigência)
+CREATE TABLE IF NOT EXISTS sector_tariffs (
+    id BIGSERIAL PRIMARY KEY,
+    sector_id VARCHAR(10) NOT NULL,
+    effective_from TIMESTAMP,
+    days_mask INTEGER NOT NULL,
+    start_time TIME,
+    end_time TIME,
+    price DECIMAL(10,2) NOT NULL,
+    FOREIGN KEY (sector_id) REFERENCES garage_sectors(id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_sector_tariffs_sector ON sector_tariffs (sector_id);
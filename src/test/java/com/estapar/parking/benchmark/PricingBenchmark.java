@@ -0,0 +1,128 @@
+package com.estapar.parking.benchmark;
+
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.service.PricingEngine;
+import com.estapar.parking.service.SectorOccupancyTimeline;
+import com.estapar.parking.service.TariffCalendar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Preço da consulta de status: cálculo antigo em BigDecimal (tarifa por fração da lotação + horas/minutos)
+// contra o PricingEngine, pela tarifa da permanência e pela tarifa travada no PARKED. Rodar com: mvn -Pbenchmark test (ou -Dbenchmark.include=PricingBenchmark -prof gc
+// para ver alocação por operação)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+    private static final int QUOTES = 1024;
+    private static final LocalDateTime AT = LocalDateTime.of(2025, 1, 6, 12, 0);
+
+    private final PricingEngine pricingEngine = new PricingEngine(new TariffCalendar(null),
+        new SectorOccupancyTimeline(null, null, Clock.systemUTC(), 72));
+    private GarageSector[] sectors;
+    private int[] occupancies;
+    private long[] elapsedMinutes;
+    private LocalDateTime[] entryTimes;
+    private long[] lockedRateUnits;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        sectors = new GarageSector[8];
+        for (int i = 0; i < sectors.length; i++) {
+            GarageSector sector = new GarageSector();
+            sector.setId("S" + i);
+            sector.setBasePrice(new BigDecimal("10.00").add(BigDecimal.valueOf(i * 137L, 2)));
+            sector.setMaxCapacity(50 + i * 25);
+            sectors[i] = sector;
+        }
+        occupancies = new int[QUOTES];
+        elapsedMinutes = new long[QUOTES];
+        entryTimes = new LocalDateTime[QUOTES];
+        lockedRateUnits = new long[QUOTES];
+        for (int i = 0; i < QUOTES; i++) {
+            occupancies[i] = (i * 31) % 250;
+            elapsedMinutes[i] = (i * 47L) % (24 * 60);
+            entryTimes[i] = AT.minusMinutes(elapsedMinutes[i]);
+            // Tarifa na escala de parking_sessions.locked_price (1/10000 de real)
+            lockedRateUnits[i] = pricingEngine.rate(sectors[i & 7], occupancies[i], AT)
+                .setScale(4, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+    }
+
+    @Benchmark
+    public BigDecimal legacyRate() {
+        int i = next();
+        return legacyRate(sectors[i & 7], occupancies[i]);
+    }
+
+    @Benchmark
+    public BigDecimal engineRate() {
+        int i = next();
+        return pricingEngine.rate(sectors[i & 7], occupancies[i], AT);
+    }
+
+    @Benchmark
+    public BigDecimal legacyPriceUntilNow() {
+        int i = next();
+        BigDecimal dynamicPrice = legacyRate(sectors[i & 7], occupancies[i]);
+        long hours = elapsedMinutes[i] / 60;
+        long minutes = elapsedMinutes[i] % 60;
+        BigDecimal totalPrice = dynamicPrice.multiply(BigDecimal.valueOf(hours));
+        if (minutes > 0) {
+            BigDecimal minutePrice = dynamicPrice.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+            totalPrice = totalPrice.add(minutePrice.multiply(BigDecimal.valueOf(minutes)));
+        }
+        return totalPrice.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // Sem histórico de lotação no SectorOccupancyTimeline, a tarifa da permanência é a da lotação atual
+    @Benchmark
+    public BigDecimal engineStayPriceUntilNow() {
+        int i = next();
+        return pricingEngine.stayPrice(sectors[i & 7], occupancies[i], entryTimes[i], AT);
+    }
+
+    // Só a aritmética sobre a tarifa travada, como no /plate-status e /spot-status
+    @Benchmark
+    public BigDecimal engineLockedPriceUntilNow() {
+        int i = next();
+        return PricingEngine.price(lockedRateUnits[i], entryTimes[i], AT);
+    }
+
+    private int next() {
+        next = (next + 1) & (QUOTES - 1);
+        return next;
+    }
+
+    // Cálculo antigo da tarifa em BigDecimal, por fração da lotação em double, mantido só como referência
+    private static BigDecimal legacyRate(GarageSector sector, int occupancy) {
+        double occupancyRate = (double) occupancy / sector.getMaxCapacity();
+        BigDecimal basePrice = sector.getBasePrice();
+        if (occupancyRate >= 0.75) {
+            return basePrice.multiply(BigDecimal.valueOf(1.25));
+        } else if (occupancyRate >= 0.50) {
+            return basePrice.multiply(BigDecimal.valueOf(1.10));
+        } else if (occupancyRate >= 0.25) {
+            return basePrice;
+        }
+        return basePrice.multiply(BigDecimal.valueOf(0.90));
+    }
+}
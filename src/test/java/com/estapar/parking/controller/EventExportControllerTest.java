@@ -0,0 +1,47 @@
+package com.estapar.parking.controller;
+
+import com.estapar.parking.service.EventExportQuery;
+import com.estapar.parking.service.EventExportService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventExportControllerTest {
+
+    @Mock
+    private EventExportService eventExportService;
+
+    @InjectMocks
+    private EventExportController controller;
+
+    @Test
+    void export_ShouldStreamWithFormatContentType() throws Exception {
+        // Setup
+        EventExportQuery query = new EventExportQuery(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 2, 0, 0),
+            "A", "EXIT", EventExportQuery.Format.NDJSON);
+        when(eventExportService.exportQuery("2025-01-01T00:00:00", "2025-01-02T00:00:00", "A", "EXIT", "ndjson")).thenReturn(query);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Test
+        ResponseEntity<StreamingResponseBody> response = controller.export("2025-01-01T00:00:00", "2025-01-02T00:00:00", "A", "EXIT", "ndjson");
+        response.getBody().writeTo(output);
+
+        // Verify
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("application/x-ndjson", response.getHeaders().getContentType().toString());
+        assertTrue(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).contains("parking-events.ndjson"));
+        verify(eventExportService).export(query, output);
+    }
+}
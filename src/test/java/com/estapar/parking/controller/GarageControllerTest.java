@@ -1,22 +1,39 @@
 package com.estapar.parking.controller;
 
 import com.estapar.parking.dto.GarageConfigDTO;
+import com.estapar.parking.dto.GarageImportResponse;
+import com.estapar.parking.dto.GarageVersionDTO;
+import com.estapar.parking.dto.SectorAvailabilityDTO;
 import com.estapar.parking.model.GarageSector;
 import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.service.GarageConfigCache;
+import com.estapar.parking.service.GarageConfigExportService;
+import com.estapar.parking.service.GarageConfigQuery;
+import com.estapar.parking.service.GarageImportService;
 import com.estapar.parking.service.GarageService;
+import com.estapar.parking.service.GarageTopologyService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalTime;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +42,18 @@ class GarageControllerTest {
     @Mock
     private GarageService garageService;
 
+    @Mock
+    private GarageImportService garageImportService;
+
+    @Mock
+    private GarageTopologyService garageTopologyService;
+
+    @Mock
+    private GarageConfigExportService garageConfigExportService;
+
+    @Mock
+    private GarageConfigCache garageConfigCache;
+
     @InjectMocks
     private GarageController controller;
 
@@ -57,18 +86,102 @@ class GarageControllerTest {
     }
 
     @Test
-    void getCurrentConfig_ShouldReturnCurrentConfig() {
+    void getCurrentConfig_WithLimit_ShouldStreamPage() throws Exception {
+        // Setup
+        GarageConfigQuery query = new GarageConfigQuery(0, 100);
+        when(garageConfigExportService.query(null, 100)).thenReturn(query);
+
+        // Test
+        ResponseEntity<StreamingResponseBody> response = controller.getCurrentConfig(null, 100, null, null);
+        response.getBody().writeTo(new ByteArrayOutputStream());
+
+        // Verify
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        verify(garageConfigExportService, times(1)).write(eq(query), any());
+        verifyNoInteractions(garageConfigCache);
+    }
+
+    @Test
+    void getCurrentConfig_ShouldServeCachedGzipWithETag() throws Exception {
+        // Setup
+        byte[] json = "{}".getBytes(StandardCharsets.UTF_8);
+        byte[] gzip = {1, 2, 3};
+        when(garageConfigExportService.query(null, null)).thenReturn(new GarageConfigQuery(0, null));
+        when(garageConfigCache.get()).thenReturn(new GarageConfigCache.CachedConfig(
+            new GarageVersionDTO(), "W/\"3\"", json, gzip));
+
+        // Test
+        ResponseEntity<StreamingResponseBody> response = controller.getCurrentConfig(null, null, null, "gzip, deflate");
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        // Verify
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("W/\"3\"", response.getHeaders().getETag());
+        assertEquals("gzip", response.getHeaders().getFirst("Content-Encoding"));
+        assertArrayEquals(gzip, body.toByteArray());
+        verify(garageConfigExportService, never()).write(any(), any());
+    }
+
+    @Test
+    void getCurrentConfig_WithMatchingETag_ShouldReturnNotModified() {
+        // Setup
+        when(garageConfigExportService.query(null, null)).thenReturn(new GarageConfigQuery(0, null));
+        when(garageConfigCache.get()).thenReturn(new GarageConfigCache.CachedConfig(
+            new GarageVersionDTO(), "W/\"3\"", new byte[0], new byte[0]));
+
+        // Test
+        ResponseEntity<StreamingResponseBody> response = controller.getCurrentConfig(null, null, "\"2\", \"3\"", null);
+
+        // Verify
+        assertEquals(304, response.getStatusCode().value());
+        assertNull(response.getBody());
+        assertEquals("W/\"3\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void getAvailability_ShouldReturnFreeSpotsPerSector() {
+        // Setup
+        List<SectorAvailabilityDTO> availability = List.of(new SectorAvailabilityDTO("A1", 10, 7, true));
+        when(garageService.getAvailability()).thenReturn(availability);
+
+        // Test
+        ResponseEntity<List<SectorAvailabilityDTO>> response = controller.getAvailability();
+
+        // Verify
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(availability, response.getBody());
+    }
+
+    @Test
+    void importGarage_ShouldStreamRequestBodyToImport() throws Exception {
+        // Setup
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/garage");
+        request.setContent("{\"garage\":[],\"spots\":[]}".getBytes(StandardCharsets.UTF_8));
+        GarageImportResponse imported = new GarageImportResponse(0, 0, 0);
+        when(garageImportService.importGarage(any(InputStream.class))).thenReturn(imported);
+
+        // Test
+        ResponseEntity<GarageImportResponse> response = controller.importGarage(request);
+
+        // Verify
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(imported, response.getBody());
+        verify(garageImportService).importGarage(any(InputStream.class));
+    }
+
+    @Test
+    void applyGarage_ShouldReturnAppliedVersion() {
         // Setup
-        when(garageService.getCurrentConfig()).thenReturn(configDTO);
+        GarageVersionDTO version = new GarageVersionDTO(3, null, 0, 0, 0, 1, 0, 0);
+        when(garageTopologyService.apply(configDTO)).thenReturn(version);
 
         // Test
-        ResponseEntity<GarageConfigDTO> response = controller.getCurrentConfig();
+        ResponseEntity<GarageVersionDTO> response = controller.applyGarage(configDTO);
 
         // Verify
-        assertNotNull(response);
         assertEquals(200, response.getStatusCode().value());
-        assertNotNull(response.getBody());
-        assertEquals(configDTO, response.getBody());
-        verify(garageService, times(1)).getCurrentConfig();
+        assertEquals(version, response.getBody());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package com.estapar.parking.controller;
+
+import com.estapar.parking.dto.OccupancySnapshotDTO;
+import com.estapar.parking.dto.SectorOccupancyDTO;
+import com.estapar.parking.service.OccupancySnapshotPublisher;
+import com.estapar.parking.service.OccupancyStreamService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OccupancyControllerTest {
+
+    @Mock
+    private OccupancySnapshotPublisher occupancySnapshots;
+
+    @Mock
+    private OccupancyStreamService occupancyStream;
+
+    @InjectMocks
+    private OccupancyController controller;
+
+    @Test
+    void getOccupancy_ShouldReturnPublishedBytes() {
+        // Setup
+        byte[] json = "{\"version\":7}".getBytes();
+        when(occupancySnapshots.getSnapshot()).thenReturn(snapshot(json));
+
+        // Test
+        ResponseEntity<byte[]> response = controller.getOccupancy(null);
+
+        // Verify
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals("\"1-7\"", response.getHeaders().getETag());
+        assertSame(json, response.getBody());
+    }
+
+    @Test
+    void getOccupancy_WithCurrentETag_ShouldReturnNotModified() {
+        when(occupancySnapshots.getSnapshot()).thenReturn(snapshot(new byte[0]));
+
+        ResponseEntity<byte[]> response = controller.getOccupancy("\"1-7\"");
+
+        assertEquals(304, response.getStatusCode().value());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void streamOccupancy_ShouldSubscribeWithSectorsAndCurrentState() {
+        // Setup
+        SseEmitter emitter = new SseEmitter();
+        List<SectorOccupancyDTO> current = List.of(
+            new SectorOccupancyDTO("A", 10, 10, 9, 1, 0, new BigDecimal("9.00"), true, List.of(1L)));
+        when(occupancySnapshots.currentSectors()).thenReturn(current);
+        when(occupancyStream.isAcceptingSubscribers()).thenReturn(true);
+        when(occupancyStream.subscribe(eq(Set.of("A")), any())).thenReturn(emitter);
+
+        // Test
+        ResponseEntity<SseEmitter> response = controller.streamOccupancy(Set.of("A"));
+
+        // Verify: o estado inicial é lido do estado atual, não do último snapshot publicado
+        assertSame(emitter, response.getBody());
+        ArgumentCaptor<Supplier<List<SectorOccupancyDTO>>> initial = ArgumentCaptor.forClass(Supplier.class);
+        verify(occupancyStream).subscribe(eq(Set.of("A")), initial.capture());
+        assertSame(current, initial.getValue().get());
+        verify(occupancySnapshots, never()).getSnapshot();
+    }
+
+    @Test
+    void streamOccupancy_WithoutSectors_ShouldSubscribeToAll() {
+        when(occupancyStream.isAcceptingSubscribers()).thenReturn(true);
+
+        controller.streamOccupancy(null);
+
+        verify(occupancyStream).subscribe(eq(Set.of()), any());
+    }
+
+    @Test
+    void streamOccupancy_WithTooManyStalledSenders_ShouldReturnServiceUnavailable() {
+        when(occupancyStream.isAcceptingSubscribers()).thenReturn(false);
+
+        ResponseEntity<SseEmitter> response = controller.streamOccupancy(Set.of("A"));
+
+        assertEquals(503, response.getStatusCode().value());
+        verify(occupancyStream, never()).subscribe(any(), any());
+    }
+
+    private static OccupancySnapshotPublisher.OccupancySnapshot snapshot(byte[] json) {
+        OccupancySnapshotDTO view = new OccupancySnapshotDTO(7, LocalDateTime.of(2025, 1, 1, 12, 0), List.of());
+        return new OccupancySnapshotPublisher.OccupancySnapshot(view, "\"1-7\"", json);
+    }
+}
@@ -1,7 +1,10 @@
 package com.estapar.parking.controller;
 
+import com.estapar.parking.dto.RevenueRebuildResponse;
 import com.estapar.parking.dto.RevenueRequest;
 import com.estapar.parking.dto.RevenueResponse;
+import com.estapar.parking.dto.RevenueSeriesRequest;
+import com.estapar.parking.service.RevenueSeriesQuery;
 import com.estapar.parking.service.RevenueService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,9 +13,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -104,4 +112,35 @@ class RevenueControllerTest {
         assertEquals(emptyRevenue, response.getBody());
         verify(revenueService, times(1)).getRevenue(DATE, null);
     }
-} 
\ No newline at end of file
+
+    @Test
+    void rebuild_WithoutBody_ShouldRebuildWholeHistory() {
+        // Setup
+        RevenueRebuildResponse rebuilt = new RevenueRebuildResponse(3, 12);
+        when(revenueService.rebuild(null, null)).thenReturn(rebuilt);
+
+        // Test
+        ResponseEntity<RevenueRebuildResponse> response = controller.rebuild(null);
+
+        // Verify
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(rebuilt, response.getBody());
+    }
+
+    @Test
+    void getRevenueSeries_ShouldValidateThenStreamFromService() throws Exception {
+        // Setup
+        RevenueSeriesRequest request = new RevenueSeriesRequest();
+        RevenueSeriesQuery query = new RevenueSeriesQuery(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), List.of(), RevenueSeriesQuery.Bucket.DAY);
+        when(revenueService.seriesQuery(request)).thenReturn(query);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Test
+        ResponseEntity<StreamingResponseBody> response = controller.getRevenueSeries(request);
+        response.getBody().writeTo(output);
+
+        // Verify
+        assertEquals(200, response.getStatusCode().value());
+        verify(revenueService).writeSeries(query, output);
+    }
+}
@@ -0,0 +1,43 @@
+package com.estapar.parking.controller;
+
+import com.estapar.parking.dto.SessionAlertDTO;
+import com.estapar.parking.dto.SessionAlertsResponse;
+import com.estapar.parking.service.SessionDeadlineMonitor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionControllerTest {
+
+    @Mock
+    private SessionDeadlineMonitor sessionDeadlineMonitor;
+
+    @InjectMocks
+    private SessionController controller;
+
+    @Test
+    void getAlerts_ShouldReturnMonitorAlerts() {
+        // Setup
+        LocalDateTime entry = LocalDateTime.of(2025, 1, 1, 10, 0);
+        SessionAlertsResponse alerts = new SessionAlertsResponse(
+            List.of(new SessionAlertDTO("ABC1234", "A", 7L, entry, entry.plusHours(2))), List.of());
+        when(sessionDeadlineMonitor.getAlerts()).thenReturn(alerts);
+
+        // Test
+        ResponseEntity<SessionAlertsResponse> response = controller.getAlerts();
+
+        // Verify
+        assertEquals(200, response.getStatusCode().value());
+        assertSame(alerts, response.getBody());
+    }
+}
@@ -2,8 +2,10 @@ package com.estapar.parking.controller;
 
 import com.estapar.parking.config.SecurityTestConfig;
 import com.estapar.parking.dto.VehicleEventDTO;
+import com.estapar.parking.dto.WebhookBatchItemResult;
 import com.estapar.parking.dto.WebhookResponse;
 import com.estapar.parking.service.ParkingService;
+import com.estapar.parking.service.WebhookDispatcher;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,10 +17,13 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -36,6 +41,9 @@ class WebhookControllerTest {
     @MockBean
     private ParkingService parkingService;
 
+    @MockBean
+    private WebhookDispatcher webhookDispatcher;
+
     private static final DateTimeFormatter formatter = DateTimeFormatter.ISO_DATE_TIME;
 
     @Test
@@ -141,4 +149,108 @@ class WebhookControllerTest {
                 .andExpect(jsonPath("$.success").value(false))
                 .andExpect(jsonPath("$.message").value("Error processing event: Test error"));
     }
+
+    @Test
+    void handleWebhookBatch_WhenMixedResults_ShouldReturnPerItemResults() throws Exception {
+        // Arrange
+        VehicleEventDTO entry = new VehicleEventDTO();
+        entry.setLicensePlate("ABC1234");
+        entry.setEventType("ENTRY");
+        entry.setEntryTime(LocalDateTime.now().format(formatter));
+
+        VehicleEventDTO exit = new VehicleEventDTO();
+        exit.setLicensePlate("XYZ9876");
+        exit.setEventType("EXIT");
+        exit.setExitTime(LocalDateTime.now().format(formatter));
+
+        when(parkingService.handleWebhookBatch(any())).thenReturn(List.of(
+                new WebhookBatchItemResult(0, "ABC1234", "ENTRY", true, "Event processed successfully"),
+                new WebhookBatchItemResult(1, "XYZ9876", "EXIT", false, "Error processing event: not found")));
+
+        // Act & Assert
+        mockMvc.perform(post("/webhook/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(entry, exit))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].license_plate").value("ABC1234"))
+                .andExpect(jsonPath("$.results[0].success").value(true))
+                .andExpect(jsonPath("$.results[1].index").value(1))
+                .andExpect(jsonPath("$.results[1].success").value(false));
+    }
+
+    @Test
+    void handleWebhookBatch_WhenEmpty_ShouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/webhook/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.total").value(0));
+    }
+
+    @Test
+    void handleWebhook_WhenAsyncModeEnabled_ShouldAcceptEvent() throws Exception {
+        // Arrange
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate("ABC1234");
+        event.setEventType("ENTRY");
+        event.setEntryTime(LocalDateTime.now().format(formatter));
+
+        when(webhookDispatcher.isEnabled()).thenReturn(true);
+        when(webhookDispatcher.submit(any(VehicleEventDTO.class))).thenReturn(true);
+
+        // Act & Assert
+        mockMvc.perform(post("/webhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(event)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message").value("Event accepted for processing"));
+
+        verify(parkingService).validateWebhookEvent(any(VehicleEventDTO.class));
+        verify(parkingService, never()).handleWebhookEvent(any(VehicleEventDTO.class));
+    }
+
+    @Test
+    void handleWebhook_WhenAsyncQueueIsFull_ShouldReturnServiceUnavailable() throws Exception {
+        // Arrange
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate("ABC1234");
+        event.setEventType("EXIT");
+        event.setExitTime(LocalDateTime.now().format(formatter));
+
+        when(webhookDispatcher.isEnabled()).thenReturn(true);
+        when(webhookDispatcher.submit(any(VehicleEventDTO.class))).thenReturn(false);
+
+        // Act & Assert
+        mockMvc.perform(post("/webhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(event)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void handleWebhook_WhenAsyncEventIsInvalid_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate("ABC1234");
+        event.setEventType("PARKED");
+
+        when(webhookDispatcher.isEnabled()).thenReturn(true);
+        doThrow(new IllegalArgumentException("Placa, latitude e longitude inválidos"))
+                .when(parkingService).validateWebhookEvent(any(VehicleEventDTO.class));
+
+        // Act & Assert
+        mockMvc.perform(post("/webhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(event)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+
+        verify(webhookDispatcher, never()).submit(any(VehicleEventDTO.class));
+    }
 } 
\ No newline at end of file
@@ -197,4 +197,30 @@ class ParkingSpotRepositoryTest {
         
         assertThat(spot).isEmpty();
     }
-} 
\ No newline at end of file
+
+    @Test
+    void claimSpot_ShouldOnlyClaimFreeSpot() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(1, parkingSpotRepository.claimSpot(spot2.getId(), "NEW1234", now));
+        assertEquals(0, parkingSpotRepository.claimSpot(spot2.getId(), "OTHER12", now));
+
+        // O UPDATE condicional não limpa o contexto de persistência
+        entityManager.clear();
+        ParkingSpot claimed = parkingSpotRepository.findById(spot2.getId()).orElseThrow();
+        assertThat(claimed.isOccupied()).isTrue();
+        assertThat(claimed.getLicensePlate()).isEqualTo("NEW1234");
+    }
+
+    @Test
+    void releaseSpot_ShouldOnlyReleaseSpotOfSamePlate() {
+        assertEquals(0, parkingSpotRepository.releaseSpot(spot1.getId(), LICENSE_PLATE_2));
+        assertEquals(1, parkingSpotRepository.releaseSpot(spot1.getId(), LICENSE_PLATE_1));
+
+        // O UPDATE condicional não limpa o contexto de persistência
+        entityManager.clear();
+        ParkingSpot released = parkingSpotRepository.findById(spot1.getId()).orElseThrow();
+        assertThat(released.isOccupied()).isFalse();
+        assertThat(released.getLicensePlate()).isNull();
+    }
+}
@@ -0,0 +1,37 @@
+package com.estapar.parking.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+// Mesmas consultas do QueryPlanTest no PostgreSQL, onde valem os índices parciais de db/vendor/postgresql. Só roda
+// com QUERY_PLAN_POSTGRES_URL apontando para um banco descartável (o Flyway migra e os dados do teste são desfeitos)
+@EnabledIfEnvironmentVariable(named = "QUERY_PLAN_POSTGRES_URL", matches = ".+")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class PostgresQueryPlanTest extends QueryPlanTest {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("QUERY_PLAN_POSTGRES_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("QUERY_PLAN_POSTGRES_USER", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("QUERY_PLAN_POSTGRES_PASSWORD", "postgres"));
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.flyway.schemas", () -> "public");
+        registry.add("spring.flyway.default-schema", () -> "public");
+    }
+
+    // Com poucas linhas o planejador prefere Seq Scan mesmo havendo índice; desligado, só cai nele quando nenhum
+    // índice serve para a consulta
+    @BeforeEach
+    void disableSeqScan() {
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    }
+
+    @Override
+    boolean isFullScan(String plan) {
+        return plan.contains("Seq Scan");
+    }
+}
@@ -0,0 +1,331 @@
+package com.estapar.parking.repository;
+
+import com.estapar.parking.model.Revenue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Roda EXPLAIN no SQL gerado por cada consulta dos repositórios sobre uma massa grande de dados e falha se o
+// plano cair em varredura completa da tabela (tableScan no H2). O schema é o das migrations do Flyway, não o gerado
+// pelo Hibernate, então um índice que falte numa migration derruba o teste. No H2 o schema padrão é PUBLIC em
+// maiúsculas; com "public" o Flyway criaria as tabelas num schema à parte
+@DataJpaTest(properties = {"spring.flyway.enabled=true", "spring.flyway.schemas=PUBLIC", "spring.flyway.default-schema=PUBLIC",
+    "spring.jpa.hibernate.ddl-auto=validate"})
+@Import(QueryPlanTest.CaptureConfig.class)
+@ActiveProfiles("test")
+class QueryPlanTest {
+
+    private static final int SECTORS = 20;
+    private static final int SPOTS = 5_000;
+    private static final int EVENTS = 20_000;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GarageSectorRepository sectorRepository;
+
+    @Autowired
+    private ParkingSpotRepository spotRepository;
+
+    @Autowired
+    private ParkingEventRepository eventRepository;
+
+    @Autowired
+    private ParkingSessionRepository sessionRepository;
+
+    @Autowired
+    private RevenueRepository revenueRepository;
+
+    @Autowired
+    private SectorTariffRepository tariffRepository;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("DELETE FROM revenues");
+        jdbcTemplate.update("DELETE FROM sector_tariffs");
+        jdbcTemplate.update("DELETE FROM parking_sessions");
+        jdbcTemplate.update("DELETE FROM parking_events");
+        jdbcTemplate.update("DELETE FROM parking_spots");
+        jdbcTemplate.update("DELETE FROM garage_sectors");
+
+        List<Object[]> sectors = new ArrayList<>();
+        for (int s = 0; s < SECTORS; s++) {
+            sectors.add(new Object[]{sector(s)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO garage_sectors (id, base_price, max_capacity, open_hour, close_hour, duration_limit_minutes, current_occupancy) "
+            + "VALUES (?, 10.00, 1000, '06:00', '22:00', 120, 0)", sectors);
+        jdbcTemplate.batchUpdate("INSERT INTO sector_tariffs (sector_id, days_mask, start_time, end_time, price) "
+            + "VALUES (?, 31, '07:00', '10:00', 15.00)", sectors);
+
+        // Uma vaga em cada dez ocupada
+        List<Object[]> spots = new ArrayList<>();
+        for (int i = 0; i < SPOTS; i++) {
+            boolean occupied = i % 10 == 0;
+            spots.add(new Object[]{i + 1, sector(i % SECTORS), -23.5 - i * 0.0001, -46.6, occupied,
+                occupied ? plate(i) : null, occupied ? Timestamp.valueOf(BASE_TIME.plusMinutes(i)) : null});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO parking_spots (id, sector_id, latitude, longitude, occupied, license_plate, entry_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)", spots);
+
+        String[] types = {"ENTRY", "PARKED", "EXIT"};
+        List<Object[]> events = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(new Object[]{plate(i / 3), types[i % 3], Timestamp.valueOf(BASE_TIME.plusMinutes(i)),
+                sector(i % SECTORS), i % 3 == 2 ? 10.00 : null});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO parking_events (license_plate, type, timestamp, sector_id, price) VALUES (?, ?, ?, ?, ?)", events);
+
+        // Uma sessão por vaga; as das vagas ocupadas continuam ativas
+        List<Object[]> sessions = new ArrayList<>();
+        for (int i = 0; i < SPOTS; i++) {
+            LocalDateTime entry = BASE_TIME.plusMinutes(i);
+            sessions.add(new Object[]{plate(i), Timestamp.valueOf(entry), i + 1, sector(i % SECTORS),
+                i % 10 == 0 ? null : Timestamp.valueOf(entry.plusHours(1))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO parking_sessions (license_plate, entry_time, spot_id, sector_id, exit_time) VALUES (?, ?, ?, ?, ?)", sessions);
+
+        // Acumulados por hora e por dia de cada setor
+        List<Object[]> revenues = new ArrayList<>();
+        for (int hour = 0; hour < EVENTS / 60; hour++) {
+            for (int s = 0; s < SECTORS; s++) {
+                revenues.add(new Object[]{sector(s), "HOUR", Timestamp.valueOf(BASE_TIME.plusHours(hour))});
+                if (hour % 24 == 0) {
+                    revenues.add(new Object[]{sector(s), "DAY", Timestamp.valueOf(BASE_TIME.plusHours(hour))});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO revenues (sector_id, granularity, timestamp, amount, currency) VALUES (?, ?, ?, 10.00, 'BRL')", revenues);
+
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void parkingEventQueries_ShouldUseIndexes() {
+        assertUsesIndexes(() -> eventRepository.findByLicensePlateAndTypeOrderByTimestampDesc(plate(7), "ENTRY"));
+        assertUsesIndexes(() -> eventRepository.findByLicensePlateOrderByTimestampDesc(plate(7)));
+        assertUsesIndexes(() -> eventRepository.findBySectorIdOrderByTimestampDesc(sector(3)));
+        assertUsesIndexes(() -> eventRepository.findFirstByTypeOrderByTimestampAsc("EXIT"));
+        assertUsesIndexes(() -> eventRepository.findFirstByTypeOrderByTimestampDesc("EXIT"));
+        assertUsesIndexes(() -> eventRepository.sumExitRevenueByHour(BASE_TIME, BASE_TIME.plusDays(1)));
+        assertUsesIndexes(() -> eventRepository.sumOccupancyBefore(BASE_TIME.plusDays(1)));
+        assertUsesIndexes(() -> eventRepository.findOccupancyChangesSince(BASE_TIME.plusDays(10)));
+        assertUsesIndexes(() -> consume(eventRepository.streamForExport(BASE_TIME, BASE_TIME.plusDays(1), sector(3), "EXIT")));
+        assertUsesIndexes(() -> consume(eventRepository.streamForExport(BASE_TIME, BASE_TIME.plusDays(1), null, null)));
+    }
+
+    @Test
+    void parkingSpotQueries_ShouldUseIndexes() {
+        assertUsesIndexes(() -> spotRepository.findByLicensePlateAndOccupiedTrue(plate(10)));
+        assertUsesIndexes(() -> spotRepository.findByLicensePlate(plate(10)));
+        assertUsesIndexes(() -> spotRepository.findByLatitudeAndLongitude(-23.5001, -46.6));
+        assertUsesIndexes(() -> spotRepository.findBySectorIdAndOccupiedTrue(sector(3)));
+        assertUsesIndexes(() -> spotRepository.findByOccupiedTrue());
+        assertUsesIndexes(() -> spotRepository.findBySectorIdAndEntryTime(sector(0), BASE_TIME));
+        assertUsesIndexes(() -> spotRepository.existsBySectorIdAndEntryTime(sector(0), BASE_TIME));
+        assertUsesIndexes(() -> spotRepository.claimSpot(2L, "CLAIM01", BASE_TIME));
+        assertUsesIndexes(() -> spotRepository.releaseSpot(1L, plate(0)));
+    }
+
+    @Test
+    void parkingSessionQueries_ShouldUseIndexes() {
+        assertUsesIndexes(() -> sessionRepository.findByLicensePlateAndExitTimeIsNull(plate(10)));
+        assertUsesIndexes(() -> sessionRepository.findBySpotIdAndExitTimeIsNull(11L));
+        assertUsesIndexes(() -> sessionRepository.findByExitTimeIsNull());
+    }
+
+    @Test
+    void garageSectorQueries_ShouldUseIndexes() {
+        assertUsesIndexes(() -> sectorRepository.tryIncrementOccupancy(sector(1)));
+        assertUsesIndexes(() -> sectorRepository.tryDecrementOccupancy(sector(1)));
+        assertUsesIndexes(() -> sectorRepository.updateCurrentOccupancy(sector(1), 3));
+    }
+
+    @Test
+    void sectorTariffQueries_ShouldUseIndexes() {
+        assertUsesIndexes(() -> tariffRepository.deleteBySectorIds(List.of(sector(1), sector(2))));
+    }
+
+    @Test
+    void revenueQueries_ShouldUseIndexes() {
+        assertUsesIndexes(() -> revenueRepository.findBySectorIdAndGranularityAndTimestamp(sector(2), Revenue.Granularity.DAY, BASE_TIME));
+        assertUsesIndexes(() -> revenueRepository.findBySectorIdAndTimestampBetween(sector(2), BASE_TIME, BASE_TIME.plusDays(1)));
+        assertUsesIndexes(() -> revenueRepository.addAmount(sector(2), Revenue.Granularity.HOUR, BASE_TIME, BigDecimal.ONE));
+        assertUsesIndexes(() -> revenueRepository.deleteByTimestampRange(BASE_TIME, BASE_TIME.plusDays(1)));
+        assertUsesIndexes(() -> consume(revenueRepository.streamBuckets(Revenue.Granularity.DAY, BASE_TIME, BASE_TIME.plusDays(7))));
+        assertUsesIndexes(() -> consume(revenueRepository.streamBuckets(Revenue.Granularity.HOUR, List.of(sector(1), sector(2)), BASE_TIME, BASE_TIME.plusDays(7))));
+        assertUsesIndexes(() -> consume(revenueRepository.streamMonthlyBuckets(Revenue.Granularity.DAY, BASE_TIME, BASE_TIME.plusDays(7))));
+        assertUsesIndexes(() -> consume(revenueRepository.streamMonthlyBuckets(Revenue.Granularity.DAY, List.of(sector(1)), BASE_TIME, BASE_TIME.plusDays(7))));
+    }
+
+    private void assertUsesIndexes(Runnable query) {
+        List<CapturedStatement> statements = CapturingDataSource.capture(query);
+        assertFalse(statements.isEmpty(), "Nenhum SQL capturado");
+
+        for (CapturedStatement statement : statements) {
+            String plan = explain(statement);
+            assertFalse(isFullScan(plan), () -> "Varredura completa em:\n" + statement.sql() + "\nPlano:\n" + plan);
+        }
+    }
+
+    boolean isFullScan(String plan) {
+        return plan.contains(".tableScan");
+    }
+
+    private static void consume(Stream<?> stream) {
+        try (stream) {
+            stream.forEach(row -> { });
+        }
+    }
+
+    // Reaplica os mesmos parâmetros da execução: o PostgreSQL só usa um índice parcial quando o valor casa com o filtro
+    private String explain(CapturedStatement captured) {
+        return jdbcTemplate.execute("EXPLAIN " + captured.sql(), (PreparedStatement statement) -> {
+            for (Binding binding : captured.bindings()) {
+                binding.apply(statement);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (var result = statement.executeQuery()) {
+                while (result.next()) {
+                    plan.append(result.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        });
+    }
+
+    private static String sector(int index) {
+        return String.format(Locale.ROOT, "S%02d", index);
+    }
+
+    private static String plate(int index) {
+        return String.format(Locale.ROOT, "PL%05d", index);
+    }
+
+    record Binding(Method setter, Object[] args) {
+        void apply(PreparedStatement statement) throws SQLException {
+            try {
+                setter.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    record CapturedStatement(String sql, List<Binding> bindings) {
+    }
+
+    @TestConfiguration
+    static class CaptureConfig {
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && !(bean instanceof CapturingDataSource)
+                        ? new CapturingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    // Guarda o SQL e os parâmetros de cada SELECT/UPDATE/DELETE executado enquanto a consulta testada roda
+    static class CapturingDataSource extends DelegatingDataSource {
+        private static final List<CapturedStatement> STATEMENTS = new CopyOnWriteArrayList<>();
+        private static volatile boolean capturing;
+
+        CapturingDataSource(DataSource target) {
+            super(target);
+        }
+
+        static List<CapturedStatement> capture(Runnable query) {
+            STATEMENTS.clear();
+            capturing = true;
+            try {
+                query.run();
+            } finally {
+                capturing = false;
+            }
+            return new ArrayList<>(STATEMENTS);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return wrap(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return wrap(super.getConnection(username, password));
+        }
+
+        private static Connection wrap(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement statement) {
+                        return wrap(statement, (String) args[0]);
+                    }
+                    return result;
+                });
+        }
+
+        private static PreparedStatement wrap(PreparedStatement statement, String sql) {
+            String normalized = sql.stripLeading().toLowerCase(Locale.ROOT);
+            boolean query = normalized.startsWith("select") || normalized.startsWith("update") || normalized.startsWith("delete");
+            List<Binding> bindings = new ArrayList<>();
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        bindings.add(new Binding(method, args.clone()));
+                    } else if (name.equals("clearParameters")) {
+                        bindings.clear();
+                    } else if (name.startsWith("execute") && capturing && query) {
+                        STATEMENTS.add(new CapturedStatement(sql, List.copyOf(bindings)));
+                    }
+                    return invoke(statement, method, args);
+                });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.exception.InvalidRequestException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EventExportServiceIntegrationTest {
+
+    private static final int EVENTS = 3_000;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Autowired
+    private EventExportService eventExportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM parking_sessions");
+        jdbcTemplate.update("DELETE FROM parking_events");
+        jdbcTemplate.update("DELETE FROM parking_spots");
+        jdbcTemplate.update("DELETE FROM garage_sectors");
+        jdbcTemplate.update("INSERT INTO garage_sectors (id, base_price, max_capacity, open_hour, close_hour, duration_limit_minutes, current_occupancy) "
+            + "VALUES ('A', 10.00, 10, '06:00', '22:00', 120, 0), ('B', 10.00, 10, '06:00', '22:00', 120, 0)");
+
+        // Um evento por minuto, alternando tipo e setor
+        String[] types = {"ENTRY", "PARKED", "EXIT"};
+        List<Object[]> events = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            events.add(new Object[]{"EXP" + i, types[i % 3], Timestamp.valueOf(BASE_TIME.plusMinutes(i)),
+                i % 2 == 0 ? "A" : "B", i % 3 == 2 ? 12.50 : null});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO parking_events (license_plate, type, timestamp, sector_id, price) VALUES (?, ?, ?, ?, ?)", events);
+    }
+
+    @Test
+    void exportCsv_ShouldWriteFilteredRowsInTimestampOrder() throws Exception {
+        // Act
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long rows = eventExportService.export(
+            eventExportService.exportQuery("2025-01-01T00:00:00", "2025-01-01T10:00:00", "A", "exit", "csv"), output);
+
+        // Assert: minutos 0..599, setor A (par) e EXIT (i % 3 == 2) => i % 6 == 2
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(100, rows);
+        assertEquals(101, lines.length);
+        assertEquals("id,license_plate,type,timestamp,sector_id,latitude,longitude,price", lines[0]);
+        assertTrue(lines[1].endsWith(",EXP2,EXIT,2025-01-01T00:02:00,A,,,12.50"), lines[1]);
+        assertTrue(lines[100].contains(",EXP596,EXIT,"), lines[100]);
+    }
+
+    @Test
+    void exportNdjson_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        // Act
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long rows = eventExportService.export(
+            eventExportService.exportQuery("2025-01-01T00:00:00", "2025-01-01T00:10:00", null, null, "ndjson"), output);
+
+        // Assert
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(10, rows);
+        assertEquals(10, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("EXP0", first.get("license_plate").asText());
+        assertEquals("ENTRY", first.get("type").asText());
+        assertFalse(first.has("price"));
+        assertEquals(12.50, objectMapper.readTree(lines[2]).get("price").asDouble());
+    }
+
+    @Test
+    void export_ShouldNotAccumulateEventsInPersistenceContext() throws Exception {
+        // A saída roda na mesma transação da exportação: a cada escrita a sessão deve ter no máximo o evento corrente
+        int[] maxManaged = {0};
+        OutputStream probe = new OutputStream() {
+            @Override
+            public void write(int b) {
+                track();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                track();
+            }
+
+            private void track() {
+                maxManaged[0] = Math.max(maxManaged[0], entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+            }
+        };
+
+        long rows = eventExportService.export(
+            eventExportService.exportQuery("2025-01-01T00:00:00", "2025-01-04T00:00:00", null, null, "ndjson"), probe);
+
+        assertEquals(EVENTS, rows);
+        assertTrue(maxManaged[0] <= 1, "Eventos retidos na sessão: " + maxManaged[0]);
+    }
+
+    @Test
+    void exportQuery_WithInvalidFilters_ShouldThrow() {
+        assertThrows(InvalidRequestException.class, () -> eventExportService.exportQuery(null, "2025-01-02T00:00:00", null, null, null));
+        assertThrows(InvalidRequestException.class, () -> eventExportService.exportQuery("2025-01-02T00:00:00", "2025-01-01T00:00:00", null, null, null));
+        assertThrows(InvalidRequestException.class, () -> eventExportService.exportQuery("2025-01-01T00:00:00", "2025-01-02T00:00:00", null, "LEFT", null));
+        assertThrows(InvalidRequestException.class, () -> eventExportService.exportQuery("2025-01-01T00:00:00", "2025-01-02T00:00:00", null, null, "xml"));
+    }
+}
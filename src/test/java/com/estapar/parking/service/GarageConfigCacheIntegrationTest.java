@@ -0,0 +1,139 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.GarageConfigDTO;
+import com.estapar.parking.repository.GarageConfigVersionRepository;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import com.estapar.parking.repository.SectorTariffRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class GarageConfigCacheIntegrationTest {
+
+    @Autowired
+    private GarageConfigCache configCache;
+
+    @Autowired
+    private GarageTopologyService topologyService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private GarageSectorRepository sectorRepository;
+
+    @Autowired
+    private ParkingSpotRepository spotRepository;
+
+    @Autowired
+    private ParkingEventRepository eventRepository;
+
+    @Autowired
+    private ParkingSessionRepository sessionRepository;
+
+    @Autowired
+    private SectorTariffRepository tariffRepository;
+
+    @Autowired
+    private GarageConfigVersionRepository versionRepository;
+
+    @Autowired
+    private SpotLocationIndex spotLocationIndex;
+
+    @Autowired
+    private SpotAllocator spotAllocator;
+
+    @BeforeEach
+    void setUp() {
+        clean();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void get_ShouldSerializeOncePerVersion() throws IOException {
+        topologyService.apply(config(3));
+
+        GarageConfigCache.CachedConfig first = configCache.get();
+        GarageConfigCache.CachedConfig again = configCache.get();
+
+        // Verify: mesma versão, mesmos bytes; o gzip descomprime no JSON
+        assertSame(first, again);
+        assertEquals(1, first.version().getVersion());
+        assertTrue(first.matches(first.etag()));
+        assertEquals(3, objectMapper.readValue(first.json(), GarageConfigDTO.class).getSpots().size());
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(first.gzip()))) {
+            assertArrayEquals(first.json(), gzip.readAllBytes());
+        }
+    }
+
+    @Test
+    void get_AfterNewVersion_ShouldSerializeAgain() throws IOException {
+        topologyService.apply(config(3));
+        GarageConfigCache.CachedConfig first = configCache.get();
+
+        topologyService.apply(config(4));
+        GarageConfigCache.CachedConfig second = configCache.get();
+
+        // Verify
+        assertEquals(2, second.version().getVersion());
+        assertNotEquals(first.etag(), second.etag());
+        assertFalse(second.matches(first.etag()));
+        assertEquals(4, objectMapper.readValue(second.json(), GarageConfigDTO.class).getSpots().size());
+    }
+
+    private static GarageConfigDTO config(int spots) {
+        GarageConfigDTO.GarageSectorConfig sector = new GarageConfigDTO.GarageSectorConfig();
+        sector.setSector("A");
+        sector.setBasePrice(new BigDecimal("10.00"));
+        sector.setMaxCapacity(10);
+        sector.setOpenHour("00:00");
+        sector.setCloseHour("23:59");
+        sector.setDurationLimitMinutes(0);
+        List<GarageConfigDTO.ParkingSpotConfig> spotConfigs = new ArrayList<>();
+        for (int i = 0; i < spots; i++) {
+            GarageConfigDTO.ParkingSpotConfig spot = new GarageConfigDTO.ParkingSpotConfig();
+            spot.setSector("A");
+            spot.setLat(-23.5 - i * 0.0001);
+            spot.setLng(-46.6);
+            spotConfigs.add(spot);
+        }
+        GarageConfigDTO config = new GarageConfigDTO();
+        config.setGarage(new ArrayList<>(List.of(sector)));
+        config.setSpots(spotConfigs);
+        return config;
+    }
+
+    private void clean() {
+        sessionRepository.deleteAll();
+        eventRepository.deleteAll();
+        tariffRepository.deleteAll();
+        spotRepository.deleteAll();
+        sectorRepository.deleteAll();
+        versionRepository.deleteAll();
+        topologyService.rebuild();
+        spotLocationIndex.rebuild();
+        spotAllocator.rebuild();
+    }
+}
@@ -0,0 +1,110 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.GarageConfigDTO;
+import com.estapar.parking.exception.InvalidRequestException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class GarageConfigExportServiceIntegrationTest {
+
+    private static final int SPOTS = 250;
+
+    @Autowired
+    private GarageConfigExportService exportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        clean();
+        jdbcTemplate.update("INSERT INTO garage_sectors (id, base_price, max_capacity, open_hour, close_hour, duration_limit_minutes, current_occupancy) "
+            + "VALUES ('B', 4.10, 100, '00:00', '00:00', 0, 0), ('A', 10.00, 200, '06:00', '22:00', 120, 0)");
+        jdbcTemplate.update("INSERT INTO sector_tariffs (sector_id, days_mask, price) VALUES ('A', 64, 8.00)");
+        List<Object[]> spots = new ArrayList<>();
+        for (int i = 0; i < SPOTS; i++) {
+            spots.add(new Object[]{i % 2 == 0 ? "A" : "B", -23.5 - i * 0.0001, -46.6});
+        }
+        jdbcTemplate.batchUpdate(GarageImportService.INSERT_SPOT, spots);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void write_WithoutLimit_ShouldStreamWholeConfig() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long written = exportService.write(exportService.query(null, null), output);
+
+        // Verify: o documento é o mesmo aceito pelo POST /garage
+        GarageConfigDTO config = objectMapper.readValue(output.toByteArray(), GarageConfigDTO.class);
+        assertEquals(SPOTS, written);
+        assertEquals(SPOTS, config.getSpots().size());
+        assertEquals(List.of("A", "B"), config.getGarage().stream().map(GarageConfigDTO.GarageSectorConfig::getSector).toList());
+        assertEquals(1, config.getGarage().get(0).getTariffs().size());
+        assertEquals(-23.5, config.getSpots().get(0).getLat());
+        assertFalse(objectMapper.readTree(output.toByteArray()).has("next_after"));
+    }
+
+    @Test
+    void write_WithLimit_ShouldChainPagesUntilLastSpot() throws IOException {
+        Set<Double> latitudes = new HashSet<>();
+        Long after = null;
+        int pages = 0;
+        do {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            exportService.write(exportService.query(after, 100), output);
+            JsonNode page = objectMapper.readTree(output.toByteArray());
+            for (JsonNode spot : page.get("spots")) {
+                assertTrue(latitudes.add(spot.get("lat").asDouble()));
+            }
+            assertEquals(2, page.get("garage").size());
+            after = page.has("next_after") ? page.get("next_after").asLong() : null;
+            pages++;
+        } while (after != null);
+
+        // Verify: 100 + 100 + 50, cada vaga uma única vez
+        assertEquals(3, pages);
+        assertEquals(SPOTS, latitudes.size());
+    }
+
+    @Test
+    void query_WithInvalidPage_ShouldBeRejected() {
+        assertThrows(InvalidRequestException.class, () -> exportService.query(null, 0));
+        assertThrows(InvalidRequestException.class, () -> exportService.query(null, GarageConfigExportService.MAX_PAGE_SIZE + 1));
+        assertThrows(InvalidRequestException.class, () -> exportService.query(-1L, 10));
+        assertThrows(InvalidRequestException.class, () -> exportService.query(10L, null));
+    }
+
+    private void clean() {
+        jdbcTemplate.update("DELETE FROM parking_sessions");
+        jdbcTemplate.update("DELETE FROM parking_events");
+        jdbcTemplate.update("DELETE FROM sector_tariffs");
+        jdbcTemplate.update("DELETE FROM parking_spots");
+        jdbcTemplate.update("DELETE FROM garage_sectors");
+    }
+}
@@ -0,0 +1,241 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.GarageImportResponse;
+import com.estapar.parking.exception.InvalidRequestException;
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.ParkingSession;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import com.estapar.parking.repository.SectorTariffRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "parking.garage.import.batch-size=7")
+@ActiveProfiles("test")
+class GarageImportServiceIntegrationTest {
+
+    private static final LocalDateTime SATURDAY_NOON = LocalDateTime.of(2025, 1, 4, 12, 0);
+
+    @Autowired
+    private GarageImportService importService;
+
+    @Autowired
+    private GarageSectorRepository sectorRepository;
+
+    @Autowired
+    private ParkingSpotRepository spotRepository;
+
+    @Autowired
+    private ParkingEventRepository eventRepository;
+
+    @Autowired
+    private ParkingSessionRepository sessionRepository;
+
+    @Autowired
+    private SectorTariffRepository tariffRepository;
+
+    @Autowired
+    private SpotAllocator spotAllocator;
+
+    @Autowired
+    private TariffCalendar tariffCalendar;
+
+    @Autowired
+    private GarageTopologyService topologyService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        sessionRepository.deleteAll();
+        eventRepository.deleteAll();
+        tariffRepository.deleteAll();
+        spotRepository.deleteAll();
+        sectorRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionRepository.deleteAll();
+        tariffRepository.deleteAll();
+        spotRepository.deleteAll();
+        sectorRepository.deleteAll();
+        spotAllocator.rebuild();
+        tariffCalendar.rebuild();
+    }
+
+    @Test
+    void importGarage_ShouldInsertSpotsInBatchesAndReloadAllocator() {
+        // Test: 50 vagas em lotes de 7, campos desconhecidos ignorados
+        GarageImportResponse response = importService.importGarage(json(garage(50, 30)));
+
+        // Verify
+        assertEquals(2, response.getSectors());
+        assertEquals(80, response.getSpots());
+        assertEquals(1, response.getTariffs());
+        assertEquals(80, spotRepository.count());
+        assertEquals(50, spotAllocator.getTotalCount("A"));
+        assertEquals(30, spotAllocator.getFreeCount("B"));
+        assertEquals(1, tariffRepository.count());
+        assertEquals(80, topologyService.getCurrentVersion().getSpotsAdded());
+        // A tarifa de sábado de A já vale no calendário; nos outros dias, o preço base
+        GarageSector sectorA = sectorRepository.findById("A").orElseThrow();
+        assertEquals(0, new BigDecimal("8.00").compareTo(tariffCalendar.basePrice(sectorA, SATURDAY_NOON)));
+        assertEquals(0, new BigDecimal("10.00").compareTo(tariffCalendar.basePrice(sectorA, SATURDAY_NOON.minusDays(1))));
+    }
+
+    @Test
+    void importGarage_ShouldReplacePreviousTopology() {
+        importService.importGarage(json(garage(10, 10)));
+
+        // Test: B sai da configuração e A muda de capacidade
+        GarageImportResponse response = importService.importGarage(json("""
+            {"garage": [{"sector": "A", "base_price": 12.00, "max_capacity": 3, "open_hour": "06:00",
+                         "close_hour": "22:00", "duration_limit_minutes": 60}],
+             "spots": [{"sector": "A", "lat": 1.0, "lng": 1.0}, {"sector": "A", "lat": 1.0, "lng": 2.0}]}
+            """));
+
+        // Verify
+        assertEquals(2, response.getSpots());
+        assertEquals(3, sectorRepository.findById("A").orElseThrow().getMaxCapacity());
+        assertTrue(sectorRepository.findById("B").isEmpty());
+        assertEquals(0, tariffRepository.count());
+        assertEquals(0, new BigDecimal("12.00").compareTo(
+            tariffCalendar.basePrice(sectorRepository.findById("A").orElseThrow(), SATURDAY_NOON)));
+        assertEquals(2, spotAllocator.getTotalCount("A"));
+        assertEquals(0, spotAllocator.getTotalCount("B"));
+    }
+
+    @Test
+    void importGarage_WhenSpotsComeBeforeSectors_ShouldStillImport() {
+        GarageImportResponse response = importService.importGarage(json("""
+            {"spots": [{"sector": "A", "lat": 1.0, "lng": 1.0}],
+             "garage": [{"sector": "A", "base_price": 10.00, "max_capacity": 1, "open_hour": "00:00",
+                         "close_hour": "23:59", "duration_limit_minutes": 0}]}
+            """));
+
+        assertEquals(1, response.getSpots());
+        assertEquals(1, spotAllocator.getTotalCount("A"));
+    }
+
+    @Test
+    void importGarage_WithSpotInUnknownSector_ShouldRollBack() {
+        importService.importGarage(json(garage(5, 5)));
+
+        assertThrows(InvalidRequestException.class, () -> importService.importGarage(json("""
+            {"garage": [{"sector": "A", "base_price": 10.00, "max_capacity": 1, "open_hour": "00:00",
+                         "close_hour": "23:59", "duration_limit_minutes": 0}],
+             "spots": [{"sector": "Z", "lat": 1.0, "lng": 1.0}]}
+            """)));
+
+        // Verify: a topologia anterior continua inteira
+        assertEquals(10, spotRepository.count());
+        assertTrue(sectorRepository.findById("B").isPresent());
+        assertEquals(5, spotAllocator.getTotalCount("B"));
+    }
+
+    @Test
+    void importGarage_WithVehiclesInside_ShouldBeRejected() {
+        importService.importGarage(json(garage(5, 5)));
+        ParkingSession session = new ParkingSession();
+        session.setLicensePlate("IMP0001");
+        session.setEntryTime(LocalDateTime.of(2025, 1, 1, 12, 0));
+        sessionRepository.save(session);
+
+        InvalidRequestException e = assertThrows(InvalidRequestException.class,
+            () -> importService.importGarage(json(garage(1, 1))));
+
+        assertTrue(e.getMessage().contains("sem veículos"));
+        assertEquals(10, spotRepository.count());
+    }
+
+    @Test
+    void importGarage_WithSpotClaimedAfterOccupancyCheck_ShouldKeepTheVehicle() throws Exception {
+        // Setup: um PARKED ocupa a vaga em uma transação ainda aberta quando a importação conta os veículos
+        importService.importGarage(json(garage(5, 5)));
+        ParkingSpot spot = spotRepository.findAll().get(0);
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> parked = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                spotRepository.claimSpot(spot.getId(), "IMP0002", LocalDateTime.of(2025, 1, 1, 12, 0));
+                claimed.countDown();
+                await(commit);
+            }));
+            claimed.await();
+
+            // Test
+            Future<?> imported = executor.submit(() -> importService.importGarage(json(garage(1, 1))));
+            Thread.sleep(200);
+            commit.countDown();
+            parked.get();
+
+            // Verify: a importação é desfeita e a vaga continua ocupada
+            assertThrows(ExecutionException.class, imported::get);
+            assertTrue(spotRepository.findById(spot.getId()).orElseThrow().isOccupied());
+            assertEquals(10, spotRepository.count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void importGarage_WithMalformedJson_ShouldBeRejected() {
+        assertThrows(InvalidRequestException.class, () -> importService.importGarage(json("{\"garage\": [")));
+        assertThrows(InvalidRequestException.class, () -> importService.importGarage(json("[]")));
+        assertThrows(InvalidRequestException.class, () -> importService.importGarage(json("{\"spots\": []}")));
+    }
+
+    private static String garage(int spotsInA, int spotsInB) {
+        StringBuilder json = new StringBuilder("""
+            {"version": 2,
+             "garage": [{"sector": "A", "base_price": 10.00, "max_capacity": 50, "open_hour": "06:00",
+                         "close_hour": "22:00", "duration_limit_minutes": 120,
+                         "tariffs": [{"days": ["SATURDAY"], "price": 8.00}]},
+                        {"sector": "B", "base_price": 4.10, "max_capacity": 30, "open_hour": "00:00",
+                         "close_hour": "00:00", "duration_limit_minutes": 0}],
+             "spots": [""");
+        for (int i = 0; i < spotsInA + spotsInB; i++) {
+            json.append(i == 0 ? "" : ",")
+                .append("{\"sector\": \"").append(i < spotsInA ? "A" : "B")
+                .append("\", \"lat\": -23.56").append(i).append(", \"lng\": -46.65}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static InputStream json(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
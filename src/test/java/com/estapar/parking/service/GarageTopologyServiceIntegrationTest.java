@@ -0,0 +1,298 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.GarageConfigDTO;
+import com.estapar.parking.dto.GarageVersionDTO;
+import com.estapar.parking.dto.SectorOccupancyDTO;
+import com.estapar.parking.dto.VehicleEventDTO;
+import com.estapar.parking.exception.InvalidRequestException;
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.GarageConfigVersionRepository;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import com.estapar.parking.repository.SectorTariffRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class GarageTopologyServiceIntegrationTest {
+
+    private static final LocalDateTime SATURDAY_NOON = LocalDateTime.of(2025, 1, 4, 12, 0);
+
+    @Autowired
+    private GarageTopologyService topologyService;
+
+    @Autowired
+    private ParkingService parkingService;
+
+    @Autowired
+    private GarageSectorRepository sectorRepository;
+
+    @Autowired
+    private ParkingSpotRepository spotRepository;
+
+    @Autowired
+    private ParkingEventRepository eventRepository;
+
+    @Autowired
+    private ParkingSessionRepository sessionRepository;
+
+    @Autowired
+    private SectorTariffRepository tariffRepository;
+
+    @Autowired
+    private GarageConfigVersionRepository versionRepository;
+
+    @Autowired
+    private VehiclePresenceRegistry presenceRegistry;
+
+    @Autowired
+    private SectorOccupancyEngine occupancyEngine;
+
+    @Autowired
+    private SpotLocationIndex spotLocationIndex;
+
+    @Autowired
+    private SpotAllocator spotAllocator;
+
+    @Autowired
+    private TariffCalendar tariffCalendar;
+
+    @Autowired
+    private SectorOccupancyTimeline occupancyTimeline;
+
+    @Autowired
+    private OccupancySnapshotPublisher occupancySnapshots;
+
+    @BeforeEach
+    void setUp() {
+        clean();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void apply_AddingOneSpot_ShouldKeepLiveOccupancyAndSpotIds() {
+        // Setup: versão 1 com um veículo estacionado na primeira vaga de A
+        GarageVersionDTO first = topologyService.apply(config(3, 1, "10.00"));
+        ParkingSpot parkedSpot = spotRepository.findAll().stream()
+            .filter(spot -> spot.getLatitude() == -23.5).findFirst().orElseThrow();
+        parkingService.handleWebhookEvent(entry("TOPO001"));
+        parkingService.handleWebhookEvent(parked("TOPO001", -23.5));
+
+        // Test: uma vaga a mais em A e novo preço base em B
+        GarageVersionDTO second = topologyService.apply(config(4, 1, "12.00"));
+
+        // Verify
+        assertEquals(1, first.getVersion());
+        assertEquals(2, first.getSectorsAdded());
+        assertEquals(4, first.getSpotsAdded());
+        assertEquals(2, second.getVersion());
+        assertEquals(1, second.getSpotsAdded());
+        assertEquals(1, second.getSectorsChanged());
+        assertEquals(0, second.getSpotsRemoved());
+        assertEquals(second, topologyService.getCurrentVersion());
+        assertEquals(5, spotRepository.count());
+        assertTrue(spotRepository.findById(parkedSpot.getId()).orElseThrow().isOccupied());
+        assertEquals(parkedSpot.getId(), presenceRegistry.find("TOPO001").orElseThrow().spotId());
+        assertEquals(1, occupancyEngine.getOccupancy(sectorRepository.findById("A").orElseThrow()));
+        assertEquals(0, new BigDecimal("12.00").compareTo(sectorRepository.findById("B").orElseThrow().getBasePrice()));
+        assertEquals(4, spotAllocator.getTotalCount("A"));
+        assertEquals(3, spotAllocator.getFreeCount("A"));
+        assertEquals("A", spotLocationIndex.findExact(-23.5003, -46.6).orElseThrow().sectorId());
+        // O snapshot mantém a vaga ocupada avisada e passa a usar o novo preço base de B
+        SectorOccupancyDTO sectorA = occupancySnapshots.getSnapshot().view().getSectors().get(0);
+        SectorOccupancyDTO sectorB = occupancySnapshots.getSnapshot().view().getSectors().get(1);
+        assertEquals(List.of(parkedSpot.getId()), sectorA.getOccupiedSpots());
+        assertEquals(4, sectorA.getTotalSpots());
+        assertEquals(0, new BigDecimal("10.80").compareTo(sectorB.getHourlyPrice()));
+    }
+
+    @Test
+    void apply_ChangingCapacity_ShouldRecomputeOccupancyTimelineTiers() {
+        topologyService.apply(config(2, 1, "10.00"));
+        parkingService.handleWebhookEvent(entry("TOPO003"));
+        parkingService.handleWebhookEvent(parked("TOPO003", -23.5));
+        LocalDateTime parkedAt = eventRepository.findByLicensePlateOrderByTimestampDesc("TOPO003").stream()
+            .filter(event -> "PARKED".equals(event.getType()))
+            .findFirst().orElseThrow().getTimestamp();
+        long[] tierIndex = {0, 1, 2, 3};
+        // 1 de 10 vagas: faixa abaixo de 25%
+        assertEquals(0, occupancyTimeline.averageUnits("A", parkedAt, parkedAt.plusHours(1), tierIndex));
+
+        // Test: A passa a ter capacidade 1
+        GarageConfigDTO next = config(2, 1, "10.00");
+        next.getGarage().get(0).setMaxCapacity(1);
+        topologyService.apply(next);
+
+        // Verify: o mesmo veículo agora lota o setor
+        assertEquals(3, occupancyTimeline.averageUnits("A", parkedAt, parkedAt.plusHours(1), tierIndex));
+    }
+
+    @Test
+    void apply_WithoutChanges_ShouldKeepVersion() {
+        topologyService.apply(config(2, 1, "10.00"));
+
+        GarageVersionDTO again = topologyService.apply(config(2, 1, "10.000"));
+
+        assertEquals(1, again.getVersion());
+        assertEquals(1, versionRepository.count());
+    }
+
+    @Test
+    void apply_WithTariffs_ShouldReloadTariffCalendar() {
+        GarageConfigDTO config = config(1, 1, "10.00");
+        config.getGarage().get(1).setTariffs(List.of(tariff("SATURDAY", "8.00")));
+        topologyService.apply(config);
+        GarageSector sectorB = sectorRepository.findById("B").orElseThrow();
+        assertEquals(0, new BigDecimal("8.00").compareTo(tariffCalendar.basePrice(sectorB, SATURDAY_NOON)));
+
+        // Test: só a tarifa de B muda
+        GarageConfigDTO next = config(1, 1, "10.00");
+        next.getGarage().get(1).setTariffs(List.of(tariff("SATURDAY", "7.50")));
+        GarageVersionDTO version = topologyService.apply(next);
+
+        // Verify
+        assertEquals(1, version.getSectorsChanged());
+        assertEquals(0, new BigDecimal("7.50").compareTo(tariffCalendar.basePrice(sectorB, SATURDAY_NOON)));
+        assertEquals(0, new BigDecimal("10.00").compareTo(tariffCalendar.basePrice(sectorB, SATURDAY_NOON.minusDays(1))));
+    }
+
+    @Test
+    void apply_MovingAndRemovingSpots_ShouldUpdateOnlyThoseSpots() {
+        topologyService.apply(config(3, 1, "10.00"));
+        Long movedId = spotLocationIndex.findExact(-23.5002, -46.6).orElseThrow().spotId();
+
+        // Test: a última vaga de A passa para B e a vaga original de B sai
+        GarageConfigDTO next = config(2, 0, "10.00");
+        next.getSpots().add(spot("B", -23.5002));
+        GarageVersionDTO version = topologyService.apply(next);
+
+        // Verify
+        assertEquals(1, version.getSpotsChanged());
+        assertEquals(1, version.getSpotsRemoved());
+        assertEquals("B", spotRepository.findById(movedId).orElseThrow().getSectorId());
+        assertEquals(List.of(movedId), spotAllocator.getFreeSpotIds("B"));
+        assertEquals(2, spotAllocator.getTotalCount("A"));
+        assertTrue(spotLocationIndex.findExact(-23.6, -46.6).isEmpty());
+    }
+
+    @Test
+    void apply_RemovingOccupiedSpot_ShouldRollBack() {
+        topologyService.apply(config(3, 1, "10.00"));
+        parkingService.handleWebhookEvent(entry("TOPO002"));
+        parkingService.handleWebhookEvent(parked("TOPO002", -23.5));
+
+        // A vaga ocupada sumiria e o setor B seria removido
+        GarageConfigDTO next = config(0, 0, "10.00");
+        next.setGarage(next.getGarage().subList(0, 1));
+        next.getSpots().add(spot("A", -23.5001));
+
+        assertThrows(InvalidRequestException.class, () -> topologyService.apply(next));
+        assertEquals(1, topologyService.getCurrentVersion().getVersion());
+        assertEquals(4, spotRepository.count());
+        assertTrue(sectorRepository.findById("B").isPresent());
+        assertEquals(3, spotAllocator.getTotalCount("A"));
+    }
+
+    @Test
+    void apply_WithSpotInUnknownSector_ShouldBeRejected() {
+        GarageConfigDTO next = config(1, 0, "10.00");
+        next.getSpots().add(spot("Z", -23.7));
+
+        assertThrows(InvalidRequestException.class, () -> topologyService.apply(next));
+        assertEquals(0, topologyService.getCurrentVersion().getVersion());
+    }
+
+    // Setor A com spotsInA vagas em -23.5, -23.5001...; setor B com spotsInB vagas em -23.6...
+    private static GarageConfigDTO config(int spotsInA, int spotsInB, String basePriceOfB) {
+        GarageConfigDTO config = new GarageConfigDTO();
+        config.setGarage(new ArrayList<>(List.of(sector("A", "10.00"), sector("B", basePriceOfB))));
+        List<GarageConfigDTO.ParkingSpotConfig> spots = new ArrayList<>();
+        for (int i = 0; i < spotsInA; i++) {
+            spots.add(spot("A", -23.5 - i * 0.0001));
+        }
+        for (int i = 0; i < spotsInB; i++) {
+            spots.add(spot("B", -23.6 - i * 0.0001));
+        }
+        config.setSpots(spots);
+        return config;
+    }
+
+    private static GarageConfigDTO.GarageSectorConfig sector(String id, String basePrice) {
+        GarageConfigDTO.GarageSectorConfig sector = new GarageConfigDTO.GarageSectorConfig();
+        sector.setSector(id);
+        sector.setBasePrice(new BigDecimal(basePrice));
+        sector.setMaxCapacity(10);
+        sector.setOpenHour("00:00");
+        sector.setCloseHour("23:59");
+        sector.setDurationLimitMinutes(0);
+        return sector;
+    }
+
+    private static GarageConfigDTO.TariffConfig tariff(String day, String price) {
+        GarageConfigDTO.TariffConfig tariff = new GarageConfigDTO.TariffConfig();
+        tariff.setDays(List.of(day));
+        tariff.setPrice(new BigDecimal(price));
+        return tariff;
+    }
+
+    private static GarageConfigDTO.ParkingSpotConfig spot(String sectorId, double latitude) {
+        GarageConfigDTO.ParkingSpotConfig spot = new GarageConfigDTO.ParkingSpotConfig();
+        spot.setSector(sectorId);
+        spot.setLat(latitude);
+        spot.setLng(-46.6);
+        return spot;
+    }
+
+    private static VehicleEventDTO entry(String plate) {
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate(plate);
+        event.setEventType("ENTRY");
+        event.setEntryTime("2025-01-01T12:00:00");
+        return event;
+    }
+
+    private static VehicleEventDTO parked(String plate, double latitude) {
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate(plate);
+        event.setEventType("PARKED");
+        event.setLatitude(latitude);
+        event.setLongitude(-46.6);
+        return event;
+    }
+
+    private void clean() {
+        sessionRepository.deleteAll();
+        eventRepository.deleteAll();
+        tariffRepository.deleteAll();
+        spotRepository.deleteAll();
+        sectorRepository.deleteAll();
+        versionRepository.deleteAll();
+        topologyService.rebuild();
+        presenceRegistry.rebuild();
+        occupancyEngine.rebuild();
+        spotLocationIndex.rebuild();
+        spotAllocator.rebuild();
+        tariffCalendar.rebuild();
+        occupancyTimeline.rebuild();
+        occupancySnapshots.rebuild();
+    }
+}
@@ -0,0 +1,205 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.GarageConfigDTO;
+import com.estapar.parking.dto.SectorOccupancyDTO;
+import com.estapar.parking.dto.VehicleEventDTO;
+import com.estapar.parking.repository.GarageConfigVersionRepository;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import com.estapar.parking.repository.SectorTariffRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class OccupancySnapshotPublisherIntegrationTest {
+
+    @Autowired
+    private OccupancySnapshotPublisher occupancySnapshots;
+
+    @Autowired
+    private GarageTopologyService topologyService;
+
+    @Autowired
+    private ParkingService parkingService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private GarageSectorRepository sectorRepository;
+
+    @Autowired
+    private ParkingSpotRepository spotRepository;
+
+    @Autowired
+    private ParkingEventRepository eventRepository;
+
+    @Autowired
+    private ParkingSessionRepository sessionRepository;
+
+    @Autowired
+    private SectorTariffRepository tariffRepository;
+
+    @Autowired
+    private GarageConfigVersionRepository versionRepository;
+
+    @Autowired
+    private VehiclePresenceRegistry presenceRegistry;
+
+    @Autowired
+    private SectorOccupancyEngine occupancyEngine;
+
+    @Autowired
+    private SpotLocationIndex spotLocationIndex;
+
+    @Autowired
+    private SpotAllocator spotAllocator;
+
+    @BeforeEach
+    void setUp() {
+        clean();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void publishIfChanged_ShouldFollowParkAndExit() throws IOException {
+        // Setup: a nova topologia já publica um snapshot
+        topologyService.apply(config());
+        OccupancySnapshotPublisher.OccupancySnapshot empty = occupancySnapshots.getSnapshot();
+        assertEquals(List.of("A", "B"), empty.view().getSectors().stream().map(SectorOccupancyDTO::getSector).toList());
+        assertEquals(4, sector(empty, "A").getFreeSpots());
+
+        // Test: um veículo estaciona na primeira vaga de A
+        parkingService.handleWebhookEvent(event("SNAP001", "ENTRY", null));
+        parkingService.handleWebhookEvent(event("SNAP001", "PARKED", null));
+        occupancySnapshots.publishIfChanged();
+        OccupancySnapshotPublisher.OccupancySnapshot parked = occupancySnapshots.getSnapshot();
+
+        // Verify: 1 de 4 vagas é a faixa de 25%, preço base
+        Long spotId = spotLocationIndex.findExact(-23.5, -46.6).orElseThrow().spotId();
+        SectorOccupancyDTO sectorA = sector(parked, "A");
+        assertTrue(parked.view().getVersion() > empty.view().getVersion());
+        assertEquals(1, sectorA.getOccupancy());
+        assertEquals(3, sectorA.getFreeSpots());
+        assertEquals(4, sectorA.getTotalSpots());
+        assertEquals(1, sectorA.getPriceTier());
+        assertEquals(new BigDecimal("10.00"), sectorA.getHourlyPrice());
+        assertEquals(List.of(spotId), sectorA.getOccupiedSpots());
+        assertEquals(0, sector(parked, "B").getOccupancy());
+        JsonNode json = objectMapper.readTree(parked.json());
+        assertEquals(parked.view().getVersion(), json.get("version").asLong());
+        assertEquals(spotId, json.get("sectors").get(0).get("occupied_spots").get(0).asLong());
+
+        // Sem mudanças, o mesmo snapshot continua publicado
+        occupancySnapshots.publishIfChanged();
+        assertSame(parked, occupancySnapshots.getSnapshot());
+
+        // Test: o veículo sai
+        parkingService.handleWebhookEvent(event("SNAP001", "EXIT", "2025-01-01T13:00:00"));
+        occupancySnapshots.publishIfChanged();
+        SectorOccupancyDTO released = sector(occupancySnapshots.getSnapshot(), "A");
+        assertEquals(0, released.getOccupancy());
+        assertEquals(4, released.getFreeSpots());
+        assertTrue(released.getOccupiedSpots().isEmpty());
+    }
+
+    @Test
+    void rebuild_ShouldLoadOccupiedSpotsFromDatabase() {
+        topologyService.apply(config());
+        parkingService.handleWebhookEvent(event("SNAP002", "ENTRY", null));
+        parkingService.handleWebhookEvent(event("SNAP002", "PARKED", null));
+
+        occupancySnapshots.rebuild();
+
+        SectorOccupancyDTO sectorA = sector(occupancySnapshots.getSnapshot(), "A");
+        assertEquals(1, sectorA.getOccupancy());
+        assertEquals(1, sectorA.getOccupiedSpots().size());
+    }
+
+    private static SectorOccupancyDTO sector(OccupancySnapshotPublisher.OccupancySnapshot snapshot, String sectorId) {
+        return snapshot.view().getSectors().stream()
+            .filter(sector -> sector.getSector().equals(sectorId)).findFirst().orElseThrow();
+    }
+
+    // Setor A com 4 vagas e capacidade 4; setor B com 2 vagas
+    private static GarageConfigDTO config() {
+        GarageConfigDTO config = new GarageConfigDTO();
+        config.setGarage(new ArrayList<>(List.of(sectorConfig("A", 4), sectorConfig("B", 2))));
+        List<GarageConfigDTO.ParkingSpotConfig> spots = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            spots.add(spot("A", -23.5 - i * 0.0001));
+        }
+        for (int i = 0; i < 2; i++) {
+            spots.add(spot("B", -23.6 - i * 0.0001));
+        }
+        config.setSpots(spots);
+        return config;
+    }
+
+    private static GarageConfigDTO.GarageSectorConfig sectorConfig(String id, int maxCapacity) {
+        GarageConfigDTO.GarageSectorConfig sector = new GarageConfigDTO.GarageSectorConfig();
+        sector.setSector(id);
+        sector.setBasePrice(new BigDecimal("10.00"));
+        sector.setMaxCapacity(maxCapacity);
+        sector.setOpenHour("00:00");
+        sector.setCloseHour("23:59");
+        sector.setDurationLimitMinutes(0);
+        return sector;
+    }
+
+    private static GarageConfigDTO.ParkingSpotConfig spot(String sectorId, double latitude) {
+        GarageConfigDTO.ParkingSpotConfig spot = new GarageConfigDTO.ParkingSpotConfig();
+        spot.setSector(sectorId);
+        spot.setLat(latitude);
+        spot.setLng(-46.6);
+        return spot;
+    }
+
+    private static VehicleEventDTO event(String plate, String type, String exitTime) {
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate(plate);
+        event.setEventType(type);
+        event.setEntryTime("2025-01-01T12:00:00");
+        event.setExitTime(exitTime);
+        if ("PARKED".equals(type)) {
+            event.setLatitude(-23.5);
+            event.setLongitude(-46.6);
+        }
+        return event;
+    }
+
+    private void clean() {
+        sessionRepository.deleteAll();
+        eventRepository.deleteAll();
+        tariffRepository.deleteAll();
+        spotRepository.deleteAll();
+        sectorRepository.deleteAll();
+        versionRepository.deleteAll();
+        topologyService.rebuild();
+        presenceRegistry.rebuild();
+        occupancyEngine.rebuild();
+        spotLocationIndex.rebuild();
+        spotAllocator.rebuild();
+        occupancySnapshots.rebuild();
+    }
+}
@@ -0,0 +1,249 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.OccupancyEventDTO;
+import com.estapar.parking.dto.SectorOccupancyDTO;
+import com.estapar.parking.dto.SpotEventDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyStreamServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OccupancyStreamService stream;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        stream = new OccupancyStreamService(meterRegistry, 60_000, 2, 60_000, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.shutdown();
+    }
+
+    @Test
+    void subscribe_ShouldSendInitialStateAndOnlyFilteredSectors() throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        stream.subscribe(emitter, Set.of("A"), () -> List.of(sector("A"), sector("B")));
+
+        // Test
+        stream.spotChanged("B", 20L, true);
+        stream.spotChanged("A", 10L, true);
+
+        // Verify: estado inicial só de A, depois a vaga de A
+        await(() -> emitter.data.size() == 2);
+        assertEquals(List.of("snapshot", "spot"), emitter.names);
+        assertEquals("A", ((SectorOccupancyDTO) emitter.data.get(0)).getSector());
+        assertEquals(new SpotEventDTO("A", 10L, true), emitter.data.get(1));
+    }
+
+    @Test
+    void subscribe_ShouldKeepChangesMadeWhileReadingInitialState() throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+
+        // Test: a vaga muda enquanto o estado inicial é lido
+        stream.subscribe(emitter, Set.of(), () -> {
+            stream.spotChanged("A", 10L, true);
+            return List.of(sector("A"));
+        });
+
+        // Verify: o estado inicial sai primeiro e a mudança não se perde
+        await(() -> emitter.data.size() == 2);
+        assertEquals(List.of("snapshot", "spot"), emitter.names);
+        assertEquals(new SpotEventDTO("A", 10L, true), emitter.data.get(1));
+    }
+
+    @Test
+    void slowSubscriber_ShouldReceiveOnlyLatestStatePerSpot() throws InterruptedException {
+        // Setup: o primeiro envio fica preso até o gate abrir
+        CountDownLatch gate = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(gate);
+        stream.subscribe(slow, Set.of(), List::of);
+        stream.spotChanged("A", 10L, true);
+        await(() -> slow.blocked);
+
+        // Test: várias mudanças da mesma vaga e do mesmo setor enquanto o cliente está lento
+        for (int i = 0; i < 5; i++) {
+            stream.spotChanged("A", 10L, i % 2 == 0);
+            stream.occupancyChanged(new OccupancyEventDTO("A", i, 10 - i, 10, 0));
+        }
+        await(() -> meterRegistry.get("parking.occupancy.stream.coalesced").counter().count() == 8);
+        gate.countDown();
+
+        // Verify: o envio preso, depois só o último estado da vaga e do setor
+        await(() -> slow.data.size() == 3);
+        assertEquals(new SpotEventDTO("A", 10L, true), slow.data.get(0));
+        assertEquals(new SpotEventDTO("A", 10L, true), slow.data.get(1));
+        assertEquals(new OccupancyEventDTO("A", 4, 6, 10, 0), slow.data.get(2));
+    }
+
+    @Test
+    void stalledSubscriber_ShouldBeDroppedWithoutHoldingOtherSubscribers() throws InterruptedException {
+        // Setup: uma única thread de envio, presa no primeiro envio do cliente lento
+        OccupancyStreamService single = new OccupancyStreamService(meterRegistry, 60_000, 1, 50, 4);
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            RecordingEmitter slow = new RecordingEmitter(gate);
+            single.subscribe(slow, Set.of(), List::of);
+            single.spotChanged("A", 10L, true);
+            await(() -> slow.blocked);
+            RecordingEmitter fast = new RecordingEmitter(null);
+            single.subscribe(fast, Set.of(), List::of);
+            Thread.sleep(100);
+
+            // Test
+            single.dropStalledSubscribers();
+            single.spotChanged("A", 11L, true);
+
+            // Verify: o lento sai, o pool repõe a thread presa e o rápido segue recebendo
+            await(() -> fast.data.contains(new SpotEventDTO("A", 11L, true)));
+            assertEquals(1, single.getSubscriberCount());
+            assertEquals(2, single.getSenderThreads());
+            assertEquals(1, meterRegistry.get("parking.occupancy.stream.dropped").counter().count());
+            assertFalse(slow.data.contains(new SpotEventDTO("A", 11L, true)));
+
+            // Quando o envio preso termina, a conexão é encerrada e a thread extra é devolvida
+            gate.countDown();
+            await(() -> slow.completed && single.getSenderThreads() == 1);
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void stalledSenders_ShouldAddThreadsOnlyUpToLimitAndThenRefuseSubscribers() throws InterruptedException {
+        // Setup: no máximo uma thread extra; dois clientes lentos presos no primeiro envio
+        OccupancyStreamService capped = new OccupancyStreamService(meterRegistry, 60_000, 1, 50, 1);
+        try {
+            CountDownLatch firstGate = new CountDownLatch(1);
+            CountDownLatch secondGate = new CountDownLatch(1);
+            RecordingEmitter first = new RecordingEmitter(firstGate);
+            capped.subscribe(first, Set.of(), List::of);
+            capped.spotChanged("A", 10L, true);
+            await(() -> first.blocked);
+            Thread.sleep(100);
+            capped.dropStalledSubscribers();
+            assertEquals(2, capped.getSenderThreads());
+            assertFalse(capped.isAcceptingSubscribers());
+            // O controller já recusaria; aqui o segundo cliente lento entra direto no serviço
+            RecordingEmitter second = new RecordingEmitter(secondGate);
+            capped.subscribe(second, Set.of(), List::of);
+            capped.spotChanged("A", 11L, true);
+            await(() -> second.blocked);
+            Thread.sleep(100);
+
+            // Test
+            capped.dropStalledSubscribers();
+
+            // Verify: o segundo envio preso não ganha outra thread
+            assertEquals(2, capped.getSenderThreads());
+            assertEquals(2, meterRegistry.get("parking.occupancy.stream.dropped").counter().count());
+
+            // Um envio preso terminou: a thread extra fica para o outro, ainda preso
+            firstGate.countDown();
+            await(() -> first.completed);
+            Thread.sleep(50);
+            assertEquals(2, capped.getSenderThreads());
+            assertFalse(capped.isAcceptingSubscribers());
+            // Sem envios presos, a thread extra é devolvida e novos assinantes voltam a entrar
+            secondGate.countDown();
+            await(() -> second.completed && capped.getSenderThreads() == 1 && capped.isAcceptingSubscribers());
+        } finally {
+            capped.shutdown();
+        }
+    }
+
+    @Test
+    void disconnectedSubscriber_ShouldBeRemoved() throws InterruptedException {
+        stream.subscribe(new FailingEmitter(), Set.of(), List::of);
+        assertTrue(stream.hasSubscribers());
+
+        stream.spotChanged("A", 10L, true);
+
+        await(() -> stream.getSubscriberCount() == 0);
+    }
+
+    @Test
+    void withoutSubscribers_ShouldNotQueueChanges() {
+        stream.spotChanged("A", 10L, true);
+
+        assertFalse(stream.hasSubscribers());
+        assertEquals(0, meterRegistry.get("parking.occupancy.stream.coalesced").counter().count());
+    }
+
+    private static SectorOccupancyDTO sector(String id) {
+        return new SectorOccupancyDTO(id, 10, 10, 10, 0, 0, new BigDecimal("9.00"), true, List.of());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condição não atingida a tempo");
+            Thread.sleep(5);
+        }
+    }
+
+    // Guarda nome e dados de cada evento enviado; com gate, o primeiro envio espera o gate abrir
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> names = new CopyOnWriteArrayList<>();
+        private final List<Object> data = new CopyOnWriteArrayList<>();
+        private final CountDownLatch gate;
+        private volatile boolean blocked;
+        private volatile boolean completed;
+
+        private RecordingEmitter(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            Object payload = null;
+            for (DataWithMediaType item : builder.build()) {
+                if (item.getData() instanceof String text) {
+                    if (text.startsWith("event:")) {
+                        names.add(text.substring("event:".length(), text.indexOf('\n')));
+                    }
+                } else {
+                    payload = item.getData();
+                }
+            }
+            if (gate != null && !blocked) {
+                blocked = true;
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            data.add(payload);
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            super.complete();
+        }
+    }
+
+    private static class FailingEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            throw new IOException("Broken pipe");
+        }
+    }
+}
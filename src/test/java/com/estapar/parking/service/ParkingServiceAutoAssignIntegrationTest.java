@@ -0,0 +1,178 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.VehicleEventDTO;
+import com.estapar.parking.dto.WebhookBatchItemResult;
+import com.estapar.parking.exception.SectorFullException;
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "parking.spots.auto-assign-on-entry=true")
+@ActiveProfiles("test")
+class ParkingServiceAutoAssignIntegrationTest {
+
+    @Autowired
+    private ParkingService parkingService;
+
+    @Autowired
+    private GarageSectorRepository sectorRepository;
+
+    @Autowired
+    private ParkingSpotRepository spotRepository;
+
+    @Autowired
+    private ParkingEventRepository eventRepository;
+
+    @Autowired
+    private ParkingSessionRepository sessionRepository;
+
+    @Autowired
+    private VehiclePresenceRegistry presenceRegistry;
+
+    @Autowired
+    private SectorOccupancyEngine occupancyEngine;
+
+    @Autowired
+    private SpotLocationIndex spotLocationIndex;
+
+    @Autowired
+    private SpotAllocator spotAllocator;
+
+    @Autowired
+    private SectorOccupancyTimeline occupancyTimeline;
+
+    private ParkingSpot first;
+    private ParkingSpot second;
+
+    @BeforeEach
+    void setUp() {
+        sessionRepository.deleteAll();
+        eventRepository.deleteAll();
+        spotRepository.deleteAll();
+        sectorRepository.deleteAll();
+
+        GarageSector sector = new GarageSector();
+        sector.setId("A");
+        sector.setBasePrice(new BigDecimal("10.00"));
+        sector.setMaxCapacity(10);
+        sector.setCurrentOccupancy(0);
+        sector.setOpenHour(LocalTime.of(6, 0));
+        sector.setCloseHour(LocalTime.of(22, 0));
+        sector.setDurationLimitMinutes(120);
+        sectorRepository.save(sector);
+
+        first = spotRepository.save(spot(-23.561684));
+        second = spotRepository.save(spot(-23.561784));
+
+        presenceRegistry.rebuild();
+        occupancyEngine.rebuild();
+        spotLocationIndex.rebuild();
+        spotAllocator.rebuild();
+        occupancyTimeline.rebuild();
+    }
+
+    @Test
+    void entry_ShouldReserveNextFreeSpotUntilSectorHasNoFreeSpots() {
+        parkingService.handleWebhookEvent(entry("AUTO001"));
+        parkingService.handleWebhookEvent(entry("AUTO002"));
+
+        assertEquals(first.getId(), sessionRepository.findByLicensePlateAndExitTimeIsNull("AUTO001").orElseThrow().getSpotId());
+        assertEquals(second.getId(), sessionRepository.findByLicensePlateAndExitTimeIsNull("AUTO002").orElseThrow().getSpotId());
+        assertEquals(0, spotAllocator.getFreeCount("A"));
+        assertThrows(SectorFullException.class, () -> parkingService.handleWebhookEvent(entry("AUTO003")));
+    }
+
+    @Test
+    void parkedAtOtherSpot_ShouldReturnReservationAndExitShouldFreeSpot() {
+        parkingService.handleWebhookEvent(entry("AUTO001"));
+        parkingService.handleWebhookEvent(entry("AUTO002"));
+
+        // AUTO001 estaciona na vaga reservada para AUTO002, que então usa a vaga liberada
+        parkingService.handleWebhookEvent(parked("AUTO001", second));
+        assertEquals(1, spotAllocator.getFreeCount("A"));
+        parkingService.handleWebhookEvent(parked("AUTO002", first));
+        assertEquals(0, spotAllocator.getFreeCount("A"));
+
+        VehicleEventDTO exit = new VehicleEventDTO();
+        exit.setLicensePlate("AUTO001");
+        exit.setEventType("EXIT");
+        exit.setExitTime("2025-01-01T14:00:00");
+        parkingService.handleWebhookEvent(exit);
+
+        assertEquals(1, spotAllocator.getFreeCount("A"));
+        assertEquals(second.getId(), spotAllocator.getFreeSpotIds("A").get(0));
+    }
+
+    @Test
+    void batchEntryWithMalformedTime_ShouldNotLeakReservation() {
+        VehicleEventDTO malformed = entry("AUTO001");
+        malformed.setEntryTime("2025-13-45T99:00:00");
+
+        List<WebhookBatchItemResult> results = parkingService.handleWebhookBatch(List.of(malformed, entry("AUTO002")));
+
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals(1, spotAllocator.getFreeCount("A"));
+        assertEquals(first.getId(), sessionRepository.findByLicensePlateAndExitTimeIsNull("AUTO002").orElseThrow().getSpotId());
+        assertTrue(sessionRepository.findByLicensePlateAndExitTimeIsNull("AUTO001").isEmpty());
+    }
+
+    @Test
+    void parked_ShouldLockRateAtFullScale() {
+        // Setor com 2 vagas: o primeiro PARKED trava 4.15 x 1.10 = 4.565
+        GarageSector sector = sectorRepository.findById("A").orElseThrow();
+        sector.setBasePrice(new BigDecimal("4.15"));
+        sector.setMaxCapacity(2);
+        sectorRepository.save(sector);
+        occupancyEngine.rebuild();
+
+        parkingService.handleWebhookEvent(entry("AUTO001"));
+        parkingService.handleWebhookEvent(parked("AUTO001", first));
+
+        // A tarifa travada não é arredondada a centavos, nem no banco nem após um restart
+        assertEquals(0, new BigDecimal("4.565").compareTo(
+            sessionRepository.findByLicensePlateAndExitTimeIsNull("AUTO001").orElseThrow().getLockedPrice()));
+        presenceRegistry.rebuild();
+        assertEquals(PricingEngine.toUnits(new BigDecimal("4.565")), presenceRegistry.find("AUTO001").orElseThrow().lockedRateUnits());
+    }
+
+    private ParkingSpot spot(double latitude) {
+        ParkingSpot spot = new ParkingSpot();
+        spot.setSectorId("A");
+        spot.setLatitude(latitude);
+        spot.setLongitude(-46.655981);
+        return spot;
+    }
+
+    private VehicleEventDTO entry(String plate) {
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate(plate);
+        event.setEventType("ENTRY");
+        event.setEntryTime("2025-01-01T12:00:00");
+        event.setSectorId("A");
+        return event;
+    }
+
+    private VehicleEventDTO parked(String plate, ParkingSpot spot) {
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate(plate);
+        event.setEventType("PARKED");
+        event.setLatitude(spot.getLatitude());
+        event.setLongitude(spot.getLongitude());
+        return event;
+    }
+}
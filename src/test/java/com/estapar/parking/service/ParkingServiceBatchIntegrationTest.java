@@ -0,0 +1,212 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.VehicleEventDTO;
+import com.estapar.parking.dto.WebhookBatchItemResult;
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.ParkingEvent;
+import com.estapar.parking.model.ParkingSession;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ParkingServiceBatchIntegrationTest {
+
+    private static final String LICENSE_PLATE = "BATCH001";
+    private static final double LATITUDE = -23.561684;
+    private static final double LONGITUDE = -46.655981;
+
+    @Autowired
+    private ParkingService parkingService;
+
+    @Autowired
+    private GarageSectorRepository sectorRepository;
+
+    @Autowired
+    private ParkingSpotRepository spotRepository;
+
+    @Autowired
+    private ParkingEventRepository eventRepository;
+
+    @Autowired
+    private ParkingSessionRepository sessionRepository;
+
+    @Autowired
+    private VehiclePresenceRegistry presenceRegistry;
+
+    @Autowired
+    private SpotLocationIndex spotLocationIndex;
+
+    @Autowired
+    private SpotAllocator spotAllocator;
+
+    @Autowired
+    private SectorOccupancyTimeline occupancyTimeline;
+
+    @Autowired
+    private SectorOccupancyEngine occupancyEngine;
+
+    @SpyBean
+    private SectorSchedule sectorSchedule;
+
+    @BeforeEach
+    void setUp() {
+        sessionRepository.deleteAll();
+        eventRepository.deleteAll();
+        spotRepository.deleteAll();
+        sectorRepository.deleteAll();
+        presenceRegistry.rebuild();
+        occupancyEngine.rebuild();
+
+        GarageSector sector = new GarageSector();
+        sector.setId("A");
+        sector.setBasePrice(new BigDecimal("10.00"));
+        sector.setMaxCapacity(10);
+        sector.setCurrentOccupancy(0);
+        sector.setOpenHour(LocalTime.of(6, 0));
+        sector.setCloseHour(LocalTime.of(22, 0));
+        sector.setDurationLimitMinutes(120);
+        sectorRepository.save(sector);
+
+        ParkingSpot spot = new ParkingSpot();
+        spot.setSectorId("A");
+        spot.setLatitude(LATITUDE);
+        spot.setLongitude(LONGITUDE);
+        spotRepository.save(spot);
+        spotLocationIndex.rebuild();
+        spotAllocator.rebuild();
+        occupancyTimeline.rebuild();
+    }
+
+    @Test
+    void handleWebhookBatch_ShouldKeepPlateOrderAndReportEachItem() {
+        // Arrange
+        VehicleEventDTO entry = event("ENTRY");
+        entry.setEntryTime("2025-01-01T12:00:00");
+        VehicleEventDTO duplicatedEntry = event("ENTRY");
+        duplicatedEntry.setEntryTime("2025-01-01T12:01:00");
+        VehicleEventDTO parked = event("PARKED");
+        parked.setLatitude(LATITUDE);
+        parked.setLongitude(LONGITUDE);
+        VehicleEventDTO exit = event("EXIT");
+        exit.setExitTime("2025-01-01T14:00:00");
+
+        // Act
+        List<WebhookBatchItemResult> results = parkingService.handleWebhookBatch(
+            List.of(entry, duplicatedEntry, parked, exit, event(null)));
+
+        // Assert
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        assertTrue(results.get(3).isSuccess());
+        assertFalse(results.get(4).isSuccess());
+        assertEquals(4, results.get(4).getIndex());
+
+        List<ParkingEvent> events = eventRepository.findByLicensePlateOrderByTimestampDesc(LICENSE_PLATE);
+        assertEquals(3, events.size());
+        assertFalse(spotRepository.findByLicensePlateAndOccupiedTrue(LICENSE_PLATE).isPresent());
+        occupancyEngine.flush();
+        assertEquals(0, sectorRepository.findById("A").orElseThrow().getCurrentOccupancy());
+
+        List<ParkingSession> sessions = sessionRepository.findAll();
+        assertEquals(1, sessions.size());
+        assertEquals(LocalDateTime.parse("2025-01-01T12:00:00"), sessions.get(0).getEntryTime());
+        assertEquals(LocalDateTime.parse("2025-01-01T14:00:00"), sessions.get(0).getExitTime());
+        assertNotNull(sessions.get(0).getSpotId());
+        assertEquals(0, new BigDecimal("9.00").compareTo(sessions.get(0).getLockedPrice()));
+        assertTrue(sessionRepository.findByLicensePlateAndExitTimeIsNull(LICENSE_PLATE).isEmpty());
+    }
+
+    @Test
+    void handleWebhookBatch_WithMalformedExitTime_ShouldNotReleaseSpot() {
+        // Arrange: o EXIT com data malformada fica no meio do bloco
+        VehicleEventDTO entry = event("ENTRY");
+        entry.setEntryTime("2025-01-01T12:00:00");
+        VehicleEventDTO parked = event("PARKED");
+        parked.setLatitude(LATITUDE);
+        parked.setLongitude(LONGITUDE);
+        VehicleEventDTO exit = event("EXIT");
+        exit.setExitTime("01/01/2025 14:00");
+        VehicleEventDTO other = event("ENTRY");
+        other.setLicensePlate("BATCH002");
+        other.setEntryTime("2025-01-01T12:05:00");
+
+        // Act
+        List<WebhookBatchItemResult> results = parkingService.handleWebhookBatch(List.of(entry, parked, exit, other));
+
+        // Assert: só o EXIT é rejeitado e nada do que ele tocaria foi alterado
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertTrue(results.get(3).isSuccess());
+        assertTrue(spotRepository.findByLicensePlateAndOccupiedTrue(LICENSE_PLATE).isPresent());
+        assertTrue(presenceRegistry.find(LICENSE_PLATE).orElseThrow().isParked());
+        assertTrue(sessionRepository.findByLicensePlateAndExitTimeIsNull(LICENSE_PLATE).isPresent());
+        assertEquals(0, spotAllocator.getFreeCount("A"));
+        assertEquals(1, occupancyEngine.getOccupancy(sectorRepository.findById("A").orElseThrow()));
+        assertEquals(2, eventRepository.findByLicensePlateOrderByTimestampDesc(LICENSE_PLATE).size());
+    }
+
+    @Test
+    void handleWebhookBatch_WithUnexpectedFailure_ShouldUndoChunkAndReplayEachEvent() {
+        // Arrange: ENTRY e PARKED da mesma placa e, depois deles, uma entrada que falha por erro inesperado uma vez
+        VehicleEventDTO entry = event("ENTRY");
+        entry.setEntryTime("2025-01-01T12:00:00");
+        VehicleEventDTO parked = event("PARKED");
+        parked.setLatitude(LATITUDE);
+        parked.setLongitude(LONGITUDE);
+        VehicleEventDTO failing = event("ENTRY");
+        failing.setLicensePlate("BATCH002");
+        failing.setSectorId("B");
+        failing.setEntryTime("2025-01-01T12:05:00");
+        AtomicBoolean failed = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if ("B".equals(invocation.getArgument(0)) && failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Falha simulada");
+            }
+            return invocation.callRealMethod();
+        }).when(sectorSchedule).isOpen(any());
+
+        // Act
+        List<WebhookBatchItemResult> results = parkingService.handleWebhookBatch(List.of(entry, parked, failing));
+
+        // Assert: o bloco foi desfeito por inteiro e o reprocessamento aceitou os três eventos
+        assertTrue(failed.get());
+        assertTrue(results.stream().allMatch(WebhookBatchItemResult::isSuccess));
+        VehiclePresence presence = presenceRegistry.find(LICENSE_PLATE).orElseThrow();
+        assertTrue(presence.isParked());
+        assertEquals(LocalDateTime.parse("2025-01-01T12:00:00"), presence.entryTime());
+        assertEquals(1, sessionRepository.findAll().stream().filter(s -> LICENSE_PLATE.equals(s.getLicensePlate())).count());
+        assertEquals(2, eventRepository.findByLicensePlateOrderByTimestampDesc(LICENSE_PLATE).size());
+        assertEquals(0, spotAllocator.getFreeCount("A"));
+        assertEquals(1, occupancyEngine.getOccupancy(sectorRepository.findById("A").orElseThrow()));
+        assertFalse(presenceRegistry.find("BATCH002").orElseThrow().isParked());
+    }
+
+    private VehicleEventDTO event(String type) {
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate(LICENSE_PLATE);
+        event.setEventType(type);
+        return event;
+    }
+}
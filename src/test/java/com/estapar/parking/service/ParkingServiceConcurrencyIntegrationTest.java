@@ -0,0 +1,210 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.VehicleEventDTO;
+import com.estapar.parking.dto.WebhookBatchItemResult;
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "parking.occupancy.mode=database")
+@ActiveProfiles("test")
+class ParkingServiceConcurrencyIntegrationTest {
+
+    private static final int CAPACITY = 5;
+    private static final int VEHICLES = 20;
+
+    @Autowired
+    private ParkingService parkingService;
+
+    @Autowired
+    private GarageSectorRepository sectorRepository;
+
+    @Autowired
+    private ParkingSpotRepository spotRepository;
+
+    @Autowired
+    private ParkingEventRepository eventRepository;
+
+    @Autowired
+    private ParkingSessionRepository sessionRepository;
+
+    @Autowired
+    private VehiclePresenceRegistry presenceRegistry;
+
+    @Autowired
+    private SpotLocationIndex spotLocationIndex;
+
+    @Autowired
+    private SpotAllocator spotAllocator;
+
+    @Autowired
+    private SectorOccupancyTimeline occupancyTimeline;
+
+    private final List<ParkingSpot> spots = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        sessionRepository.deleteAll();
+        eventRepository.deleteAll();
+        spotRepository.deleteAll();
+        sectorRepository.deleteAll();
+        presenceRegistry.rebuild();
+        spots.clear();
+
+        GarageSector sector = new GarageSector();
+        sector.setId("A");
+        sector.setBasePrice(new BigDecimal("10.00"));
+        sector.setMaxCapacity(CAPACITY);
+        sector.setCurrentOccupancy(0);
+        sector.setOpenHour(LocalTime.of(6, 0));
+        sector.setCloseHour(LocalTime.of(22, 0));
+        sector.setDurationLimitMinutes(120);
+        sectorRepository.save(sector);
+
+        for (int i = 0; i < VEHICLES; i++) {
+            ParkingSpot spot = new ParkingSpot();
+            spot.setSectorId("A");
+            spot.setLatitude(-23.5 - i * 0.001);
+            spot.setLongitude(-46.6);
+            spots.add(spotRepository.save(spot));
+        }
+        spotLocationIndex.rebuild();
+        spotAllocator.rebuild();
+        occupancyTimeline.rebuild();
+    }
+
+    @Test
+    void parallelParkedEvents_ShouldNeverExceedSectorCapacity() throws Exception {
+        // Arrange
+        List<Callable<Boolean>> parkedEvents = new ArrayList<>();
+        for (int i = 0; i < VEHICLES; i++) {
+            String plate = "CONC" + i;
+            ParkingSpot spot = spots.get(i);
+            parkingService.handleWebhookEvent(entry(plate));
+            parkedEvents.add(() -> {
+                parkingService.handleWebhookEvent(parked(plate, spot));
+                return true;
+            });
+        }
+
+        // Act
+        int parked = runConcurrently(parkedEvents);
+
+        // Assert
+        assertEquals(CAPACITY, parked);
+        assertEquals(CAPACITY, sectorRepository.findById("A").orElseThrow().getCurrentOccupancy());
+        assertEquals(CAPACITY, spotRepository.findBySectorIdAndOccupiedTrue("A").size());
+    }
+
+    @Test
+    void parallelParkedEventsOnSameSpot_ShouldLetOnlyOneVehicleClaimIt() throws Exception {
+        // Arrange
+        ParkingSpot spot = spots.get(0);
+        List<Callable<Boolean>> parkedEvents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String plate = "SAME" + i;
+            parkingService.handleWebhookEvent(entry(plate));
+            parkedEvents.add(() -> {
+                parkingService.handleWebhookEvent(parked(plate, spot));
+                return true;
+            });
+        }
+
+        // Act
+        int parked = runConcurrently(parkedEvents);
+
+        // Assert
+        assertEquals(1, parked);
+        assertEquals(1, sectorRepository.findById("A").orElseThrow().getCurrentOccupancy());
+        assertEquals(1, spotRepository.findBySectorIdAndOccupiedTrue("A").size());
+    }
+
+    @Test
+    void batchWithSeveralParkedAndExit_ShouldWriteOccupancyOnlyThroughConditionalUpdates() {
+        // Arrange: o bloco inteiro roda em uma transação, com o mesmo setor lido a cada evento
+        List<VehicleEventDTO> events = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            events.add(entry("BATCH" + i));
+            events.add(parked("BATCH" + i, spots.get(i)));
+        }
+        VehicleEventDTO exit = new VehicleEventDTO();
+        exit.setLicensePlate("BATCH0");
+        exit.setEventType("EXIT");
+        exit.setExitTime("2025-01-01T14:00:00");
+        events.add(exit);
+        events.add(entry("BATCH3"));
+        events.add(parked("BATCH3", spots.get(0)));
+
+        // Act
+        List<WebhookBatchItemResult> results = parkingService.handleWebhookBatch(events);
+
+        // Assert
+        assertTrue(results.stream().allMatch(WebhookBatchItemResult::isSuccess));
+        assertEquals(3, sectorRepository.findById("A").orElseThrow().getCurrentOccupancy());
+        assertEquals(3, spotRepository.findBySectorIdAndOccupiedTrue("A").size());
+        assertEquals("BATCH3", spotRepository.findById(spots.get(0).getId()).orElseThrow().getLicensePlate());
+    }
+
+    private int runConcurrently(List<Callable<Boolean>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (Callable<Boolean> task : tasks) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return task.call();
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+        return succeeded;
+    }
+
+    private VehicleEventDTO entry(String plate) {
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate(plate);
+        event.setEventType("ENTRY");
+        event.setEntryTime("2025-01-01T12:00:00");
+        return event;
+    }
+
+    private VehicleEventDTO parked(String plate, ParkingSpot spot) {
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate(plate);
+        event.setEventType("PARKED");
+        event.setLatitude(spot.getLatitude());
+        event.setLongitude(spot.getLongitude());
+        return event;
+    }
+}
@@ -0,0 +1,169 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.SectorTariff;
+import com.estapar.parking.repository.SectorTariffRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PricingEngineTest {
+
+    private static final String[] BASE_PRICES = {"0.01", "0.05", "1.00", "5.00", "7.33", "9.99", "10.00", "10.01", "12.34", "99.99", "1234.56"};
+    private static final int[] CAPACITIES = {0, 1, 2, 3, 4, 5, 7, 10, 13, 50, 99, 100, 1000};
+    private static final LocalDateTime AT = LocalDateTime.of(2025, 1, 6, 12, 0);
+
+    private TariffCalendar tariffCalendar;
+    private SectorOccupancyTimeline occupancyTimeline;
+    private PricingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        tariffCalendar = new TariffCalendar(mock(SectorTariffRepository.class));
+        occupancyTimeline = new SectorOccupancyTimeline(null, null, Clock.systemUTC(), 72);
+        engine = new PricingEngine(tariffCalendar, occupancyTimeline);
+    }
+
+    @Test
+    void rate_ShouldMatchSectorDynamicPriceIncludingScale() {
+        for (String basePrice : BASE_PRICES) {
+            for (int capacity : CAPACITIES) {
+                GarageSector sector = sector(basePrice, capacity);
+                for (int occupancy = 0; occupancy <= capacity + 2; occupancy++) {
+                    assertEquals(legacyRate(sector, occupancy), engine.rate(sector, occupancy, AT),
+                        () -> basePrice + " " + sector.getMaxCapacity());
+                }
+            }
+        }
+    }
+
+    @Test
+    void price_ShouldMatchHourAndMinuteBigDecimalCalculation() {
+        for (String basePrice : BASE_PRICES) {
+            for (int capacity : new int[]{4, 13, 100}) {
+                GarageSector sector = sector(basePrice, capacity);
+                for (int occupancy = 0; occupancy <= capacity; occupancy++) {
+                    for (long minutes = -61; minutes <= 60 * 30; minutes += 7) {
+                        long rateUnits = PricingEngine.toUnits(engine.rate(sector, occupancy, AT));
+                        assertEquals(legacyPrice(legacyRate(sector, occupancy), minutes),
+                            PricingEngine.price(rateUnits, AT, AT.plusMinutes(minutes)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void rate_WhenSectorIsReconfigured_ShouldRebuildTable() {
+        GarageSector sector = sector("10.00", 4);
+        assertEquals(0, new BigDecimal("12.50").compareTo(engine.rate(sector, 4, AT)));
+
+        sector.setBasePrice(new BigDecimal("20.00"));
+        sector.setMaxCapacity(8);
+
+        assertEquals(0, new BigDecimal("20.00").compareTo(engine.rate(sector, 2, AT)));
+        assertEquals(0, new BigDecimal("25.00").compareTo(engine.rate(sector, 6, AT)));
+    }
+
+    @Test
+    void rate_ShouldReuseInstanceForSameTier() {
+        GarageSector sector = sector("10.00", 100);
+
+        assertSame(engine.rate(sector, 80, AT), engine.rate(sector, 95, AT));
+    }
+
+    @Test
+    void rate_ShouldApplyOccupancyTiersToTariffOfTheInstant() {
+        GarageSector sector = sector("10.00", 4);
+        SectorTariff peak = new SectorTariff();
+        peak.setSectorId("A");
+        peak.setStartTime(LocalTime.of(7, 0));
+        peak.setEndTime(LocalTime.of(10, 0));
+        peak.setPrice(new BigDecimal("20.00"));
+        tariffCalendar.load(List.of(peak));
+
+        assertEquals(0, new BigDecimal("25.00").compareTo(engine.rate(sector, 4, LocalDateTime.of(2025, 1, 6, 8, 0))));
+        assertEquals(0, new BigDecimal("12.50").compareTo(engine.rate(sector, 4, LocalDateTime.of(2025, 1, 6, 10, 0))));
+        LocalDateTime nine = LocalDateTime.of(2025, 1, 6, 9, 0);
+        long peakUnits = PricingEngine.toUnits(engine.rate(sector, 0, nine));
+        assertEquals(0, new BigDecimal("36.00").compareTo(PricingEngine.price(peakUnits, nine, nine.plusHours(2))));
+    }
+
+    @Test
+    void stayRate_ShouldWeightTierRatesByTimeInEachTier() {
+        // Setup: 1 h abaixo de 25% (9,00/h) e 1 h com 75% ou mais (12,50/h)
+        GarageSector sector = sector("10.00", 8);
+        LocalDateTime parked = LocalDateTime.of(2025, 1, 6, 8, 0);
+        occupancyTimeline.record(sector, parked, 1);
+        for (int i = 0; i < 5; i++) {
+            occupancyTimeline.record(sector, parked.plusHours(1), 1);
+        }
+
+        // Verify
+        assertEquals(new BigDecimal("10.75"), engine.stayRate(sector, 6, parked, parked.plusHours(2)));
+        assertEquals(new BigDecimal("21.50"), engine.stayPrice(sector, 6, parked, parked.plusHours(2)));
+        assertEquals(new BigDecimal("9.00"), engine.stayRate(sector, 6, parked, parked.plusMinutes(30)));
+    }
+
+    @Test
+    void stayRate_WithoutHistory_ShouldUseCurrentOccupancyRate() {
+        GarageSector sector = sector("10.00", 4);
+        LocalDateTime exit = LocalDateTime.of(2025, 1, 6, 12, 0);
+
+        assertEquals(0, new BigDecimal("12.50").compareTo(engine.stayRate(sector, 4, exit.minusHours(2), exit)));
+        assertEquals(0, new BigDecimal("9.00").compareTo(engine.stayRate(sector, 0, exit.plusHours(1), exit)));
+    }
+
+    @Test
+    void price_WithLockedRate_ShouldMatchHourAndMinuteBigDecimalCalculation() {
+        for (String rate : new String[]{"0.01", "9.00", "12.51", "1543.20"}) {
+            for (long minutes = 0; minutes <= 60 * 30; minutes += 7) {
+                assertEquals(legacyPrice(new BigDecimal(rate), minutes),
+                    PricingEngine.price(PricingEngine.toUnits(new BigDecimal(rate)), AT, AT.plusMinutes(minutes)));
+            }
+        }
+    }
+
+    // Cálculo que o StatusService fazia com BigDecimal
+    static BigDecimal legacyPrice(BigDecimal dynamicPrice, long elapsedMinutes) {
+        long hours = elapsedMinutes / 60;
+        long minutes = elapsedMinutes % 60;
+        BigDecimal totalPrice = dynamicPrice.multiply(BigDecimal.valueOf(hours));
+        if (minutes > 0) {
+            BigDecimal minutePrice = dynamicPrice.divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+            totalPrice = totalPrice.add(minutePrice.multiply(BigDecimal.valueOf(minutes)));
+        }
+        return totalPrice.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // Tarifa que GarageSector.calculateDynamicPrice calculava, por fração da lotação em double
+    static BigDecimal legacyRate(GarageSector sector, int occupancy) {
+        double occupancyRate = (double) occupancy / sector.getMaxCapacity();
+        BigDecimal basePrice = sector.getBasePrice();
+        if (occupancyRate >= 0.75) {
+            return basePrice.multiply(BigDecimal.valueOf(1.25));
+        } else if (occupancyRate >= 0.50) {
+            return basePrice.multiply(BigDecimal.valueOf(1.10));
+        } else if (occupancyRate >= 0.25) {
+            return basePrice;
+        }
+        return basePrice.multiply(BigDecimal.valueOf(0.90));
+    }
+
+    private static GarageSector sector(String basePrice, int capacity) {
+        GarageSector sector = new GarageSector();
+        sector.setId("A");
+        sector.setBasePrice(new BigDecimal(basePrice));
+        sector.setMaxCapacity(capacity);
+        return sector;
+    }
+}
@@ -0,0 +1,274 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.config.CacheConfig;
+import com.estapar.parking.dto.RevenueRebuildResponse;
+import com.estapar.parking.dto.RevenueSeriesRequest;
+import com.estapar.parking.dto.VehicleEventDTO;
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.ParkingEvent;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.model.Revenue;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import com.estapar.parking.repository.RevenueRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class RevenueServiceIntegrationTest {
+
+    @Autowired
+    private ParkingService parkingService;
+
+    @Autowired
+    private RevenueService revenueService;
+
+    @Autowired
+    private RevenueRepository revenueRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private GarageSectorRepository sectorRepository;
+
+    @Autowired
+    private ParkingSpotRepository spotRepository;
+
+    @Autowired
+    private ParkingEventRepository eventRepository;
+
+    @Autowired
+    private ParkingSessionRepository sessionRepository;
+
+    @Autowired
+    private VehiclePresenceRegistry presenceRegistry;
+
+    @Autowired
+    private SectorOccupancyEngine occupancyEngine;
+
+    @Autowired
+    private SpotLocationIndex spotLocationIndex;
+
+    @Autowired
+    private SpotAllocator spotAllocator;
+
+    @Autowired
+    private SectorOccupancyTimeline occupancyTimeline;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<ParkingSpot> spots = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        revenueRepository.deleteAll();
+        sessionRepository.deleteAll();
+        eventRepository.deleteAll();
+        spotRepository.deleteAll();
+        sectorRepository.deleteAll();
+        spots.clear();
+
+        GarageSector sector = new GarageSector();
+        sector.setId("A");
+        sector.setBasePrice(new BigDecimal("10.00"));
+        sector.setMaxCapacity(10);
+        sector.setCurrentOccupancy(0);
+        sector.setOpenHour(LocalTime.of(6, 0));
+        sector.setCloseHour(LocalTime.of(22, 0));
+        sector.setDurationLimitMinutes(120);
+        sectorRepository.save(sector);
+
+        for (int i = 0; i < 3; i++) {
+            ParkingSpot spot = new ParkingSpot();
+            spot.setSectorId("A");
+            spot.setLatitude(-23.561684 - i * 0.001);
+            spot.setLongitude(-46.655981);
+            spots.add(spotRepository.save(spot));
+        }
+
+        presenceRegistry.rebuild();
+        occupancyEngine.rebuild();
+        spotLocationIndex.rebuild();
+        spotAllocator.rebuild();
+        occupancyTimeline.rebuild();
+    }
+
+    @Test
+    void exit_ShouldUpdateHourAndDayRollups() {
+        // Act
+        park("REV0001", spots.get(0), "2025-01-01T14:05:00");
+        park("REV0002", spots.get(1), "2025-01-01T14:50:00");
+        park("REV0003", spots.get(2), "2025-01-02T09:00:00");
+
+        // Assert
+        BigDecimal firstDay = exitRevenue(LocalDate.of(2025, 1, 1));
+        assertEquals(0, firstDay.compareTo(rollup(Revenue.Granularity.HOUR, LocalDateTime.of(2025, 1, 1, 14, 0))));
+        assertEquals(0, firstDay.compareTo(rollup(Revenue.Granularity.DAY, LocalDateTime.of(2025, 1, 1, 0, 0))));
+        assertEquals(0, firstDay.compareTo(revenueService.getRevenue("2025-01-01", "A").getAmount()));
+        assertEquals(0, exitRevenue(LocalDate.of(2025, 1, 2)).compareTo(revenueService.getRevenue("2025-01-02", "A").getAmount()));
+        assertEquals(4, revenueRepository.count());
+    }
+
+    @Test
+    void record_WithBucketCreatedInSameTransaction_ShouldKeepOneRowPerBucket() {
+        LocalDateTime hour = LocalDateTime.of(2025, 1, 1, 14, 0);
+
+        // Test: a linha já existente não viola a chave única nem invalida a transação
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            revenueRepository.createBucketIfAbsent("A", Revenue.Granularity.HOUR, hour);
+            revenueService.record("A", hour.plusMinutes(10), new BigDecimal("5.00"));
+            revenueRepository.createBucketIfAbsent("A", Revenue.Granularity.HOUR, hour);
+            revenueService.record("A", hour.plusMinutes(20), new BigDecimal("7.50"));
+        });
+
+        // Verify
+        assertEquals(0, new BigDecimal("12.50").compareTo(rollup(Revenue.Granularity.HOUR, hour)));
+        assertEquals(0, new BigDecimal("12.50").compareTo(rollup(Revenue.Granularity.DAY, hour.toLocalDate().atStartOfDay())));
+        assertEquals(2, revenueRepository.count());
+    }
+
+    @Test
+    void getRevenue_ShouldPublishCacheMetrics() {
+        double hits = cacheGets("hit");
+
+        park("REV0001", spots.get(0), "2025-01-01T14:05:00");
+        revenueService.getRevenue("2025-01-01", "A");
+        revenueService.getRevenue("2025-01-01", "A");
+
+        assertEquals(hits + 1, cacheGets("hit"));
+    }
+
+    @Test
+    void rebuild_ShouldRecomputeRollupsFromEvents() {
+        // Arrange
+        park("REV0001", spots.get(0), "2025-01-01T14:05:00");
+        park("REV0002", spots.get(1), "2025-01-03T08:30:00");
+        BigDecimal firstDay = revenueService.getRevenue("2025-01-01", "A").getAmount();
+        BigDecimal thirdDay = revenueService.getRevenue("2025-01-03", "A").getAmount();
+        revenueRepository.deleteAll();
+
+        // Act
+        RevenueRebuildResponse result = revenueService.rebuild(null, null);
+
+        // Assert
+        assertEquals(3, result.getDays());
+        assertEquals(4, result.getRollups());
+        assertEquals(0, firstDay.compareTo(revenueService.getRevenue("2025-01-01", "A").getAmount()));
+        assertEquals(0, thirdDay.compareTo(revenueService.getRevenue("2025-01-03", "A").getAmount()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(revenueService.getRevenue("2025-01-02", "A").getAmount()));
+    }
+
+    @Test
+    void writeSeries_ShouldStreamBucketsForRangeAndSectors() throws Exception {
+        // Arrange
+        saveRollup("A", Revenue.Granularity.DAY, LocalDateTime.of(2025, 1, 30, 0, 0), "10.00");
+        saveRollup("A", Revenue.Granularity.DAY, LocalDateTime.of(2025, 1, 31, 0, 0), "20.00");
+        saveRollup("A", Revenue.Granularity.DAY, LocalDateTime.of(2025, 2, 1, 0, 0), "5.00");
+        saveRollup("B", Revenue.Granularity.DAY, LocalDateTime.of(2025, 1, 31, 0, 0), "7.00");
+        saveRollup("A", Revenue.Granularity.HOUR, LocalDateTime.of(2025, 1, 31, 9, 0), "20.00");
+        saveRollup("A", Revenue.Granularity.DAY, LocalDateTime.of(2025, 3, 1, 0, 0), "99.00");
+
+        // Act
+        JsonNode daily = series("2025-01-01", "2025-02-28", "day", List.of("A"));
+        JsonNode monthly = series("2025-01-01", "2025-02-28", "month", null);
+        JsonNode hourly = series("2025-01-31", "2025-01-31", "hour", null);
+
+        // Assert
+        assertEquals("day", daily.get("granularity").asText());
+        assertEquals(3, daily.get("series").size());
+        assertEquals("2025-01-30T00:00:00", daily.get("series").get(0).get("timestamp").asText());
+        assertEquals(0, new BigDecimal("5.00").compareTo(daily.get("series").get(2).get("amount").decimalValue()));
+
+        assertEquals(3, monthly.get("series").size());
+        assertEquals("A", monthly.get("series").get(0).get("sector").asText());
+        assertEquals("2025-01-01T00:00:00", monthly.get("series").get(0).get("timestamp").asText());
+        assertEquals(0, new BigDecimal("30.00").compareTo(monthly.get("series").get(0).get("amount").decimalValue()));
+        assertEquals("2025-02-01T00:00:00", monthly.get("series").get(1).get("timestamp").asText());
+        assertEquals("B", monthly.get("series").get(2).get("sector").asText());
+
+        assertEquals(1, hourly.get("series").size());
+        assertEquals("2025-01-31T09:00:00", hourly.get("series").get(0).get("timestamp").asText());
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", CacheConfig.REVENUE_CACHE).tag("result", result).functionCounter().count();
+    }
+
+    private JsonNode series(String start, String end, String granularity, List<String> sectors) throws Exception {
+        RevenueSeriesRequest request = new RevenueSeriesRequest();
+        request.setStartDate(LocalDate.parse(start));
+        request.setEndDate(LocalDate.parse(end));
+        request.setGranularity(granularity);
+        request.setSectors(sectors);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        revenueService.writeSeries(revenueService.seriesQuery(request), output);
+        return objectMapper.readTree(output.toByteArray());
+    }
+
+    private void saveRollup(String sectorId, Revenue.Granularity granularity, LocalDateTime timestamp, String amount) {
+        Revenue revenue = new Revenue();
+        revenue.setSectorId(sectorId);
+        revenue.setGranularity(granularity);
+        revenue.setTimestamp(timestamp);
+        revenue.setAmount(new BigDecimal(amount));
+        revenueRepository.save(revenue);
+    }
+
+    private void park(String plate, ParkingSpot spot, String exitTime) {
+        VehicleEventDTO entry = new VehicleEventDTO();
+        entry.setLicensePlate(plate);
+        entry.setEventType("ENTRY");
+        entry.setEntryTime("2025-01-01T08:00:00");
+        parkingService.handleWebhookEvent(entry);
+
+        VehicleEventDTO parked = new VehicleEventDTO();
+        parked.setLicensePlate(plate);
+        parked.setEventType("PARKED");
+        parked.setLatitude(spot.getLatitude());
+        parked.setLongitude(spot.getLongitude());
+        parkingService.handleWebhookEvent(parked);
+
+        VehicleEventDTO exit = new VehicleEventDTO();
+        exit.setLicensePlate(plate);
+        exit.setEventType("EXIT");
+        exit.setExitTime(exitTime);
+        parkingService.handleWebhookEvent(exit);
+    }
+
+    private BigDecimal exitRevenue(LocalDate day) {
+        return eventRepository.findAll().stream()
+            .filter(event -> "EXIT".equals(event.getType()) && event.getTimestamp().toLocalDate().equals(day))
+            .map(ParkingEvent::getPrice)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private BigDecimal rollup(Revenue.Granularity granularity, LocalDateTime timestamp) {
+        return revenueRepository.findBySectorIdAndGranularityAndTimestamp("A", granularity, timestamp).orElseThrow().getAmount();
+    }
+}
@@ -1,28 +1,53 @@
 package com.estapar.parking.service;
 
+import com.estapar.parking.config.CacheConfig;
 import com.estapar.parking.dto.RevenueResponse;
+import com.estapar.parking.dto.RevenueSeriesRequest;
+import com.estapar.parking.exception.InvalidRequestException;
+import com.estapar.parking.model.Revenue;
 import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.RevenueRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 class RevenueServiceTest {
+    @Mock
+    private RevenueRepository revenueRepository;
+
     @Mock
     private ParkingEventRepository eventRepository;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private RevenueService service;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        service = new RevenueService(eventRepository);
+        service = service(30);
+    }
+
+    // Relógio fixo em 2025-01-02: 2025-01-01 já é um dia encerrado
+    private RevenueService service(long currentDayTtlSeconds) {
+        Clock clock = Clock.fixed(Instant.parse("2025-01-02T15:00:00Z"), ZoneOffset.UTC);
+        CacheManager cacheManager = new CacheConfig().cacheManager(clock, currentDayTtlSeconds, 100);
+        return new RevenueService(revenueRepository, eventRepository, new ObjectMapper(), cacheManager, transactionManager, 2);
     }
 
     @Test
@@ -30,20 +55,125 @@ class RevenueServiceTest {
         // Setup
         String date = "2025-01-01";
         String sector = "A";
-        BigDecimal expectedAmount = BigDecimal.valueOf(30);
-        LocalDateTime start = LocalDate.parse(date).atStartOfDay();
-        LocalDateTime end = LocalDate.parse(date).atTime(LocalTime.MAX);
+        Revenue daily = new Revenue();
+        daily.setAmount(BigDecimal.valueOf(30));
 
-        when(eventRepository.calculateRevenueByDateAndSector(start, end, sector))
-            .thenReturn(expectedAmount);
+        when(revenueRepository.findBySectorIdAndGranularityAndTimestamp(sector, Revenue.Granularity.DAY, LocalDate.parse(date).atStartOfDay()))
+            .thenReturn(Optional.of(daily));
 
         // Test
         RevenueResponse result = service.getRevenue(date, sector);
 
         // Verify
         assertNotNull(result);
-        assertEquals(expectedAmount, result.getAmount());
+        assertEquals(BigDecimal.valueOf(30), result.getAmount());
         assertEquals("BRL", result.getCurrency());
         assertNotNull(result.getTimestamp());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void getRevenue_WithoutRollup_ShouldReturnZero() {
+        when(revenueRepository.findBySectorIdAndGranularityAndTimestamp(any(), any(), any())).thenReturn(Optional.empty());
+
+        RevenueResponse result = service.getRevenue("2025-01-01", "A");
+
+        assertEquals(BigDecimal.ZERO, result.getAmount());
+    }
+
+    @Test
+    void getRevenue_ForClosedDay_ShouldBeServedFromCache() {
+        when(revenueRepository.findBySectorIdAndGranularityAndTimestamp(any(), any(), any())).thenReturn(Optional.empty());
+
+        service.getRevenue("2025-01-01", "A");
+        service.getRevenue("2025-01-01", "A");
+
+        verify(revenueRepository, times(1)).findBySectorIdAndGranularityAndTimestamp(any(), any(), any());
+    }
+
+    @Test
+    void getRevenue_ForCurrentDay_ShouldExpireAfterTtl() {
+        service = service(0);
+        when(revenueRepository.findBySectorIdAndGranularityAndTimestamp(any(), any(), any())).thenReturn(Optional.empty());
+
+        service.getRevenue("2025-01-01", "A");
+        service.getRevenue("2025-01-01", "A");
+        service.getRevenue("2025-01-02", "A");
+        service.getRevenue("2025-01-02", "A");
+
+        verify(revenueRepository, times(1)).findBySectorIdAndGranularityAndTimestamp("A", Revenue.Granularity.DAY, LocalDateTime.of(2025, 1, 1, 0, 0));
+        verify(revenueRepository, times(2)).findBySectorIdAndGranularityAndTimestamp("A", Revenue.Granularity.DAY, LocalDateTime.of(2025, 1, 2, 0, 0));
+    }
+
+    @Test
+    void record_ShouldEvictCachedDayOfSector() {
+        when(revenueRepository.findBySectorIdAndGranularityAndTimestamp(any(), any(), any())).thenReturn(Optional.empty());
+        when(revenueRepository.addAmount(any(), any(), any(), any())).thenReturn(1);
+        service.getRevenue("2025-01-01", "A");
+        service.getRevenue("2025-01-01", "B");
+
+        service.record("A", LocalDateTime.of(2025, 1, 1, 23, 50), BigDecimal.TEN);
+        service.getRevenue("2025-01-01", "A");
+        service.getRevenue("2025-01-01", "B");
+
+        verify(revenueRepository, times(2)).findBySectorIdAndGranularityAndTimestamp(eq("A"), any(), any());
+        verify(revenueRepository, times(1)).findBySectorIdAndGranularityAndTimestamp(eq("B"), any(), any());
+    }
+
+    @Test
+    void record_ShouldAddToHourAndDayRollups() {
+        // Setup
+        LocalDateTime exit = LocalDateTime.of(2025, 1, 1, 14, 35);
+        when(revenueRepository.addAmount(any(), any(), any(), any())).thenReturn(1);
+
+        // Test
+        service.record("A", exit, new BigDecimal("12.50"));
+
+        // Verify
+        verify(revenueRepository).addAmount("A", Revenue.Granularity.HOUR, LocalDateTime.of(2025, 1, 1, 14, 0), new BigDecimal("12.50"));
+        verify(revenueRepository).addAmount("A", Revenue.Granularity.DAY, LocalDateTime.of(2025, 1, 1, 0, 0), new BigDecimal("12.50"));
+        verify(revenueRepository, never()).save(any());
+    }
+
+    @Test
+    void record_WithMissingRollup_ShouldCreateItAndAddAgain() {
+        // Setup
+        LocalDateTime hour = LocalDateTime.of(2025, 1, 1, 14, 0);
+        when(revenueRepository.addAmount(eq("A"), eq(Revenue.Granularity.HOUR), eq(hour), any())).thenReturn(0, 1);
+        when(revenueRepository.addAmount(eq("A"), eq(Revenue.Granularity.DAY), any(), any())).thenReturn(1);
+
+        // Test
+        service.record("A", hour.plusMinutes(10), BigDecimal.TEN);
+
+        // Verify
+        verify(revenueRepository).createBucketIfAbsent("A", Revenue.Granularity.HOUR, hour);
+        verify(revenueRepository, never()).createBucketIfAbsent(eq("A"), eq(Revenue.Granularity.DAY), any());
+        verify(revenueRepository, times(2)).addAmount("A", Revenue.Granularity.HOUR, hour, BigDecimal.TEN);
+    }
+
+    @Test
+    void seriesQuery_ShouldDefaultToDailyBucketsForAllSectors() {
+        RevenueSeriesRequest request = new RevenueSeriesRequest();
+        request.setStartDate(LocalDate.of(2025, 1, 1));
+        request.setEndDate(LocalDate.of(2025, 12, 31));
+
+        RevenueSeriesQuery query = service.seriesQuery(request);
+
+        assertEquals(RevenueSeriesQuery.Bucket.DAY, query.bucket());
+        assertTrue(query.sectors().isEmpty());
+    }
+
+    @Test
+    void seriesQuery_WithInvalidRangeOrGranularity_ShouldThrow() {
+        RevenueSeriesRequest request = new RevenueSeriesRequest();
+        request.setStartDate(LocalDate.of(2025, 2, 1));
+        request.setEndDate(LocalDate.of(2025, 1, 1));
+        assertThrows(InvalidRequestException.class, () -> service.seriesQuery(request));
+
+        request.setEndDate(LocalDate.of(2025, 3, 1));
+        request.setGranularity("week");
+        assertThrows(InvalidRequestException.class, () -> service.seriesQuery(request));
+
+        request.setGranularity("Month");
+        assertEquals(RevenueSeriesQuery.Bucket.MONTH, service.seriesQuery(request).bucket());
+    }
+}
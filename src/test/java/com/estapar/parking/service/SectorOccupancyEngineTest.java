@@ -0,0 +1,160 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SectorOccupancyEngineTest {
+
+    @Mock
+    private GarageSectorRepository sectorRepository;
+
+    @Mock
+    private ParkingSpotRepository spotRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private SectorOccupancyEngine engine;
+
+    private GarageSector sector;
+
+    @BeforeEach
+    void setUp() {
+        engine = new SectorOccupancyEngine(sectorRepository, spotRepository, entityManager, SectorOccupancyEngine.Mode.MEMORY);
+        sector = new GarageSector();
+        sector.setId("A");
+        sector.setBasePrice(new BigDecimal("10.00"));
+        sector.setMaxCapacity(50);
+        sector.setCurrentOccupancy(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void tryAdmit_WithConcurrentRequests_ShouldNeverExceedCapacity() throws Exception {
+        // Setup
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Boolean>> admissions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            admissions.add(() -> engine.tryAdmit(sector));
+        }
+
+        // Test
+        int admitted = 0;
+        for (Future<Boolean> result : executor.invokeAll(admissions)) {
+            if (result.get()) {
+                admitted++;
+            }
+        }
+        executor.shutdown();
+
+        // Verify
+        assertEquals(50, admitted);
+        assertEquals(50, engine.getOccupancy(sector));
+        assertEquals(3, PricingEngine.tierOf(engine.getOccupancy(sector), sector.getMaxCapacity()));
+    }
+
+    @Test
+    void tryAdmit_WhenTransactionRollsBack_ShouldReleasePosition() {
+        // Setup
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Test
+        assertTrue(engine.tryAdmit(sector));
+        assertEquals(1, engine.getOccupancy(sector));
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Verify
+        assertEquals(0, engine.getOccupancy(sector));
+        engine.flush();
+        verifyNoInteractions(sectorRepository);
+    }
+
+    @Test
+    void flush_ShouldWriteOnlyChangedSectors() {
+        // Setup
+        GarageSector untouched = new GarageSector();
+        untouched.setId("B");
+        untouched.setMaxCapacity(10);
+        untouched.setCurrentOccupancy(3);
+        engine.getOccupancy(untouched);
+        engine.tryAdmit(sector);
+        engine.tryAdmit(sector);
+        engine.release(sector);
+
+        // Test
+        engine.flush();
+        engine.flush();
+
+        // Verify
+        verify(sectorRepository, times(1)).updateCurrentOccupancy("A", 1);
+        verify(sectorRepository, never()).updateCurrentOccupancy(eq("B"), anyInt());
+    }
+
+    @Test
+    void rebuild_ShouldFlushPendingAndSeedFromOccupiedSpots() {
+        // Setup: uma admissão ainda não gravada e garage_sectors.current_occupancy atrasada
+        engine.tryAdmit(sector);
+        ParkingSpotRepository.SectorOccupied occupied = mock(ParkingSpotRepository.SectorOccupied.class);
+        when(occupied.getSectorId()).thenReturn("A");
+        when(occupied.getOccupied()).thenReturn(2L);
+        when(spotRepository.countOccupiedBySector()).thenReturn(List.of(occupied));
+        when(sectorRepository.findAll()).thenReturn(List.of(sector));
+
+        // Test
+        engine.rebuild();
+
+        // Verify
+        InOrder writes = inOrder(sectorRepository);
+        writes.verify(sectorRepository).updateCurrentOccupancy("A", 1);
+        writes.verify(sectorRepository).updateCurrentOccupancy("A", 2);
+        assertEquals(2, engine.getOccupancy(sector));
+    }
+
+    @Test
+    void getOccupancy_ForSectorCreatedAfterRebuild_ShouldCountOccupiedSpots() {
+        sector.setCurrentOccupancy(7);
+        when(spotRepository.countBySectorIdAndOccupiedTrue("A")).thenReturn(3L);
+
+        assertEquals(3, engine.getOccupancy(sector));
+    }
+
+    @Test
+    void release_WhenSectorIsEmpty_ShouldThrowException() {
+        assertThrows(IllegalStateException.class, () -> engine.release(sector));
+    }
+
+    private void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
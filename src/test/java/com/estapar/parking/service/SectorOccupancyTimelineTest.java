@@ -0,0 +1,161 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SectorOccupancyTimelineTest {
+
+    // Unidades por faixa: basta que sejam distintas para identificar o tempo em cada uma
+    private static final long[] UNITS = {1, 100, 10_000, 1_000_000};
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 6, 8, 0);
+
+    @Mock
+    private ParkingEventRepository eventRepository;
+
+    @Mock
+    private GarageSectorRepository sectorRepository;
+
+    private SectorOccupancyTimeline timeline;
+
+    private GarageSector sector;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(START.plusHours(4).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        timeline = new SectorOccupancyTimeline(eventRepository, sectorRepository, clock, 24);
+        sector = new GarageSector();
+        sector.setId("A");
+        sector.setBasePrice(new BigDecimal("10.00"));
+        sector.setMaxCapacity(4);
+    }
+
+    @Test
+    void averageUnits_ShouldWeightEachTierByTimeSpentInIt() {
+        // Setup: 0 até 08:00, 1 (25%) até 09:00, 3 (75%) até 09:30, 2 (50%) depois
+        timeline.record(sector, START, 1);
+        timeline.record(sector, START.plusHours(1), 1);
+        timeline.record(sector, START.plusHours(1), 1);
+        timeline.record(sector, START.plusMinutes(90), -1);
+
+        // Verify
+        assertEquals(100, average(START, START.plusHours(1)));
+        assertEquals(1_000_000, average(START.plusHours(1), START.plusMinutes(90)));
+        // 60 min a 100, 30 min a 1.000.000 e 30 min a 10.000: média de 120 min
+        assertEquals((60 * 100 + 30 * 1_000_000 + 30 * 10_000 + 60) / 120, average(START, START.plusHours(2)));
+        assertEquals(10_000, average(START.plusHours(3), START.plusHours(5)));
+    }
+
+    @Test
+    void averageUnits_WithoutHistory_ShouldReturnMinusOne() {
+        assertEquals(-1, average(START, START.plusHours(1)));
+
+        timeline.record(sector, START, 1);
+
+        assertEquals(-1, average(START.minusHours(2), START));
+        assertEquals(-1, average(START.plusHours(1), START));
+    }
+
+    @Test
+    void averageUnits_BeforeHistory_ShouldOnlyAverageRetainedPart() {
+        timeline.record(sector, START, 1);
+
+        assertEquals(100, average(START.minusHours(5), START.plusHours(1)));
+    }
+
+    @Test
+    void record_WhenEventArrivesLate_ShouldShiftLaterOccupancy() {
+        // Setup: o veículo das 08:30 chega depois do das 09:00
+        timeline.record(sector, START, 1);
+        timeline.record(sector, START.plusHours(1), 1);
+        timeline.record(sector, START.plusMinutes(30), 1);
+
+        // Verify: 1 (25%) até 08:30, 2 (50%) até 09:00, 3 (75%) depois
+        assertEquals(100, average(START, START.plusMinutes(30)));
+        assertEquals(10_000, average(START.plusMinutes(30), START.plusHours(1)));
+        assertEquals(1_000_000, average(START.plusHours(1), START.plusHours(2)));
+    }
+
+    @Test
+    void record_WithManyChanges_ShouldDropPointsOlderThanRetention() {
+        // Setup: entra e sai um veículo a cada 10 minutos por três dias
+        LocalDateTime time = START;
+        for (int i = 0; i < 3 * 24 * 6; i++) {
+            timeline.record(sector, time, 1);
+            timeline.record(sector, time.plusMinutes(5), -1);
+            time = time.plusMinutes(10);
+        }
+
+        // Verify: metade do tempo com 1 (25%) e metade com 0, média 50,5 arredondada
+        assertEquals(51, average(time.minusHours(2), time));
+        assertEquals(-1, average(START, START.plusHours(1)));
+    }
+
+    @Test
+    void rebuild_ShouldReplayParkedAndExitEventsSinceRetention() {
+        // Setup
+        when(sectorRepository.findAll()).thenReturn(List.of(sector));
+        when(eventRepository.sumOccupancyBefore(any())).thenReturn(List.of(occupancy("A", 2)));
+        when(eventRepository.findOccupancyChangesSince(any())).thenReturn(List.of(
+            change("A", "PARKED", START.plusHours(1)),
+            change("A", "EXIT", START.plusHours(2)),
+            change("B", "PARKED", START.plusHours(2))));
+
+        // Test
+        timeline.rebuild();
+
+        // Verify: 2 (50%) antes das 09:00, 3 (75%) até 10:00, 2 depois
+        assertEquals(10_000, average(START, START.plusHours(1)));
+        assertEquals(1_000_000, average(START.plusHours(1), START.plusHours(2)));
+        assertEquals(10_000, average(START.plusHours(2), START.plusHours(3)));
+        assertEquals(-1, timeline.averageUnits("B", START, START.plusHours(3), UNITS));
+    }
+
+    private long average(LocalDateTime from, LocalDateTime to) {
+        return timeline.averageUnits("A", from, to, UNITS);
+    }
+
+    private static ParkingEventRepository.SectorOccupancy occupancy(String sectorId, long occupancy) {
+        return new ParkingEventRepository.SectorOccupancy() {
+            public String getSectorId() {
+                return sectorId;
+            }
+
+            public Long getOccupancy() {
+                return occupancy;
+            }
+        };
+    }
+
+    private static ParkingEventRepository.OccupancyChange change(String sectorId, String type, LocalDateTime timestamp) {
+        return new ParkingEventRepository.OccupancyChange() {
+            public String getSectorId() {
+                return sectorId;
+            }
+
+            public String getType() {
+                return type;
+            }
+
+            public LocalDateTime getTimestamp() {
+                return timestamp;
+            }
+        };
+    }
+}
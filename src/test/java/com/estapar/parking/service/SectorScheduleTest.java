@@ -0,0 +1,108 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.repository.GarageSectorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SectorScheduleTest {
+
+    private static final LocalDateTime MORNING = LocalDateTime.of(2025, 1, 6, 5, 30);
+
+    @Mock
+    private GarageSectorRepository sectorRepository;
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private SectorSchedule schedule;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(MORNING.toInstant(ZoneOffset.UTC));
+        meterRegistry = new SimpleMeterRegistry();
+        schedule = new SectorSchedule(sectorRepository, meterRegistry, clock, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        schedule.shutdown();
+    }
+
+    @Test
+    void isOpenAt_ShouldHandleDaytimeOvernightAndFullDayHours() {
+        SectorSchedule.SectorHours daytime = new SectorSchedule.SectorHours("A", LocalTime.of(6, 0), LocalTime.of(22, 0));
+        SectorSchedule.SectorHours overnight = new SectorSchedule.SectorHours("B", LocalTime.of(22, 0), LocalTime.of(6, 0));
+        SectorSchedule.SectorHours fullDay = new SectorSchedule.SectorHours("C", LocalTime.MIDNIGHT, LocalTime.MIDNIGHT);
+
+        assertFalse(daytime.isOpenAt(LocalTime.of(5, 59)));
+        assertTrue(daytime.isOpenAt(LocalTime.of(6, 0)));
+        assertFalse(daytime.isOpenAt(LocalTime.of(22, 0)));
+        assertTrue(overnight.isOpenAt(LocalTime.of(23, 0)));
+        assertTrue(overnight.isOpenAt(LocalTime.of(5, 59)));
+        assertFalse(overnight.isOpenAt(LocalTime.of(6, 0)));
+        assertTrue(fullDay.isOpenAt(LocalTime.of(3, 0)));
+    }
+
+    @Test
+    void nextBoundary_ShouldReturnNextOpeningOrClosing() {
+        SectorSchedule.SectorHours daytime = new SectorSchedule.SectorHours("A", LocalTime.of(6, 0), LocalTime.of(22, 0));
+
+        assertEquals(MORNING.withHour(6).withMinute(0), daytime.nextBoundary(MORNING));
+        assertEquals(MORNING.withHour(22).withMinute(0), daytime.nextBoundary(MORNING.withHour(6).withMinute(0)));
+        assertEquals(MORNING.plusDays(1).withHour(6).withMinute(0), daytime.nextBoundary(MORNING.withHour(23)));
+        assertNull(new SectorSchedule.SectorHours("C", LocalTime.NOON, LocalTime.NOON).nextBoundary(MORNING));
+    }
+
+    @Test
+    void flip_ShouldFollowClockAtBoundaries() {
+        // Setup
+        when(sectorRepository.findAll()).thenReturn(List.of(sector("A", 6, 22), sector("B", 22, 6)));
+        schedule.rebuild();
+        assertFalse(schedule.isOpen("A"));
+        assertTrue(schedule.isOpen("B"));
+
+        // Test
+        clock.advanceMinutes(30);
+        schedule.flip("A");
+        schedule.flip("B");
+
+        // Verify
+        assertTrue(schedule.isOpen("A"));
+        assertFalse(schedule.isOpen("B"));
+        assertEquals(1.0, meterRegistry.get("parking.sectors.open").tag("sector", "A").gauge().value());
+        assertEquals(0.0, meterRegistry.get("parking.sectors.open").tag("sector", "B").gauge().value());
+        assertTrue(schedule.isOpen("UNKNOWN"));
+    }
+
+    @Test
+    void isOpen_WhenScheduleIsDisabled_ShouldAlwaysBeOpen() {
+        SectorSchedule disabled = new SectorSchedule(sectorRepository, meterRegistry, clock, false);
+
+        disabled.rebuild();
+
+        assertTrue(disabled.isOpen("A"));
+        verifyNoInteractions(sectorRepository);
+    }
+
+    private static GarageSector sector(String id, int openHour, int closeHour) {
+        GarageSector sector = new GarageSector();
+        sector.setId(id);
+        sector.setOpenHour(LocalTime.of(openHour, 0));
+        sector.setCloseHour(LocalTime.of(closeHour, 0));
+        return sector;
+    }
+}
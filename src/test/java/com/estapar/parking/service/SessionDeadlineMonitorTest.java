@@ -0,0 +1,216 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.SessionAlertsResponse;
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.ParkingSession;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.GarageSectorRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionDeadlineMonitorTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 6, 8, 0);
+
+    @Mock
+    private ParkingSessionRepository sessionRepository;
+
+    @Mock
+    private GarageSectorRepository sectorRepository;
+
+    @Mock
+    private VehiclePresenceRegistry presenceRegistry;
+
+    @Mock
+    private SpotAllocator spotAllocator;
+
+    @Mock
+    private OccupancySnapshotPublisher occupancySnapshots;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private SessionDeadlineMonitor monitor;
+    private GarageSector sector;
+    private ParkingSpot spot;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(START.toInstant(ZoneOffset.UTC));
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new SessionDeadlineMonitor(sessionRepository, sectorRepository, presenceRegistry, spotAllocator,
+            occupancySnapshots, transactionManager, meterRegistry, clock, 1000, 30);
+        sector = new GarageSector();
+        sector.setId("A");
+        sector.setDurationLimitMinutes(60);
+        spot = new ParkingSpot();
+        spot.setId(7L);
+        spot.setSectorId("A");
+        spot.setLatitude(-23.561684);
+        spot.setLongitude(-46.655981);
+    }
+
+    @Test
+    void tick_WhenEntryTimesOut_ShouldCloseSessionAndReleaseReservation() {
+        // Setup
+        ParkingSession session = new ParkingSession();
+        session.setId(3L);
+        session.setLicensePlate("ABC1234");
+        session.setEntryTime(START);
+        session.setSpotId(7L);
+        when(presenceRegistry.find("ABC1234")).thenReturn(Optional.of(VehiclePresence.entered("ABC1234", START)));
+        when(sessionRepository.findByLicensePlateAndExitTimeIsNull("ABC1234")).thenReturn(Optional.of(session));
+        when(sessionRepository.closeAbandonedEntry(eq(3L), any())).thenReturn(1);
+        monitor.entered("ABC1234", START);
+
+        // Test
+        clock.advanceMinutes(29);
+        monitor.tick();
+        verify(sessionRepository, never()).closeAbandonedEntry(any(), any());
+        clock.advanceMinutes(1);
+        monitor.tick();
+
+        // Verify
+        verify(spotAllocator).releaseReservation(7L, "ABC1234");
+        verify(presenceRegistry).remove("ABC1234");
+        SessionAlertsResponse alerts = monitor.getAlerts();
+        assertEquals("ABC1234", alerts.getAbandonedEntries().get(0).getLicensePlate());
+        assertEquals(1.0, meterRegistry.counter("parking.sessions.abandoned-entries").count());
+    }
+
+    @Test
+    void tick_WhenVehicleParkedBeforeTimeout_ShouldNotCloseSession() {
+        // Setup
+        VehiclePresence parked = VehiclePresence.entered("ABC1234", START).parkedAt(spot, START.plusMinutes(2), null);
+        when(presenceRegistry.find("ABC1234")).thenReturn(Optional.of(parked));
+        monitor.entered("ABC1234", START);
+
+        // Test
+        clock.advanceMinutes(31);
+        monitor.tick();
+
+        // Verify
+        verify(sessionRepository, never()).closeAbandonedEntry(any(), any());
+        assertTrue(monitor.getAlerts().getAbandonedEntries().isEmpty());
+    }
+
+    @Test
+    void tick_WhenDurationLimitPasses_ShouldReportOverstayUntilExit() {
+        // Setup
+        VehiclePresence parked = VehiclePresence.entered("ABC1234", START).parkedAt(spot, START.plusMinutes(2), null);
+        when(presenceRegistry.find("ABC1234")).thenReturn(Optional.of(parked));
+        monitor.entered("ABC1234", START);
+        monitor.parked(parked, sector);
+
+        // Test
+        clock.advanceMinutes(59);
+        monitor.tick();
+        assertTrue(monitor.getAlerts().getOverstays().isEmpty());
+        clock.advanceMinutes(1);
+        monitor.tick();
+
+        // Verify
+        SessionAlertsResponse alerts = monitor.getAlerts();
+        assertEquals(1, alerts.getOverstays().size());
+        assertEquals(START.plusMinutes(60), alerts.getOverstays().get(0).getDeadline());
+        assertEquals(7L, alerts.getOverstays().get(0).getSpotId());
+        assertEquals(1.0, meterRegistry.counter("parking.sessions.overstays").count());
+
+        monitor.exited("ABC1234");
+        assertTrue(monitor.getAlerts().getOverstays().isEmpty());
+    }
+
+    @Test
+    void durationLimitsChanged_ShouldOnlyMoveDeadlinesOfParkedVehiclesInSector() {
+        // Setup: estacionado desde 08:00, já em overstay às 09:00 com o limite de 60 min
+        VehiclePresence parked = VehiclePresence.entered("ABC1234", START).parkedAt(spot, START.plusMinutes(2), null);
+        when(presenceRegistry.find("ABC1234")).thenReturn(Optional.of(parked));
+        when(presenceRegistry.parkedIn("A")).thenReturn(List.of(parked));
+        monitor.parked(parked, sector);
+        clock.advanceMinutes(60);
+        monitor.tick();
+        assertEquals(1, monitor.getAlerts().getOverstays().size());
+
+        // Test: limite reduzido a 30 min continua vencido e não conta outro overstay
+        sector.setDurationLimitMinutes(30);
+        monitor.durationLimitsChanged(List.of(sector));
+        monitor.tick();
+        assertEquals(START.plusMinutes(30), monitor.getAlerts().getOverstays().get(0).getDeadline());
+        assertEquals(1.0, meterRegistry.counter("parking.sessions.overstays").count());
+
+        // Test: limite ampliado a 120 min tira o overstay até o novo prazo
+        sector.setDurationLimitMinutes(120);
+        monitor.durationLimitsChanged(List.of(sector));
+        assertTrue(monitor.getAlerts().getOverstays().isEmpty());
+        clock.advanceMinutes(59);
+        monitor.tick();
+        assertTrue(monitor.getAlerts().getOverstays().isEmpty());
+        clock.advanceMinutes(1);
+        monitor.tick();
+
+        // Verify
+        assertEquals(START.plusMinutes(120), monitor.getAlerts().getOverstays().get(0).getDeadline());
+        assertEquals(2.0, meterRegistry.counter("parking.sessions.overstays").count());
+    }
+
+    @Test
+    void durationLimitsChanged_WithoutLimit_ShouldCancelDeadline() {
+        // Setup
+        VehiclePresence parked = VehiclePresence.entered("ABC1234", START).parkedAt(spot, START.plusMinutes(2), null);
+        when(presenceRegistry.parkedIn("A")).thenReturn(List.of(parked));
+        monitor.parked(parked, sector);
+
+        // Test
+        sector.setDurationLimitMinutes(0);
+        monitor.durationLimitsChanged(List.of(sector));
+        clock.advanceMinutes(90);
+        monitor.tick();
+
+        // Verify
+        assertEquals(0.0, meterRegistry.get("parking.sessions.deadlines.tracked").gauge().value());
+        assertTrue(monitor.getAlerts().getOverstays().isEmpty());
+    }
+
+    @Test
+    void rebuild_ShouldScheduleDeadlinesOfActiveSessions() {
+        // Setup: estacionado desde 07:30 com limite de 60 min, e uma entrada sem PARKED
+        ParkingSession parkedSession = new ParkingSession();
+        parkedSession.setLicensePlate("PARK001");
+        ParkingSession enteredSession = new ParkingSession();
+        enteredSession.setLicensePlate("ENTR001");
+        when(sectorRepository.findAll()).thenReturn(List.of(sector));
+        when(sessionRepository.findByExitTimeIsNull()).thenReturn(List.of(parkedSession, enteredSession));
+        when(presenceRegistry.find("PARK001")).thenReturn(Optional.of(
+            VehiclePresence.entered("PARK001", START.minusMinutes(30)).parkedAt(spot, START.minusMinutes(28), null)));
+        when(presenceRegistry.find("ENTR001")).thenReturn(Optional.of(VehiclePresence.entered("ENTR001", START.minusHours(5))));
+
+        // Test
+        monitor.rebuild();
+
+        // Verify
+        assertEquals(2.0, meterRegistry.get("parking.sessions.deadlines.tracked").gauge().value());
+        clock.advanceMinutes(30);
+        monitor.tick();
+        assertEquals("PARK001", monitor.getAlerts().getOverstays().get(0).getLicensePlate());
+        verify(sessionRepository).findByLicensePlateAndExitTimeIsNull("ENTR001");
+    }
+}
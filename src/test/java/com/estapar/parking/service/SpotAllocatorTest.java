@@ -0,0 +1,193 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.ParkingSession;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SpotAllocatorTest {
+
+    @Mock
+    private ParkingSpotRepository spotRepository;
+
+    @Mock
+    private ParkingSessionRepository sessionRepository;
+
+    @InjectMocks
+    private SpotAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        // Setor A com 150 vagas (3 palavras do bitmap), a vaga 2 ocupada; setor B com 1 vaga
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (long id = 1; id <= 150; id++) {
+            spots.add(spot(id, "A", id == 2 ? "OCUP001" : null));
+        }
+        spots.add(spot(500L, "B", null));
+        when(spotRepository.findAll()).thenReturn(spots);
+        when(sessionRepository.findByExitTimeIsNull()).thenReturn(List.of());
+        allocator.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void rebuild_ShouldCountFreeSpotsPerSector() {
+        assertEquals(List.of("A", "B"), allocator.getSectorIds());
+        assertEquals(150, allocator.getTotalCount("A"));
+        assertEquals(149, allocator.getFreeCount("A"));
+        assertEquals(1, allocator.getFreeCount("B"));
+        assertEquals(0, allocator.getFreeCount("Z"));
+        assertFalse(allocator.getFreeSpotIds("A").contains(2L));
+    }
+
+    @Test
+    void allocate_ShouldReturnLowestFreeSpotAndSkipFullWords() {
+        // Ocupa as vagas 1..130, deixando livres apenas as da terceira palavra
+        for (long id = 1; id <= 130; id++) {
+            allocator.markOccupied(id);
+        }
+
+        assertEquals(131L, allocator.allocate("A", "ABC1234").orElseThrow());
+        assertEquals(132L, allocator.allocate("A", "ABC5678").orElseThrow());
+        assertEquals(18, allocator.getFreeCount("A"));
+        assertEquals("A", allocator.getSectorId(131L));
+    }
+
+    @Test
+    void allocate_WhenSectorIsFull_ShouldReturnEmpty() {
+        assertEquals(500L, allocator.allocate("B", "ABC1234").orElseThrow());
+
+        assertTrue(allocator.allocate("B", "ABC5678").isEmpty());
+        assertTrue(allocator.allocate("Z", "ABC5678").isEmpty());
+        assertEquals(1L, allocator.allocate(null, "ABC5678").orElseThrow());
+    }
+
+    @Test
+    void releaseReservation_ShouldOnlyFreeSpotStillReservedForPlate() {
+        long reserved = allocator.allocate("B", "ABC1234").orElseThrow();
+
+        allocator.releaseReservation(reserved, "OTHER12");
+        assertEquals(0, allocator.getFreeCount("B"));
+
+        allocator.releaseReservation(reserved, "ABC1234");
+        assertEquals(1, allocator.getFreeCount("B"));
+    }
+
+    @Test
+    void markOccupied_WhenSpotWasReservedForOtherPlate_ShouldKeepSpotTaken() {
+        long reserved = allocator.allocate("B", "ABC1234").orElseThrow();
+
+        allocator.markOccupied(reserved);
+        allocator.releaseReservation(reserved, "ABC1234");
+
+        assertEquals(0, allocator.getFreeCount("B"));
+    }
+
+    @Test
+    void markFree_WhenTransactionRollsBack_ShouldKeepSpotOccupied() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        allocator.markFree(2L);
+        assertEquals(150, allocator.getFreeCount("A"));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(149, allocator.getFreeCount("A"));
+    }
+
+    @Test
+    void rebuild_ShouldKeepSpotsReservedByActiveSessions() {
+        ParkingSession session = new ParkingSession();
+        session.setLicensePlate("ABC1234");
+        session.setEntryTime(LocalDateTime.now());
+        session.setSpotId(500L);
+        when(sessionRepository.findByExitTimeIsNull()).thenReturn(List.of(session));
+
+        allocator.rebuild();
+
+        assertEquals(0, allocator.getFreeCount("B"));
+        allocator.releaseReservation(500L, "ABC1234");
+        assertEquals(1, allocator.getFreeCount("B"));
+    }
+
+    @Test
+    void applyTopology_ShouldKeepStateOfUntouchedSpots() {
+        // Setup: vaga 3 ocupada e vaga 1 reservada antes da nova versão
+        allocator.markOccupied(3L);
+        assertEquals(1L, allocator.allocate("A", "RES0001").orElseThrow());
+
+        // Test: 151 entra em A, 5 sai, 6 vai para o novo setor C e B é removido com sua vaga
+        allocator.applyTopology(
+            List.of(new SpotLocation(151L, "A", 0, 0), new SpotLocation(6L, "C", 0, 0)),
+            List.of(5L, 500L), List.of("B"));
+
+        // Verify
+        assertEquals(List.of("A", "C"), allocator.getSectorIds());
+        assertEquals(149, allocator.getTotalCount("A"));
+        assertEquals(146, allocator.getFreeCount("A"));
+        assertEquals(1, allocator.getFreeCount("C"));
+        assertEquals("C", allocator.getSectorId(6L));
+        assertNull(allocator.getSectorId(5L));
+        assertTrue(allocator.getFreeSpotIds("A").contains(151L));
+        assertFalse(allocator.getFreeSpotIds("A").contains(5L));
+
+        // Vagas removidas não voltam ao bitmap e a reserva anterior continua valendo
+        allocator.markFree(5L);
+        assertEquals(146, allocator.getFreeCount("A"));
+        allocator.releaseReservation(1L, "RES0001");
+        assertEquals(147, allocator.getFreeCount("A"));
+    }
+
+    @Test
+    void applyTopology_ShouldGrowSectorBeyondInitialCapacity() {
+        List<SpotLocation> added = new ArrayList<>();
+        for (long id = 1000; id < 1200; id++) {
+            added.add(new SpotLocation(id, "B", 0, 0));
+        }
+
+        allocator.applyTopology(added, List.of(), List.of());
+
+        assertEquals(201, allocator.getTotalCount("B"));
+        assertEquals(500L, allocator.allocate("B", "ABC1234").orElseThrow());
+        for (long id = 1000; id < 1199; id++) {
+            assertEquals(id, allocator.allocate("B", "P" + id).orElseThrow());
+        }
+        assertEquals(1, allocator.getFreeCount("B"));
+    }
+
+    private ParkingSpot spot(Long id, String sectorId, String licensePlate) {
+        ParkingSpot spot = new ParkingSpot();
+        spot.setId(id);
+        spot.setSectorId(sectorId);
+        spot.setLatitude(-23.5 - id * 0.001);
+        spot.setLongitude(-46.6);
+        if (licensePlate != null) {
+            spot.parkVehicle(licensePlate, LocalDateTime.now());
+        }
+        return spot;
+    }
+}
@@ -0,0 +1,136 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SpotLocationIndexTest {
+
+    @Mock
+    private ParkingSpotRepository spotRepository;
+
+    private SpotLocationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SpotLocationIndex(spotRepository, 1.0);
+        when(spotRepository.findAll()).thenReturn(List.of(
+            spot(1L, "A", -23.561684, -46.655981),
+            spot(2L, "A", -23.561700, -46.655981),
+            spot(3L, "B", -23.550520, -46.633308)));
+        index.rebuild();
+    }
+
+    @Test
+    void find_WithExactCoordinates_ShouldReturnSpot() {
+        Optional<SpotLocation> location = index.find(-23.561684, -46.655981);
+
+        assertTrue(location.isPresent());
+        assertEquals(1L, location.get().spotId());
+        assertEquals("A", location.get().sectorId());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void find_WithGpsJitter_ShouldReturnNearestSpotWithinRadius() {
+        // ~0,2 m da vaga 1 e ~1,6 m da vaga 2
+        Optional<SpotLocation> location = index.find(-23.5616855, -46.6559815);
+
+        assertTrue(location.isPresent());
+        assertEquals(1L, location.get().spotId());
+        assertTrue(index.findExact(-23.5616855, -46.6559815).isEmpty());
+    }
+
+    @Test
+    void find_OutsideRadius_ShouldReturnEmpty() {
+        assertTrue(index.find(-23.561684, -46.655900).isEmpty());
+        assertTrue(index.find(0.0, 0.0).isEmpty());
+    }
+
+    @Test
+    void rebuild_ShouldReplaceIndexedSpots() {
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            spots.add(spot((long) i, "S" + (i % 10), -23.5 - (i / 1000) * 0.0001, -46.6 - (i % 1000) * 0.0001));
+        }
+        when(spotRepository.findAll()).thenReturn(spots);
+
+        index.rebuild();
+
+        assertEquals(100_000, index.size());
+        assertTrue(index.find(-23.561684, -46.655981).isEmpty());
+        assertEquals(54_321L, index.findExact(-23.5 - 54 * 0.0001, -46.6 - 321 * 0.0001).orElseThrow().spotId());
+    }
+
+    @Test
+    void apply_ShouldOnlyChangeTouchedSpots() {
+        // Test: vaga 4 nova perto da 1, vaga 2 removida e vaga 3 movida para o setor C
+        index.apply(List.of(new SpotLocation(4L, "A", -23.561690, -46.655990),
+                new SpotLocation(3L, "C", -23.550520, -46.633308)),
+            List.of(2L));
+
+        // Verify
+        assertEquals(3, index.size());
+        assertEquals(1L, index.findExact(-23.561684, -46.655981).orElseThrow().spotId());
+        assertEquals(4L, index.findExact(-23.561690, -46.655990).orElseThrow().spotId());
+        assertTrue(index.findExact(-23.561700, -46.655981).isEmpty());
+        assertEquals("C", index.find(-23.550520, -46.633308).orElseThrow().sectorId());
+    }
+
+    @Test
+    void apply_RemovingMostCells_ShouldKeepRemainingSpotsReachable() {
+        List<ParkingSpot> spots = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            spots.add(spot((long) i, "S", -23.5 - (i / 100) * 0.0001, -46.6 - (i % 100) * 0.0001));
+        }
+        when(spotRepository.findAll()).thenReturn(spots);
+        index.rebuild();
+
+        // Test: remove duas de cada três vagas (cada uma na sua célula) e volta a incluir parte delas
+        List<Long> removed = new ArrayList<>();
+        List<SpotLocation> readded = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 3 != 0) {
+                removed.add((long) i);
+            }
+            if (i % 6 == 1) {
+                readded.add(new SpotLocation((long) i, "T", -23.5 - (i / 100) * 0.0001, -46.6 - (i % 100) * 0.0001));
+            }
+        }
+        index.apply(List.of(), removed);
+        index.apply(readded, List.of());
+
+        // Verify
+        for (int i = 0; i < 10_000; i++) {
+            Optional<SpotLocation> location = index.findExact(-23.5 - (i / 100) * 0.0001, -46.6 - (i % 100) * 0.0001);
+            if (i % 3 == 0) {
+                assertEquals("S", location.orElseThrow().sectorId());
+            } else if (i % 6 == 1) {
+                assertEquals("T", location.orElseThrow().sectorId());
+            } else {
+                assertTrue(location.isEmpty());
+            }
+        }
+    }
+
+    private ParkingSpot spot(Long id, String sectorId, double latitude, double longitude) {
+        ParkingSpot spot = new ParkingSpot();
+        spot.setId(id);
+        spot.setSectorId(sectorId);
+        spot.setLatitude(latitude);
+        spot.setLongitude(longitude);
+        return spot;
+    }
+}
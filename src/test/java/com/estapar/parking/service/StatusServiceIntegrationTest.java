@@ -2,10 +2,10 @@ package com.estapar.parking.service;
 
 import com.estapar.parking.dto.SpotStatusDTO;
 import com.estapar.parking.model.GarageSector;
-import com.estapar.parking.model.ParkingEvent;
+import com.estapar.parking.model.ParkingSession;
 import com.estapar.parking.model.ParkingSpot;
 import com.estapar.parking.repository.GarageSectorRepository;
-import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
 import com.estapar.parking.repository.ParkingSpotRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,11 +40,23 @@ class StatusServiceIntegrationTest {
     private ParkingSpotRepository spotRepository;
     
     @Autowired
-    private ParkingEventRepository eventRepository;
+    private ParkingSessionRepository sessionRepository;
     
     @Autowired
     private GarageSectorRepository sectorRepository;
 
+    @Autowired
+    private VehiclePresenceRegistry presenceRegistry;
+
+    @Autowired
+    private SpotLocationIndex spotLocationIndex;
+
+    @Autowired
+    private SpotAllocator spotAllocator;
+
+    @Autowired
+    private SectorOccupancyTimeline occupancyTimeline;
+
     @Test
     void getSpotStatus_WhenOccupied_ShouldReturnCorrectStatus() {
         // Arrange
@@ -70,17 +82,19 @@ class StatusServiceIntegrationTest {
         spot.setSectorId(sector.getId());
         spot.setLicensePlate(licensePlate);
         spot.setOccupied(true);
-        spotRepository.save(spot);
+        spot = spotRepository.save(spot);
         
-        // Criar evento de entrada
-        ParkingEvent entryEvent = new ParkingEvent();
-        entryEvent.setLicensePlate(licensePlate);
-        entryEvent.setType("ENTRY");
-        entryEvent.setTimestamp(LocalDateTime.now().minusHours(2));
-        entryEvent.setLatitude(latitude);
-        entryEvent.setLongitude(longitude);
-        entryEvent.setSectorId(sector.getId());
-        eventRepository.save(entryEvent);
+        // Criar sessão ativa
+        ParkingSession session = new ParkingSession();
+        session.setLicensePlate(licensePlate);
+        session.setEntryTime(LocalDateTime.now().minusHours(2));
+        session.setSpotId(spot.getId());
+        session.setSectorId(sector.getId());
+        sessionRepository.save(session);
+        presenceRegistry.rebuild();
+        spotLocationIndex.rebuild();
+        spotAllocator.rebuild();
+        occupancyTimeline.rebuild();
         
         // Act
         SpotStatusDTO result = statusService.getSpotStatus(latitude, longitude);
@@ -3,48 +3,55 @@ package com.estapar.parking.service;
 import com.estapar.parking.dto.PlateStatusDTO;
 import com.estapar.parking.dto.SpotStatusDTO;
 import com.estapar.parking.model.GarageSector;
-import com.estapar.parking.model.ParkingEvent;
 import com.estapar.parking.model.ParkingSpot;
-import com.estapar.parking.repository.ParkingEventRepository;
-import com.estapar.parking.repository.ParkingSpotRepository;
+import com.estapar.parking.repository.GarageSectorRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class StatusServiceUnitTest {
 
     @Mock
-    private ParkingSpotRepository spotRepository;
-    
+    private GarageSectorRepository sectorRepository;
+
+    @Mock
+    private VehiclePresenceRegistry presenceRegistry;
+
+    @Mock
+    private SectorOccupancyEngine occupancyEngine;
+
     @Mock
-    private ParkingEventRepository eventRepository;
-    
-    @InjectMocks
+    private SpotLocationIndex spotLocationIndex;
+
+    @Mock
+    private PricingEngine pricingEngine;
+
     private StatusService service;
 
     private GarageSector sector;
     private ParkingSpot spot;
-    private ParkingEvent event;
+    private VehiclePresence presence;
     private static final String LICENSE_PLATE = "ABC1234";
     private static final LocalDateTime NOW = LocalDateTime.now();
     private static final BigDecimal BASE_PRICE = new BigDecimal("10.00");
 
     @BeforeEach
     void setUp() {
+        service = new StatusService(sectorRepository, presenceRegistry, occupancyEngine, spotLocationIndex, pricingEngine);
+
         // Setup sector
         sector = new GarageSector();
         sector.setId("A1");
@@ -61,21 +68,15 @@ class StatusServiceUnitTest {
         spot.setLicensePlate(LICENSE_PLATE);
         spot.setOccupied(true);
 
-        // Setup event
-        event = new ParkingEvent();
-        event.setLicensePlate(LICENSE_PLATE);
-        event.setType("ENTRY");
-        event.setTimestamp(NOW.minusHours(2));
-        event.setLatitude(spot.getLatitude());
-        event.setLongitude(spot.getLongitude());
-        event.setSectorId(sector.getId());
+        // Setup presence (estacionado sem evento de entrada)
+        presence = VehiclePresence.entered(LICENSE_PLATE, null).parkedAt(spot, NOW.minusHours(2), null);
     }
 
     @Test
     void getPlateStatus_WhenVehicleIsParked_ShouldReturnCorrectStatus() {
         // Setup
-        when(spotRepository.findByLicensePlateAndOccupiedTrue(anyString()))
-            .thenReturn(Optional.of(spot));
+        when(presenceRegistry.find(anyString()))
+            .thenReturn(Optional.of(presence));
 
         // Test
         PlateStatusDTO status = service.getPlateStatus(LICENSE_PLATE);
@@ -83,12 +84,15 @@ class StatusServiceUnitTest {
         // Verify
         assertNotNull(status);
         assertEquals(LICENSE_PLATE, status.getLicensePlate());
+        assertEquals(spot.getLatitude(), status.getLat());
+        assertEquals(spot.getLongitude(), status.getLng());
+        verifyNoInteractions(sectorRepository, occupancyEngine, pricingEngine);
     }
 
     @Test
     void getPlateStatus_WhenVehicleIsNotParked_ShouldReturnNotParked() {
         // Setup
-        when(spotRepository.findByLicensePlateAndOccupiedTrue(anyString()))
+        when(presenceRegistry.find(anyString()))
             .thenReturn(Optional.empty());
 
         // Test
@@ -122,10 +126,10 @@ class StatusServiceUnitTest {
     @Test
     void getSpotStatus_WhenNoEntryEvent_ShouldReturnOccupiedWithoutPrice() {
         // Setup
-        when(spotRepository.findByLatitudeAndLongitude(spot.getLatitude(), spot.getLongitude()))
-                .thenReturn(Optional.of(spot));
-        when(eventRepository.findByLicensePlateAndTypeOrderByTimestampDesc(anyString(), anyString()))
-                .thenReturn(Arrays.asList());
+        when(spotLocationIndex.find(spot.getLatitude(), spot.getLongitude()))
+                .thenReturn(Optional.of(SpotLocation.of(spot)));
+        when(presenceRegistry.findBySpot(spot.getId()))
+                .thenReturn(Optional.of(presence));
 
         // Test
         SpotStatusDTO status = service.getSpotStatus(spot.getLatitude(), spot.getLongitude());
@@ -138,4 +142,57 @@ class StatusServiceUnitTest {
         assertNull(status.getEntryTime());
         assertNotNull(status.getTimeParked());
     }
-} 
\ No newline at end of file
+
+    @Test
+    void getPlateStatus_WithLockedRate_ShouldChargeElapsedTimeWithoutReadingSector() {
+        // Setup: 12,50/h travado há 2h30
+        VehiclePresence locked = VehiclePresence.entered(LICENSE_PLATE, NOW.minusMinutes(150))
+            .parkedAt(spot, NOW.minusMinutes(145), new BigDecimal("12.50"));
+        when(presenceRegistry.find(anyString()))
+            .thenReturn(Optional.of(locked));
+
+        // Test
+        PlateStatusDTO status = service.getPlateStatus(LICENSE_PLATE);
+
+        // Verify: 2 x 12,50 + 30 x 0,21
+        assertEquals(new BigDecimal("31.30"), status.getPriceUntilNow());
+        assertEquals(locked.entryTime(), status.getEntryTime());
+        verifyNoInteractions(sectorRepository, occupancyEngine, pricingEngine);
+    }
+
+    @Test
+    void getPlateStatus_WithoutLockedRate_ShouldQuoteStayBySectorOccupancy() {
+        // Setup: sessão sem locked_price
+        VehiclePresence unlocked = VehiclePresence.entered(LICENSE_PLATE, NOW.minusMinutes(150))
+            .parkedAt(spot, NOW.minusMinutes(145), null);
+        when(presenceRegistry.find(anyString())).thenReturn(Optional.of(unlocked));
+        when(sectorRepository.findById("A1")).thenReturn(Optional.of(sector));
+        when(occupancyEngine.getOccupancy(sector)).thenReturn(1);
+        when(pricingEngine.stayPrice(eq(sector), eq(1), eq(unlocked.entryTime()), any())).thenReturn(new BigDecimal("22.50"));
+
+        // Test
+        PlateStatusDTO status = service.getPlateStatus(LICENSE_PLATE);
+
+        // Verify
+        assertEquals(new BigDecimal("22.50"), status.getPriceUntilNow());
+        verify(sectorRepository).findById("A1");
+        verify(occupancyEngine).getOccupancy(sector);
+    }
+
+    @Test
+    void getSpotStatus_WhenSpotIsFree_ShouldReturnNotOccupied() {
+        // Setup
+        when(spotLocationIndex.find(spot.getLatitude(), spot.getLongitude()))
+                .thenReturn(Optional.of(SpotLocation.of(spot)));
+        when(presenceRegistry.findBySpot(spot.getId()))
+                .thenReturn(Optional.empty());
+
+        // Test
+        SpotStatusDTO status = service.getSpotStatus(spot.getLatitude(), spot.getLongitude());
+
+        // Verify
+        assertFalse(status.isOccupied());
+        assertEquals(BigDecimal.ZERO, status.getPriceUntilNow());
+        verifyNoInteractions(sectorRepository, occupancyEngine, pricingEngine);
+    }
+}
@@ -0,0 +1,145 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.GarageSector;
+import com.estapar.parking.model.SectorTariff;
+import com.estapar.parking.repository.SectorTariffRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TariffCalendarTest {
+
+    // 2025-01-06 é uma segunda-feira
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2025, 1, 6, 0, 0);
+
+    @Mock
+    private SectorTariffRepository tariffRepository;
+
+    private TariffCalendar calendar;
+
+    private GarageSector sector;
+
+    @BeforeEach
+    void setUp() {
+        calendar = new TariffCalendar(tariffRepository);
+        sector = new GarageSector();
+        sector.setId("A");
+        sector.setBasePrice(new BigDecimal("10.00"));
+        sector.setMaxCapacity(10);
+    }
+
+    @Test
+    void basePrice_WithoutTariffs_ShouldUseSectorBasePrice() {
+        assertSame(sector.getBasePrice(), calendar.basePrice(sector, MONDAY.plusHours(8)));
+    }
+
+    @Test
+    void basePrice_ShouldFollowPeakHoursOnWeekdaysOnly() {
+        // Setup
+        calendar.load(List.of(
+            tariff(null, EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY), LocalTime.of(7, 0), LocalTime.of(10, 0), "15.00")));
+
+        // Verify
+        assertPrice("10.00", MONDAY.plusHours(6).plusMinutes(59));
+        assertPrice("15.00", MONDAY.plusHours(7));
+        assertPrice("15.00", MONDAY.plusHours(9).plusMinutes(59));
+        assertPrice("10.00", MONDAY.plusHours(10));
+        assertPrice("15.00", MONDAY.plusDays(4).plusHours(8));
+        assertPrice("10.00", MONDAY.plusDays(5).plusHours(8));
+    }
+
+    @Test
+    void basePrice_WhenWindowEndsBeforeStart_ShouldWrapToNextDay() {
+        // Setup: noturno de sábado 22:00 até domingo 06:00, e de domingo até segunda
+        calendar.load(List.of(
+            tariff(null, EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY), LocalTime.of(22, 0), LocalTime.of(6, 0), "5.00")));
+
+        // Verify
+        assertPrice("10.00", MONDAY.plusDays(5).plusHours(21));
+        assertPrice("5.00", MONDAY.plusDays(5).plusHours(23));
+        assertPrice("5.00", MONDAY.plusDays(6).plusHours(5).plusMinutes(59));
+        assertPrice("10.00", MONDAY.plusDays(6).plusHours(6));
+        assertPrice("5.00", MONDAY.plusDays(7).plusHours(1));
+    }
+
+    @Test
+    void basePrice_ShouldSwitchVersionAtEffectiveInstant() {
+        // Setup
+        LocalDateTime change = MONDAY.plusDays(2).plusHours(12);
+        calendar.load(List.of(
+            tariff(null, EnumSet.allOf(DayOfWeek.class), null, null, "12.00"),
+            tariff(change, EnumSet.allOf(DayOfWeek.class), LocalTime.of(8, 0), LocalTime.of(18, 0), "20.00")));
+
+        // Verify: a nova vigência substitui a anterior inteira
+        assertPrice("12.00", change.minusMinutes(1));
+        assertPrice("20.00", change);
+        assertPrice("10.00", change.plusHours(8));
+        assertPrice("12.00", MONDAY.plusHours(20));
+        assertPrice("20.00", change.plusDays(30));
+    }
+
+    @Test
+    void basePrice_BeforeFirstVersion_ShouldUseSectorBasePrice() {
+        // Setup
+        calendar.load(List.of(tariff(MONDAY.plusDays(1), EnumSet.allOf(DayOfWeek.class), null, null, "30.00")));
+
+        // Verify
+        assertPrice("10.00", MONDAY.plusHours(12));
+        assertPrice("30.00", MONDAY.plusDays(1));
+        assertPrice("10.00", MONDAY.plusHours(13));
+    }
+
+    @Test
+    void basePrice_WithOverlappingWindows_ShouldPreferLastOne() {
+        // Setup
+        calendar.load(List.of(
+            tariff(null, EnumSet.allOf(DayOfWeek.class), LocalTime.of(6, 0), LocalTime.of(22, 0), "11.00"),
+            tariff(null, EnumSet.of(DayOfWeek.MONDAY), LocalTime.of(12, 0), LocalTime.of(14, 0), "18.00")));
+
+        // Verify
+        assertPrice("11.00", MONDAY.plusHours(11));
+        assertPrice("18.00", MONDAY.plusHours(13));
+        assertPrice("11.00", MONDAY.plusDays(1).plusHours(13));
+    }
+
+    @Test
+    void rebuild_ShouldLoadTariffsFromRepository() {
+        // Setup
+        when(tariffRepository.findAllByOrderByIdAsc())
+            .thenReturn(List.of(tariff(null, EnumSet.allOf(DayOfWeek.class), null, null, "7.00")));
+
+        // Test
+        calendar.rebuild();
+
+        // Verify
+        assertPrice("7.00", MONDAY);
+    }
+
+    private void assertPrice(String expected, LocalDateTime at) {
+        assertEquals(new BigDecimal(expected), calendar.basePrice(sector, at), () -> at.toString());
+    }
+
+    private static SectorTariff tariff(LocalDateTime effectiveFrom, EnumSet<DayOfWeek> days, LocalTime start, LocalTime end, String price) {
+        SectorTariff tariff = new SectorTariff();
+        tariff.setSectorId("A");
+        tariff.setEffectiveFrom(effectiveFrom);
+        tariff.setDaysMask(SectorTariff.maskOf(days));
+        tariff.setStartTime(start);
+        tariff.setEndTime(end);
+        tariff.setPrice(new BigDecimal(price));
+        return tariff;
+    }
+}
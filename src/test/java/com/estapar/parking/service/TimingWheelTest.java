@@ -0,0 +1,108 @@
+package com.estapar.parking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void advance_ShouldFireEachTimerAtItsDeadlineTick() {
+        // Setup: prazos em todas as rodas, com o tick inicial fora do alinhamento
+        long start = 1_000_003;
+        TimingWheel<Long> wheel = new TimingWheel<>(start);
+        Random random = new Random(42);
+        Map<String, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            long deadline = start + 1 + (long) (Math.pow(random.nextDouble(), 4) * 300_000);
+            deadlines.put("T" + i, deadline);
+            wheel.schedule("T" + i, deadline, deadline);
+        }
+
+        // Test: avanços de tamanhos variados
+        List<Long> fired = new ArrayList<>();
+        long tick = start;
+        while (tick < start + 300_001) {
+            long previous = tick;
+            tick = Math.min(start + 300_001, tick + 1 + random.nextInt(2_000));
+            for (Long deadline : wheel.advance(tick)) {
+                assertTrue(deadline > previous && deadline <= tick);
+                fired.add(deadline);
+            }
+        }
+
+        // Verify
+        assertEquals(deadlines.size(), fired.size());
+        assertEquals(0, wheel.size());
+        for (int i = 1; i < fired.size(); i++) {
+            assertTrue(fired.get(i - 1) <= fired.get(i));
+        }
+    }
+
+    @Test
+    void advance_OneTickAtATime_ShouldFireExactlyOnDeadline() {
+        TimingWheel<Long> wheel = new TimingWheel<>(4_090);
+        long[] deadlines = {4_091, 4_095, 4_096, 4_097, 4_159, 4_160, 8_191, 8_192, 266_240, 266_300};
+        for (long deadline : deadlines) {
+            wheel.schedule("T" + deadline, deadline, deadline);
+        }
+
+        for (long tick = 4_091; tick <= 266_300; tick++) {
+            List<Long> expired = wheel.advance(tick);
+            for (Long deadline : expired) {
+                assertEquals(tick, deadline);
+            }
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedule_WhenDeadlineAlreadyPassed_ShouldFireOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(100);
+        wheel.schedule("A", 10, "A");
+
+        assertEquals(List.of("A"), wheel.advance(101));
+    }
+
+    @Test
+    void schedule_SameKey_ShouldReplacePreviousTimer() {
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        wheel.schedule("ABC1234", 10, "entry");
+        wheel.schedule("ABC1234", 5_000, "overstay");
+
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(), wheel.advance(4_999));
+        assertEquals(List.of("overstay"), wheel.advance(5_000));
+    }
+
+    @Test
+    void cancel_ShouldRemoveTimerFromItsSlot() {
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        wheel.schedule("A", 70, "A");
+        wheel.schedule("B", 70, "B");
+        wheel.schedule("C", 70, "C");
+
+        assertTrue(wheel.cancel("B"));
+        assertFalse(wheel.cancel("B"));
+        assertEquals(List.of("A", "C"), wheel.advance(70).stream().sorted().toList());
+    }
+
+    @Test
+    void advance_WhenDeadlineCrossesAllWheels_ShouldWaitForWrapAround() {
+        // Setup: o prazo está depois da virada da última roda (2^30 ticks)
+        long wrap = 1L << 30;
+        TimingWheel<String> wheel = new TimingWheel<>(wrap - 10);
+        wheel.schedule("A", wrap + 5, "A");
+        wheel.schedule("B", wrap - 3, "B");
+
+        // Verify
+        assertEquals(List.of("B"), wheel.advance(wrap + 4));
+        assertEquals(List.of("A"), wheel.advance(wrap + 5));
+    }
+}
@@ -0,0 +1,142 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.model.ParkingSession;
+import com.estapar.parking.model.ParkingSpot;
+import com.estapar.parking.repository.ParkingSessionRepository;
+import com.estapar.parking.repository.ParkingSpotRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VehiclePresenceRegistryTest {
+
+    @Mock
+    private ParkingSpotRepository spotRepository;
+
+    @Mock
+    private ParkingSessionRepository sessionRepository;
+
+    @InjectMocks
+    private VehiclePresenceRegistry registry;
+
+    private static final LocalDateTime ENTRY_TIME = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private ParkingSpot spot;
+
+    @BeforeEach
+    void setUp() {
+        spot = new ParkingSpot();
+        spot.setId(7L);
+        spot.setSectorId("A");
+        spot.setLatitude(-23.561684);
+        spot.setLongitude(-46.655981);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void rebuild_ShouldLoadEnteredAndParkedVehiclesFromActiveSessions() {
+        // Setup
+        ParkingSession parkedSession = activeSession("PARK001");
+        parkedSession.setSpotId(spot.getId());
+        parkedSession.setSectorId(spot.getSectorId());
+        parkedSession.setLockedPrice(new BigDecimal("11.00"));
+        ParkingSession enteredSession = activeSession("ENTR001");
+        spot.parkVehicle("PARK001", ENTRY_TIME.plusMinutes(5));
+        when(sessionRepository.findByExitTimeIsNull()).thenReturn(List.of(parkedSession, enteredSession));
+        when(spotRepository.findByOccupiedTrue()).thenReturn(List.of(spot));
+
+        // Test
+        registry.rebuild();
+
+        // Verify
+        VehiclePresence parked = registry.find("PARK001").orElseThrow();
+        assertTrue(parked.isParked());
+        assertEquals(ENTRY_TIME, parked.entryTime());
+        assertEquals(7L, parked.spotId());
+        assertEquals("A", parked.sectorId());
+        assertEquals(110_000L, parked.lockedRateUnits());
+        assertEquals("PARK001", registry.findBySpot(7L).orElseThrow().licensePlate());
+        assertEquals(VehiclePresence.State.ENTERED, registry.find("ENTR001").orElseThrow().state());
+        assertTrue(registry.find("NONE001").isEmpty());
+    }
+
+    @Test
+    void markParked_WhenTransactionRollsBack_ShouldRestorePreviousState() {
+        // Setup
+        registry.markEntered("ABC1234", ENTRY_TIME);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Test
+        registry.markParked("ABC1234", spot, ENTRY_TIME.plusMinutes(1), new BigDecimal("10.00"));
+        assertTrue(registry.find("ABC1234").orElseThrow().isParked());
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Verify
+        VehiclePresence restored = registry.find("ABC1234").orElseThrow();
+        assertEquals(VehiclePresence.State.ENTERED, restored.state());
+        assertEquals(ENTRY_TIME, restored.entryTime());
+        assertTrue(registry.findBySpot(spot.getId()).isEmpty());
+    }
+
+    @Test
+    void findBySpot_ShouldFollowParkAndRemove() {
+        // Setup
+        registry.markEntered("ABC1234", ENTRY_TIME);
+        registry.markParked("ABC1234", spot, ENTRY_TIME.plusMinutes(1), new BigDecimal("12.50"));
+
+        // Verify
+        VehiclePresence parked = registry.findBySpot(spot.getId()).orElseThrow();
+        assertEquals("ABC1234", parked.licensePlate());
+        assertEquals(125_000L, parked.lockedRateUnits());
+
+        registry.remove("ABC1234");
+        assertTrue(registry.findBySpot(spot.getId()).isEmpty());
+    }
+
+    @Test
+    void remove_WhenTransactionCommits_ShouldKeepVehicleRemoved() {
+        // Setup
+        registry.markEntered("ABC1234", ENTRY_TIME);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Test
+        registry.remove("ABC1234");
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Verify
+        assertTrue(registry.find("ABC1234").isEmpty());
+    }
+
+    private void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private ParkingSession activeSession(String licensePlate) {
+        ParkingSession session = new ParkingSession();
+        session.setLicensePlate(licensePlate);
+        session.setEntryTime(ENTRY_TIME);
+        return session;
+    }
+}
@@ -0,0 +1,86 @@
+package com.estapar.parking.service;
+
+import com.estapar.parking.dto.VehicleEventDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class WebhookDispatcherTest {
+
+    @Test
+    void submit_ShouldKeepEventsOfSamePlateInOrderAndDrainOnShutdown() throws Exception {
+        // Setup
+        ParkingService parkingService = mock(ParkingService.class);
+        Map<String, List<String>> processed = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            VehicleEventDTO event = invocation.getArgument(0);
+            processed.computeIfAbsent(event.getLicensePlate(), plate -> Collections.synchronizedList(new ArrayList<>()))
+                .add(event.getEventType());
+            return null;
+        }).when(parkingService).handleWebhookEvent(any(VehicleEventDTO.class));
+
+        WebhookDispatcher dispatcher = new WebhookDispatcher(parkingService, new SimpleMeterRegistry(), true, 4, 1000, 10);
+
+        // Test
+        for (int i = 0; i < 50; i++) {
+            for (String type : List.of("ENTRY", "PARKED", "EXIT")) {
+                assertTrue(dispatcher.submit(event("PLATE" + i, type)));
+            }
+        }
+        dispatcher.drain();
+
+        // Verify
+        assertEquals(50, processed.size());
+        processed.values().forEach(types -> assertEquals(List.of("ENTRY", "PARKED", "EXIT"), types));
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldRejectEvent() throws Exception {
+        // Setup
+        ParkingService parkingService = mock(ParkingService.class);
+        Object gate = new Object();
+        doAnswer(invocation -> {
+            synchronized (gate) {
+                gate.wait(2000);
+            }
+            return null;
+        }).when(parkingService).handleWebhookEvent(any(VehicleEventDTO.class));
+
+        WebhookDispatcher dispatcher = new WebhookDispatcher(parkingService, new SimpleMeterRegistry(), true, 1, 1, 10);
+
+        // Test
+        boolean first = dispatcher.submit(event("PLATE1", "ENTRY"));
+        Thread.sleep(100);
+        boolean second = dispatcher.submit(event("PLATE1", "PARKED"));
+        boolean third = dispatcher.submit(event("PLATE1", "EXIT"));
+
+        // Verify
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(1, dispatcher.getQueueDepth());
+
+        synchronized (gate) {
+            gate.notifyAll();
+        }
+        dispatcher.drain();
+    }
+
+    private VehicleEventDTO event(String licensePlate, String type) {
+        VehicleEventDTO event = new VehicleEventDTO();
+        event.setLicensePlate(licensePlate);
+        event.setEventType(type);
+        return event;
+    }
+}
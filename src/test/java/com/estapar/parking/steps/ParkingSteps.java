@@ -8,9 +8,15 @@ import com.estapar.parking.model.ParkingEvent;
 import com.estapar.parking.model.ParkingSpot;
 import com.estapar.parking.repository.GarageSectorRepository;
 import com.estapar.parking.repository.ParkingEventRepository;
+import com.estapar.parking.repository.ParkingSessionRepository;
 import com.estapar.parking.repository.ParkingSpotRepository;
 import com.estapar.parking.service.ParkingService;
+import com.estapar.parking.service.SectorOccupancyEngine;
+import com.estapar.parking.service.SectorOccupancyTimeline;
+import com.estapar.parking.service.SpotAllocator;
+import com.estapar.parking.service.SpotLocationIndex;
 import com.estapar.parking.service.StatusService;
+import com.estapar.parking.service.VehiclePresenceRegistry;
 import io.cucumber.java.Before;
 import io.cucumber.java.pt.Dado;
 import io.cucumber.java.pt.Quando;
@@ -52,6 +58,24 @@ public class ParkingSteps {
     @Autowired
     private ParkingEventRepository eventRepository;
 
+    @Autowired
+    private ParkingSessionRepository sessionRepository;
+
+    @Autowired
+    private VehiclePresenceRegistry presenceRegistry;
+
+    @Autowired
+    private SectorOccupancyEngine occupancyEngine;
+
+    @Autowired
+    private SpotLocationIndex spotLocationIndex;
+
+    @Autowired
+    private SpotAllocator spotAllocator;
+
+    @Autowired
+    private SectorOccupancyTimeline occupancyTimeline;
+
     @Autowired
     private TestRestTemplate restTemplate;
 
@@ -71,9 +95,15 @@ public class ParkingSteps {
     @Before
     public void setup() {
         // Limpa os dados antes de cada cenário
+        sessionRepository.deleteAll();
         eventRepository.deleteAll();
         spotRepository.deleteAll();
         sectorRepository.deleteAll();
+        presenceRegistry.rebuild();
+        occupancyEngine.rebuild();
+        spotLocationIndex.rebuild();
+        spotAllocator.rebuild();
+        occupancyTimeline.rebuild();
         
         // Inicializa o eventDTO
         eventDTO = new VehicleEventDTO();
@@ -129,7 +159,7 @@ public class ParkingSteps {
         spot.setLatitude(latitude);
         spot.setLongitude(longitude);
         spot.setSectorId(sector.getId());
-        spot = spotRepository.save(spot);
+        spot = saveSpot(spot);
         
         // Verifica se a vaga foi salva corretamente
         assertNotNull(spot, "A vaga deve ser salva corretamente");
@@ -247,7 +277,7 @@ public class ParkingSteps {
             spot.setLatitude(-23.561684);
             spot.setLongitude(-46.655981);
             spot.setSectorId(sector.getId());
-            spot = spotRepository.save(spot);
+            spot = saveSpot(spot);
         }
         
         // Primeiro registra a entrada
@@ -282,7 +312,7 @@ public class ParkingSteps {
         newSpot.setLatitude(latitude);
         newSpot.setLongitude(longitude);
         newSpot.setSectorId(sector.getId());
-        this.spot = spotRepository.save(newSpot);
+        this.spot = saveSpot(newSpot);
         
         // Verifica se a vaga foi salva corretamente
         assertNotNull(this.spot, "A vaga deve ser salva corretamente");
@@ -305,6 +335,7 @@ public class ParkingSteps {
 
     @Entao("a ocupação do setor deve aumentar em {int}")
     public void sectorOccupancyShouldIncrease(int amount) {
+        occupancyEngine.flush();
         GarageSector updatedSector = sectorRepository.findById(sector.getId()).orElseThrow();
         assertEquals(amount, updatedSector.getCurrentOccupancy());
     }
@@ -340,7 +371,7 @@ public class ParkingSteps {
                 newSpot.setLatitude(latitude);
                 newSpot.setLongitude(longitude);
                 newSpot.setSectorId(sector.getId());
-                return spotRepository.save(newSpot);
+                return saveSpot(newSpot);
             });
         
         // Primeiro registra a entrada
@@ -365,6 +396,7 @@ public class ParkingSteps {
 
     @Entao("a ocupação do setor deve diminuir em {int}")
     public void sectorOccupancyShouldDecrease(int amount) {
+        occupancyEngine.flush();
         GarageSector updatedSector = sectorRepository.findById(sector.getId()).orElseThrow();
         assertEquals(0, updatedSector.getCurrentOccupancy());
     }
@@ -386,7 +418,7 @@ public class ParkingSteps {
         spot.setLatitude(latitude);
         spot.setLongitude(longitude);
         spot.setSectorId(sector.getId());
-        spotRepository.save(spot);
+        saveSpot(spot);
         
         eventDTO.setLicensePlate("OCCUPIED123");
         eventDTO.setEventType("PARKED");
@@ -442,7 +474,7 @@ public class ParkingSteps {
             spot.setLatitude(-23.561684);
             spot.setLongitude(-46.655981);
             spot.setSectorId(sector.getId());
-            spot = spotRepository.save(spot);
+            spot = saveSpot(spot);
         }
         
         // Primeiro registra a entrada
@@ -488,7 +520,7 @@ public class ParkingSteps {
         spot.setLatitude(latitude);
         spot.setLongitude(longitude);
         spot.setSectorId(sector.getId());
-        spot = spotRepository.save(spot);
+        spot = saveSpot(spot);
         
         // Verifica se a vaga foi salva corretamente
         assertNotNull(spot, "A vaga deve ser salva corretamente");
@@ -573,7 +605,7 @@ public class ParkingSteps {
             spot.setSectorId(sectorId);
             spot.setLatitude(-23.561684 + i * 0.0001);
             spot.setLongitude(-46.655981 + i * 0.0001);
-            spotRepository.save(spot);
+            saveSpot(spot);
             
             eventDTO.setLicensePlate("TEST" + i);
             eventDTO.setEventType("PARKED");
@@ -608,7 +640,7 @@ public class ParkingSteps {
                 newSpot.setLatitude(latitude);
                 newSpot.setLongitude(longitude);
                 newSpot.setSectorId(sector.getId());
-                return spotRepository.save(newSpot);
+                return saveSpot(newSpot);
             });
         
         eventDTO.setLicensePlate(licensePlate);
@@ -685,7 +717,7 @@ public class ParkingSteps {
                 newSpot.setLatitude(latitude);
                 newSpot.setLongitude(longitude);
                 newSpot.setSectorId(sector.getId());
-                return spotRepository.save(newSpot);
+                return saveSpot(newSpot);
             });
         
         // Registra o estacionamento
@@ -699,4 +731,12 @@ public class ParkingSteps {
         assertFalse(events.isEmpty(), "Deve existir pelo menos um evento");
         assertEquals("PARKED", events.get(0).getType(), "O evento deve ser de estacionamento");
     }
-} 
\ No newline at end of file
+
+    // Vagas criadas direto no repositório precisam entrar no índice de coordenadas e no alocador
+    private ParkingSpot saveSpot(ParkingSpot spot) {
+        ParkingSpot saved = spotRepository.save(spot);
+        spotLocationIndex.rebuild();
+        spotAllocator.rebuild();
+        return saved;
+    }
+}